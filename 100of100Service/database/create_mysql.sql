@@ -3,6 +3,10 @@ DROP DATABASE IF EXISTS organization_management;
 CREATE DATABASE organization_management;
 USE organization_management;
 
+-- id_sequences and schema_migrations are created by the service's migrations
+-- (db/migration/V1__create_id_sequences.sql), not by this script
+DROP TABLE IF EXISTS schema_migrations;
+DROP TABLE IF EXISTS id_sequences;
 DROP TABLE IF EXISTS employees;
 DROP TABLE IF EXISTS departments;
 DROP TABLE IF EXISTS organizations;
@@ -31,6 +35,8 @@ CREATE TABLE employees (
     salary DECIMAL(10, 2),
     performance DECIMAL(5, 2),
     contact_info JSON,
+    -- Referenced by the shifts foreign key, and serves organization-scoped scans by ID
+    UNIQUE KEY uk_employees_org_employee (organization_id, employee_id),
     FOREIGN KEY (organization_id) REFERENCES organizations(organization_id),
     FOREIGN KEY (department_id) REFERENCES departments(department_id)
 );
@@ -44,6 +50,9 @@ CREATE TABLE shifts (
     FOREIGN KEY (organization_id, employee_id) REFERENCES employees(organization_id, employee_id)
 );
 
+-- Further tables and indexes are applied by the service at startup from
+-- src/main/resources/db/migration and recorded in schema_migrations.
+
 -- Add foreign key constraint for department head after employees table is created
 ALTER TABLE departments
 ADD CONSTRAINT fk_department_head
@@ -0,0 +1,106 @@
+package dev.coms4156.project;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous companion of the DatabaseConnection interface.
+ * Every call runs on the executor of the connection and returns a future, so callers can
+ * issue independent queries in parallel instead of blocking on each one in turn.
+ */
+public interface AsyncDatabaseConnection extends DatabaseConnection {
+
+  /**
+   * Returns the executor the asynchronous calls run on.
+   *
+   * @return the executor
+   */
+  Executor asyncExecutor();
+
+  /**
+   * Asynchronously returns an employee in a given organization by external ID.
+   *
+   * @param organizationId the organization id (clientId)
+   * @param externalEmployeeId the external employee id
+   * @return a future of the employee, completed with null if not found
+   */
+  default CompletableFuture<Employee> getEmployeeAsync(
+      int organizationId, int externalEmployeeId) {
+    return CompletableFuture.supplyAsync(
+        () -> getEmployee(organizationId, externalEmployeeId), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously returns a list of employees in a given organization.
+   *
+   * @param organizationId the organization id
+   * @return a future of the list of employees in the organization
+   */
+  default CompletableFuture<List<Employee>> getEmployeesAsync(int organizationId) {
+    return CompletableFuture.supplyAsync(() -> getEmployees(organizationId), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously returns a department in a given organization by external ID.
+   *
+   * @param organizationId the organization id (clientId)
+   * @param externalDepartmentId the external department id
+   * @return a future of the department, completed with null if not found
+   */
+  default CompletableFuture<Department> getDepartmentAsync(
+      int organizationId, int externalDepartmentId) {
+    return CompletableFuture.supplyAsync(
+        () -> getDepartment(organizationId, externalDepartmentId), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously loads an organization with its departments and employees.
+   *
+   * @param organizationId the organization id
+   * @return a future of the snapshot, completed with null if not found
+   */
+  default CompletableFuture<OrganizationSnapshot> loadOrganizationSnapshotAsync(
+      int organizationId) {
+    return CompletableFuture.supplyAsync(
+        () -> loadOrganizationSnapshot(organizationId), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously updates an employee in the database.
+   *
+   * @param organizationId the organization id
+   * @param employee the employee to update
+   * @return a future completed with true if update successful, false otherwise
+   */
+  default CompletableFuture<Boolean> updateEmployeeAsync(int organizationId, Employee employee) {
+    return CompletableFuture.supplyAsync(
+        () -> updateEmployee(organizationId, employee), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously updates several employees in one batch.
+   *
+   * @param organizationId the organization id
+   * @param employees the employees to update
+   * @return a future of the number of employees updated
+   */
+  default CompletableFuture<Integer> updateEmployeesAsync(
+      int organizationId, List<Employee> employees) {
+    return CompletableFuture.supplyAsync(
+        () -> updateEmployees(organizationId, employees), asyncExecutor());
+  }
+
+  /**
+   * Asynchronously updates a department's information in the database.
+   *
+   * @param organizationId the organization id
+   * @param department the department to update
+   * @return a future completed with true if update successful, false otherwise
+   */
+  default CompletableFuture<Boolean> updateDepartmentAsync(
+      int organizationId, Department department) {
+    return CompletableFuture.supplyAsync(
+        () -> updateDepartment(organizationId, department), asyncExecutor());
+  }
+}
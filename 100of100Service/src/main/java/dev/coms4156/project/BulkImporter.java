@@ -0,0 +1,461 @@
+package dev.coms4156.project;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.coms4156.project.utils.FixedPoint;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Imports departments and employees of an organization from CSV or NDJSON.
+ * Records are parsed in chunks on the calling thread and validated in parallel on an
+ * executor. At most a fixed number of chunks are in flight, so parsing waits for the
+ * writes instead of buffering the whole input. Valid employees are written with the
+ * multi-row INSERTs of addEmployeesToDepartment, one call per department and chunk.
+ *
+ * <p>Every record has the fields {@code type} ("employee", the default, or "department"),
+ * {@code did} (an existing department ID) or {@code department} (a department name, created
+ * if it does not exist yet), {@code name}, {@code hireDate} ("yyyy-MM-dd"),
+ * {@code position}, {@code salary} and {@code performance}. CSV input starts with a header
+ * line naming its columns.
+ */
+public class BulkImporter {
+  private static final int CHUNK_SIZE = 1000;
+  private static final int MAX_REPORTED_ERRORS = 100;
+  // The column sizes of the employees and departments tables
+  private static final int MAX_NAME_LENGTH = 255;
+  private static final int MAX_POSITION_LENGTH = 100;
+  private static final BigDecimal MAX_SALARY = new BigDecimal("99999999.99");
+  private static final BigDecimal MAX_PERFORMANCE = new BigDecimal("999.99");
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final DatabaseConnection connection;
+  private final int organizationId;
+  private final Executor executor;
+  private final int maxChunksInFlight;
+  private final Map<Integer, Department> departmentsById = new HashMap<>();
+  private final Map<String, Department> departmentsByName = new HashMap<>();
+  private final Result result = new Result();
+
+  /**
+   * Constructs an importer for one organization.
+   *
+   * @param connection the database connection the records are written to
+   * @param organizationId the organization id
+   * @param departments the existing departments of the organization
+   * @param executor the executor records are validated on
+   */
+  public BulkImporter(
+      DatabaseConnection connection, int organizationId,
+      List<Department> departments, Executor executor
+  ) {
+    this.connection = connection;
+    this.organizationId = organizationId;
+    this.executor = executor;
+    this.maxChunksInFlight = Math.max(2, Runtime.getRuntime().availableProcessors());
+    for (Department department : departments) {
+      this.departmentsById.put(department.getId(), department);
+      this.departmentsByName.putIfAbsent(department.getName(), department);
+    }
+  }
+
+  /**
+   * Imports every record of an input.
+   * Invalid records are rejected one by one and reported; they do not stop the import.
+   *
+   * @param reader the input
+   * @param format the format of the input
+   * @return the outcome of the import
+   * @throws IOException if the input cannot be read
+   */
+  public Result run(Reader reader, RecordFormat format) throws IOException {
+    BufferedReader lines = new BufferedReader(reader);
+    List<String> header = null;
+    if (format == RecordFormat.CSV) {
+      String headerLine = lines.readLine();
+      if (headerLine == null) {
+        return result;
+      }
+      header = new ArrayList<>();
+      for (String column : splitCsvLine(headerLine)) {
+        header.add(column.trim());
+      }
+    }
+
+    Deque<CompletableFuture<List<Row>>> inFlight = new ArrayDeque<>();
+    List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+    int firstLine = format == RecordFormat.CSV ? 2 : 1;
+    int lineNumber = firstLine - 1;
+    String line;
+    while ((line = lines.readLine()) != null) {
+      lineNumber++;
+      chunk.add(line);
+      if (chunk.size() == CHUNK_SIZE) {
+        inFlight.add(validateAsync(chunk, firstLine, format, header));
+        chunk = new ArrayList<>(CHUNK_SIZE);
+        firstLine = lineNumber + 1;
+        if (inFlight.size() >= maxChunksInFlight) {
+          // Backpressure: the oldest chunk is written before more input is read
+          write(DatabaseExecutors.await(inFlight.poll()));
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      inFlight.add(validateAsync(chunk, firstLine, format, header));
+    }
+    while (!inFlight.isEmpty()) {
+      write(DatabaseExecutors.await(inFlight.poll()));
+    }
+    return result;
+  }
+
+  private CompletableFuture<List<Row>> validateAsync(
+      List<String> chunk, int firstLine, RecordFormat format, List<String> header
+  ) {
+    return CompletableFuture.supplyAsync(() -> {
+      List<Row> rows = new ArrayList<>(chunk.size());
+      for (int i = 0; i < chunk.size(); i++) {
+        if (!chunk.get(i).isBlank()) {
+          rows.add(parseRow(firstLine + i, chunk.get(i), format, header));
+        }
+      }
+      return rows;
+    }, executor);
+  }
+
+  /**
+   * Parses and validates one record.
+   *
+   * @param lineNumber the line number of the record in the input
+   * @param line the record
+   * @param format the format of the record
+   * @param header the CSV columns, null for NDJSON
+   * @return the row, carrying an error if the record is invalid
+   */
+  static Row parseRow(int lineNumber, String line, RecordFormat format, List<String> header) {
+    Map<String, String> fields;
+    try {
+      fields = format == RecordFormat.CSV ? csvFields(line, header) : jsonFields(line);
+    } catch (IllegalArgumentException e) {
+      return Row.rejected(lineNumber, e.getMessage());
+    }
+
+    String departmentName = fields.get("department");
+    Integer departmentId = null;
+    if (fields.get("did") != null) {
+      try {
+        departmentId = Integer.parseInt(fields.get("did"));
+      } catch (NumberFormatException e) {
+        return Row.rejected(lineNumber, "Invalid department ID: " + fields.get("did"));
+      }
+    }
+    if (departmentId == null && departmentName == null) {
+      return Row.rejected(lineNumber, "Missing department ID or name");
+    }
+    if (departmentName != null && departmentName.length() > MAX_NAME_LENGTH) {
+      return Row.rejected(lineNumber, "Department name is too long");
+    }
+    String type = fields.getOrDefault("type", "employee").toLowerCase(Locale.ROOT);
+    if ("department".equals(type)) {
+      if (departmentName == null) {
+        return Row.rejected(lineNumber, "Missing department name");
+      }
+      return new Row(lineNumber, null, departmentName, null, null);
+    }
+    if (!"employee".equals(type)) {
+      return Row.rejected(lineNumber, "Unknown record type: " + type);
+    }
+
+    String name = fields.get("name");
+    if (name == null) {
+      return Row.rejected(lineNumber, "Missing employee name");
+    }
+    if (name.length() > MAX_NAME_LENGTH) {
+      return Row.rejected(lineNumber, "Employee name is too long");
+    }
+    String position = fields.getOrDefault("position", "");
+    if (position.length() > MAX_POSITION_LENGTH) {
+      return Row.rejected(lineNumber, "Position is too long");
+    }
+    LocalDate hireDate;
+    try {
+      hireDate = LocalDate.parse(fields.getOrDefault("hiredate", ""));
+    } catch (DateTimeParseException e) {
+      return Row.rejected(lineNumber, "Invalid date format. Expected yyyy-MM-dd.");
+    }
+    // Parsed as decimals, so amounts reach the DECIMAL columns without binary rounding
+    BigDecimal salary;
+    BigDecimal performance;
+    try {
+      salary = new BigDecimal(fields.getOrDefault("salary", "0"));
+      performance = new BigDecimal(fields.getOrDefault("performance", "0"));
+    } catch (NumberFormatException e) {
+      return Row.rejected(lineNumber, "Invalid number: " + e.getMessage());
+    }
+    // A value the column cannot hold would fail the whole multi-row INSERT, so reject it here
+    if (salary.signum() < 0 || salary.compareTo(MAX_SALARY) > 0) {
+      return Row.rejected(lineNumber, "Salary out of range: " + salary);
+    }
+    if (performance.signum() < 0 || performance.compareTo(MAX_PERFORMANCE) > 0) {
+      return Row.rejected(lineNumber, "Performance out of range: " + performance);
+    }
+
+    Employee employee = new Employee(
+        0, name, java.sql.Date.valueOf(hireDate), position, 0, 0);
+    employee.setSalaryCents(FixedPoint.toUnits(salary));
+    employee.setPerformanceBasisPoints(FixedPoint.toUnits(performance));
+    return new Row(lineNumber, departmentId, departmentName, employee, null);
+  }
+
+  /**
+   * Writes the valid rows of a chunk, creating the departments they name on the way.
+   *
+   * @param rows the validated rows of the chunk, in input order
+   */
+  private void write(List<Row> rows) {
+    Map<Department, List<Row>> byDepartment = new LinkedHashMap<>();
+    for (Row row : rows) {
+      if (row.error != null) {
+        result.reject(row.lineNumber, row.error);
+        continue;
+      }
+      Department department = resolveDepartment(row);
+      if (department == null) {
+        continue;
+      }
+      if (row.employee != null) {
+        byDepartment.computeIfAbsent(department, key -> new ArrayList<>()).add(row);
+      }
+    }
+
+    for (Map.Entry<Department, List<Row>> entry : byDepartment.entrySet()) {
+      List<Row> departmentRows = entry.getValue();
+      List<Employee> employees = new ArrayList<>(departmentRows.size());
+      for (Row row : departmentRows) {
+        employees.add(row.employee);
+      }
+      int internalDepartmentId = organizationId * 10000 + entry.getKey().getId();
+      List<Integer> ids =
+          connection.addEmployeesToDepartment(organizationId, internalDepartmentId, employees);
+      if (ids.size() == employees.size()) {
+        result.employeesImported += ids.size();
+      } else {
+        for (Row row : departmentRows) {
+          result.reject(row.lineNumber, "Failed to add employee to department");
+        }
+      }
+    }
+  }
+
+  private Department resolveDepartment(Row row) {
+    if (row.departmentId != null) {
+      Department department = departmentsById.get(row.departmentId);
+      if (department == null) {
+        result.reject(row.lineNumber, "Department [" + row.departmentId + "] not found");
+      }
+      return department;
+    }
+    Department department = departmentsByName.get(row.departmentName);
+    if (department == null) {
+      department = connection.insertDepartment(
+          organizationId, new Department(0, row.departmentName));
+      if (department == null) {
+        result.reject(row.lineNumber, "Failed to create department: " + row.departmentName);
+        return null;
+      }
+      departmentsById.put(department.getId(), department);
+      departmentsByName.put(department.getName(), department);
+      result.departmentsCreated++;
+    }
+    return department;
+  }
+
+  private static Map<String, String> csvFields(String line, List<String> header) {
+    List<String> values = splitCsvLine(line);
+    if (values.size() > header.size()) {
+      throw new IllegalArgumentException(
+          "Expected at most " + header.size() + " columns, found " + values.size());
+    }
+    Map<String, String> fields = new HashMap<>();
+    for (int i = 0; i < values.size(); i++) {
+      putField(fields, header.get(i), values.get(i));
+    }
+    return fields;
+  }
+
+  private static Map<String, String> jsonFields(String line) {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(line);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+    }
+    if (node == null || !node.isObject()) {
+      throw new IllegalArgumentException("Expected a JSON object");
+    }
+    Map<String, String> fields = new HashMap<>();
+    node.fields().forEachRemaining(field ->
+        putField(fields, field.getKey(), field.getValue().isNull()
+            ? null : field.getValue().asText()));
+    return fields;
+  }
+
+  private static void putField(Map<String, String> fields, String key, String value) {
+    // Blank values count as missing, so optional columns may be left empty
+    if (value != null && !value.isBlank()) {
+      fields.put(key.toLowerCase(Locale.ROOT), value.trim());
+    }
+  }
+
+  /**
+   * Splits a CSV line into its values. Values may be quoted with double quotes, and a
+   * quote inside a quoted value is written twice.
+   *
+   * @param line the line
+   * @return the values of the line
+   */
+  static List<String> splitCsvLine(String line) {
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          value.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          value.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted value");
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  /**
+   * A parsed record: a department declaration, an employee, or the reason it was rejected.
+   */
+  static final class Row {
+    private final int lineNumber;
+    private final Integer departmentId;
+    private final String departmentName;
+    private final Employee employee;
+    private final String error;
+
+    private Row(int lineNumber, Integer departmentId, String departmentName,
+                Employee employee, String error) {
+      this.lineNumber = lineNumber;
+      this.departmentId = departmentId;
+      this.departmentName = departmentName;
+      this.employee = employee;
+      this.error = error;
+    }
+
+    private static Row rejected(int lineNumber, String error) {
+      return new Row(lineNumber, null, null, null, error);
+    }
+
+    String getError() {
+      return error;
+    }
+
+    Employee getEmployee() {
+      return employee;
+    }
+  }
+
+  /**
+   * The outcome of an import.
+   */
+  public static final class Result {
+    private int employeesImported;
+    private int departmentsCreated;
+    private int rejected;
+    private final List<String> errors = new ArrayList<>();
+
+    private void reject(int lineNumber, String error) {
+      rejected++;
+      if (errors.size() < MAX_REPORTED_ERRORS) {
+        errors.add("Line " + lineNumber + ": " + error);
+      }
+    }
+
+    /**
+     * Returns the number of imported employees.
+     *
+     * @return the number of imported employees
+     */
+    public int getEmployeesImported() {
+      return employeesImported;
+    }
+
+    /**
+     * Returns the number of departments created by the import.
+     *
+     * @return the number of created departments
+     */
+    public int getDepartmentsCreated() {
+      return departmentsCreated;
+    }
+
+    /**
+     * Returns the number of rejected records.
+     *
+     * @return the number of rejected records
+     */
+    public int getRejected() {
+      return rejected;
+    }
+
+    /**
+     * Returns the reasons of the first rejected records.
+     *
+     * @return the errors, one per rejected record, prefixed with its line number
+     */
+    public List<String> getErrors() {
+      return errors;
+    }
+
+    /**
+     * Report the outcome in a JSON format.
+     *
+     * @return a Map of the outcome that can be easily converted to JSON
+     */
+    public Map<String, Object> toJson() {
+      Map<String, Object> json = new HashMap<>();
+      json.put("employeesImported", employeesImported);
+      json.put("departmentsCreated", departmentsCreated);
+      json.put("rejected", rejected);
+      json.put("errors", errors);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package dev.coms4156.project;
+
+import dev.coms4156.project.exception.ServiceUnavailableException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A database connection decorator that fails fast while the database is unhealthy.
+ * Every call is timed into a health monitor; once too many calls fail or run slow, the
+ * circuit opens and calls throw ServiceUnavailableException at once instead of tying up a
+ * request thread on a stalled socket, until the background probe of the monitor succeeds.
+ * Designed under the Decorator Design Pattern.
+ */
+public class CircuitBreakerConnection implements DatabaseConnection {
+  private final DatabaseConnection delegate;
+  private final DatabaseHealthMonitor monitor;
+
+  /**
+   * Constructs a circuit breaker connection.
+   * Failures the delegate reports through return values only must be recorded in the
+   * monitor by the delegate itself, e.g. through JdbcConnection.setFailureListener.
+   *
+   * @param delegate the connection the calls go through to while the circuit is closed
+   * @param monitor the monitor the calls are recorded in
+   */
+  public CircuitBreakerConnection(DatabaseConnection delegate, DatabaseHealthMonitor monitor) {
+    this.delegate = delegate;
+    this.monitor = monitor;
+  }
+
+  /**
+   * Returns the health monitor of the connection.
+   *
+   * @return the health monitor
+   */
+  public DatabaseHealthMonitor getMonitor() {
+    return monitor;
+  }
+
+  private <T> T guarded(Supplier<T> call) {
+    if (!monitor.allowRequest()) {
+      throw new ServiceUnavailableException("The database is unavailable, retry later.");
+    }
+    long start = System.nanoTime();
+    try {
+      return call.get();
+    } catch (RuntimeException e) {
+      monitor.recordFailure();
+      throw e;
+    } finally {
+      monitor.recordCall(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public String connectionName() {
+    return delegate.connectionName();
+  }
+
+  @Override
+  public int addEmployeeToDepartment(int organizationId, int departmentId, Employee employee) {
+    return guarded(
+        () -> delegate.addEmployeeToDepartment(organizationId, departmentId, employee));
+  }
+
+  @Override
+  public Employee getEmployee(int organizationId, int externalEmployeeId) {
+    return guarded(() -> delegate.getEmployee(organizationId, externalEmployeeId));
+  }
+
+  @Override
+  public List<Employee> getEmployees(int organizationId) {
+    return guarded(() -> delegate.getEmployees(organizationId));
+  }
+
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    return guarded(() -> delegate.forEachEmployee(organizationId, action));
+  }
+
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    return guarded(() -> delegate.forEachDepartmentEmployee(organizationId, action));
+  }
+
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    return guarded(() -> delegate.getEmployeesPage(organizationId, afterId, limit));
+  }
+
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit) {
+    return guarded(() -> delegate.getDepartmentEmployeesPage(
+        organizationId, externalDepartmentId, afterId, limit));
+  }
+
+  @Override
+  public boolean updateEmployee(int organizationId, Employee employee) {
+    return guarded(() -> delegate.updateEmployee(organizationId, employee));
+  }
+
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    return guarded(() -> delegate.compareAndSetEmployee(organizationId, employee));
+  }
+
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    return delegate.buffersEmployeeUpdates();
+  }
+
+  @Override
+  public boolean removeEmployeeFromDepartment(
+      int organizationId, int departmentId, int employeeId) {
+    return guarded(
+        () -> delegate.removeEmployeeFromDepartment(organizationId, departmentId, employeeId));
+  }
+
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees) {
+    return guarded(
+        () -> delegate.addEmployeesToDepartment(organizationId, departmentId, employees));
+  }
+
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    return guarded(() -> delegate.updateEmployees(organizationId, employees));
+  }
+
+  @Override
+  public Department insertDepartment(int organizationId, Department department) {
+    return guarded(() -> delegate.insertDepartment(organizationId, department));
+  }
+
+  @Override
+  public Department getDepartment(int organizationId, int externalDepartmentId) {
+    return guarded(() -> delegate.getDepartment(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public List<Department> getDepartments(int organizationId) {
+    return guarded(() -> delegate.getDepartments(organizationId));
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    return guarded(
+        () -> delegate.getDepartmentSalaryStatistics(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    return guarded(
+        () -> delegate.getDepartmentPerformanceStatistics(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public boolean updateDepartment(int organizationId, Department department) {
+    return guarded(() -> delegate.updateDepartment(organizationId, department));
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    return guarded(() -> delegate.compareAndSetDepartment(organizationId, department));
+  }
+
+  @Override
+  public boolean removeDepartment(int organizationId, int externalDepartmentId) {
+    return guarded(() -> delegate.removeDepartment(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public Organization insertOrganization(Organization organization) {
+    return guarded(() -> delegate.insertOrganization(organization));
+  }
+
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    return guarded(() -> delegate.cloneOrganization(sourceOrganizationId, organization));
+  }
+
+  @Override
+  public Organization getOrganization(int organizationId) {
+    return guarded(() -> delegate.getOrganization(organizationId));
+  }
+
+  @Override
+  public boolean updateOrganization(Organization organization) {
+    return guarded(() -> delegate.updateOrganization(organization));
+  }
+
+  @Override
+  public boolean removeOrganization(int organizationId) {
+    return guarded(() -> delegate.removeOrganization(organizationId));
+  }
+
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    return guarded(() -> delegate.removeOrganizationContents(organizationId));
+  }
+
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    return guarded(() -> delegate.markOrganizationForRemoval(organizationId));
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    return guarded(delegate::getOrganizationsPendingRemoval);
+  }
+
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    return guarded(() -> delegate.removeOrganizationChunk(organizationId, chunkSize));
+  }
+
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    return guarded(() -> delegate.loadOrganizationSnapshot(organizationId));
+  }
+
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    return guarded(() -> delegate.loadFullOrganizationSnapshot(organizationId));
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    return guarded(() -> delegate.restoreOrganization(snapshot));
+  }
+
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    return guarded(() -> delegate.getChangesSince(organizationId, watermark));
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    return guarded(() -> delegate.getEmployeeContactInfo(organizationId, externalEmployeeId));
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    return guarded(
+        () -> delegate.setEmployeeContactField(organizationId, externalEmployeeId, field, value));
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    return guarded(() -> delegate.getOrganizationDetails(organizationId));
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    return guarded(() -> delegate.setOrganizationDetail(organizationId, field, value));
+  }
+}
@@ -0,0 +1,129 @@
+package dev.coms4156.project;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects wait-time and usage metrics of a JDBC connection pool.
+ * Registered on the pool as its metrics tracker, so every borrow is recorded.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong totalUsageMillis = new AtomicLong();
+  private final AtomicLong maxUsageMillis = new AtomicLong();
+  private final AtomicLong timeoutCount = new AtomicLong();
+  private volatile PoolStats poolStats;
+
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    this.poolStats = poolStats;
+    return new IMetricsTracker() {
+      @Override
+      public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        recordWait(elapsedAcquiredNanos);
+      }
+
+      @Override
+      public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        recordUsage(elapsedBorrowedMillis);
+      }
+
+      @Override
+      public void recordConnectionTimeout() {
+        timeoutCount.incrementAndGet();
+      }
+    };
+  }
+
+  /**
+   * Records the time a caller waited to borrow a connection.
+   *
+   * @param waitNanos the wait time in nanoseconds
+   */
+  void recordWait(long waitNanos) {
+    borrowCount.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  /**
+   * Records the time a connection was held before being returned to the pool.
+   *
+   * @param usageMillis the usage time in milliseconds
+   */
+  void recordUsage(long usageMillis) {
+    totalUsageMillis.addAndGet(usageMillis);
+    maxUsageMillis.accumulateAndGet(usageMillis, Math::max);
+  }
+
+  /**
+   * Returns the number of connections borrowed from the pool.
+   *
+   * @return the borrow count
+   */
+  public long getBorrowCount() {
+    return borrowCount.get();
+  }
+
+  /**
+   * Returns the number of borrow attempts that timed out.
+   *
+   * @return the timeout count
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  /**
+   * Returns the average time callers waited for a connection.
+   *
+   * @return the average wait time in microseconds
+   */
+  public double getAverageWaitMicros() {
+    long count = borrowCount.get();
+    if (count == 0) {
+      return 0.0;
+    }
+    return TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / (double) count;
+  }
+
+  /**
+   * Returns the longest time a caller waited for a connection.
+   *
+   * @return the maximum wait time in microseconds
+   */
+  public long getMaxWaitMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+  }
+
+  /**
+   * Report the metrics of the pool in a JSON format.
+   *
+   * @return a Map of the metrics that can be easily converted to JSON
+   */
+  public Map<String, Object> toJson() {
+    Map<String, Object> result = new HashMap<>();
+    result.put("borrowCount", getBorrowCount());
+    result.put("timeoutCount", getTimeoutCount());
+    result.put("averageWaitMicros", getAverageWaitMicros());
+    result.put("maxWaitMicros", getMaxWaitMicros());
+    long count = borrowCount.get();
+    result.put("averageUsageMillis", count == 0 ? 0.0 : totalUsageMillis.get() / (double) count);
+    result.put("maxUsageMillis", maxUsageMillis.get());
+    PoolStats stats = this.poolStats;
+    if (stats != null) {
+      result.put("activeConnections", stats.getActiveConnections());
+      result.put("idleConnections", stats.getIdleConnections());
+      result.put("pendingThreads", stats.getPendingThreads());
+      result.put("totalConnections", stats.getTotalConnections());
+    }
+    return result;
+  }
+}
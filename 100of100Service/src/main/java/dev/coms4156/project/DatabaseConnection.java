@@ -1,6 +1,9 @@
 package dev.coms4156.project;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Interface for interacting with the database.
@@ -40,6 +43,48 @@ public interface DatabaseConnection {
    */
   List<Employee> getEmployees(int organizationId);
 
+  /**
+   * Streams the employees of a given organization to a consumer, one at a time.
+   * Rows are read incrementally, so memory use does not grow with the organization size.
+   *
+   * @param organizationId the organization id
+   * @param action the consumer each employee is passed to
+   * @return the number of employees visited, -1 if failed
+   */
+  int forEachEmployee(int organizationId, Consumer<Employee> action);
+
+  /**
+   * Streams the employees of a given organization to a consumer together with the external
+   * ID of their department, one at a time, as forEachEmployee does.
+   *
+   * @param organizationId the organization id
+   * @param action the consumer each employee and its department ID are passed to
+   * @return the number of employees visited, -1 if failed
+   */
+  int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action);
+
+  /**
+   * Returns a page of the employees of a given organization, ordered by ID.
+   *
+   * @param organizationId the organization id
+   * @param afterId the external employee id the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page
+   */
+  List<Employee> getEmployeesPage(int organizationId, int afterId, int limit);
+
+  /**
+   * Returns a page of the employees of a department, ordered by ID.
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @param afterId the external employee id the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page
+   */
+  List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit);
+
   /**
    * Updates an employee in the database.
    *
@@ -49,6 +94,26 @@ public interface DatabaseConnection {
    */
   boolean updateEmployee(int organizationId, Employee employee);
 
+  /**
+   * Updates an employee only if its stored row version still equals employee.getVersion(),
+   * so a concurrent change is detected instead of overwritten.
+   * On success the version of the given employee is advanced to the stored one.
+   *
+   * @param organizationId the organization id
+   * @param employee the employee to update, carrying the version it was read at
+   * @return true if update successful, false if the employee changed or does not exist
+   */
+  boolean compareAndSetEmployee(int organizationId, Employee employee);
+
+  /**
+   * Returns whether employee updates are acknowledged before they reach the database.
+   * Compare-and-set is never buffered, so callers that change employees often should use
+   * updateEmployee on a buffering connection, giving up the conflict check for latency.
+   *
+   * @return true if updateEmployee is buffered, false if it writes through
+   */
+  boolean buffersEmployeeUpdates();
+
   /**
    * Removes an employee from a department in the database.
    *
@@ -59,6 +124,50 @@ public interface DatabaseConnection {
    */
   boolean removeEmployeeFromDepartment(int organizationId, int departmentId, int employeeId);
 
+  /**
+   * Adds several new employees to a department in one batch.
+   *
+   * @param organizationId the organization id
+   * @param departmentId the internal department id
+   * @param employees the employees to add
+   * @return the internal employee IDs in input order if successful, an empty list if failed
+   */
+  List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees);
+
+  /**
+   * Updates several employees in one batch.
+   *
+   * @param organizationId the organization id
+   * @param employees the employees to update
+   * @return the number of employees updated
+   */
+  int updateEmployees(int organizationId, List<Employee> employees);
+
+
+  /**
+   * Returns the contact information of an employee, read on demand since the hot read
+   * paths leave it out.
+   *
+   * @param organizationId the organization id
+   * @param externalEmployeeId the external employee id
+   * @return the contact fields by name, empty if there are none, null if the employee
+   *     is not found
+   */
+  Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId);
+
+  /**
+   * Sets or removes one field of the contact information of an employee, leaving the
+   * other fields untouched.
+   *
+   * @param organizationId the organization id
+   * @param externalEmployeeId the external employee id
+   * @param field the name of the field
+   * @param value the value of the field, null to remove it
+   * @return true if the employee is found and updated, false otherwise
+   */
+  boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value);
 
   // Department CRUD methods //
 
@@ -89,6 +198,29 @@ public interface DatabaseConnection {
    */
   List<Department> getDepartments(int organizationId);
 
+  /**
+   * Returns the salary statistics of a department, aggregated by the database so that the
+   * employees themselves are not loaded. The result is the same as the one of
+   * Department.getEmployeeSalaryStatisticMap().
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @return the statistics if the department exists, null otherwise
+   */
+  Map<String, Object> getDepartmentSalaryStatistics(int organizationId, int externalDepartmentId);
+
+  /**
+   * Returns the performance statistics of a department, aggregated by the database so that
+   * the employees themselves are not loaded. The result is the same as the one of
+   * Department.getEmployeePerformanceCutoffMap(); the employees are not ranked.
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @return the statistics if the department exists, null otherwise
+   */
+  Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId);
+
   /**
    * Updates a department's information in the database.
    *
@@ -98,6 +230,17 @@ public interface DatabaseConnection {
    */
   boolean updateDepartment(int organizationId, Department department);
 
+  /**
+   * Updates a department only if its stored row version still equals department.getVersion(),
+   * so a concurrent change is detected instead of overwritten.
+   * On success the version of the given department is advanced to the stored one.
+   *
+   * @param organizationId the organization id
+   * @param department the department to update, carrying the version it was read at
+   * @return true if update successful, false if the department changed or does not exist
+   */
+  boolean compareAndSetDepartment(int organizationId, Department department);
+
   /**
    * Removes a department from the database.
    *
@@ -118,6 +261,18 @@ public interface DatabaseConnection {
    */
   Organization insertOrganization(Organization organization);
 
+  /**
+   * Copies an organization with its details, departments, heads, employees and shifts into
+   * a new organization, inside the database and in a single transaction. The copies keep
+   * the external IDs of the originals, so the clone mirrors the organization one to one.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param organization the new organization, with its name, and its id if one is already
+   *     allocated or 0 to allocate one
+   * @return the new organization if successful, null if the source is not found or on failure
+   */
+  Organization cloneOrganization(int sourceOrganizationId, Organization organization);
+
   /**
    * Returns an organization with the given organization id.
    *
@@ -141,4 +296,106 @@ public interface DatabaseConnection {
    * @return true if removal successful, false otherwise
    */
   boolean removeOrganization(int organizationId);
+
+  /**
+   * Removes the departments and employees of an organization, with the rows that belong to
+   * them, in one transaction. The organization row itself is kept.
+   *
+   * @param organizationId the organization id
+   * @return true if the rows are removed, false otherwise
+   */
+  boolean removeOrganizationContents(int organizationId);
+
+  /**
+   * Marks an organization for removal. A marked organization is no longer found, while
+   * its rows are reclaimed in bounded chunks by removeOrganizationChunk. The mark is
+   * durable, so an interrupted removal can be resumed.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization is marked, false if it is not found or already marked
+   */
+  boolean markOrganizationForRemoval(int organizationId);
+
+  /**
+   * Returns the organizations marked for removal whose rows are not reclaimed yet.
+   *
+   * @return the organization ids, oldest mark first, or null on failure
+   */
+  List<Integer> getOrganizationsPendingRemoval();
+
+  /**
+   * Deletes one bounded chunk of the rows of an organization in a short transaction,
+   * children first; once no child row is left, the organization itself is deleted.
+   *
+   * @param organizationId the organization id
+   * @param chunkSize the maximum number of employees or departments deleted by the chunk
+   * @return the number of rows deleted, 0 once nothing is left, or -1 on failure
+   */
+  int removeOrganizationChunk(int organizationId, int chunkSize);
+
+  /**
+   * Returns the details of an organization, read on demand since the hot read paths
+   * leave them out.
+   *
+   * @param organizationId the organization id
+   * @return the detail fields by name, empty if there are none, null if the organization
+   *     is not found
+   */
+  Map<String, Object> getOrganizationDetails(int organizationId);
+
+  /**
+   * Sets or removes one field of the details of an organization, leaving the other fields
+   * untouched.
+   *
+   * @param organizationId the organization id
+   * @param field the name of the field
+   * @param value the value of the field, null to remove it
+   * @return true if the organization is found and updated, false otherwise
+   */
+  boolean setOrganizationDetail(int organizationId, String field, String value);
+
+  /**
+   * Loads an organization together with all of its departments, employees and
+   * department heads in bulk, instead of one query per department.
+   *
+   * @param organizationId the organization id
+   * @return the snapshot of the organization if found, null otherwise
+   */
+  OrganizationSnapshot loadOrganizationSnapshot(int organizationId);
+
+  /**
+   * Loads an organization like loadOrganizationSnapshot, together with what the hot read
+   * paths leave out: the details of the organization, the contact information of its
+   * employees and their shifts. Used to move an organization whole.
+   *
+   * @param organizationId the organization id
+   * @return the full snapshot of the organization if found, null otherwise
+   */
+  OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId);
+
+  /**
+   * Writes an organization with its departments, employees and department heads, keeping
+   * their IDs and versions, e.g. to move it from another database. The details, contact
+   * information and shifts are written too when the snapshot carries them.
+   * An existing organization row is kept, but the organization must have no departments or
+   * employees in this database yet.
+   *
+   * @param snapshot the organization to write
+   * @return true if the whole organization is written, false otherwise
+   */
+  boolean restoreOrganization(OrganizationSnapshot snapshot);
+
+  /**
+   * Returns the employees and departments of an organization inserted, updated or removed
+   * since a watermark, so that a cached organization can be refreshed in proportion to the
+   * number of changes rather than to its size.
+   * Changes may be reported more than once across consecutive deltas, so applying a delta
+   * must be idempotent.
+   *
+   * @param organizationId the organization id
+   * @param watermark the watermark of the snapshot or delta the changes are requested since
+   * @return the changes if the organization exists and the connection can tell them,
+   *     null if the organization must be reloaded instead
+   */
+  OrganizationDelta getChangesSince(int organizationId, long watermark);
 }
@@ -0,0 +1,83 @@
+package dev.coms4156.project;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Provides the executor that runs asynchronous database calls.
+ * On a runtime with virtual threads (Java 21+) every task gets its own virtual thread.
+ * On older runtimes a bounded pool of daemon platform threads is used instead.
+ */
+public final class DatabaseExecutors {
+  private static final ReentrantLock lock = new ReentrantLock();
+  private static volatile ExecutorService shared;
+
+  private DatabaseExecutors() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Returns the executor shared by all asynchronous database calls.
+   *
+   * @return the shared executor
+   */
+  public static ExecutorService shared() {
+    if (shared == null) {
+      lock.lock();
+      try {
+        if (shared == null) {
+          shared = newExecutor(Integer.getInteger("db.async.threads", 16));
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Creates a virtual-thread-per-task executor if the runtime supports it,
+   * or a fixed pool of daemon threads otherwise.
+   *
+   * @param fallbackThreads the number of platform threads if virtual threads are unavailable
+   * @return the new executor
+   */
+  static ExecutorService newExecutor(int fallbackThreads) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger counter = new AtomicInteger();
+      ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "db-async-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+      return Executors.newFixedThreadPool(fallbackThreads, threadFactory);
+    }
+  }
+
+  /**
+   * Waits for an asynchronous result, rethrowing the original exception of a failed call.
+   *
+   * @param future the future to wait for
+   * @param <T> the type of the result
+   * @return the result of the future
+   */
+  public static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
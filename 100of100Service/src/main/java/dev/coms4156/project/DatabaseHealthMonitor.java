@@ -0,0 +1,219 @@
+package dev.coms4156.project;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the failure rate of the database calls over a sliding time window, and opens a
+ * circuit once too many of them fail or run slow. While the circuit is open, no call should
+ * reach the database; a background probe checks the database instead, and closes the circuit
+ * as soon as it answers again.
+ */
+public class DatabaseHealthMonitor implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(DatabaseHealthMonitor.class);
+  private static final int BUCKETS = 10;
+
+  /**
+   * The state of the circuit.
+   */
+  public enum State {
+    /** Calls go through to the database. */
+    CLOSED,
+    /** Calls fail fast until the background probe succeeds. */
+    OPEN
+  }
+
+  private final BooleanSupplier probe;
+  private final Runnable onOpen;
+  private final long bucketMillis;
+  private final int minCalls;
+  private final double maxFailureRate;
+  private final long slowCallNanos;
+  private final long probeIntervalMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final long[] bucketStarts = new long[BUCKETS];
+  private final long[] calls = new long[BUCKETS];
+  private final long[] failures = new long[BUCKETS];
+  private final ScheduledExecutorService scheduler;
+  private volatile State state = State.CLOSED;
+  private ScheduledFuture<?> probing;
+  private long openedAt;
+
+  /**
+   * Constructs a health monitor with a closed circuit.
+   *
+   * @param probe checks whether the database answers
+   * @param onOpen run whenever the circuit opens, e.g. to drop the pooled connections
+   * @param windowMillis the length of the sliding window, in milliseconds
+   * @param minCalls the number of calls in the window below which the circuit stays closed
+   * @param maxFailureRate the share of failed or slow calls from which the circuit opens
+   * @param slowCallMillis the latency from which a call counts as failed, in milliseconds
+   * @param probeIntervalMillis the delay between two probes while the circuit is open
+   */
+  public DatabaseHealthMonitor(BooleanSupplier probe, Runnable onOpen, long windowMillis,
+      int minCalls, double maxFailureRate, long slowCallMillis, long probeIntervalMillis) {
+    this.probe = probe;
+    this.onOpen = onOpen;
+    this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+    this.minCalls = minCalls;
+    this.maxFailureRate = maxFailureRate;
+    this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    this.probeIntervalMillis = probeIntervalMillis;
+    Arrays.fill(bucketStarts, -1);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "db-health-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Returns the state of the circuit.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether a call may go through to the database.
+   *
+   * @return true if the circuit is closed, false otherwise
+   */
+  public boolean allowRequest() {
+    return state == State.CLOSED;
+  }
+
+  /**
+   * Records a completed call. A call slower than the slow-call threshold counts as failed.
+   *
+   * @param nanos the latency of the call, in nanoseconds
+   */
+  public void recordCall(long nanos) {
+    record(1, nanos >= slowCallNanos ? 1 : 0);
+  }
+
+  /**
+   * Records a failed call, on top of its latency recorded by recordCall.
+   */
+  public void recordFailure() {
+    record(0, 1);
+  }
+
+  private void record(int callCount, int failureCount) {
+    lock.lock();
+    try {
+      if (state != State.CLOSED) {
+        return;
+      }
+      long bucketStart = System.currentTimeMillis() / bucketMillis;
+      int index = (int) (bucketStart % BUCKETS);
+      if (bucketStarts[index] != bucketStart) {
+        bucketStarts[index] = bucketStart;
+        calls[index] = 0;
+        failures[index] = 0;
+      }
+      calls[index] += callCount;
+      failures[index] += failureCount;
+
+      long[] totals = windowTotals(bucketStart);
+      if (totals[0] >= minCalls && totals[1] >= maxFailureRate * totals[0]) {
+        open(totals[0], totals[1]);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sums the calls and failures of the buckets still in the window. Must be called with the
+   * lock held.
+   *
+   * @return the number of calls, then the number of failures
+   */
+  private long[] windowTotals(long bucketStart) {
+    long[] totals = new long[2];
+    for (int i = 0; i < BUCKETS; i++) {
+      if (bucketStarts[i] > bucketStart - BUCKETS) {
+        totals[0] += calls[i];
+        totals[1] += failures[i];
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * Opens the circuit and starts probing. Must be called with the lock held.
+   */
+  private void open(long windowCalls, long windowFailures) {
+    state = State.OPEN;
+    openedAt = System.currentTimeMillis();
+    logger.warn("Database circuit opened: {} of the last {} calls failed or ran slow.",
+        windowFailures, windowCalls);
+    try {
+      onOpen.run();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to reset the database connections.", e);
+    }
+    probing = scheduler.scheduleWithFixedDelay(
+        this::probeOnce, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void probeOnce() {
+    boolean healthy;
+    try {
+      healthy = probe.getAsBoolean();
+    } catch (RuntimeException e) {
+      healthy = false;
+    }
+    if (!healthy) {
+      return;
+    }
+    lock.lock();
+    try {
+      Arrays.fill(bucketStarts, -1);
+      state = State.CLOSED;
+      probing.cancel(false);
+      logger.info("Database circuit closed after {} ms.", System.currentTimeMillis() - openedAt);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the state of the circuit and the calls of the current window, for logging.
+   *
+   * @return the health as a JSON-serializable map
+   */
+  public Map<String, Object> toJson() {
+    lock.lock();
+    try {
+      long[] totals = windowTotals(System.currentTimeMillis() / bucketMillis);
+      Map<String, Object> json = new LinkedHashMap<>();
+      json.put("state", state.name());
+      json.put("calls", totals[0]);
+      json.put("failures", totals[1]);
+      return json;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops probing the database.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
@@ -1,6 +1,8 @@
 package dev.coms4156.project;
 
+import dev.coms4156.project.utils.FixedPoint;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -13,6 +15,7 @@ import java.util.Map;
 public class Department extends OrganizationComposite {
   private Employee head;
   private final List<Employee> employees;
+  private long version;
 
   /**
    * Constructs a department with the given ID and name.
@@ -94,6 +97,41 @@ public class Department extends OrganizationComposite {
     return true;
   }
 
+  /**
+   * Returns the row version of the department, as read from the database.
+   * Compare-and-set updates only succeed while the stored row still has this version.
+   *
+   * @return the row version of the department
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Sets the row version of the department.
+   *
+   * @param version the row version of the department
+   */
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  /**
+   * Returns a copy of the department, including its head and row version, that shares the
+   * employee instances. Changes to the copy do not affect cached instances of the department.
+   *
+   * @return the copy of the department
+   */
+  public Department copy() {
+    Department copy = new Department(this.id, this.name);
+    for (Employee employee : this.employees) {
+      copy.addEmployee(employee);
+    }
+    copy.setHead(this.head);
+    copy.setVersion(this.version);
+    return copy;
+  }
+
   /**
    * Returns a statistic of the employees' positions in the department.
    *
@@ -112,6 +150,8 @@ public class Department extends OrganizationComposite {
 
   /**
    * Returns a statistic of the employees' salaries in the department.
+   * Salaries are summed and compared in cents, so the result is exact and the same as the
+   * one aggregated by the database.
    *
    * @return a Map of the statistic that can be easily converted to JSON
    */
@@ -127,14 +167,14 @@ public class Department extends OrganizationComposite {
       return emptyResult;
     }
 
-    double totalSalary = 0.0;
-    double highestSalary = Double.NEGATIVE_INFINITY;
-    double lowestSalary = Double.POSITIVE_INFINITY;
+    long totalSalary = 0;
+    long highestSalary = Long.MIN_VALUE;
+    long lowestSalary = Long.MAX_VALUE;
     Employee highestEmployee = this.employees.get(0);
     Employee lowestEmployee = this.employees.get(0);
 
     for (Employee e : this.employees) {
-      double salary = e.getSalary();
+      long salary = e.getSalaryCents();
 
       totalSalary += salary;
 
@@ -149,24 +189,44 @@ public class Department extends OrganizationComposite {
       }
     }
 
-    double averageSalary = totalSalary / this.employees.size();
-
     Map<String, Object> result = new HashMap<>();
-    result.put("total", totalSalary);
-    result.put("average", averageSalary);
-    result.put("highest", highestSalary);
-    result.put("lowest", lowestSalary);
+    result.put("total", FixedPoint.toDouble(totalSalary));
+    result.put("average", FixedPoint.average(totalSalary, this.employees.size()));
+    result.put("highest", FixedPoint.toDouble(highestSalary));
+    result.put("lowest", FixedPoint.toDouble(lowestSalary));
     result.put("highestEmployee", highestEmployee.getId());
     result.put("lowestEmployee", lowestEmployee.getId());
     return result;
   }
 
   /**
-   * Returns a statistic of the employees' performance in the department.
+   * Returns a statistic of the employees' performance in the department, with the employee
+   * IDs ranked by performance.
    *
    * @return a Map of the statistic that can be easily converted to JSON
    */
   public Map<String, Object> getEmployeePerformanceStatisticMap() {
+    Map<String, Object> result = getEmployeePerformanceCutoffMap();
+
+    // Sort employees by performance (descending) and get their IDs
+    int[] sortedIds = this.employees.stream()
+        .sorted((e1, e2) -> Long.compare(
+            e2.getPerformanceBasisPoints(), e1.getPerformanceBasisPoints()))
+        .mapToInt(Employee::getId)
+        .toArray();
+    result.put("sortedEmployeeIds", sortedIds);
+
+    return result;
+  }
+
+  /**
+   * Returns the extremes, quartiles, median and average of the employees' performance in the
+   * department. Scores are sorted and averaged in basis points, as the database aggregates
+   * them.
+   *
+   * @return a Map of the statistic that can be easily converted to JSON
+   */
+  public Map<String, Object> getEmployeePerformanceCutoffMap() {
     Map<String, Object> result = new HashMap<>();
 
     if (this.employees.isEmpty()) {
@@ -176,47 +236,34 @@ public class Department extends OrganizationComposite {
       result.put("percentile75", 0.0);
       result.put("lowest", 0.0);
       result.put("average", 0.0);
-      result.put("sortedEmployeeIds", new int[0]);
       return result;
     }
 
-    List<Double> performances = new ArrayList<>();
-    for (Employee e : this.employees) {
-      performances.add(e.getPerformance());
+    int size = this.employees.size();
+    long[] performances = new long[size];
+    long total = 0;
+    for (int i = 0; i < size; i++) {
+      performances[i] = this.employees.get(i).getPerformanceBasisPoints();
+      total += performances[i];
     }
-    performances.sort(Double::compareTo);
+    Arrays.sort(performances);
 
-    int size = performances.size();
-    double highest = performances.get(size - 1);
-    double lowest = performances.get(0);
+    long highest = performances[size - 1];
+    long lowest = performances[0];
     double median = size % 2 == 0
-        ? (performances.get(size / 2 - 1) + performances.get(size / 2)) / 2
-        : performances.get(size / 2);
+        ? FixedPoint.average(performances[size / 2 - 1] + performances[size / 2], 2)
+        : FixedPoint.toDouble(performances[size / 2]);
 
     // Calculate quartiles safely
-    double q1 = size < 4 ? lowest : performances.get(Math.max(0, (size - 1) / 4));
-    double q3 = size < 4 ? highest : performances.get(Math.min(size - 1, (size - 1) * 3 / 4));
+    long q1 = size < 4 ? lowest : performances[Math.max(0, (size - 1) / 4)];
+    long q3 = size < 4 ? highest : performances[Math.min(size - 1, (size - 1) * 3 / 4)];
 
-    // Calculate average
-    double average = performances.stream()
-        .mapToDouble(Double::doubleValue)
-        .average()
-        .orElse(0.0);
-
-    result.put("highest", highest);
-    result.put("percentile25", q1);
+    result.put("highest", FixedPoint.toDouble(highest));
+    result.put("percentile25", FixedPoint.toDouble(q1));
     result.put("median", median);
-    result.put("percentile75", q3);
-    result.put("lowest", lowest);
-    result.put("average", average);
-
-    // Sort employees by performance (descending) and get their IDs
-    int[] sortedIds = this.employees.stream()
-        .sorted((e1, e2) -> Double.compare(e2.getPerformance(), e1.getPerformance()))
-        .mapToInt(Employee::getId)
-        .toArray();
-    result.put("sortedEmployeeIds", sortedIds);
-
+    result.put("percentile75", FixedPoint.toDouble(q3));
+    result.put("lowest", FixedPoint.toDouble(lowest));
+    result.put("average", FixedPoint.average(total, size));
     return result;
   }
 
@@ -226,6 +273,17 @@ public class Department extends OrganizationComposite {
    * @return a Map of the information that can be easily converted to JSON
    */
   public Map<String, Object> toJson() {
+    return toJson(this.employees);
+  }
+
+  /**
+   * Report the information of the department in a JSON format,
+   * listing only the given page of its employees.
+   *
+   * @param employeesPage the employees to list
+   * @return a Map of the information that can be easily converted to JSON
+   */
+  public Map<String, Object> toJson(List<Employee> employeesPage) {
     Map<String, Object> result = new HashMap<>();
     result.put("id", this.id);
     result.put("name", this.name);
@@ -234,15 +292,8 @@ public class Department extends OrganizationComposite {
     result.put("employeeCount", this.employees.size());
 
     // Add detailed employee information if needed
-    List<Map<String, Object>> employeesList = this.employees.stream().map(emp -> {
-      Map<String, Object> empInfo = new HashMap<>();
-      empInfo.put("id", emp.getId());
-      empInfo.put("name", emp.getName());
-      empInfo.put("position", emp.getPosition());
-      empInfo.put("performance", emp.getPerformance());
-      empInfo.put("salary", emp.getSalary());
-      return empInfo;
-    }).toList();
+    List<Map<String, Object>> employeesList =
+        employeesPage.stream().map(Employee::toSummaryJson).toList();
     result.put("employees", employeesList);
 
     return result;
@@ -0,0 +1,54 @@
+package dev.coms4156.project;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A singleton class of the embedded H2 database connection.
+ * Runs the same JDBC code as MysqlConnection against an in-process database in MySQL mode,
+ * as a local stand-in for load tests and as the backend of small single-node deployments.
+ * The database is given by the db.embedded.url system property and defaults to in-memory.
+ * Designed under the Singleton Design Pattern.
+ */
+public final class EmbeddedConnection extends JdbcConnection {
+  static final String DEFAULT_URL = "jdbc:h2:mem:organization_management;"
+      + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+  private static final ReentrantLock instanceLock = new ReentrantLock();
+  private static volatile EmbeddedConnection instance;
+
+  private final String url;
+
+  @Override
+  public String connectionName() {
+    return "EmbeddedConnection::" + url;
+  }
+
+  /**
+   * Constructs a connection to an embedded database.
+   *
+   * @param url the H2 JDBC URL, which should enable MySQL mode
+   */
+  EmbeddedConnection(String url) {
+    super(SqlDialect.H2, "embedded-pool", url, "sa", "");
+    this.url = url;
+  }
+
+  /**
+   * Returns the unique instance of the embedded database connection.
+   * Designed with "double-checked locking" mechanism to ensure thread safety.
+   *
+   * @return the database connection instance
+   */
+  public static EmbeddedConnection getInstance() {
+    if (instance == null) {
+      instanceLock.lock();
+      try {
+        if (instance == null) {
+          instance = new EmbeddedConnection(System.getProperty("db.embedded.url", DEFAULT_URL));
+        }
+      } finally {
+        instanceLock.unlock();
+      }
+    }
+    return instance;
+  }
+}
@@ -1,5 +1,6 @@
 package dev.coms4156.project;
 
+import dev.coms4156.project.utils.FixedPoint;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -15,8 +16,12 @@ public class Employee implements OrganizationComponent {
   private final String name;
   private final Date hireDate;
   private String position;
-  private double salary;
-  private double performance;
+  // Fixed-point, so sums and comparisons are exact and match the DECIMAL columns
+  private long salaryCents;
+  private long performanceBasisPoints;
+  private long version;
+  // Loaded on first use, since most reads never need the contact information
+  private Map<String, Object> contactInfo;
 
   /**
    * Constructs an employee with the given ID, name, and hire date.
@@ -34,8 +39,6 @@ public class Employee implements OrganizationComponent {
       this.hireDate = new Date(hireDate.getTime());
     }
     this.position = "Other";
-    this.salary = 0;
-    this.performance = 0;
   }
 
   /**
@@ -64,8 +67,8 @@ public class Employee implements OrganizationComponent {
     } else {
       this.position = position;
     }
-    this.salary = salary;
-    this.performance = performance;
+    this.salaryCents = FixedPoint.toUnits(salary);
+    this.performanceBasisPoints = FixedPoint.toUnits(performance);
   }
 
   /**
@@ -141,7 +144,7 @@ public class Employee implements OrganizationComponent {
    * @return the salary of the employee
    */
   public double getSalary() {
-    return this.salary;
+    return FixedPoint.toDouble(this.salaryCents);
   }
 
   /**
@@ -150,7 +153,25 @@ public class Employee implements OrganizationComponent {
    * @param salary the new salary of the employee
    */
   public void setSalary(double salary) {
-    this.salary = salary;
+    this.salaryCents = FixedPoint.toUnits(salary);
+  }
+
+  /**
+   * Returns the salary of the employee in cents.
+   *
+   * @return the salary of the employee in cents
+   */
+  public long getSalaryCents() {
+    return this.salaryCents;
+  }
+
+  /**
+   * Sets the salary of the employee in cents.
+   *
+   * @param salaryCents the new salary of the employee in cents
+   */
+  public void setSalaryCents(long salaryCents) {
+    this.salaryCents = salaryCents;
   }
 
   /**
@@ -159,7 +180,7 @@ public class Employee implements OrganizationComponent {
    * @return the performance of the employee
    */
   public double getPerformance() {
-    return this.performance;
+    return FixedPoint.toDouble(this.performanceBasisPoints);
   }
 
   /**
@@ -168,7 +189,92 @@ public class Employee implements OrganizationComponent {
    * @param performance the new performance of the employee
    */
   public void setPerformance(double performance) {
-    this.performance = performance;
+    this.performanceBasisPoints = FixedPoint.toUnits(performance);
+  }
+
+  /**
+   * Returns the performance of the employee in basis points, e.g. 8825 for 88.25.
+   *
+   * @return the performance of the employee in basis points
+   */
+  public long getPerformanceBasisPoints() {
+    return this.performanceBasisPoints;
+  }
+
+  /**
+   * Sets the performance of the employee in basis points.
+   *
+   * @param performanceBasisPoints the new performance of the employee in basis points
+   */
+  public void setPerformanceBasisPoints(long performanceBasisPoints) {
+    this.performanceBasisPoints = performanceBasisPoints;
+  }
+
+  /**
+   * Returns the row version of the employee, as read from the database.
+   * Compare-and-set updates only succeed while the stored row still has this version.
+   *
+   * @return the row version of the employee
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Sets the row version of the employee.
+   *
+   * @param version the row version of the employee
+   */
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  /**
+   * Returns the contact information of the employee, if it has been loaded.
+   *
+   * @return the contact fields by name, null if not loaded yet
+   */
+  public Map<String, Object> getContactInfo() {
+    return this.contactInfo;
+  }
+
+  /**
+   * Sets the loaded contact information of the employee.
+   *
+   * @param contactInfo the contact fields by name, null to have them loaded again
+   */
+  public void setContactInfo(Map<String, Object> contactInfo) {
+    this.contactInfo = contactInfo;
+  }
+
+  /**
+   * Returns a copy of the employee, including its row version.
+   * Changes to the copy do not affect cached instances of the employee.
+   *
+   * @return the copy of the employee
+   */
+  public Employee copy() {
+    Employee copy = new Employee(this.id, this.name, this.hireDate, this.position, 0, 0);
+    copy.setSalaryCents(this.salaryCents);
+    copy.setPerformanceBasisPoints(this.performanceBasisPoints);
+    copy.setVersion(this.version);
+    copy.setContactInfo(this.contactInfo);
+    return copy;
+  }
+
+  /**
+   * Report the summary of the employee used in listings in a JSON format.
+   *
+   * @return a Map of the employee summary that can be easily converted to JSON
+   */
+  public Map<String, Object> toSummaryJson() {
+    Map<String, Object> result = new HashMap<>();
+    result.put("id", this.id);
+    result.put("name", this.name);
+    result.put("position", this.position);
+    result.put("performance", getPerformance());
+    result.put("salary", getSalary());
+    return result;
   }
 
   /**
@@ -182,8 +288,8 @@ public class Employee implements OrganizationComponent {
     result.put("name", this.name);
     result.put("hireDate", this.hireDate);
     result.put("position", this.position);
-    result.put("salary", this.salary);
-    result.put("performance", this.performance);
+    result.put("salary", getSalary());
+    result.put("performance", getPerformance());
     result.put("representation", this.toString());
     return result;
   }
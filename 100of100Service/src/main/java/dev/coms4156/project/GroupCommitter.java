@@ -0,0 +1,216 @@
+package dev.coms4156.project;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Commits the writes of concurrent callers together in one transaction (group commit).
+ * The first write waits for up to the commit window for others to join it; the group is then
+ * written and committed at once, so the database syncs its log once per group instead of once
+ * per write. Every caller still receives the result of its own write.
+ *
+ * @param <T> the type of the written items
+ */
+public class GroupCommitter<T> implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GroupCommitter.class);
+
+  /**
+   * Writes one item on a connection that is inside the group transaction.
+   *
+   * @param <T> the type of the written items
+   */
+  @FunctionalInterface
+  public interface Writer<T> {
+    /**
+     * Writes an item.
+     *
+     * @param conn the connection of the group transaction
+     * @param item the item to write
+     * @return true if the write changed the database, false otherwise
+     * @throws SQLException if the write fails
+     */
+    boolean write(Connection conn, T item) throws SQLException;
+  }
+
+  private final DataSource dataSource;
+  private final Writer<T> writer;
+  private final long windowNanos;
+  private final int maxGroupSize;
+  private final BlockingQueue<Request<T>> queue = new LinkedBlockingQueue<>();
+  private final Request<T> shutdown = new Request<>(null);
+  private final Thread worker;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a group committer and starts its worker thread.
+   *
+   * @param dataSource the database the groups are committed to
+   * @param writer writes one item of a group
+   * @param windowMicros how long the first write of a group waits for others, in microseconds
+   * @param maxGroupSize the largest number of writes committed together
+   */
+  public GroupCommitter(
+      DataSource dataSource, Writer<T> writer, long windowMicros, int maxGroupSize
+  ) {
+    this.dataSource = dataSource;
+    this.writer = writer;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxGroupSize = maxGroupSize;
+    this.worker = new Thread(this::run, "group-commit");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Queues a write for the next group.
+   *
+   * @param item the item to write
+   * @return a future completed with the result of the write once its group is committed;
+   *     cancelling it withdraws the write unless its group is already being written
+   */
+  public CompletableFuture<Boolean> submit(T item) {
+    Request<T> request = new Request<>(item);
+    if (closed) {
+      request.result.complete(false);
+      return request.result;
+    }
+    queue.add(request);
+    if (closed && queue.remove(request)) {
+      // Lost the race with close(), which has already drained the queue
+      request.result.complete(false);
+    }
+    return request.result;
+  }
+
+  /**
+   * Commits the queued writes and stops the worker thread.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    // Not an interrupt: that could abort a commit in progress inside the driver
+    queue.add(shutdown);
+    try {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<Request<T>> remaining = new ArrayList<>();
+    queue.drainTo(remaining);
+    if (!remaining.isEmpty()) {
+      commit(remaining);
+    }
+  }
+
+  private void run() {
+    boolean running = true;
+    while (running) {
+      List<Request<T>> group = new ArrayList<>();
+      try {
+        Request<T> first = queue.take();
+        if (first == shutdown) {
+          return;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxGroupSize) {
+          long remaining = deadline - System.nanoTime();
+          Request<T> next = remaining > 0
+              ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+              : queue.poll();
+          if (next == null) {
+            break;
+          }
+          if (next == shutdown) {
+            running = false;
+            break;
+          }
+          group.add(next);
+        }
+      } catch (InterruptedException e) {
+        running = false;
+      }
+      if (!group.isEmpty()) {
+        commit(group);
+      }
+    }
+  }
+
+  private void commit(List<Request<T>> group) {
+    try (Connection conn = dataSource.getConnection()) {
+      // Writes whose callers gave up waiting, e.g. for the connection, are not made
+      group.removeIf(request -> request.result.isDone());
+      if (group.isEmpty()) {
+        return;
+      }
+      conn.setAutoCommit(false);
+      try {
+        boolean[] results;
+        try {
+          results = writeAll(conn, group, false);
+        } catch (SQLException e) {
+          // One write failed: redo the group with a savepoint per write to isolate it
+          conn.rollback();
+          results = writeAll(conn, group, true);
+        }
+        conn.commit();
+        for (int i = 0; i < group.size(); i++) {
+          group.get(i).result.complete(results[i]);
+        }
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    } catch (SQLException | RuntimeException e) {
+      logger.error("Group commit of {} writes failed.", group.size(), e);
+      for (Request<T> request : group) {
+        request.result.complete(false);
+      }
+    }
+  }
+
+  private boolean[] writeAll(Connection conn, List<Request<T>> group, boolean isolate)
+      throws SQLException {
+    boolean[] results = new boolean[group.size()];
+    for (int i = 0; i < group.size(); i++) {
+      T item = group.get(i).item;
+      if (!isolate) {
+        results[i] = writer.write(conn, item);
+        continue;
+      }
+      Savepoint savepoint = conn.setSavepoint();
+      try {
+        results[i] = writer.write(conn, item);
+        conn.releaseSavepoint(savepoint);
+      } catch (SQLException e) {
+        conn.rollback(savepoint);
+        results[i] = false;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * A queued write and the future its caller waits on.
+   */
+  private static final class Request<T> {
+    private final T item;
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private Request(T item) {
+      this.item = item;
+    }
+  }
+}
@@ -1,9 +1,25 @@
 package dev.coms4156.project;
 
+import dev.coms4156.project.exception.BadRequestException;
+import dev.coms4156.project.exception.ConflictException;
 import dev.coms4156.project.exception.NotFoundException;
+import dev.coms4156.project.exception.ServiceUnavailableException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,12 +31,17 @@ import org.slf4j.LoggerFactory;
 public final class HrDatabaseFacade {
   private static final Logger logger = LoggerFactory.getLogger(HrDatabaseFacade.class);
   private static final Map<Integer, HrDatabaseFacade> instances = new HashMap<>();
+  private static final int MAX_CONFLICT_ATTEMPTS = 3;
+  private static final Pattern FIELD_NAME = Pattern.compile("[A-Za-z0-9_]{1,64}");
   private static DatabaseConnection dbConnection = null;
+  private static OrganizationRemover organizationRemover = null;
 
   private final int organizationId;
   List<Employee> employees;
   List<Department> departments;
   private Organization organization;
+  // Where the next refresh reads the changes from, -1 if it must reload the organization
+  private long watermark;
 
   /**
    * Constructs an HR database facade instance for a specific organization.
@@ -32,16 +53,153 @@ public final class HrDatabaseFacade {
       throw new IllegalStateException("Database connection is not initialized");
     }
     this.organizationId = organizationId;
-    // Initialize the in-memory cache
-    this.organization = dbConnection.getOrganization(organizationId);
-    if (this.organization == null) {
+    // Initialize the in-memory cache from a single bulk load
+    OrganizationSnapshot snapshot = dbConnection.loadOrganizationSnapshot(organizationId);
+    if (snapshot == null) {
       logger.warn("Organization not found: {}", organizationId);
       throw new NotFoundException("Organization not found");
     }
-    this.departments = dbConnection.getDepartments(organizationId);
+    applySnapshot(snapshot);
+  }
+
+  /**
+   * Replaces the in-memory cache with a freshly loaded organization snapshot.
+   *
+   * @param snapshot the loaded organization snapshot
+   */
+  private void applySnapshot(OrganizationSnapshot snapshot) {
+    this.organization = snapshot.getOrganization();
+    this.departments = snapshot.getDepartments();
     this.organization.setDepartments(this.departments);
-    this.employees = dbConnection.getEmployees(organizationId);
+    this.employees = snapshot.getEmployees();
     this.organization.setEmployees(this.employees);
+    this.watermark = snapshot.getWatermark();
+  }
+
+  /**
+   * Reads the employees and departments changed since the last refresh and applies them to
+   * the in-memory cache, so the database work is proportional to the number of changes.
+   *
+   * @return true if the changes are applied, false if the organization must be reloaded
+   */
+  private boolean refreshChanges() {
+    if (this.watermark < 0) {
+      return false;
+    }
+    OrganizationDelta delta = dbConnection.getChangesSince(this.organizationId, this.watermark);
+    if (delta == null) {
+      return false;
+    }
+    applyDelta(delta);
+    return true;
+  }
+
+  /**
+   * Applies changes to the in-memory cache. Changed employees replace the cached ones, also
+   * in their departments and as department heads, so applying the same change twice is
+   * harmless.
+   *
+   * @param delta the changes since the last refresh
+   */
+  private void applyDelta(OrganizationDelta delta) {
+    Map<Integer, Department> departmentsById = new HashMap<>();
+    Map<Integer, Department> departmentOfEmployee = new HashMap<>();
+    for (Department department : this.departments) {
+      departmentsById.put(department.getId(), department);
+      for (Employee employee : department.getEmployees()) {
+        departmentOfEmployee.put(employee.getId(), department);
+      }
+    }
+    Map<Integer, Integer> employeeIndex = new HashMap<>();
+    for (int i = 0; i < this.employees.size(); i++) {
+      employeeIndex.put(this.employees.get(i).getId(), i);
+    }
+
+    for (Department changed : delta.getDepartments()) {
+      Department cached = departmentsById.get(changed.getId());
+      if (cached == null) {
+        this.departments.add(changed);
+        this.organization.addDepartment(changed);
+        departmentsById.put(changed.getId(), changed);
+      } else {
+        cached.setName(changed.getName());
+        cached.setVersion(changed.getVersion());
+      }
+    }
+
+    for (Employee changed : delta.getEmployees()) {
+      Department target = departmentsById.get(delta.getDepartmentId(changed.getId()));
+      Integer index = employeeIndex.get(changed.getId());
+      if (index == null) {
+        employeeIndex.put(changed.getId(), this.employees.size());
+        this.employees.add(changed);
+      } else {
+        Employee cached = this.employees.set(index, changed);
+        this.organization.removeEmployee(cached);
+        Department source = departmentOfEmployee.get(changed.getId());
+        if (source != null) {
+          source.removeEmployee(cached);
+          if (source.getHead() == cached) {
+            source.setHead(changed);
+          }
+        }
+      }
+      this.organization.addEmployee(changed);
+      if (target != null) {
+        target.addEmployee(changed);
+        departmentOfEmployee.put(changed.getId(), target);
+      }
+    }
+
+    for (Department changed : delta.getDepartments()) {
+      Integer headId = delta.getHeadId(changed.getId());
+      Integer headIndex = headId == null ? null : employeeIndex.get(headId);
+      departmentsById.get(changed.getId())
+          .setHead(headIndex == null ? null : this.employees.get(headIndex));
+    }
+
+    Set<Integer> removedEmployees = new HashSet<>(delta.getRemovedEmployees());
+    removedEmployees.retainAll(employeeIndex.keySet());
+    for (int employeeId : removedEmployees) {
+      Employee cached = this.employees.get(employeeIndex.get(employeeId));
+      this.organization.removeEmployee(cached);
+      Department source = departmentOfEmployee.get(employeeId);
+      if (source != null) {
+        source.removeEmployee(cached);
+        if (source.getHead() == cached) {
+          source.setHead(null);
+        }
+      }
+    }
+    this.employees.removeIf(employee -> removedEmployees.contains(employee.getId()));
+    for (int departmentId : delta.getRemovedDepartments()) {
+      Department cached = departmentsById.get(departmentId);
+      if (cached != null) {
+        this.departments.remove(cached);
+        this.organization.removeDepartment(cached);
+      }
+    }
+    this.watermark = delta.getWatermark();
+  }
+
+  /**
+   * Refreshes the organization, its departments and its employees from the database.
+   * Only the changes since the last refresh are read if the connection tracks changes;
+   * otherwise the whole organization is reloaded.
+   *
+   * @return true if the cache is refreshed, false if the organization no longer exists
+   */
+  public boolean refresh() {
+    if (refreshChanges()) {
+      return true;
+    }
+    OrganizationSnapshot snapshot = dbConnection.loadOrganizationSnapshot(this.organizationId);
+    if (snapshot == null) {
+      logger.warn("Organization not found on refresh: {}", this.organizationId);
+      return false;
+    }
+    applySnapshot(snapshot);
+    return true;
   }
 
   /**
@@ -58,7 +216,14 @@ public final class HrDatabaseFacade {
         .findFirst()
         .orElse(null);
 
-    if (employee == null) {
+    if (employee == null && refreshChanges()) {
+      // If not found in cache, read what has changed since the last refresh
+      employee = employees
+          .stream()
+          .filter(e -> e.getId() == employeeId)
+          .findFirst()
+          .orElse(null);
+    } else if (employee == null) {
       // If not found in cache, query the database
       List<Employee> updatedEmployees = dbConnection.getEmployees(this.organizationId);
       employee = updatedEmployees
@@ -93,24 +258,191 @@ public final class HrDatabaseFacade {
       System.out.println(department.toJson());
     }
 
-    if (department == null) {
-      // If not found in cache, query the database
-      List<Department> updatedDepartments = dbConnection.getDepartments(this.organizationId);
-      department = updatedDepartments
-          .stream()
-          .filter(d -> d.getId() == departmentId)
-          .findFirst()
-          .orElse(null);
-
-      if (department != null) {
-        // Update the cache
-        this.departments = updatedDepartments;
+    if (department == null && refreshChanges()) {
+      // If not found in cache, read what has changed since the last refresh
+      department = findCachedDepartment(departmentId);
+    } else if (department == null) {
+      // If not found in cache, reload the organization from the database
+      OrganizationSnapshot snapshot = dbConnection.loadOrganizationSnapshot(this.organizationId);
+      if (snapshot != null) {
+        department = snapshot.getDepartments()
+            .stream()
+            .filter(d -> d.getId() == departmentId)
+            .findFirst()
+            .orElse(null);
+
+        if (department != null) {
+          // Update the cache
+          applySnapshot(snapshot);
+        }
       }
     }
 
     return department;
   }
 
+  /**
+   * Returns the salary statistics of a department.
+   * The database aggregates the statistics, so they reflect every committed change and the
+   * employees of the department are not loaded.
+   *
+   * @param departmentId the department ID
+   * @return the statistics if the department exists, null otherwise
+   */
+  public Map<String, Object> getDepartmentSalaryStatistics(int departmentId) {
+    return dbConnection.getDepartmentSalaryStatistics(this.organizationId, departmentId);
+  }
+
+  /**
+   * Returns the performance statistics of a department: the extremes, quartiles, median and
+   * average, aggregated by the database like the salary statistics.
+   *
+   * @param departmentId the department ID
+   * @return the statistics if the department exists, null otherwise
+   */
+  public Map<String, Object> getDepartmentPerformanceStatistics(int departmentId) {
+    return dbConnection.getDepartmentPerformanceStatistics(this.organizationId, departmentId);
+  }
+
+  private Department findCachedDepartment(int departmentId) {
+    return departments
+        .stream()
+        .filter(d -> d.getId() == departmentId)
+        .findFirst()
+        .orElse(null);
+  }
+
+  /**
+   * Streams every employee of the organization from the database to a consumer.
+   * The cache is bypassed, so this is suited to exports and analytics over large organizations.
+   *
+   * @param action the consumer each employee is passed to
+   * @return the number of employees visited, -1 if failed
+   */
+  public int forEachEmployee(Consumer<Employee> action) {
+    return dbConnection.forEachEmployee(this.organizationId, action);
+  }
+
+  /**
+   * Exports every department and employee of the organization to a stream.
+   * The departments are written from the refreshed cache, and the employees are streamed
+   * from the database as they are read, so the export never holds the whole document.
+   *
+   * @param out the stream the records are written to
+   * @param format the format of the records
+   * @return the number of exported employees
+   * @throws IOException if the records cannot be written or the employees cannot be read
+   */
+  public int exportRecords(OutputStream out, RecordFormat format) throws IOException {
+    refresh();
+    OrganizationExporter exporter = new OrganizationExporter(out, format);
+    for (Department department : new ArrayList<>(this.departments)) {
+      exporter.writeDepartment(department);
+    }
+    int exported;
+    try {
+      exported = dbConnection.forEachDepartmentEmployee(
+          this.organizationId, exporter::writeEmployee);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (exported < 0) {
+      throw new IOException("Failed to read the employees of organization " + organizationId);
+    }
+    exporter.flush();
+    return exported;
+  }
+
+  /**
+   * Returns a page of the employees of the organization, ordered by ID.
+   *
+   * @param afterId the employee ID the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page, read from the cache while the database is unavailable
+   */
+  public List<Employee> getEmployeesPage(int afterId, int limit) {
+    try {
+      return dbConnection.getEmployeesPage(this.organizationId, afterId, limit);
+    } catch (ServiceUnavailableException e) {
+      logger.warn("Serving employees of organization {} from the cache.", organizationId);
+      return cachedPage(this.employees, afterId, limit);
+    }
+  }
+
+  /**
+   * Returns a page of the employees of a department, ordered by ID.
+   *
+   * @param departmentId the department ID
+   * @param afterId the employee ID the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page, read from the cache while the database is unavailable
+   */
+  public List<Employee> getDepartmentEmployeesPage(int departmentId, int afterId, int limit) {
+    try {
+      return dbConnection.getDepartmentEmployeesPage(
+          this.organizationId, departmentId, afterId, limit);
+    } catch (ServiceUnavailableException e) {
+      Department department = findCachedDepartment(departmentId);
+      if (department == null) {
+        throw e;
+      }
+      logger.warn("Serving employees of department {} from the cache.", departmentId);
+      return cachedPage(department.getEmployees(), afterId, limit);
+    }
+  }
+
+  /**
+   * Returns a page of cached employees, ordered by ID, for when the database is unavailable.
+   */
+  private static List<Employee> cachedPage(List<Employee> cached, int afterId, int limit) {
+    return new ArrayList<>(cached)
+        .stream()
+        .filter(e -> e.getId() > afterId)
+        .sorted(Comparator.comparingInt(Employee::getId))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Asynchronously returns the employee with the specified ID.
+   * A cache hit completes immediately; a miss reads the employee from the database on the
+   * async executor without touching the cache, so lookups can run in parallel. The employee
+   * read on a miss is not the cached instance; callers that change it should look it up again
+   * with getEmployee on their own thread, which adds it to the cache.
+   *
+   * @param employeeId the employee ID
+   * @return a future of the employee, completed with null if not found
+   */
+  public CompletableFuture<Employee> getEmployeeAsync(int employeeId) {
+    for (Employee employee : this.employees) {
+      if (employee.getId() == employeeId) {
+        return CompletableFuture.completedFuture(employee);
+      }
+    }
+    return CompletableFuture.supplyAsync(
+        () -> dbConnection.getEmployee(this.organizationId, employeeId),
+        DatabaseExecutors.shared());
+  }
+
+  /**
+   * Asynchronously returns the department with the specified ID.
+   * A cache hit completes immediately; a miss reads the department from the database on the
+   * async executor without touching the cache, like getEmployeeAsync.
+   *
+   * @param departmentId the department ID
+   * @return a future of the department, completed with null if not found
+   */
+  public CompletableFuture<Department> getDepartmentAsync(int departmentId) {
+    for (Department department : this.departments) {
+      if (department.getId() == departmentId) {
+        return CompletableFuture.completedFuture(department);
+      }
+    }
+    return CompletableFuture.supplyAsync(
+        () -> dbConnection.getDepartment(this.organizationId, departmentId),
+        DatabaseExecutors.shared());
+  }
+
   /**
    * Returns the organization of the client.
    *
@@ -121,6 +453,90 @@ public final class HrDatabaseFacade {
     return organization;
   }
 
+  /**
+   * Returns the contact information of an employee, loading it on first use.
+   * The loaded information stays with the cached employee until the employee changes.
+   *
+   * @param employeeId the employee ID
+   * @return the contact fields by name, null if the employee is not found
+   */
+  public Map<String, Object> getEmployeeContactInfo(int employeeId) {
+    Employee employee = getEmployee(employeeId);
+    if (employee == null) {
+      return null;
+    }
+    Map<String, Object> contactInfo = employee.getContactInfo();
+    if (contactInfo == null) {
+      contactInfo = dbConnection.getEmployeeContactInfo(this.organizationId, employeeId);
+      if (contactInfo == null) {
+        return null;
+      }
+      employee.setContactInfo(Collections.unmodifiableMap(contactInfo));
+    }
+    return employee.getContactInfo();
+  }
+
+  /**
+   * Sets or removes one contact field of an employee, without rewriting the other fields.
+   *
+   * @param employeeId the employee ID
+   * @param field the name of the field
+   * @param value the value of the field, null to remove it
+   * @return true if the employee is found and updated, false otherwise
+   */
+  public boolean setEmployeeContactField(int employeeId, String field, String value) {
+    checkFieldName(field);
+    boolean success =
+        dbConnection.setEmployeeContactField(this.organizationId, employeeId, field, value);
+    if (success) {
+      // Loaded again on next use, so the cache never mixes old and new fields
+      employees.stream()
+          .filter(e -> e.getId() == employeeId)
+          .forEach(e -> e.setContactInfo(null));
+    }
+    return success;
+  }
+
+  /**
+   * Returns the details of the organization, loading them on first use.
+   *
+   * @return the detail fields by name, null if the organization is not found
+   */
+  public Map<String, Object> getOrganizationDetails() {
+    Map<String, Object> details = organization.getDetails();
+    if (details == null) {
+      details = dbConnection.getOrganizationDetails(this.organizationId);
+      if (details == null) {
+        return null;
+      }
+      organization.setDetails(Collections.unmodifiableMap(details));
+    }
+    return organization.getDetails();
+  }
+
+  /**
+   * Sets or removes one detail field of the organization, without rewriting the others.
+   *
+   * @param field the name of the field
+   * @param value the value of the field, null to remove it
+   * @return true if the organization is updated, false otherwise
+   */
+  public boolean setOrganizationDetail(String field, String value) {
+    checkFieldName(field);
+    boolean success = dbConnection.setOrganizationDetail(this.organizationId, field, value);
+    if (success) {
+      organization.setDetails(null);
+    }
+    return success;
+  }
+
+  private static void checkFieldName(String field) {
+    if (field == null || !FIELD_NAME.matcher(field).matches()) {
+      throw new BadRequestException(
+          "Field names must be 1 to 64 letters, digits or underscores: " + field);
+    }
+  }
+
   /**
    * Updates the employee information.
    *
@@ -130,23 +546,119 @@ public final class HrDatabaseFacade {
   public boolean updateEmployee(Employee employee) {
     boolean success = dbConnection.updateEmployee(this.organizationId, employee);
     if (success) {
-      // Update organization-level employee cache
-      this.employees = dbConnection.getEmployees(this.organizationId);
+      replaceCachedEmployee(employee);
+    }
+    return success;
+  }
 
-      // Update department-level employee cache
-      for (Department department : this.departments) {
-        List<Employee> deptEmployees = department.getEmployees();
-        for (int i = 0; i < deptEmployees.size(); i++) {
-          Employee deptEmployee = deptEmployees.get(i);
-          if (deptEmployee.getId() == employee.getId()) {
-            // replace the employee in the department cache
-            deptEmployees.set(i, employee);
-            break;
-          }
+  /**
+   * Updates the employee information only if the employee is unchanged since it was read,
+   * i.e. its stored version still equals employee.getVersion().
+   * On a conflict the cached employee is reloaded, so that a retry starts from current data.
+   *
+   * @param employee the updated employee object, carrying the version it was read at
+   * @return true if the employee is updated, false if it changed or does not exist
+   */
+  public boolean compareAndSetEmployee(Employee employee) {
+    if (dbConnection.compareAndSetEmployee(this.organizationId, employee)) {
+      replaceCachedEmployee(employee);
+      return true;
+    }
+    Employee current = dbConnection.getEmployee(this.organizationId, employee.getId());
+    if (current != null) {
+      replaceCachedEmployee(current);
+    }
+    return false;
+  }
+
+  /**
+   * Changes an employee with optimistic concurrency: the change is applied to a copy of the
+   * cached employee, which is then compare-and-set. On a conflict the change is retried on the
+   * reloaded employee, a few times at most.
+   * If the connection buffers employee updates (write-behind), the change is written with
+   * updateEmployee instead, so it is buffered; concurrent changes then last-writer-win.
+   *
+   * @param employeeId the employee ID
+   * @param change the change to apply to the employee
+   * @return true if the employee is updated, false if the update failed for another reason
+   * @throws NotFoundException if the employee does not exist
+   * @throws ConflictException if the employee kept changing concurrently
+   */
+  public boolean modifyEmployee(int employeeId, Consumer<Employee> change) {
+    if (dbConnection.buffersEmployeeUpdates()) {
+      Employee cached = getEmployee(employeeId);
+      if (cached == null) {
+        throw new NotFoundException("Employee [" + employeeId + "] not found");
+      }
+      Employee employee = cached.copy();
+      change.accept(employee);
+      if (!dbConnection.updateEmployee(this.organizationId, employee)) {
+        return false;
+      }
+      replaceCachedEmployee(employee);
+      return true;
+    }
+    for (int attempt = 0; attempt < MAX_CONFLICT_ATTEMPTS; attempt++) {
+      Employee cached = getEmployee(employeeId);
+      if (cached == null) {
+        throw new NotFoundException("Employee [" + employeeId + "] not found");
+      }
+      Employee employee = cached.copy();
+      change.accept(employee);
+      if (compareAndSetEmployee(employee)) {
+        return true;
+      }
+      Employee current = getEmployee(employeeId);
+      if (current != null && current.getVersion() == employee.getVersion()) {
+        // Nobody else changed the employee, so the write itself failed
+        return false;
+      }
+    }
+    throw new ConflictException(
+        "Employee [" + employeeId + "] was modified concurrently, please retry");
+  }
+
+  /**
+   * Replaces an employee in the organization-level and department-level caches.
+   *
+   * @param employee the employee to cache
+   */
+  private void replaceCachedEmployee(Employee employee) {
+    // Update organization-level employee cache in place instead of reloading it
+    for (int i = 0; i < this.employees.size(); i++) {
+      if (this.employees.get(i).getId() == employee.getId()) {
+        this.employees.set(i, employee);
+        break;
+      }
+    }
+
+    // Update department-level employee cache
+    for (Department department : this.departments) {
+      List<Employee> deptEmployees = department.getEmployees();
+      for (int i = 0; i < deptEmployees.size(); i++) {
+        Employee deptEmployee = deptEmployees.get(i);
+        if (deptEmployee.getId() == employee.getId()) {
+          // replace the employee in the department cache
+          deptEmployees.set(i, employee);
+          break;
         }
       }
     }
-    return success;
+  }
+
+  /**
+   * Updates several employees in one batch.
+   * The in-memory cache is reloaded once after the whole batch.
+   *
+   * @param employees the updated employee objects
+   * @return the number of employees updated
+   */
+  public int updateEmployees(List<Employee> employees) {
+    int updated = dbConnection.updateEmployees(this.organizationId, employees);
+    if (updated > 0) {
+      refresh();
+    }
+    return updated;
   }
 
   /**
@@ -158,13 +670,31 @@ public final class HrDatabaseFacade {
   public boolean updateDepartment(Department department) {
     boolean success = dbConnection.updateDepartment(this.organizationId, department);
     if (success) {
-      List<Department> updatedDepartments = dbConnection.getDepartments(this.organizationId);
-      for (Department dept : updatedDepartments) {
-        System.out.println(dept.toJson());
+      refresh();
+    }
+    return success;
+  }
+
+  /**
+   * Updates the department information only if the department is unchanged since it was read,
+   * i.e. its stored version still equals department.getVersion().
+   * Pass a copy of the cached department: the cached one takes the stored name and head only
+   * on success. The cache is refreshed either way, so that a retry starts from current data.
+   *
+   * @param department the updated department object, carrying the version it was read at
+   * @return true if the department is updated, false if it changed or does not exist
+   */
+  public boolean compareAndSetDepartment(Department department) {
+    boolean success = dbConnection.compareAndSetDepartment(this.organizationId, department);
+    if (success) {
+      Department cached = findCachedDepartment(department.getId());
+      if (cached != null && cached != department) {
+        cached.setName(department.getName());
+        cached.setHead(department.getHead());
+        cached.setVersion(department.getVersion());
       }
-      this.organization.setDepartments(updatedDepartments);
-      this.departments = updatedDepartments;
     }
+    refresh();
     return success;
   }
 
@@ -209,12 +739,14 @@ public final class HrDatabaseFacade {
       System.out.println(newEmployee.toJson());
 
       // Update the in-memory cache
-      this.employees = dbConnection.getEmployees(this.organizationId);
-      // This is added for update department-level cache
-      for (Department department : this.departments) {
-        if (department.getId() == departmentId) {
-          department.addEmployee(newEmployee);
-          break;
+      if (!refreshChanges()) {
+        this.employees = dbConnection.getEmployees(this.organizationId);
+        // This is added for update department-level cache
+        for (Department department : this.departments) {
+          if (department.getId() == departmentId) {
+            department.addEmployee(newEmployee);
+            break;
+          }
         }
       }
       return newEmployee;
@@ -222,6 +754,59 @@ public final class HrDatabaseFacade {
     return null;
   }
 
+  /**
+   * Adds several new employees to a department in one batch.
+   * The in-memory cache is reloaded once after the whole batch.
+   *
+   * @param departmentId the department ID
+   * @param employees the employees to add
+   * @return the added employees with assigned IDs, or an empty list if failed
+   */
+  public List<Employee> addEmployeesToDepartment(int departmentId, List<Employee> employees) {
+    int internalDeptId = this.organizationId * 10000 + departmentId;
+    List<Integer> internalEmpIds = dbConnection
+        .addEmployeesToDepartment(this.organizationId, internalDeptId, employees);
+
+    List<Employee> newEmployees = new ArrayList<>();
+    if (internalEmpIds.size() != employees.size()) {
+      return newEmployees;
+    }
+    for (int i = 0; i < employees.size(); i++) {
+      Employee employee = employees.get(i);
+      newEmployees.add(new Employee(
+          internalEmpIds.get(i) % 10000,
+          employee.getName(),
+          employee.getHireDate(),
+          employee.getPosition(),
+          employee.getSalary(),
+          employee.getPerformance()
+      ));
+    }
+    refresh();
+    return newEmployees;
+  }
+
+
+  /**
+   * Imports departments and employees in bulk.
+   * The in-memory cache is refreshed once after the whole import.
+   *
+   * @param reader the records to import
+   * @param format the format of the records
+   * @return the outcome of the import
+   * @throws IOException if the records cannot be read
+   */
+  public BulkImporter.Result importRecords(Reader reader, RecordFormat format)
+      throws IOException {
+    BulkImporter importer = new BulkImporter(
+        dbConnection, this.organizationId, new ArrayList<>(this.departments),
+        DatabaseExecutors.shared());
+    try {
+      return importer.run(reader, format);
+    } finally {
+      refresh();
+    }
+  }
 
   /**
    * Inserts a new department into the database.
@@ -255,7 +840,7 @@ public final class HrDatabaseFacade {
         internalEmpId
     );
 
-    if (success) {
+    if (success && !refreshChanges()) {
       // Update the in-memory cache
       this.employees = dbConnection.getEmployees(this.organizationId);
       for (Department department : this.departments) {
@@ -312,8 +897,24 @@ public final class HrDatabaseFacade {
     return newOrganization;
   }
 
+  /**
+   * Clones an organization into a new one inside the database, e.g. as a sandbox copy.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param name the name of the new organization
+   * @return the new organization, or null if the source is not found or the copy failed
+   */
+  public static Organization cloneOrganization(int sourceOrganizationId, String name) {
+    if (dbConnection == null) {
+      throw new IllegalStateException("Database connection is not initialized");
+    }
+    return dbConnection.cloneOrganization(sourceOrganizationId, new Organization(0, name));
+  }
+
   /**
    * Removes an organization from the database.
+   * If an organization remover is set, the organization disappears at once and its rows are
+   * deleted in the background; otherwise it is deleted in a single transaction.
    *
    * @param organizationId the organization ID
    * @return true if the organization is removed successfully, false otherwise
@@ -322,7 +923,10 @@ public final class HrDatabaseFacade {
     if (dbConnection == null) {
       throw new IllegalStateException("Database connection is not initialized");
     }
-    boolean success = dbConnection.removeOrganization(organizationId);
+    OrganizationRemover remover = organizationRemover;
+    boolean success = remover != null
+        ? remover.remove(organizationId)
+        : dbConnection.removeOrganization(organizationId);
     if (success) {
       // Remove the HrDatabaseFacade instance for the organization
       synchronized (HrDatabaseFacade.class) {
@@ -363,4 +967,13 @@ public final class HrDatabaseFacade {
       System.out.println("Database connection is set to: " + dbConnection.connectionName());
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Sets the remover that reclaims the rows of removed organizations in the background.
+   *
+   * @param remover the organization remover, or null to remove organizations synchronously
+   */
+  public static void setOrganizationRemover(OrganizationRemover remover) {
+    organizationRemover = remover;
+  }
+}
@@ -388,4 +388,39 @@ public class HrDatabaseFacadePropertiesTest {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * 17) Safety Property: If two threads compare-and-set the same employee from the same
+   * version, exactly one of them succeeds, and the final salary is the winner's (no lost update).
+   *
+   * Formally: "ALWAYS (concurrent compareAndSet from version v => exactly one succeeds)."
+   */
+  public static void testConcurrentCompareAndSet() throws InterruptedException {
+    InmemConnection conn = InmemConnection.getInstance();
+    HrDatabaseFacade.setConnection(conn);
+
+    HrDatabaseFacade facade = HrDatabaseFacade.getInstance(1);
+
+    Employee original = facade.getEmployee(1);
+    assert original != null : "Employee #1 must exist to test concurrency";
+
+    Employee emp1 = original.copy();
+    emp1.setSalary(original.getSalary() + 500);
+    Employee emp2 = original.copy();
+    emp2.setSalary(original.getSalary() + 1000);
+
+    final boolean[] results = new boolean[2];
+    Thread t1 = new Thread(() -> results[0] = facade.compareAndSetEmployee(emp1));
+    Thread t2 = new Thread(() -> results[1] = facade.compareAndSetEmployee(emp2));
+
+    t1.start();
+    t2.start();
+    t1.join();
+    t2.join();
+
+    assert results[0] ^ results[1] : "Exactly one compare-and-set must succeed!";
+    double expected = results[0] ? emp1.getSalary() : emp2.getSalary();
+    assert conn.getEmployee(1, 1).getSalary() == expected :
+        "The stored salary must be the one of the successful compare-and-set!";
+  }
+
+}
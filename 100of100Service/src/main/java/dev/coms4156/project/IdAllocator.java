@@ -0,0 +1,110 @@
+package dev.coms4156.project;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out IDs from blocks reserved in durable storage (hi/lo allocation).
+ * Each organization and entity has its own sequence. IDs of the current block are served
+ * from memory with an atomic counter, and storage is only touched when a block runs out.
+ */
+public class IdAllocator {
+
+  /**
+   * Reserves a block of consecutive IDs in durable storage.
+   */
+  @FunctionalInterface
+  public interface BlockSource {
+    /**
+     * Reserves the next block of a sequence.
+     *
+     * @param organizationId the organization id
+     * @param entity the name of the sequence within the organization
+     * @param blockSize the number of IDs to reserve
+     * @return the first ID of the reserved block
+     * @throws SQLException if the block cannot be reserved
+     */
+    int reserve(int organizationId, String entity, int blockSize) throws SQLException;
+  }
+
+  private final BlockSource source;
+  private final int blockSize;
+  private final ConcurrentMap<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an ID allocator.
+   *
+   * @param source the storage the ID blocks are reserved from
+   * @param blockSize the number of IDs reserved per round trip
+   */
+  public IdAllocator(BlockSource source, int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    this.source = source;
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Returns the next ID of a sequence, reserving a new block if the current one is used up.
+   *
+   * @param organizationId the organization id
+   * @param entity the name of the sequence within the organization
+   * @return the next ID
+   * @throws SQLException if a new block cannot be reserved
+   */
+  public int next(int organizationId, String entity) throws SQLException {
+    Sequence sequence = sequences.computeIfAbsent(
+        organizationId + ":" + entity, key -> new Sequence());
+    while (true) {
+      Block block = sequence.current;
+      int id = block.next.getAndIncrement();
+      if (id < block.limit) {
+        return id;
+      }
+      sequence.refillLock.lock();
+      try {
+        // Another thread may have refilled while we waited for the lock
+        if (sequence.current == block) {
+          int start = source.reserve(organizationId, entity, blockSize);
+          sequence.current = new Block(start, start + blockSize);
+        }
+      } finally {
+        sequence.refillLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Drops the cached blocks of an organization, e.g. after it has been removed.
+   *
+   * @param organizationId the organization id
+   */
+  public void release(int organizationId) {
+    sequences.keySet().removeIf(key -> key.startsWith(organizationId + ":"));
+  }
+
+  /**
+   * A sequence of one organization and entity, holding its current block.
+   */
+  private static final class Sequence {
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile Block current = new Block(0, 0);
+  }
+
+  /**
+   * A reserved range of IDs, from the counter (inclusive) to the limit (exclusive).
+   */
+  private static final class Block {
+    private final AtomicInteger next;
+    private final int limit;
+
+    private Block(int start, int limit) {
+      this.next = new AtomicInteger(start);
+      this.limit = limit;
+    }
+  }
+}
@@ -1,25 +1,42 @@
 package dev.coms4156.project;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Provides in-memory data for testing purposes without connecting to a real database.
  */
-public class InmemConnection implements DatabaseConnection {
+public class InmemConnection implements AsyncDatabaseConnection {
   private static volatile InmemConnection instance;
 
   private final Map<Integer, List<Employee>> testEmployees = new HashMap<>();
   private final Map<Integer, List<Department>> testDepartments = new HashMap<>();
   private final Map<Integer, Organization> testOrganizations = new HashMap<>();
+  // JSON documents kept apart from the model objects, which the caches share
+  private final Map<Integer, Map<String, Object>> testContactInfo = new HashMap<>();
+  private final Map<Integer, Map<String, Object>> testDetails = new HashMap<>();
+  // Makes the version check and the write of a compare-and-set one step, like a row lock
+  private final ReentrantLock writeLock = new ReentrantLock();
 
   public String connectionName() {
     return "In-memory Database::null";
   }
 
+  @Override
+  public Executor asyncExecutor() {
+    return DatabaseExecutors.shared();
+  }
+
   /**
    * Constructs a DatabaseConnectionStub and initializes test data.
    */
@@ -35,11 +52,38 @@ public class InmemConnection implements DatabaseConnection {
     testEmployees.clear();
     testDepartments.clear();
     testOrganizations.clear();
+    testContactInfo.clear();
+    testDetails.clear();
     initializeTestData();
   }
 
   @Override
   public boolean updateDepartment(int organizationId, Department department) {
+    writeLock.lock();
+    try {
+      Department stored = getDepartment(organizationId, department.getId());
+      return stored != null && replaceDepartment(organizationId, department, stored.getVersion());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    writeLock.lock();
+    try {
+      Department stored = getDepartment(organizationId, department.getId());
+      if (stored == null || stored.getVersion() != department.getVersion()) {
+        return false;
+      }
+      return replaceDepartment(organizationId, department, stored.getVersion());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private boolean replaceDepartment(
+      int organizationId, Department department, long storedVersion) {
     List<Department> departments = testDepartments.get(organizationId);
     if (departments == null) {
       return false;
@@ -54,6 +98,7 @@ public class InmemConnection implements DatabaseConnection {
 
     for (int i = 0; i < departments.size(); i++) {
       if (departments.get(i).getId() == department.getId()) {
+        department.setVersion(storedVersion + 1);
         departments.set(i, department);
         return true;
       }
@@ -97,8 +142,8 @@ public class InmemConnection implements DatabaseConnection {
 
     Employee newEmployee = new Employee(newEmployeeId, employee.getName(), employee.getHireDate());
     newEmployee.setPosition(employee.getPosition());
-    newEmployee.setSalary(employee.getSalary());
-    newEmployee.setPerformance(employee.getPerformance());
+    newEmployee.setSalaryCents(employee.getSalaryCents());
+    newEmployee.setPerformanceBasisPoints(employee.getPerformanceBasisPoints());
 
     employees.add(newEmployee);
     targetDept.addEmployee(newEmployee);
@@ -160,6 +205,48 @@ public class InmemConnection implements DatabaseConnection {
     return employeeRemoved && deptRemoved;
   }
 
+  /**
+   * Adds several employees to a department of the stubbed database.
+   * Nothing is added if the organization or the department does not exist.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param departmentId   the internal department ID
+   * @param employees      the employees to add
+   * @return the internal employee IDs in input order, or an empty list if failed
+   */
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees
+  ) {
+    List<Integer> newEmployeeIds = new ArrayList<>();
+    if (getDepartment(organizationId, departmentId % 10000) == null
+        || !testEmployees.containsKey(organizationId)) {
+      return newEmployeeIds;
+    }
+    for (Employee employee : employees) {
+      newEmployeeIds.add(addEmployeeToDepartment(organizationId, departmentId, employee));
+    }
+    return newEmployeeIds;
+  }
+
+  /**
+   * Updates several employees of the stubbed database.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param employees      the employees containing the updated information
+   * @return the number of employees found and updated
+   */
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    int updated = 0;
+    for (Employee employee : employees) {
+      if (updateEmployee(organizationId, employee)) {
+        updated++;
+      }
+    }
+    return updated;
+  }
+
   @Override
   public Department insertDepartment(int organizationId, Department department) {
     return null;
@@ -174,12 +261,42 @@ public class InmemConnection implements DatabaseConnection {
    */
   @Override
   public boolean updateEmployee(int organizationId, Employee employee) {
+    writeLock.lock();
+    try {
+      Employee stored = getEmployee(organizationId, employee.getId());
+      return stored != null && replaceEmployee(organizationId, employee, stored.getVersion());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    writeLock.lock();
+    try {
+      Employee stored = getEmployee(organizationId, employee.getId());
+      if (stored == null || stored.getVersion() != employee.getVersion()) {
+        return false;
+      }
+      return replaceEmployee(organizationId, employee, stored.getVersion());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    return false;
+  }
+
+  private boolean replaceEmployee(int organizationId, Employee employee, long storedVersion) {
     List<Employee> employees = testEmployees.get(organizationId);
     boolean updated = false;
 
     if (employees != null) {
       for (int i = 0; i < employees.size(); i++) {
         if (employees.get(i).getId() == employee.getId()) {
+          employee.setVersion(storedVersion + 1);
           employees.set(i, employee);
           updated = true;
           break;
@@ -264,6 +381,96 @@ public class InmemConnection implements DatabaseConnection {
     return testEmployees.getOrDefault(organizationId, new ArrayList<>());
   }
 
+  /**
+   * Passes each employee of a given organization to a consumer.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param action the consumer each employee is passed to
+   * @return the number of employees visited
+   */
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    List<Employee> employees = getEmployees(organizationId);
+    for (Employee employee : employees) {
+      action.accept(employee);
+    }
+    return employees.size();
+  }
+
+  /**
+   * Passes every employee of a given organization to a consumer with its department ID.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param action the consumer each employee and its department ID are passed to
+   * @return the number of employees visited
+   */
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    int count = 0;
+    for (Department department : getDepartments(organizationId)) {
+      for (Employee employee : department.getEmployees()) {
+        action.accept(employee, department.getId());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Retrieves a page of the employees of a given organization, ordered by ID.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param afterId the employee ID the page starts after
+   * @param limit the maximum number of employees in the page
+   * @return a list of Employee objects
+   */
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    return page(getEmployees(organizationId), afterId, limit);
+  }
+
+  /**
+   * Retrieves a page of the employees of a department, ordered by ID.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @param externalDepartmentId the department ID
+   * @param afterId the employee ID the page starts after
+   * @param limit the maximum number of employees in the page
+   * @return a list of Employee objects
+   */
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit
+  ) {
+    Department department = getDepartment(organizationId, externalDepartmentId);
+    if (department == null || department.getEmployees() == null) {
+      return new ArrayList<>();
+    }
+    return page(department.getEmployees(), afterId, limit);
+  }
+
+  private static List<Employee> page(List<Employee> employees, int afterId, int limit) {
+    return employees.stream()
+        .filter(e -> e.getId() > afterId)
+        .sorted(Comparator.comparingInt(Employee::getId))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    Department department = getDepartment(organizationId, externalDepartmentId);
+    return department == null ? null : department.getEmployeeSalaryStatisticMap();
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    Department department = getDepartment(organizationId, externalDepartmentId);
+    return department == null ? null : department.getEmployeePerformanceCutoffMap();
+  }
+
   /**
    * Retrieves a list of departments for a given organization.
    *
@@ -296,6 +503,45 @@ public class InmemConnection implements DatabaseConnection {
     return false;
   }
 
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    writeLock.lock();
+    try {
+      List<Employee> employees = testEmployees.remove(organizationId);
+      if (employees != null) {
+        for (Employee employee : employees) {
+          testContactInfo.remove(organizationId * 10000 + employee.getId());
+        }
+      }
+      testDepartments.remove(organizationId);
+      return testOrganizations.containsKey(organizationId);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Marks an organization for removal in the stubbed database.
+   * The stub holds no rows worth reclaiming in chunks, so the organization is dropped at once.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization existed, false otherwise
+   */
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    return testOrganizations.remove(organizationId) != null;
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    return 0;
+  }
+
   /**
    * Inserts a new organization into the stubbed database.
    *
@@ -318,6 +564,182 @@ public class InmemConnection implements DatabaseConnection {
     return newOrganization;
   }
 
+  /**
+   * Loads the organization together with its departments and employees.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @return the snapshot of the organization if found, null otherwise
+   */
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    Organization organization = getOrganization(organizationId);
+    if (organization == null) {
+      return null;
+    }
+    return new OrganizationSnapshot(
+        organization, getDepartments(organizationId), getEmployees(organizationId)
+    );
+  }
+
+  /**
+   * Loads the organization like loadOrganizationSnapshot, with the details and contact
+   * information attached; the stub keeps no shifts.
+   *
+   * @param organizationId the organization ID (client ID)
+   * @return the full snapshot of the organization if found, null otherwise
+   */
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    OrganizationSnapshot snapshot = loadOrganizationSnapshot(organizationId);
+    if (snapshot == null) {
+      return null;
+    }
+    snapshot.getOrganization().setDetails(getOrganizationDetails(organizationId));
+    for (Employee employee : snapshot.getEmployees()) {
+      employee.setContactInfo(getEmployeeContactInfo(organizationId, employee.getId()));
+    }
+    snapshot.setShifts(new ArrayList<>());
+    return snapshot;
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    if (getEmployee(organizationId, externalEmployeeId) == null) {
+      return null;
+    }
+    return new LinkedHashMap<>(testContactInfo.getOrDefault(
+        organizationId * 10000 + externalEmployeeId, Map.of()));
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    if (getEmployee(organizationId, externalEmployeeId) == null) {
+      return false;
+    }
+    setField(testContactInfo, organizationId * 10000 + externalEmployeeId, field, value);
+    return true;
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    if (getOrganization(organizationId) == null) {
+      return null;
+    }
+    return new LinkedHashMap<>(testDetails.getOrDefault(organizationId, Map.of()));
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    if (getOrganization(organizationId) == null) {
+      return false;
+    }
+    setField(testDetails, organizationId, field, value);
+    return true;
+  }
+
+  private void setField(
+      Map<Integer, Map<String, Object>> documents, int key, String field, String value) {
+    writeLock.lock();
+    try {
+      Map<String, Object> document = documents.computeIfAbsent(key, k -> new LinkedHashMap<>());
+      if (value == null) {
+        document.remove(field);
+      } else {
+        document.put(field, value);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Clones an organization in the stubbed database, copying every object so that the clone
+   * shares none with the source.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param organization the new organization, with its id or 0 to allocate one
+   * @return the new organization, null if the source is not found
+   */
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    OrganizationSnapshot source = loadOrganizationSnapshot(sourceOrganizationId);
+    if (source == null) {
+      return null;
+    }
+    Organization clone = organization.getId() > 0
+        ? new Organization(organization.getId(), organization.getName())
+        : insertOrganization(organization);
+    Map<Integer, Employee> employees = new LinkedHashMap<>();
+    for (Employee employee : source.getEmployees()) {
+      employees.put(employee.getId(), employee.copy());
+      Map<String, Object> contactInfo =
+          testContactInfo.get(sourceOrganizationId * 10000 + employee.getId());
+      if (contactInfo != null) {
+        testContactInfo.put(clone.getId() * 10000 + employee.getId(),
+            new LinkedHashMap<>(contactInfo));
+      }
+    }
+    List<Department> departments = new ArrayList<>();
+    for (Department department : source.getDepartments()) {
+      Department copy = new Department(department.getId(), department.getName());
+      for (Employee employee : department.getEmployees()) {
+        copy.addEmployee(employees.get(employee.getId()));
+      }
+      if (department.getHead() != null) {
+        copy.setHead(employees.get(department.getHead().getId()));
+      }
+      departments.add(copy);
+    }
+    if (testDetails.containsKey(sourceOrganizationId)) {
+      testDetails.put(clone.getId(), new LinkedHashMap<>(testDetails.get(sourceOrganizationId)));
+    }
+    testOrganizations.put(clone.getId(), clone);
+    return restoreOrganization(new OrganizationSnapshot(
+        clone, departments, new ArrayList<>(employees.values()))) ? clone : null;
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    int organizationId = snapshot.getOrganization().getId();
+    writeLock.lock();
+    try {
+      if (!testDepartments.getOrDefault(organizationId, List.of()).isEmpty()
+          || !testEmployees.getOrDefault(organizationId, List.of()).isEmpty()) {
+        return false;
+      }
+      testOrganizations.putIfAbsent(organizationId, snapshot.getOrganization());
+      testDepartments.put(organizationId, new ArrayList<>(snapshot.getDepartments()));
+      testEmployees.put(organizationId, new ArrayList<>(snapshot.getEmployees()));
+      Map<String, Object> details = snapshot.getOrganization().getDetails();
+      if (details != null) {
+        testDetails.put(organizationId, new LinkedHashMap<>(details));
+      }
+      for (Employee employee : snapshot.getEmployees()) {
+        if (employee.getContactInfo() != null) {
+          testContactInfo.put(organizationId * 10000 + employee.getId(),
+              new LinkedHashMap<>(employee.getContactInfo()));
+        }
+      }
+      return true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * The stub shares its objects with the caches, so there are no changes to tell apart;
+   * callers reload the organization instead.
+   *
+   * @param organizationId the organization id
+   * @param watermark the watermark the changes are requested since
+   * @return null
+   */
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    return null;
+  }
+
   /**
    * Initializes the test data for the stub.
    */
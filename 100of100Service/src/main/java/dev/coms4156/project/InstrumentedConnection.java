@@ -0,0 +1,318 @@
+package dev.coms4156.project;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A database connection decorator that records the call count, latency histogram and number
+ * of returned rows of every DAO method of the connection it wraps.
+ * Designed under the Decorator Design Pattern.
+ */
+public class InstrumentedConnection implements DatabaseConnection {
+  private final DatabaseConnection delegate;
+  private final QueryMetrics metrics;
+
+  /**
+   * Constructs an instrumented connection.
+   *
+   * @param delegate the connection whose calls are measured
+   * @param metrics the metrics the calls are recorded in, by method name
+   */
+  public InstrumentedConnection(DatabaseConnection delegate, QueryMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Returns the metrics of the DAO methods.
+   *
+   * @return the metrics, by method name
+   */
+  public QueryMetrics getMetrics() {
+    return metrics;
+  }
+
+  private <T> T timed(String method, Supplier<T> call, ToLongFunction<T> rows) {
+    long start = System.nanoTime();
+    T result = null;
+    try {
+      result = call.get();
+      return result;
+    } finally {
+      metrics.record(method, System.nanoTime() - start,
+          result == null ? 0 : rows.applyAsLong(result));
+    }
+  }
+
+  private static long one(Object result) {
+    return 1;
+  }
+
+  private static long ifTrue(boolean result) {
+    return result ? 1 : 0;
+  }
+
+  @Override
+  public String connectionName() {
+    return delegate.connectionName();
+  }
+
+  @Override
+  public int addEmployeeToDepartment(int organizationId, int departmentId, Employee employee) {
+    return timed("addEmployeeToDepartment",
+        () -> delegate.addEmployeeToDepartment(organizationId, departmentId, employee),
+        id -> id > 0 ? 1 : 0);
+  }
+
+  @Override
+  public Employee getEmployee(int organizationId, int externalEmployeeId) {
+    return timed("getEmployee",
+        () -> delegate.getEmployee(organizationId, externalEmployeeId),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public List<Employee> getEmployees(int organizationId) {
+    return timed("getEmployees", () -> delegate.getEmployees(organizationId), List::size);
+  }
+
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    return timed("forEachEmployee",
+        () -> delegate.forEachEmployee(organizationId, action), Integer::longValue);
+  }
+
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    return timed("forEachDepartmentEmployee",
+        () -> delegate.forEachDepartmentEmployee(organizationId, action), Integer::longValue);
+  }
+
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    return timed("getEmployeesPage",
+        () -> delegate.getEmployeesPage(organizationId, afterId, limit), List::size);
+  }
+
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit) {
+    return timed("getDepartmentEmployeesPage",
+        () -> delegate.getDepartmentEmployeesPage(
+            organizationId, externalDepartmentId, afterId, limit),
+        List::size);
+  }
+
+  @Override
+  public boolean updateEmployee(int organizationId, Employee employee) {
+    return timed("updateEmployee",
+        () -> delegate.updateEmployee(organizationId, employee), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    return timed("compareAndSetEmployee",
+        () -> delegate.compareAndSetEmployee(organizationId, employee),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    return delegate.buffersEmployeeUpdates();
+  }
+
+  @Override
+  public boolean removeEmployeeFromDepartment(
+      int organizationId, int departmentId, int employeeId) {
+    return timed("removeEmployeeFromDepartment",
+        () -> delegate.removeEmployeeFromDepartment(organizationId, departmentId, employeeId),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees) {
+    return timed("addEmployeesToDepartment",
+        () -> delegate.addEmployeesToDepartment(organizationId, departmentId, employees),
+        List::size);
+  }
+
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    return timed("updateEmployees",
+        () -> delegate.updateEmployees(organizationId, employees), Integer::longValue);
+  }
+
+  @Override
+  public Department insertDepartment(int organizationId, Department department) {
+    return timed("insertDepartment",
+        () -> delegate.insertDepartment(organizationId, department),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public Department getDepartment(int organizationId, int externalDepartmentId) {
+    return timed("getDepartment",
+        () -> delegate.getDepartment(organizationId, externalDepartmentId),
+        department -> 1 + department.getEmployees().size());
+  }
+
+  @Override
+  public List<Department> getDepartments(int organizationId) {
+    return timed("getDepartments", () -> delegate.getDepartments(organizationId), List::size);
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    return timed("getDepartmentSalaryStatistics",
+        () -> delegate.getDepartmentSalaryStatistics(organizationId, externalDepartmentId),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    return timed("getDepartmentPerformanceStatistics",
+        () -> delegate.getDepartmentPerformanceStatistics(organizationId, externalDepartmentId),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public boolean updateDepartment(int organizationId, Department department) {
+    return timed("updateDepartment",
+        () -> delegate.updateDepartment(organizationId, department),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    return timed("compareAndSetDepartment",
+        () -> delegate.compareAndSetDepartment(organizationId, department),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean removeDepartment(int organizationId, int externalDepartmentId) {
+    return timed("removeDepartment",
+        () -> delegate.removeDepartment(organizationId, externalDepartmentId),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public Organization insertOrganization(Organization organization) {
+    return timed("insertOrganization",
+        () -> delegate.insertOrganization(organization), InstrumentedConnection::one);
+  }
+
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    return timed("cloneOrganization",
+        () -> delegate.cloneOrganization(sourceOrganizationId, organization),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public Organization getOrganization(int organizationId) {
+    return timed("getOrganization",
+        () -> delegate.getOrganization(organizationId), InstrumentedConnection::one);
+  }
+
+  @Override
+  public boolean updateOrganization(Organization organization) {
+    return timed("updateOrganization",
+        () -> delegate.updateOrganization(organization), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean removeOrganization(int organizationId) {
+    return timed("removeOrganization",
+        () -> delegate.removeOrganization(organizationId), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    return timed("removeOrganizationContents",
+        () -> delegate.removeOrganizationContents(organizationId), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    return timed("markOrganizationForRemoval",
+        () -> delegate.markOrganizationForRemoval(organizationId), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    return timed("getOrganizationsPendingRemoval",
+        delegate::getOrganizationsPendingRemoval, List::size);
+  }
+
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    return timed("removeOrganizationChunk",
+        () -> delegate.removeOrganizationChunk(organizationId, chunkSize),
+        rows -> Math.max(rows, 0));
+  }
+
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    return timed("loadOrganizationSnapshot",
+        () -> delegate.loadOrganizationSnapshot(organizationId),
+        snapshot -> 1 + snapshot.getDepartments().size() + snapshot.getEmployees().size());
+  }
+
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    return timed("loadFullOrganizationSnapshot",
+        () -> delegate.loadFullOrganizationSnapshot(organizationId),
+        snapshot -> 1 + snapshot.getDepartments().size() + snapshot.getEmployees().size()
+            + snapshot.getShifts().size());
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    return timed("restoreOrganization",
+        () -> delegate.restoreOrganization(snapshot), InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    return timed("getChangesSince",
+        () -> delegate.getChangesSince(organizationId, watermark),
+        delta -> delta.getEmployees().size() + delta.getDepartments().size()
+            + delta.getRemovedEmployees().size() + delta.getRemovedDepartments().size());
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    return timed("getEmployeeContactInfo",
+        () -> delegate.getEmployeeContactInfo(organizationId, externalEmployeeId),
+        InstrumentedConnection::one);
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    return timed("setEmployeeContactField",
+        () -> delegate.setEmployeeContactField(organizationId, externalEmployeeId, field, value),
+        InstrumentedConnection::ifTrue);
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    return timed("getOrganizationDetails",
+        () -> delegate.getOrganizationDetails(organizationId), InstrumentedConnection::one);
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    return timed("setOrganizationDetail",
+        () -> delegate.setOrganizationDetail(organizationId, field, value),
+        InstrumentedConnection::ifTrue);
+  }
+}
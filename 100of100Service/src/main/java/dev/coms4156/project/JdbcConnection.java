@@ -0,0 +1,2548 @@
+package dev.coms4156.project;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.coms4156.project.exception.InternalServerErrorException;
+import dev.coms4156.project.utils.FixedPoint;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The JDBC implementation of the database connection, shared by every SQL backend.
+ * This class is responsible for creating and managing the connection pool to the database.
+ * Every method borrows a pooled connection for the duration of the call and returns it after.
+ * What differs between database engines is captured by the SqlDialect of the connection.
+ */
+public abstract class JdbcConnection implements AsyncDatabaseConnection {
+  private static final Logger logger = LoggerFactory.getLogger(JdbcConnection.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final int BATCH_SIZE = 500;
+  private static final String INSERT_EMPLOYEE =
+      "INSERT INTO employees "
+          + "(employee_id, organization_id, department_id, "
+          + "name, hire_date, position, salary, performance) "
+          + "VALUES ";
+  private static final String EMPLOYEE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String UPDATE_EMPLOYEE =
+      "UPDATE employees SET name = ?, position = ?, salary = ?, performance = ?, "
+          + "version = version + 1 WHERE organization_id = ? AND employee_id = ?";
+  private static final String COMPARE_AND_SET_EMPLOYEE = UPDATE_EMPLOYEE + " AND version = ?";
+  // A new head must belong to the department; the check is part of the UPDATE itself
+  private static final String UPDATE_DEPARTMENT =
+      "UPDATE departments SET name = ?, head_employee_id = ?, version = version + 1 "
+          + "WHERE organization_id = ? AND department_id = ? "
+          + "AND (? IS NULL OR EXISTS (SELECT 1 FROM employees "
+          + "WHERE employee_id = ? AND organization_id = ? AND department_id = ?))";
+  private static final String COMPARE_AND_SET_DEPARTMENT = UPDATE_DEPARTMENT + " AND version = ?";
+  // The columns mapEmployee reads; contact_info is only read on demand
+  private static final String EMPLOYEE_COLUMNS =
+      "employee_id, name, hire_date, position, salary, performance, version";
+  // The hot read queries, shared with the test that checks they stay on an index
+  static final String SELECT_EMPLOYEE =
+      "SELECT " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE organization_id = ? AND employee_id = ?";
+  static final String SELECT_DEPARTMENT =
+      "SELECT name, version FROM departments WHERE organization_id = ? AND department_id = ?";
+  static final String SELECT_EMPLOYEES =
+      "SELECT " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE organization_id = ? ORDER BY employee_id";
+  static final String SELECT_EMPLOYEES_PAGE =
+      "SELECT " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE organization_id = ? AND employee_id > ? ORDER BY employee_id LIMIT ?";
+  static final String SELECT_DEPARTMENT_EMPLOYEES_PAGE =
+      "SELECT " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE organization_id = ? AND department_id = ? AND employee_id > ? "
+          + "ORDER BY employee_id LIMIT ?";
+  static final String SELECT_DEPARTMENTS =
+      "SELECT department_id, name, head_employee_id, version "
+          + "FROM departments WHERE organization_id = ? ORDER BY department_id";
+  // The database clock is read with the first query, so no change made after it is missed
+  // Organizations marked for removal are hidden while their rows are reclaimed
+  static final String NOT_BEING_REMOVED = "NOT EXISTS (SELECT 1 FROM organization_removals r "
+      + "WHERE r.organization_id = o.organization_id)";
+  static final String SELECT_ORGANIZATION_DEPARTMENTS =
+      "SELECT o.name AS organization_name, CURRENT_TIMESTAMP(3) AS read_at, "
+          + "d.department_id, d.name, d.head_employee_id, d.version "
+          + "FROM organizations o "
+          + "LEFT JOIN departments d ON d.organization_id = o.organization_id "
+          + "WHERE o.organization_id = ? AND " + NOT_BEING_REMOVED + " "
+          + "ORDER BY d.department_id";
+  static final String SELECT_EMPLOYEES_WITH_DEPARTMENT =
+      "SELECT employee_id, department_id, " + EMPLOYEE_COLUMNS + " "
+          + "FROM employees WHERE organization_id = ? ORDER BY employee_id";
+  static final String SELECT_DEPARTMENT_EMPLOYEES =
+      "SELECT " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE department_id = ? AND organization_id = ?";
+  // One row for the highest and one for the lowest paid employee, each carrying the totals;
+  // an empty department yields a single row without employee
+  static final String SELECT_DEPARTMENT_SALARY_STATISTICS =
+      "SELECT employee_count, total, highest, lowest, employee_id, "
+          + "high_rank, low_rank FROM ("
+          + "SELECT e.employee_id, COUNT(e.employee_id) OVER () AS employee_count, "
+          + "SUM(e.salary) OVER () AS total, "
+          + "MAX(e.salary) OVER () AS highest, MIN(e.salary) OVER () AS lowest, "
+          + "ROW_NUMBER() OVER (ORDER BY e.salary DESC, e.employee_id) AS high_rank, "
+          + "ROW_NUMBER() OVER (ORDER BY e.salary, e.employee_id) AS low_rank "
+          + "FROM departments d LEFT JOIN employees e "
+          + "ON e.organization_id = d.organization_id AND e.department_id = d.department_id "
+          + "WHERE d.organization_id = ? AND d.department_id = ?) s "
+          + "WHERE high_rank = 1 OR low_rank = 1";
+  // A single row of cut-offs, each picked at its position in performance order; the quartiles
+  // of fewer than four employees are the extremes. No row counted means no department.
+  static final String SELECT_DEPARTMENT_PERFORMANCE_STATISTICS =
+      "SELECT COUNT(*) AS department_rows, COUNT(performance) AS employee_count, "
+          + "SUM(performance) AS total, "
+          + "MAX(CASE WHEN pos = 0 THEN performance END) AS lowest, "
+          + "MAX(CASE WHEN pos = CASE WHEN employee_count < 4 THEN 0 "
+          + "ELSE FLOOR((employee_count - 1) / 4) END THEN performance END) AS percentile25, "
+          + "MAX(CASE WHEN pos = FLOOR((employee_count - 1) / 2) THEN performance END) "
+          + "AS lower_median, "
+          + "MAX(CASE WHEN pos = FLOOR(employee_count / 2) THEN performance END) "
+          + "AS upper_median, "
+          + "MAX(CASE WHEN pos = CASE WHEN employee_count < 4 THEN employee_count - 1 "
+          + "ELSE FLOOR((employee_count - 1) * 3 / 4) END THEN performance END) AS percentile75, "
+          + "MAX(CASE WHEN pos = employee_count - 1 THEN performance END) AS highest FROM ("
+          + "SELECT e.performance, COUNT(e.employee_id) OVER () AS employee_count, "
+          + "ROW_NUMBER() OVER (ORDER BY e.performance, e.employee_id) - 1 AS pos "
+          + "FROM departments d LEFT JOIN employees e "
+          + "ON e.organization_id = d.organization_id AND e.department_id = d.department_id "
+          + "WHERE d.organization_id = ? AND d.department_id = ?) s";
+  // Change tracking: rows stamped at or after a watermark, and tombstones of removed rows
+  static final String SELECT_CHANGE_CLOCK =
+      "SELECT CURRENT_TIMESTAMP(3) AS read_at FROM organizations WHERE organization_id = ?";
+  static final String SELECT_CHANGED_DEPARTMENTS =
+      "SELECT department_id, name, head_employee_id, version FROM departments "
+          + "WHERE organization_id = ? AND updated_at >= ?";
+  static final String SELECT_CHANGED_EMPLOYEES =
+      "SELECT department_id, " + EMPLOYEE_COLUMNS + " FROM employees "
+          + "WHERE organization_id = ? AND updated_at >= ?";
+  static final String SELECT_DELETED_ROWS =
+      "SELECT entity, entity_id FROM deleted_rows "
+          + "WHERE organization_id = ? AND deleted_at >= ?";
+  private static final String INSERT_TOMBSTONE =
+      "INSERT INTO deleted_rows (organization_id, entity, entity_id) VALUES (?, ?, ?)";
+  // The cutoff is taken from the database clock that stamped deleted_at, not the JVM's
+  private static final String PRUNE_TOMBSTONES =
+      "DELETE FROM deleted_rows WHERE organization_id = ? "
+          + "AND deleted_at < TIMESTAMPADD(MICROSECOND, ?, CURRENT_TIMESTAMP(3))";
+  // Restores keep the IDs and versions of an organization moved from another database
+  private static final String RESTORE_ORGANIZATION =
+      "INSERT IGNORE INTO organizations (organization_id, name) VALUES (?, ?)";
+  private static final String RESTORE_DEPARTMENT =
+      "INSERT INTO departments (department_id, organization_id, name, version) "
+          + "VALUES (?, ?, ?, ?)";
+  private static final String RESTORE_EMPLOYEE =
+      "INSERT INTO employees "
+          + "(employee_id, organization_id, department_id, "
+          + "name, hire_date, position, salary, performance, version) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String RESTORE_DEPARTMENT_HEAD =
+      "UPDATE departments SET head_employee_id = ? "
+          + "WHERE organization_id = ? AND department_id = ?";
+  private static final String RESTORE_SHIFT =
+      "INSERT INTO shifts (organization_id, employee_id, day_of_week, time_slot) "
+          + "VALUES (?, ?, ?, ?)";
+  // Full snapshots add what the hot read paths leave out
+  private static final String SELECT_ORGANIZATION_DETAILS =
+      "SELECT details FROM organizations WHERE organization_id = ?";
+  private static final String SELECT_EMPLOYEE_CONTACT_INFOS =
+      "SELECT employee_id, contact_info FROM employees "
+          + "WHERE organization_id = ? AND contact_info IS NOT NULL";
+  private static final String SELECT_SHIFTS =
+      "SELECT employee_id, day_of_week, time_slot FROM shifts WHERE organization_id = ?";
+  // Clones copy the rows inside the database; the first parameter of the department and
+  // employee copies is the ID base of the clone, so every copy keeps its external ID
+  private static final String CLONE_ORGANIZATION =
+      "INSERT INTO organizations (organization_id, name, details) "
+          + "SELECT ?, ?, o.details FROM organizations o "
+          + "WHERE o.organization_id = ? AND " + NOT_BEING_REMOVED;
+  private static final String CLONE_DEPARTMENTS =
+      "INSERT INTO departments (department_id, organization_id, name) "
+          + "SELECT ? + department_id % 10000, ?, name "
+          + "FROM departments WHERE organization_id = ?";
+  private static final String CLONE_EMPLOYEES =
+      "INSERT INTO employees (employee_id, organization_id, department_id, "
+          + "name, position, hire_date, salary, performance, contact_info) "
+          + "SELECT ? + employee_id % 10000, ?, ? + department_id % 10000, "
+          + "name, position, hire_date, salary, performance, contact_info "
+          + "FROM employees WHERE organization_id = ?";
+  private static final String CLONE_SHIFTS =
+      "INSERT INTO shifts (organization_id, employee_id, day_of_week, time_slot) "
+          + "SELECT ?, ? + employee_id % 10000, day_of_week, time_slot "
+          + "FROM shifts WHERE organization_id = ?";
+  private static final String SELECT_DEPARTMENT_HEADS =
+      "SELECT department_id, head_employee_id FROM departments "
+          + "WHERE organization_id = ? AND head_employee_id IS NOT NULL";
+  // Removal chunks select a bounded range of primary keys, then delete exactly those rows
+  private static final String MARK_ORGANIZATION_REMOVAL =
+      "INSERT IGNORE INTO organization_removals (organization_id) "
+          + "SELECT organization_id FROM organizations WHERE organization_id = ?";
+  private static final String SELECT_REMOVAL_MARK =
+      "SELECT organization_id FROM organization_removals WHERE organization_id = ?";
+  private static final String SELECT_PENDING_REMOVALS =
+      "SELECT organization_id FROM organization_removals ORDER BY requested_at, organization_id";
+  private static final String SELECT_EMPLOYEE_CHUNK =
+      "SELECT employee_id FROM employees WHERE organization_id = ? "
+          + "ORDER BY employee_id LIMIT ?";
+  private static final String SELECT_DEPARTMENT_CHUNK =
+      "SELECT department_id FROM departments WHERE organization_id = ? "
+          + "ORDER BY department_id LIMIT ?";
+  private static final String SELECT_TOMBSTONE_CHUNK =
+      "SELECT entity, entity_id FROM deleted_rows WHERE organization_id = ? "
+          + "ORDER BY entity, entity_id LIMIT ?";
+  private static final String CLEAR_HEAD_CHUNK = "UPDATE departments SET head_employee_id = NULL "
+      + "WHERE organization_id = ? AND head_employee_id = ?";
+  private static final String DELETE_EMPLOYEE_SHIFTS =
+      "DELETE FROM shifts WHERE organization_id = ? AND employee_id = ?";
+  private static final String DELETE_EMPLOYEE_CHUNK =
+      "DELETE FROM employees WHERE organization_id = ? AND employee_id = ?";
+  private static final String DELETE_DEPARTMENT_CHUNK =
+      "DELETE FROM departments WHERE organization_id = ? AND department_id = ?";
+  private static final String DELETE_TOMBSTONE_CHUNK =
+      "DELETE FROM deleted_rows WHERE organization_id = ? AND entity = ? AND entity_id = ?";
+  private static final String[] ORGANIZATION_ROW_DELETES = {
+      "DELETE FROM id_sequences WHERE organization_id = ?",
+      "DELETE FROM organization_removals WHERE organization_id = ?",
+      "DELETE FROM organizations WHERE organization_id = ?"
+  };
+  // Partitioning by organization (MySQL): every organization-scoped table has the same layout.
+  // Listed children first, the order their partitions are dropped in
+  private static final List<String> PARTITIONED_TABLES =
+      List.of("shifts", "employees", "departments", "deleted_rows");
+  private static final String SELECT_PARTITIONS =
+      "SELECT partition_name, partition_description, table_rows "
+          + "FROM information_schema.partitions WHERE table_schema = DATABASE() "
+          + "AND table_name = ? ORDER BY partition_ordinal_position";
+  private static final String EMPLOYEE_KEY = "organization_id = ? AND employee_id = ?";
+  private static final String ORGANIZATION_KEY = "organization_id = ?";
+  private static final String EMPLOYEE_SEQUENCE = "employee";
+  private static final String DEPARTMENT_SEQUENCE = "department";
+  private static final String ORGANIZATION_SEQUENCE = "organization";
+  private final SqlDialect dialect;
+  private final HikariDataSource dataSource;
+  private volatile GroupCommitter<EmployeeUpdate> groupCommitter;
+  private final long groupCommitTimeoutMillis = Long.getLong("db.groupCommit.timeoutMs", 30_000L);
+  private volatile StatementInstrumentation instrumentation;
+  private final ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+  private volatile Consumer<SQLException> failureListener;
+  private final IdAllocator idAllocator =
+      new IdAllocator(this::reserveIdBlock, Integer.getInteger("db.idBlockSize", 10));
+  // Watermarks trail the database clock, so that rows stamped by transactions still open
+  // when the clock was read are reported once they commit. Rows are stamped when written,
+  // not when committed, so this assumes no transaction writing employees, departments or
+  // tombstones stays open longer than the lag; the service's own writes are short, and
+  // db.delta.lagMs must be raised above the longest transaction of any other writer.
+  private final long changeLagMillis = Long.getLong("db.delta.lagMs", 2_000L);
+  private final long tombstoneRetentionMillis =
+      TimeUnit.HOURS.toMillis(Long.getLong("db.delta.retentionHours", 24L));
+
+  /**
+   * Constructs a JDBC connection with its own connection pool.
+   *
+   * @param dialect the dialect of the database engine
+   * @param poolName the name of the connection pool
+   * @param url the JDBC URL of the database
+   * @param user the database user
+   * @param password the password of the database user
+   */
+  protected JdbcConnection(
+      SqlDialect dialect, String poolName, String url, String user, String password
+  ) {
+    this.dialect = dialect;
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(poolName);
+    config.setJdbcUrl(url);
+    config.setUsername(user);
+    config.setPassword(password);
+
+    // Pool sizing, validation and leak detection are tunable per deployment
+    config.setMinimumIdle(Integer.getInteger("db.pool.minIdle", 2));
+    config.setMaximumPoolSize(Integer.getInteger("db.pool.maxSize", 10));
+    config.setConnectionTimeout(Long.getLong("db.pool.connectionTimeoutMs", 30_000L));
+    config.setValidationTimeout(Long.getLong("db.pool.validationTimeoutMs", 5_000L));
+    config.setKeepaliveTime(Long.getLong("db.pool.keepaliveMs", 120_000L));
+    config.setLeakDetectionThreshold(Long.getLong("db.pool.leakDetectionMs", 60_000L));
+    config.setMetricsTrackerFactory(poolMetrics);
+    dialect.configure(config);
+
+    try {
+      this.dataSource = new HikariDataSource(config);
+    } catch (RuntimeException e) {
+      logger.error("Failed to connect to the database.", e);
+      throw (InternalServerErrorException)
+          new InternalServerErrorException("Failed to connect to the database.").initCause(e);
+    }
+    initializeSchema();
+    if (Boolean.getBoolean("db.metrics")) {
+      enableInstrumentation(Long.getLong("db.slowQueryMs", 200L),
+          Boolean.getBoolean("db.slowQuery.explain"));
+    }
+    if (Boolean.getBoolean("db.groupCommit")) {
+      enableGroupCommit(Long.getLong("db.groupCommit.windowMicros", 300L),
+          Integer.getInteger("db.groupCommit.maxSize", 256));
+    }
+  }
+
+  /**
+   * Creates the base schema if the dialect needs it, then applies the migrations
+   * shipped with the service.
+   */
+  private void initializeSchema() {
+    try {
+      dialect.createBaseSchema(dataSource);
+      new SchemaMigrator(dataSource, dialect.migrationLocations(), dialect::prepareMigration,
+          dialect::lockMigrations).migrate();
+    } catch (SQLException | IOException e) {
+      logger.error("Failed to migrate the database schema.", e);
+      throw (InternalServerErrorException)
+          new InternalServerErrorException("Failed to migrate the database schema.").initCause(e);
+    }
+  }
+
+  /**
+   * Returns the dialect of the database engine.
+   *
+   * @return the dialect
+   */
+  public SqlDialect getDialect() {
+    return dialect;
+  }
+
+  /**
+   * Returns the wait-time and usage metrics of the connection pool.
+   *
+   * @return the pool metrics
+   */
+  public ConnectionPoolMetrics getPoolMetrics() {
+    return poolMetrics;
+  }
+
+  /**
+   * Enables the statement-level hooks: every execution is recorded per SQL template, and
+   * executions above the threshold are written to the slow-query log.
+   *
+   * @param slowQueryMillis the latency from which an execution is logged as slow
+   * @param explainSlowQueries whether to capture the EXPLAIN plan of slow queries
+   */
+  public void enableInstrumentation(long slowQueryMillis, boolean explainSlowQueries) {
+    this.instrumentation = new StatementInstrumentation(slowQueryMillis, explainSlowQueries);
+  }
+
+  /**
+   * Returns the metrics of the executed statements.
+   *
+   * @return the metrics by SQL template, null if instrumentation is not enabled
+   */
+  public QueryMetrics getStatementMetrics() {
+    StatementInstrumentation hooks = this.instrumentation;
+    return hooks == null ? null : hooks.getMetrics();
+  }
+
+  /**
+   * Borrows a connection from the pool, instrumented if the statement hooks are enabled.
+   *
+   * @return the borrowed connection
+   * @throws SQLException if no connection can be borrowed
+   */
+  private Connection borrowConnection() throws SQLException {
+    Connection conn = dataSource.getConnection();
+    StatementInstrumentation hooks = this.instrumentation;
+    return hooks == null ? conn : hooks.wrap(conn);
+  }
+
+  /**
+   * Sets the listener told about every failed database call. Failed calls still return
+   * their null, false or -1 result; the listener lets a health monitor count them.
+   *
+   * @param listener the listener, null to remove it
+   */
+  public void setFailureListener(Consumer<SQLException> listener) {
+    this.failureListener = listener;
+  }
+
+  /**
+   * Logs a failed database call and tells the failure listener about it.
+   * The stack trace is only logged at debug level, so that an outage does not flood the log.
+   *
+   * @param e the cause of the failure
+   */
+  private void reportFailure(SQLException e) {
+    logger.warn("Database call failed: {}", e.toString());
+    logger.debug("Database call failure", e);
+    Consumer<SQLException> listener = this.failureListener;
+    if (listener != null) {
+      listener.accept(e);
+    }
+  }
+
+  /**
+   * Checks that the database answers, on a fresh borrow from the pool.
+   *
+   * @param timeoutSeconds the longest time to wait for the database
+   * @return true if the database answered in time, false otherwise
+   */
+  public boolean ping(int timeoutSeconds) {
+    try (Connection conn = dataSource.getConnection()) {
+      return conn.isValid(timeoutSeconds);
+    } catch (SQLException e) {
+      logger.debug("Database ping failed", e);
+      return false;
+    }
+  }
+
+  /**
+   * Retires every pooled connection: idle ones now, borrowed ones when they are returned.
+   * The pool then reconnects from scratch instead of reusing sockets of a dead server.
+   */
+  public void evictConnections() {
+    if (dataSource.getHikariPoolMXBean() != null) {
+      dataSource.getHikariPoolMXBean().softEvictConnections();
+    }
+  }
+
+  @Override
+  public Executor asyncExecutor() {
+    return DatabaseExecutors.shared();
+  }
+
+  /**
+   * Closes the connection pool and all of its connections.
+   */
+  public void close() {
+    GroupCommitter<EmployeeUpdate> committer = this.groupCommitter;
+    if (committer != null) {
+      committer.close();
+    }
+    dataSource.close();
+  }
+
+  /**
+   * Returns an employee in a given organization by external ID.
+   *
+   * @param organizationId the organization id (clientId)
+   * @param externalEmployeeId the external employee id
+   * @return the employee if found, null otherwise
+   */
+  @Override
+  public Employee getEmployee(int organizationId, int externalEmployeeId) {
+    try (Connection conn = borrowConnection()) {
+      return getEmployee(conn, organizationId, externalEmployeeId);
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Returns an employee in a given organization by external ID on a borrowed connection.
+   *
+   * @param conn the borrowed connection
+   * @param organizationId the organization id (clientId)
+   * @param externalEmployeeId the external employee id
+   * @return the employee if found, null otherwise
+   * @throws SQLException if the query fails
+   */
+  private Employee getEmployee(Connection conn, int organizationId, int externalEmployeeId)
+      throws SQLException {
+    int internalEmployeeId = organizationId * 10000 + externalEmployeeId;
+    String query = SELECT_EMPLOYEE;
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.setInt(2, internalEmployeeId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (rs.next()) {
+          return mapEmployee(rs, externalEmployeeId);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a department in a given organization by external ID.
+   *
+   * @param organizationId the organization id (clientId)
+   * @param externalDepartmentId the external department id
+   * @return the department if found, null otherwise
+   */
+  @Override
+  public Department getDepartment(int organizationId, int externalDepartmentId) {
+    int internalDepartmentId = organizationId * 10000 + externalDepartmentId;
+    String query = SELECT_DEPARTMENT;
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.setInt(2, internalDepartmentId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (rs.next()) {
+          List<Employee> employees =
+              getEmployeesForDepartment(conn, internalDepartmentId, organizationId);
+          Department department = new Department(
+              externalDepartmentId,
+              rs.getString("name"),
+              employees
+          );
+          department.setVersion(rs.getLong("version"));
+          return department;
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Returns a list of employees in a given organization.
+   *
+   * @param organizationId the organization id
+   * @return a list of employees in the organization
+   */
+  @Override
+  public List<Employee> getEmployees(int organizationId) {
+    List<Employee> employees = new ArrayList<>();
+    forEachEmployee(organizationId, employees::add);
+    return employees;
+  }
+
+  /**
+   * Streams the employees of a given organization to a consumer, one at a time.
+   * Only the mapped columns are selected, and the result set is read with a streaming
+   * fetch size, so the driver never holds more than the current row.
+   *
+   * @param organizationId the organization id
+   * @param action the consumer each employee is passed to
+   * @return the number of employees visited, -1 if failed
+   */
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    String query = SELECT_EMPLOYEES;
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(
+             query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      pstmt.setFetchSize(dialect.streamFetchSize());
+      pstmt.setInt(1, organizationId);
+      int count = 0;
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          int internalId = rs.getInt("employee_id");
+          action.accept(mapEmployee(rs, internalId % 10000));
+          count++;
+        }
+      }
+      return count;
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return -1;
+  }
+
+  /**
+   * Streams the employees of a given organization with their department ID to a consumer,
+   * with the same streaming fetch size as forEachEmployee.
+   *
+   * @param organizationId the organization id
+   * @param action the consumer each employee and its external department ID are passed to
+   * @return the number of employees visited, -1 if failed
+   */
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    String query = SELECT_EMPLOYEES_WITH_DEPARTMENT;
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(
+             query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      pstmt.setFetchSize(dialect.streamFetchSize());
+      pstmt.setInt(1, organizationId);
+      int count = 0;
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          int internalId = rs.getInt("employee_id");
+          action.accept(mapEmployee(rs, internalId % 10000), rs.getInt("department_id") % 10000);
+          count++;
+        }
+      }
+      return count;
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a page of the employees of a given organization, ordered by ID.
+   * Seeks past the last ID of the previous page instead of using an offset,
+   * so every page costs the same regardless of its position.
+   *
+   * @param organizationId the organization id
+   * @param afterId the external employee id the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page
+   */
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    String query = SELECT_EMPLOYEES_PAGE;
+    return queryEmployeesPage(query, organizationId * 10000 + afterId, limit, organizationId);
+  }
+
+  /**
+   * Returns a page of the employees of a department, ordered by ID.
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @param afterId the external employee id the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   * @return the employees of the page
+   */
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit
+  ) {
+    String query = SELECT_DEPARTMENT_EMPLOYEES_PAGE;
+    return queryEmployeesPage(query, organizationId * 10000 + afterId, limit,
+        organizationId, organizationId * 10000 + externalDepartmentId);
+  }
+
+  /**
+   * Runs a keyset page query whose parameters are the scope ids, the internal id to seek
+   * past, and the page size.
+   *
+   * @param query the page query
+   * @param afterInternalId the internal employee id the page starts after
+   * @param limit the maximum number of employees in the page
+   * @param scopeIds the organization id, then the internal department id if any
+   * @return the employees of the page
+   */
+  private List<Employee> queryEmployeesPage(
+      String query, int afterInternalId, int limit, int... scopeIds
+  ) {
+    List<Employee> employees = new ArrayList<>();
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
+      int index = 1;
+      for (int scopeId : scopeIds) {
+        pstmt.setInt(index++, scopeId);
+      }
+      pstmt.setInt(index++, afterInternalId);
+      pstmt.setInt(index, limit);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          employees.add(mapEmployee(rs, rs.getInt("employee_id") % 10000));
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return employees;
+  }
+
+  /**
+   * Returns a list of departments in a given organization.
+   * Departments, their employees and their heads are loaded in two queries in total.
+   *
+   * @param organizationId the organization id
+   * @return a list of departments in the organization
+   */
+  @Override
+  public List<Department> getDepartments(int organizationId) {
+    List<Department> departments = new ArrayList<>();
+    Map<Integer, Department> departmentsById = new HashMap<>();
+    Map<Integer, Integer> headIds = new HashMap<>();
+    String query = SELECT_DEPARTMENTS;
+    try (Connection conn = borrowConnection()) {
+      try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        pstmt.setInt(1, organizationId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            readDepartmentRow(rs, departments, departmentsById, headIds);
+          }
+        }
+      }
+      loadEmployeesInto(conn, organizationId, departmentsById, headIds);
+    } catch (SQLException e) {
+      reportFailure(e);
+      return new ArrayList<>();
+    }
+    return departments;
+  }
+
+  /**
+   * Loads an organization with its departments, employees and department heads.
+   * The organization and its departments come from one joined query, and all employees
+   * from a second one, regardless of the number of departments.
+   *
+   * @param organizationId the organization id
+   * @return the snapshot of the organization if found, null otherwise
+   */
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    return loadSnapshot(organizationId, false);
+  }
+
+  /**
+   * Loads an organization like loadOrganizationSnapshot, then its details, the contact
+   * information of its employees and their shifts, with one more query each.
+   *
+   * @param organizationId the organization id
+   * @return the full snapshot of the organization if found, null otherwise
+   */
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    return loadSnapshot(organizationId, true);
+  }
+
+  private OrganizationSnapshot loadSnapshot(int organizationId, boolean full) {
+    Organization organization = null;
+    long watermark = -1;
+    List<Department> departments = new ArrayList<>();
+    Map<Integer, Department> departmentsById = new HashMap<>();
+    Map<Integer, Integer> headIds = new HashMap<>();
+    String query = SELECT_ORGANIZATION_DEPARTMENTS;
+    try (Connection conn = borrowConnection()) {
+      try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        pstmt.setInt(1, organizationId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            if (organization == null) {
+              organization = new Organization(organizationId, rs.getString("organization_name"));
+              watermark = rs.getTimestamp("read_at").getTime() - changeLagMillis;
+            }
+            rs.getInt("department_id");
+            if (!rs.wasNull()) {
+              readDepartmentRow(rs, departments, departmentsById, headIds);
+            }
+          }
+        }
+      }
+      if (organization == null) {
+        return null;
+      }
+      List<Employee> employees = loadEmployeesInto(conn, organizationId, departmentsById, headIds);
+      OrganizationSnapshot snapshot =
+          new OrganizationSnapshot(organization, departments, employees, watermark);
+      if (full) {
+        loadFullSnapshotData(conn, snapshot);
+      }
+      return snapshot;
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Adds the details, contact information and shifts to a snapshot.
+   *
+   * @param conn the borrowed connection
+   * @param snapshot the snapshot loaded on the connection
+   * @throws SQLException if they cannot be read
+   */
+  private static void loadFullSnapshotData(Connection conn, OrganizationSnapshot snapshot)
+      throws SQLException {
+    Organization organization = snapshot.getOrganization();
+    int organizationId = organization.getId();
+    try (PreparedStatement pstmt = conn.prepareStatement(SELECT_ORGANIZATION_DETAILS)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        organization.setDetails(rs.next() ? parseJsonObject(rs.getString(1)) : null);
+      }
+    }
+    Map<Integer, Employee> employeesById = new HashMap<>();
+    for (Employee employee : snapshot.getEmployees()) {
+      employee.setContactInfo(new LinkedHashMap<>());
+      employeesById.put(employee.getId(), employee);
+    }
+    try (PreparedStatement pstmt = conn.prepareStatement(SELECT_EMPLOYEE_CONTACT_INFOS)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          Employee employee = employeesById.get(rs.getInt("employee_id") % 10000);
+          if (employee != null) {
+            employee.setContactInfo(parseJsonObject(rs.getString("contact_info")));
+          }
+        }
+      }
+    }
+    List<OrganizationSnapshot.Shift> shifts = new ArrayList<>();
+    try (PreparedStatement pstmt = conn.prepareStatement(SELECT_SHIFTS)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          shifts.add(new OrganizationSnapshot.Shift(rs.getInt("employee_id") % 10000,
+              rs.getInt("day_of_week"), rs.getInt("time_slot")));
+        }
+      }
+    }
+    snapshot.setShifts(shifts);
+  }
+
+  /**
+   * Returns the changes of an organization since a watermark from the updated_at stamps of
+   * its rows and the tombstones of its removed rows, each read through an index.
+   * Watermarks older than the tombstone retention cannot tell every removal, so the
+   * organization must be reloaded instead.
+   *
+   * @param organizationId the organization id
+   * @param watermark the watermark of the snapshot or delta the changes are requested since
+   * @return the changes if the organization exists, null otherwise
+   */
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    if (watermark < 0) {
+      return null;
+    }
+    try (Connection conn = borrowConnection()) {
+      long readAt;
+      try (PreparedStatement pstmt = conn.prepareStatement(SELECT_CHANGE_CLOCK)) {
+        pstmt.setInt(1, organizationId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          if (!rs.next()) {
+            return null;
+          }
+          readAt = rs.getTimestamp("read_at").getTime();
+        }
+      }
+      if (watermark < readAt - tombstoneRetentionMillis) {
+        return null;
+      }
+      OrganizationDelta delta = new OrganizationDelta(readAt - changeLagMillis);
+      Timestamp since = new Timestamp(watermark);
+
+      try (PreparedStatement pstmt = conn.prepareStatement(SELECT_CHANGED_DEPARTMENTS)) {
+        pstmt.setInt(1, organizationId);
+        pstmt.setTimestamp(2, since);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            Department department =
+                new Department(rs.getInt("department_id") % 10000, rs.getString("name"));
+            department.setVersion(rs.getLong("version"));
+            int headEmployeeId = rs.getInt("head_employee_id");
+            delta.addDepartment(department, rs.wasNull() ? null : headEmployeeId % 10000);
+          }
+        }
+      }
+      try (PreparedStatement pstmt = conn.prepareStatement(SELECT_CHANGED_EMPLOYEES)) {
+        pstmt.setInt(1, organizationId);
+        pstmt.setTimestamp(2, since);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            Employee employee = mapEmployee(rs, rs.getInt("employee_id") % 10000);
+            delta.addEmployee(employee, rs.getInt("department_id") % 10000);
+          }
+        }
+      }
+      try (PreparedStatement pstmt = conn.prepareStatement(SELECT_DELETED_ROWS)) {
+        pstmt.setInt(1, organizationId);
+        pstmt.setTimestamp(2, since);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            int externalId = rs.getInt("entity_id") % 10000;
+            if (EMPLOYEE_SEQUENCE.equals(rs.getString("entity"))) {
+              delta.addRemovedEmployee(externalId);
+            } else {
+              delta.addRemovedDepartment(externalId);
+            }
+          }
+        }
+      }
+      return delta;
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Records the removal of rows. The tombstones of the organization that are past the
+   * retention period are dropped along the way.
+   *
+   * @param conn the borrowed connection, inside the removing transaction
+   * @param organizationId the organization id
+   * @param entities the internal IDs of the removed rows, by entity ID sequence name
+   * @throws SQLException if the tombstones cannot be written
+   */
+  private void writeTombstones(
+      Connection conn, int organizationId, Map<String, List<Integer>> entities
+  ) throws SQLException {
+    try (PreparedStatement prune = conn.prepareStatement(PRUNE_TOMBSTONES)) {
+      prune.setInt(1, organizationId);
+      prune.setLong(2, -TimeUnit.MILLISECONDS.toMicros(tombstoneRetentionMillis));
+      prune.executeUpdate();
+    }
+    try (PreparedStatement pstmt = conn.prepareStatement(INSERT_TOMBSTONE)) {
+      for (Map.Entry<String, List<Integer>> entity : entities.entrySet()) {
+        for (int internalId : entity.getValue()) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setString(2, entity.getKey());
+          pstmt.setInt(3, internalId);
+          pstmt.addBatch();
+        }
+      }
+      pstmt.executeBatch();
+    }
+  }
+
+  /**
+   * Reads a department row and registers it for employee and head assignment.
+   *
+   * @param rs the result set positioned on a department row
+   * @param departments the list to append the department to
+   * @param departmentsById the departments indexed by internal id
+   * @param headIds the internal head employee ids indexed by internal department id
+   * @throws SQLException if the row cannot be read
+   */
+  private void readDepartmentRow(
+      ResultSet rs, List<Department> departments,
+      Map<Integer, Department> departmentsById, Map<Integer, Integer> headIds
+  ) throws SQLException {
+    int internalId = rs.getInt("department_id");
+    Department department = new Department(internalId % 10000, rs.getString("name"));
+    department.setVersion(rs.getLong("version"));
+    departments.add(department);
+    departmentsById.put(internalId, department);
+    int headEmployeeId = rs.getInt("head_employee_id");
+    if (!rs.wasNull()) {
+      headIds.put(internalId, headEmployeeId);
+    }
+  }
+
+  /**
+   * Loads every employee of an organization in one query, adds each of them to its
+   * department and resolves the department heads from the same result.
+   *
+   * @param conn the borrowed connection
+   * @param organizationId the organization id
+   * @param departmentsById the departments indexed by internal id
+   * @param headIds the internal head employee ids indexed by internal department id
+   * @return the list of all employees of the organization
+   * @throws SQLException if the query fails
+   */
+  private List<Employee> loadEmployeesInto(
+      Connection conn, int organizationId,
+      Map<Integer, Department> departmentsById, Map<Integer, Integer> headIds
+  ) throws SQLException {
+    List<Employee> employees = new ArrayList<>();
+    Map<Integer, Employee> employeesById = new HashMap<>();
+    String query = SELECT_EMPLOYEES_WITH_DEPARTMENT;
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          int internalId = rs.getInt("employee_id");
+          Employee employee = mapEmployee(rs, internalId % 10000);
+          employees.add(employee);
+          employeesById.put(internalId, employee);
+          Department department = departmentsById.get(rs.getInt("department_id"));
+          if (department != null) {
+            department.addEmployee(employee);
+          }
+        }
+      }
+    }
+    for (Map.Entry<Integer, Integer> entry : headIds.entrySet()) {
+      Employee head = employeesById.get(entry.getValue());
+      if (head != null) {
+        departmentsById.get(entry.getKey()).setHead(head);
+      }
+    }
+    return employees;
+  }
+
+  /**
+   * Reads a DECIMAL column of the current row exactly, in hundredths.
+   *
+   * @param rs the result set positioned on a row
+   * @param column the column label
+   * @return the value in cents or basis points, 0 if SQL NULL
+   * @throws SQLException if the column cannot be read
+   */
+  private static long readUnits(ResultSet rs, String column) throws SQLException {
+    return FixedPoint.toUnits(rs.getBigDecimal(column));
+  }
+
+  /**
+   * Maps the current row of a result set to an employee.
+   *
+   * @param rs the result set positioned on an employee row
+   * @param externalId the external employee id
+   * @return the employee
+   * @throws SQLException if the row cannot be read
+   */
+  private Employee mapEmployee(ResultSet rs, int externalId) throws SQLException {
+    Employee employee = new Employee(
+        externalId,
+        rs.getString("name"),
+        rs.getDate("hire_date")
+    );
+    // Set additional employee information
+    employee.setPosition(rs.getString("position"));
+    employee.setSalaryCents(readUnits(rs, "salary"));
+    employee.setPerformanceBasisPoints(readUnits(rs, "performance"));
+    employee.setVersion(rs.getLong("version"));
+    return employee;
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    return readJsonColumn("employees", "contact_info", EMPLOYEE_KEY,
+        organizationId, organizationId * 10000 + externalEmployeeId);
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    return setJsonField("employees", "contact_info", EMPLOYEE_KEY, field, value,
+        organizationId, organizationId * 10000 + externalEmployeeId);
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    return readJsonColumn("organizations", "details", ORGANIZATION_KEY, organizationId);
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    return setJsonField(
+        "organizations", "details", ORGANIZATION_KEY, field, value, organizationId);
+  }
+
+  /**
+   * Reads a JSON object column of one row.
+   *
+   * @param table the table
+   * @param column the JSON column
+   * @param key the WHERE condition selecting the row
+   * @param keyValues the values of the key
+   * @return the fields of the object, empty if the column is null, null if there is no row
+   */
+  private Map<String, Object> readJsonColumn(
+      String table, String column, String key, int... keyValues) {
+    String query = "SELECT " + column + " FROM " + table + " WHERE " + key;
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
+      for (int i = 0; i < keyValues.length; i++) {
+        pstmt.setInt(i + 1, keyValues[i]);
+      }
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (rs.next()) {
+          return parseJsonObject(rs.getString(1));
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Sets or removes one field of a JSON object column of one row. Engines with JSON_SET
+   * change the field in place; others read the document and write it back in a transaction.
+   *
+   * @param table the table
+   * @param column the JSON column
+   * @param key the WHERE condition selecting the row
+   * @param field the name of the field
+   * @param value the value of the field, null to remove it
+   * @param keyValues the values of the key
+   * @return true if the row is found and updated, false otherwise
+   */
+  private boolean setJsonField(String table, String column, String key,
+      String field, String value, int... keyValues) {
+    try {
+      if (dialect.supportsJsonSet()) {
+        String update = value == null
+            ? "UPDATE " + table + " SET " + column + " = JSON_REMOVE(" + column + ", ?) "
+            : "UPDATE " + table + " SET " + column
+                + " = JSON_SET(COALESCE(" + column + ", JSON_OBJECT()), ?, ?) ";
+        try (Connection conn = borrowConnection();
+             PreparedStatement pstmt = conn.prepareStatement(update + "WHERE " + key)) {
+          int index = 1;
+          pstmt.setString(index++, "$.\"" + field + "\"");
+          if (value != null) {
+            pstmt.setString(index++, value);
+          }
+          for (int keyValue : keyValues) {
+            pstmt.setInt(index++, keyValue);
+          }
+          return pstmt.executeUpdate() > 0;
+        }
+      }
+
+      return inTransaction(conn -> {
+        Map<String, Object> document;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+            "SELECT " + column + " FROM " + table + " WHERE " + key + " FOR UPDATE")) {
+          for (int i = 0; i < keyValues.length; i++) {
+            pstmt.setInt(i + 1, keyValues[i]);
+          }
+          try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+              return false;
+            }
+            document = parseJsonObject(rs.getString(1));
+          }
+        }
+        if (value == null) {
+          document.remove(field);
+        } else {
+          document.put(field, value);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE " + table + " SET "
+            + column + " = " + dialect.jsonParameter() + " WHERE " + key)) {
+          pstmt.setString(1, objectMapper.writeValueAsString(document));
+          for (int i = 0; i < keyValues.length; i++) {
+            pstmt.setInt(i + 2, keyValues[i]);
+          }
+          return pstmt.executeUpdate() > 0;
+        } catch (JsonProcessingException e) {
+          throw new SQLException("Failed to encode " + column, e);
+        }
+      });
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Parses a JSON object read from the database. A document stored as a JSON string holding
+   * the object, as plain text inserted into a JSON column is on some engines, is unwrapped.
+   *
+   * @param json the JSON text, null for none
+   * @return the fields of the object, empty if there is none
+   * @throws SQLException if the text is not a JSON object
+   */
+  static Map<String, Object> parseJsonObject(String json) throws SQLException {
+    if (json == null) {
+      return new LinkedHashMap<>();
+    }
+    try {
+      JsonNode node = objectMapper.readTree(json);
+      if (node.isTextual()) {
+        node = objectMapper.readTree(node.asText());
+      }
+      if (node.isNull()) {
+        return new LinkedHashMap<>();
+      }
+      if (!node.isObject()) {
+        throw new SQLException("Not a JSON object: " + json);
+      }
+      return objectMapper.convertValue(node, new TypeReference<LinkedHashMap<String, Object>>() {
+      });
+    } catch (JsonProcessingException e) {
+      throw new SQLException("Malformed JSON: " + json, e);
+    }
+  }
+
+  /**
+   * Returns an organization with the given organization id.
+   *
+   * @param organizationId the organization id
+   * @return the organization with the given organization id
+   */
+  @Override
+  public Organization getOrganization(int organizationId) {
+    String query = "SELECT organization_id, name FROM organizations o "
+        + "WHERE organization_id = ? AND " + NOT_BEING_REMOVED;
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (rs.next()) {
+          return new Organization(
+              rs.getInt("organization_id"),
+              rs.getString("name")
+          );
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Returns a list of employees in a given department on a borrowed connection.
+   *
+   * @param conn the borrowed connection
+   * @param internalDepartmentId the internal department id
+   * @param organizationId the organization id
+   * @return a list of employees in the department
+   * @throws SQLException if the query fails
+   */
+  private List<Employee> getEmployeesForDepartment(
+      Connection conn, int internalDepartmentId, int organizationId
+  ) throws SQLException {
+    List<Employee> employees = new ArrayList<>();
+    String query = SELECT_DEPARTMENT_EMPLOYEES;
+
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, internalDepartmentId);
+      pstmt.setInt(2, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          int internalId = rs.getInt("employee_id");
+          int externalId = internalId % 10000;
+          employees.add(mapEmployee(rs, externalId));
+        }
+      }
+    }
+
+    return employees;
+  }
+
+  /**
+   * Adds a new employee to a department in the database.
+   *
+   * @param organizationId the organization id
+   * @param departmentId the internal department id
+   * @param employee the employee to add
+   * @return the internal employee ID if successful, -1 if failed
+   */
+  @Override
+  public int addEmployeeToDepartment(int organizationId, int departmentId, Employee employee) {
+    try {
+      // Take the next employee ID of this organization from the reserved block, before
+      // borrowing a connection, since refilling the block borrows one of its own
+      int newEmployeeId = nextInternalId(organizationId, EMPLOYEE_SEQUENCE);
+      if (newEmployeeId == -1) {
+        return -1;
+      }
+      try (Connection conn = borrowConnection();
+           PreparedStatement pstmt = conn.prepareStatement(INSERT_EMPLOYEE + EMPLOYEE_ROW)) {
+        bindEmployeeRow(pstmt, 1, newEmployeeId, organizationId, departmentId, employee);
+
+        int rowsAffected = pstmt.executeUpdate();
+        if (rowsAffected > 0) {
+          return newEmployeeId;
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return -1;
+  }
+
+  /**
+   * Adds several new employees to a department with multi-row INSERTs in one transaction.
+   *
+   * @param organizationId the organization id
+   * @param departmentId the internal department id
+   * @param employees the employees to add
+   * @return the internal employee IDs in input order if successful, an empty list if failed
+   */
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees
+  ) {
+    List<Integer> newEmployeeIds = new ArrayList<>();
+    if (employees.isEmpty()) {
+      return newEmployeeIds;
+    }
+
+    try {
+      // Reserve every ID before borrowing the connection, since refilling an ID block
+      // borrows one of its own; IDs left unused by a failed insert are skipped
+      for (int i = 0; i < employees.size(); i++) {
+        int newEmployeeId = nextInternalId(organizationId, EMPLOYEE_SEQUENCE);
+        if (newEmployeeId == -1) {
+          return new ArrayList<>();
+        }
+        newEmployeeIds.add(newEmployeeId);
+      }
+      try (Connection conn = borrowConnection()) {
+        conn.setAutoCommit(false);
+        try {
+          for (int from = 0; from < employees.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, employees.size());
+            String query = INSERT_EMPLOYEE
+                + String.join(", ", Collections.nCopies(to - from, EMPLOYEE_ROW));
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+              int index = 1;
+              for (int i = from; i < to; i++) {
+                index = bindEmployeeRow(pstmt, index, newEmployeeIds.get(i),
+                    organizationId, departmentId, employees.get(i));
+              }
+              pstmt.executeUpdate();
+            }
+          }
+          conn.commit();
+        } catch (SQLException e) {
+          conn.rollback();
+          throw e;
+        } finally {
+          conn.setAutoCommit(true);
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+      return new ArrayList<>();
+    }
+    return newEmployeeIds;
+  }
+
+  /**
+   * Returns the next internal ID of an organization-scoped sequence.
+   * Internal IDs encode the organization as {@code organizationId * 10000 + externalId}.
+   *
+   * @param organizationId the organization id
+   * @param entity the sequence name
+   * @return the next internal ID, or -1 if the organization has used up its ID range
+   * @throws SQLException if a new ID block cannot be reserved
+   */
+  private int nextInternalId(int organizationId, String entity) throws SQLException {
+    int id = idAllocator.next(organizationId, entity);
+    return id <= organizationId * 10000 + 9999 ? id : -1;
+  }
+
+  /**
+   * Reserves a block of IDs in the id_sequences table in its own transaction.
+   * A missing sequence is seeded from the highest ID already stored.
+   * The reservation borrows a connection of its own, so callers take their IDs before
+   * borrowing theirs; otherwise concurrent refills could hold the whole pool and wait.
+   *
+   * @param organizationId the organization id, 0 for the organization sequence
+   * @param entity the sequence name
+   * @param blockSize the number of IDs to reserve
+   * @return the first ID of the reserved block
+   * @throws SQLException if the block cannot be reserved
+   */
+  private int reserveIdBlock(int organizationId, String entity, int blockSize)
+      throws SQLException {
+    String seedQuery;
+    switch (entity) {
+      case EMPLOYEE_SEQUENCE -> seedQuery =
+          "INSERT IGNORE INTO id_sequences (organization_id, entity, next_value) "
+              + "SELECT ?, ?, COALESCE(MAX(employee_id) + 1, ?) "
+              + "FROM employees WHERE organization_id = ?";
+      case DEPARTMENT_SEQUENCE -> seedQuery =
+          "INSERT IGNORE INTO id_sequences (organization_id, entity, next_value) "
+              + "SELECT ?, ?, COALESCE(MAX(department_id) + 1, ?) "
+              + "FROM departments WHERE organization_id = ?";
+      case ORGANIZATION_SEQUENCE -> seedQuery =
+          "INSERT IGNORE INTO id_sequences (organization_id, entity, next_value) "
+              + "SELECT ?, ?, COALESCE(MAX(organization_id) + 1, ?) "
+              + "FROM organizations";
+      default -> throw new IllegalArgumentException("Unknown sequence: " + entity);
+    }
+    int firstId = ORGANIZATION_SEQUENCE.equals(entity) ? 1 : organizationId * 10000 + 1;
+    String lockQuery = "SELECT next_value FROM id_sequences "
+        + "WHERE organization_id = ? AND entity = ? FOR UPDATE";
+    String advanceQuery = "UPDATE id_sequences SET next_value = next_value + ? "
+        + "WHERE organization_id = ? AND entity = ?";
+
+    try (Connection conn = borrowConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        try (PreparedStatement pstmt = conn.prepareStatement(seedQuery)) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setString(2, entity);
+          pstmt.setInt(3, firstId);
+          if (!ORGANIZATION_SEQUENCE.equals(entity)) {
+            pstmt.setInt(4, organizationId);
+          }
+          pstmt.executeUpdate();
+        }
+        int start;
+        try (PreparedStatement pstmt = conn.prepareStatement(lockQuery)) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setString(2, entity);
+          try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+              throw new SQLException("Sequence not found: " + organizationId + ":" + entity);
+            }
+            start = rs.getInt("next_value");
+          }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(advanceQuery)) {
+          pstmt.setInt(1, blockSize);
+          pstmt.setInt(2, organizationId);
+          pstmt.setString(3, entity);
+          pstmt.executeUpdate();
+        }
+        conn.commit();
+        return start;
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Binds one employee row of an INSERT statement.
+   *
+   * @param pstmt the INSERT statement
+   * @param index the index of the first parameter of the row
+   * @param internalEmployeeId the internal employee id
+   * @param organizationId the organization id
+   * @param departmentId the internal department id
+   * @param employee the employee to insert
+   * @return the index of the first parameter after the row
+   * @throws SQLException if a parameter cannot be bound
+   */
+  private static int bindEmployeeRow(
+      PreparedStatement pstmt, int index, int internalEmployeeId,
+      int organizationId, int departmentId, Employee employee
+  ) throws SQLException {
+    pstmt.setInt(index, internalEmployeeId);
+    pstmt.setInt(index + 1, organizationId);
+    pstmt.setInt(index + 2, departmentId);
+    pstmt.setString(index + 3, employee.getName());
+    pstmt.setDate(index + 4, new java.sql.Date(employee.getHireDate().getTime()));
+    pstmt.setString(index + 5, employee.getPosition());
+    pstmt.setBigDecimal(index + 6, FixedPoint.toDecimal(employee.getSalaryCents()));
+    pstmt.setBigDecimal(index + 7, FixedPoint.toDecimal(employee.getPerformanceBasisPoints()));
+    return index + 8;
+  }
+
+  /**
+   * Removes an employee from a department in the database.
+   *
+   * @param organizationId the organization id
+   * @param departmentId the internal department id
+   * @param employeeId the internal employee id
+   * @return true if removal successful, false otherwise
+   */
+  @Override
+  public boolean removeEmployeeFromDepartment(int organizationId,
+                                              int departmentId, int employeeId) {
+    // The head is cleared only if it is this employee, so no SELECT is needed first
+    String clearHeadQuery = "UPDATE departments SET head_employee_id = NULL "
+        + "WHERE department_id = ? AND organization_id = ? AND head_employee_id = ?";
+    String deleteShiftsQuery = "DELETE FROM shifts WHERE organization_id = ? AND employee_id = ?";
+    String deleteQuery = "DELETE FROM employees "
+        + "WHERE employee_id = ? AND department_id = ? AND organization_id = ?";
+
+    try {
+      return inTransaction(conn -> {
+        try (PreparedStatement clearHead = conn.prepareStatement(clearHeadQuery);
+             PreparedStatement deleteShifts = conn.prepareStatement(deleteShiftsQuery);
+             PreparedStatement delete = conn.prepareStatement(deleteQuery)) {
+          clearHead.setInt(1, departmentId);
+          clearHead.setInt(2, organizationId);
+          clearHead.setInt(3, employeeId);
+          clearHead.executeUpdate();
+
+          deleteShifts.setInt(1, organizationId);
+          deleteShifts.setInt(2, employeeId);
+          deleteShifts.executeUpdate();
+
+          delete.setInt(1, employeeId);
+          delete.setInt(2, departmentId);
+          delete.setInt(3, organizationId);
+          if (delete.executeUpdate() == 0) {
+            return false;
+          }
+          writeTombstones(conn, organizationId, Map.of(EMPLOYEE_SEQUENCE, List.of(employeeId)));
+          return true;
+        }
+      });
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean updateEmployee(int organizationId, Employee employee) {
+    GroupCommitter<EmployeeUpdate> committer = this.groupCommitter;
+    if (committer != null) {
+      return awaitGroupCommit(committer.submit(new EmployeeUpdate(organizationId, employee)));
+    }
+    try (Connection conn = borrowConnection()) {
+      return writeEmployeeUpdate(conn, new EmployeeUpdate(organizationId, employee));
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Updates an employee only if its row version is unchanged, bypassing group commit so
+   * that a conflict is reported to the caller right away.
+   *
+   * @param organizationId the organization id
+   * @param employee the employee to update, carrying the version it was read at
+   * @return true if update successful, false if the employee changed or does not exist
+   */
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(COMPARE_AND_SET_EMPLOYEE)) {
+      bindEmployeeUpdate(pstmt, organizationId, employee);
+      pstmt.setLong(7, employee.getVersion());
+      if (pstmt.executeUpdate() == 0) {
+        return false;
+      }
+      employee.setVersion(employee.getVersion() + 1);
+      return true;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Group commit still writes each update before acknowledging it, so nothing is buffered.
+   */
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    return false;
+  }
+
+  /**
+   * Writes one employee update on a borrowed connection.
+   *
+   * @param conn the borrowed connection
+   * @param update the organization and the employee to update
+   * @return true if the employee was updated, false otherwise
+   * @throws SQLException if the update fails
+   */
+  private boolean writeEmployeeUpdate(Connection conn, EmployeeUpdate update)
+      throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_EMPLOYEE)) {
+      bindEmployeeUpdate(pstmt, update.organizationId, update.employee);
+      return pstmt.executeUpdate() > 0;
+    }
+  }
+
+  /**
+   * Binds the parameters of UPDATE_EMPLOYEE.
+   *
+   * @param pstmt the prepared UPDATE_EMPLOYEE statement
+   * @param organizationId the organization id
+   * @param employee the employee to update
+   * @throws SQLException if a parameter cannot be bound
+   */
+  private void bindEmployeeUpdate(PreparedStatement pstmt, int organizationId, Employee employee)
+      throws SQLException {
+    pstmt.setString(1, employee.getName());
+    pstmt.setString(2, employee.getPosition());
+    pstmt.setBigDecimal(3, FixedPoint.toDecimal(employee.getSalaryCents()));
+    pstmt.setBigDecimal(4, FixedPoint.toDecimal(employee.getPerformanceBasisPoints()));
+    pstmt.setInt(5, organizationId);
+    pstmt.setInt(6, organizationId * 10000 + employee.getId());
+  }
+
+  /**
+   * Waits for the group of an update to be committed, for at most db.groupCommit.timeoutMs.
+   * An update that times out is withdrawn, unless its group is already being written, in
+   * which case it may still be committed although the caller is told it failed.
+   *
+   * @param result the result of the queued update
+   * @return true if the update was committed in time, false otherwise
+   */
+  private boolean awaitGroupCommit(CompletableFuture<Boolean> result) {
+    try {
+      return result.get(groupCommitTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      result.cancel(false);
+      logger.warn("Group commit of an employee update timed out after {} ms.",
+          groupCommitTimeoutMillis);
+    } catch (InterruptedException e) {
+      result.cancel(false);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.error("Group commit of an employee update failed.", e.getCause());
+    }
+    return false;
+  }
+
+  /**
+   * Enables group commit of employee updates: concurrent updateEmployee calls are gathered
+   * for up to the commit window and committed in one transaction.
+   *
+   * @param windowMicros how long the first update of a group waits for others, in microseconds
+   * @param maxGroupSize the largest number of updates committed together
+   */
+  public void enableGroupCommit(long windowMicros, int maxGroupSize) {
+    if (this.groupCommitter == null) {
+      this.groupCommitter = new GroupCommitter<>(
+          dataSource, this::writeEmployeeUpdate, windowMicros, maxGroupSize);
+    }
+  }
+
+  /**
+   * An employee update queued for group commit.
+   */
+  private static final class EmployeeUpdate {
+    private final int organizationId;
+    private final Employee employee;
+
+    private EmployeeUpdate(int organizationId, Employee employee) {
+      this.organizationId = organizationId;
+      // Freeze the values, as the caller may keep changing its employee object
+      this.employee = employee.copy();
+    }
+  }
+
+  /**
+   * Updates several employees in one JDBC batch inside a single transaction.
+   *
+   * @param organizationId the organization id
+   * @param employees the employees to update
+   * @return the number of employees updated
+   */
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    if (employees.isEmpty()) {
+      return 0;
+    }
+    try (Connection conn = borrowConnection()) {
+      conn.setAutoCommit(false);
+      int updated = 0;
+      try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_EMPLOYEE)) {
+        int pending = 0;
+        for (Employee employee : employees) {
+          bindEmployeeUpdate(pstmt, organizationId, employee);
+          pstmt.addBatch();
+          if (++pending == BATCH_SIZE) {
+            updated += countUpdated(pstmt.executeBatch());
+            pending = 0;
+          }
+        }
+        if (pending > 0) {
+          updated += countUpdated(pstmt.executeBatch());
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+      return updated;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return 0;
+    }
+  }
+
+  /**
+   * Counts the statements of an executed batch that changed a row.
+   *
+   * @param results the update counts returned by the batch
+   * @return the number of successful statements
+   */
+  private static int countUpdated(int[] results) {
+    int count = 0;
+    for (int result : results) {
+      // Rewritten batches report SUCCESS_NO_INFO instead of per-row counts
+      if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the salary statistics of a department from SQL window aggregates.
+   * Ties for the highest and lowest salary go to the lowest employee id, which is the order
+   * the department lists its employees in. The exact DECIMAL total is read in cents and
+   * averaged as the in-memory statistics do, rather than with AVG, whose rounding differs.
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @return the statistics if the department exists, null otherwise
+   */
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(SELECT_DEPARTMENT_SALARY_STATISTICS)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.setInt(2, organizationId * 10000 + externalDepartmentId);
+      Map<String, Object> result = null;
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          if (result == null) {
+            result = new HashMap<>();
+            final long count = rs.getLong("employee_count");
+            final long total = readUnits(rs, "total");
+            result.put("total", FixedPoint.toDouble(total));
+            result.put("average", count == 0 ? 0.0 : FixedPoint.average(total, count));
+            result.put("highest", FixedPoint.toDouble(readUnits(rs, "highest")));
+            result.put("lowest", FixedPoint.toDouble(readUnits(rs, "lowest")));
+            result.put("highestEmployee", null);
+            result.put("lowestEmployee", null);
+          }
+          int employeeId = rs.getInt("employee_id");
+          if (rs.wasNull()) {
+            continue;
+          }
+          if (rs.getInt("high_rank") == 1) {
+            result.put("highestEmployee", employeeId % 10000);
+          }
+          if (rs.getInt("low_rank") == 1) {
+            result.put("lowestEmployee", employeeId % 10000);
+          }
+        }
+      }
+      return result;
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the performance statistics of a department. Extremes, median and quartiles are
+   * picked by the database from their positions in performance order, numbered by ROW_NUMBER,
+   * which reproduces the positional quartiles of the in-memory statistics exactly, so a
+   * single row comes back whatever the size of the department.
+   *
+   * @param organizationId the organization id
+   * @param externalDepartmentId the external department id
+   * @return the statistics if the department exists, null otherwise
+   */
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt =
+             conn.prepareStatement(SELECT_DEPARTMENT_PERFORMANCE_STATISTICS)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.setInt(2, organizationId * 10000 + externalDepartmentId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (!rs.next() || rs.getLong("department_rows") == 0) {
+          return null;
+        }
+        final long size = rs.getLong("employee_count");
+        final long lowerMedian = readUnits(rs, "lower_median");
+        final long upperMedian = readUnits(rs, "upper_median");
+        Map<String, Object> result = new HashMap<>();
+        result.put("highest", FixedPoint.toDouble(readUnits(rs, "highest")));
+        result.put("percentile25", FixedPoint.toDouble(readUnits(rs, "percentile25")));
+        result.put("median", size % 2 == 0
+            ? FixedPoint.average(lowerMedian + upperMedian, 2)
+            : FixedPoint.toDouble(upperMedian));
+        result.put("percentile75", FixedPoint.toDouble(readUnits(rs, "percentile75")));
+        result.put("lowest", FixedPoint.toDouble(readUnits(rs, "lowest")));
+        result.put("average", size == 0 ? 0.0 : FixedPoint.average(readUnits(rs, "total"), size));
+        return result;
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Updates a department's information in the database.
+   * This method handles all department updates including setting department head.
+   *
+   * @param organizationId the organization id
+   * @param department the department to update
+   * @return true if update successful, false otherwise
+   */
+  @Override
+  public boolean updateDepartment(int organizationId, Department department) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(UPDATE_DEPARTMENT)) {
+      bindDepartmentUpdate(pstmt, organizationId, department);
+      int rowsAffected = pstmt.executeUpdate();
+      return rowsAffected > 0;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(COMPARE_AND_SET_DEPARTMENT)) {
+      bindDepartmentUpdate(pstmt, organizationId, department);
+      pstmt.setLong(9, department.getVersion());
+      if (pstmt.executeUpdate() == 0) {
+        return false;
+      }
+      department.setVersion(department.getVersion() + 1);
+      return true;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Binds the parameters of UPDATE_DEPARTMENT.
+   *
+   * @param pstmt the prepared UPDATE_DEPARTMENT statement
+   * @param organizationId the organization id
+   * @param department the department to update
+   * @throws SQLException if a parameter cannot be bound
+   */
+  private void bindDepartmentUpdate(
+      PreparedStatement pstmt, int organizationId, Department department
+  ) throws SQLException {
+    Employee head = department.getHead();
+    pstmt.setString(1, department.getName());
+    if (head != null) {
+      int headEmployeeId = organizationId * 10000 + head.getId();
+      pstmt.setInt(2, headEmployeeId);
+      pstmt.setInt(5, headEmployeeId);
+      pstmt.setInt(6, headEmployeeId);
+    } else {
+      pstmt.setNull(2, Types.INTEGER);
+      pstmt.setNull(5, Types.INTEGER);
+      pstmt.setNull(6, Types.INTEGER);
+    }
+    int internalDepartmentId = organizationId * 10000 + department.getId();
+    pstmt.setInt(3, organizationId);
+    pstmt.setInt(4, internalDepartmentId);
+    pstmt.setInt(7, organizationId);
+    pstmt.setInt(8, internalDepartmentId);
+  }
+
+  @Override
+  public boolean updateOrganization(Organization organization) {
+    String query = "UPDATE organizations SET name = ? WHERE organization_id = ?";
+
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setString(1, organization.getName());
+      pstmt.setInt(2, organization.getId());
+
+      int rowsAffected = pstmt.executeUpdate();
+      return rowsAffected > 0;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public Department insertDepartment(int organizationId, Department department) {
+    String insertDepartmentQuery =
+        "INSERT INTO departments (department_id, organization_id, name) VALUES (?, ?, ?)";
+
+    try {
+      // Generate a new internal department ID from the reserved block, before borrowing
+      // a connection, since refilling the block borrows one of its own
+      int newDepartmentId = nextInternalId(organizationId, DEPARTMENT_SEQUENCE);
+      if (newDepartmentId == -1) {
+        return null;
+      }
+      try (Connection conn = borrowConnection();
+           PreparedStatement pstmt = conn.prepareStatement(insertDepartmentQuery)) {
+        pstmt.setInt(1, newDepartmentId);
+        pstmt.setInt(2, organizationId);
+        pstmt.setString(3, department.getName());
+
+        int rowsAffected = pstmt.executeUpdate();
+        if (rowsAffected > 0) {
+          int externalDeptId = newDepartmentId % 10000;
+          return new Department(externalDeptId, department.getName(), new ArrayList<>());
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean removeDepartment(int organizationId, int externalDepartmentId) {
+    int internalDepartmentId = organizationId * 10000 + externalDepartmentId;
+
+    // The head reference and the shifts of its employees must go before the employees do
+    String[] cascade = {
+        "UPDATE departments SET head_employee_id = NULL "
+            + "WHERE organization_id = ? AND department_id = ?",
+        "DELETE FROM employees WHERE organization_id = ? AND department_id = ?"
+    };
+    String deleteDepartmentQuery =
+        "DELETE FROM departments WHERE organization_id = ? AND department_id = ?";
+    String selectEmployeesQuery =
+        "SELECT employee_id FROM employees WHERE organization_id = ? AND department_id = ?";
+
+    try {
+      return inTransaction(conn -> {
+        List<Integer> employeeIds = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(selectEmployeesQuery)) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setInt(2, internalDepartmentId);
+          try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+              employeeIds.add(rs.getInt("employee_id"));
+            }
+          }
+        }
+        deleteByIds(conn, DELETE_EMPLOYEE_SHIFTS, organizationId, employeeIds);
+        for (String query : cascade) {
+          try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, organizationId);
+            pstmt.setInt(2, internalDepartmentId);
+            pstmt.executeUpdate();
+          }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(deleteDepartmentQuery)) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setInt(2, internalDepartmentId);
+          if (pstmt.executeUpdate() == 0) {
+            return false;
+          }
+        }
+        writeTombstones(conn, organizationId, Map.of(EMPLOYEE_SEQUENCE, employeeIds,
+            DEPARTMENT_SEQUENCE, List.of(internalDepartmentId)));
+        return true;
+      });
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public Organization insertOrganization(Organization organization) {
+    String insertOrganizationQuery =
+        "INSERT INTO organizations (organization_id, name) VALUES (?, ?)";
+
+    try {
+      // Generate a new organization ID from the reserved block, before borrowing
+      // a connection, since refilling the block borrows one of its own
+      int newOrganizationId = idAllocator.next(0, ORGANIZATION_SEQUENCE);
+      try (Connection conn = borrowConnection();
+           PreparedStatement pstmt = conn.prepareStatement(insertOrganizationQuery)) {
+        pstmt.setInt(1, newOrganizationId);
+        pstmt.setString(2, organization.getName());
+
+        int rowsAffected = pstmt.executeUpdate();
+        if (rowsAffected > 0) {
+          return new Organization(newOrganizationId, organization.getName());
+        }
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+    }
+    return null;
+  }
+
+  /**
+   * Clones an organization with INSERT ... SELECT statements, one per table, in a single
+   * transaction, so the rows never leave the database. Only the department heads are read,
+   * one row per department, since they can only be set once the employees exist.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param organization the new organization, with its id or 0 to allocate one
+   * @return the new organization if successful, null otherwise
+   */
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    try {
+      // Allocated outside the transaction, since refilling an ID block borrows a connection
+      final int cloneId = organization.getId() > 0
+          ? organization.getId() : idAllocator.next(0, ORGANIZATION_SEQUENCE);
+      final int idBase = cloneId * 10000;
+      return inTransaction(conn -> {
+        try (PreparedStatement pstmt = conn.prepareStatement(CLONE_ORGANIZATION)) {
+          pstmt.setInt(1, cloneId);
+          pstmt.setString(2, organization.getName());
+          pstmt.setInt(3, sourceOrganizationId);
+          if (pstmt.executeUpdate() == 0) {
+            return null;
+          }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(CLONE_DEPARTMENTS)) {
+          pstmt.setInt(1, idBase);
+          pstmt.setInt(2, cloneId);
+          pstmt.setInt(3, sourceOrganizationId);
+          pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(CLONE_EMPLOYEES)) {
+          pstmt.setInt(1, idBase);
+          pstmt.setInt(2, cloneId);
+          pstmt.setInt(3, idBase);
+          pstmt.setInt(4, sourceOrganizationId);
+          pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(CLONE_SHIFTS)) {
+          pstmt.setInt(1, cloneId);
+          pstmt.setInt(2, idBase);
+          pstmt.setInt(3, sourceOrganizationId);
+          pstmt.executeUpdate();
+        }
+        try (PreparedStatement select = conn.prepareStatement(SELECT_DEPARTMENT_HEADS);
+             PreparedStatement update = conn.prepareStatement(RESTORE_DEPARTMENT_HEAD)) {
+          select.setInt(1, sourceOrganizationId);
+          try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+              update.setInt(1, idBase + rs.getInt("head_employee_id") % 10000);
+              update.setInt(2, cloneId);
+              update.setInt(3, idBase + rs.getInt("department_id") % 10000);
+              update.addBatch();
+            }
+          }
+          update.executeBatch();
+        }
+        return new Organization(cloneId, organization.getName());
+      });
+    } catch (SQLException e) {
+      reportFailure(e);
+      return null;
+    }
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    int organizationId = snapshot.getOrganization().getId();
+    Map<Integer, Integer> employeeDepartments = new HashMap<>();
+    for (Department department : snapshot.getDepartments()) {
+      for (Employee employee : department.getEmployees()) {
+        employeeDepartments.put(employee.getId(), department.getId());
+      }
+    }
+
+    try {
+      return inTransaction(conn -> {
+        try (PreparedStatement pstmt = conn.prepareStatement(RESTORE_ORGANIZATION)) {
+          pstmt.setInt(1, organizationId);
+          pstmt.setString(2, snapshot.getOrganization().getName());
+          pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(RESTORE_DEPARTMENT)) {
+          for (Department department : snapshot.getDepartments()) {
+            pstmt.setInt(1, organizationId * 10000 + department.getId());
+            pstmt.setInt(2, organizationId);
+            pstmt.setString(3, department.getName());
+            pstmt.setLong(4, department.getVersion());
+            pstmt.addBatch();
+          }
+          pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(RESTORE_EMPLOYEE)) {
+          int batched = 0;
+          for (Employee employee : snapshot.getEmployees()) {
+            Integer departmentId = employeeDepartments.get(employee.getId());
+            bindEmployeeRow(pstmt, 1, organizationId * 10000 + employee.getId(), organizationId,
+                departmentId == null ? 0 : organizationId * 10000 + departmentId, employee);
+            if (departmentId == null) {
+              pstmt.setNull(3, Types.INTEGER);
+            }
+            pstmt.setLong(9, employee.getVersion());
+            pstmt.addBatch();
+            if (++batched % BATCH_SIZE == 0) {
+              pstmt.executeBatch();
+            }
+          }
+          pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(RESTORE_DEPARTMENT_HEAD)) {
+          for (Department department : snapshot.getDepartments()) {
+            if (department.getHead() != null) {
+              pstmt.setInt(1, organizationId * 10000 + department.getHead().getId());
+              pstmt.setInt(2, organizationId);
+              pstmt.setInt(3, organizationId * 10000 + department.getId());
+              pstmt.addBatch();
+            }
+          }
+          pstmt.executeBatch();
+        }
+        restoreFullSnapshotData(conn, snapshot);
+        return true;
+      });
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Writes the details, contact information and shifts a snapshot carries. Empty JSON
+   * documents are left null, which reads back the same.
+   *
+   * @param conn the connection of the restoring transaction
+   * @param snapshot the snapshot being restored
+   * @throws SQLException if they cannot be written
+   */
+  private void restoreFullSnapshotData(Connection conn, OrganizationSnapshot snapshot)
+      throws SQLException {
+    int organizationId = snapshot.getOrganization().getId();
+    try {
+      Map<String, Object> details = snapshot.getOrganization().getDetails();
+      if (details != null && !details.isEmpty()) {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE organizations SET "
+            + "details = " + dialect.jsonParameter() + " WHERE " + ORGANIZATION_KEY)) {
+          pstmt.setString(1, objectMapper.writeValueAsString(details));
+          pstmt.setInt(2, organizationId);
+          pstmt.executeUpdate();
+        }
+      }
+      try (PreparedStatement pstmt = conn.prepareStatement("UPDATE employees SET "
+          + "contact_info = " + dialect.jsonParameter() + " WHERE " + EMPLOYEE_KEY)) {
+        int batched = 0;
+        for (Employee employee : snapshot.getEmployees()) {
+          Map<String, Object> contactInfo = employee.getContactInfo();
+          if (contactInfo != null && !contactInfo.isEmpty()) {
+            pstmt.setString(1, objectMapper.writeValueAsString(contactInfo));
+            pstmt.setInt(2, organizationId);
+            pstmt.setInt(3, organizationId * 10000 + employee.getId());
+            pstmt.addBatch();
+            if (++batched % BATCH_SIZE == 0) {
+              pstmt.executeBatch();
+            }
+          }
+        }
+        pstmt.executeBatch();
+      }
+    } catch (JsonProcessingException e) {
+      throw new SQLException("Failed to encode the JSON columns", e);
+    }
+    if (snapshot.getShifts() == null) {
+      return;
+    }
+    try (PreparedStatement pstmt = conn.prepareStatement(RESTORE_SHIFT)) {
+      int batched = 0;
+      for (OrganizationSnapshot.Shift shift : snapshot.getShifts()) {
+        pstmt.setInt(1, organizationId);
+        pstmt.setInt(2, organizationId * 10000 + shift.getEmployeeId());
+        pstmt.setInt(3, shift.getDayOfWeek());
+        pstmt.setInt(4, shift.getTimeSlot());
+        pstmt.addBatch();
+        if (++batched % BATCH_SIZE == 0) {
+          pstmt.executeBatch();
+        }
+      }
+      pstmt.executeBatch();
+    }
+  }
+
+  @Override
+  public boolean removeOrganization(int organizationId) {
+    String deleteOrganizationQuery = "DELETE FROM organizations WHERE organization_id = ?";
+
+    // Dropping partitions marks the organization first, so if the transaction below fails,
+    // the organization stays hidden and its removal is resumed in chunks
+    if (dialect.supportsPartitioning() && dropIsolatedPartitions(organizationId) < 0) {
+      return false;
+    }
+    try {
+      boolean removed = inTransaction(conn -> {
+        deleteOrganizationContents(conn, organizationId);
+        // Left by dropIsolatedPartitions, or by an earlier removal in chunks
+        try (PreparedStatement pstmt = conn.prepareStatement(
+            "DELETE FROM organization_removals WHERE organization_id = ?")) {
+          pstmt.setInt(1, organizationId);
+          pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(deleteOrganizationQuery)) {
+          pstmt.setInt(1, organizationId);
+          return pstmt.executeUpdate() > 0;
+        }
+      });
+      if (removed) {
+        idAllocator.release(organizationId);
+      }
+      return removed;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    try {
+      inTransaction(conn -> {
+        deleteOrganizationContents(conn, organizationId);
+        return true;
+      });
+      idAllocator.release(organizationId);
+      return true;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Deletes the rows that belong to an organization, but not the organization row.
+   *
+   * @param conn the connection of the removing transaction
+   * @param organizationId the organization id
+   * @throws SQLException if the rows cannot be deleted
+   */
+  private static void deleteOrganizationContents(Connection conn, int organizationId)
+      throws SQLException {
+    // Children first, so no foreign key is violated at any point of the transaction
+    String[] cascade = {
+        "UPDATE departments SET head_employee_id = NULL WHERE organization_id = ?",
+        "DELETE FROM shifts WHERE organization_id = ?",
+        "DELETE FROM employees WHERE organization_id = ?",
+        "DELETE FROM departments WHERE organization_id = ?",
+        "DELETE FROM id_sequences WHERE organization_id = ?",
+        "DELETE FROM deleted_rows WHERE organization_id = ?"
+    };
+    for (String query : cascade) {
+      try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        pstmt.setInt(1, organizationId);
+        pstmt.executeUpdate();
+      }
+    }
+  }
+
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(MARK_ORGANIZATION_REMOVAL)) {
+      pstmt.setInt(1, organizationId);
+      return pstmt.executeUpdate() > 0;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    List<Integer> organizationIds = new ArrayList<>();
+    try (Connection conn = borrowConnection();
+         PreparedStatement pstmt = conn.prepareStatement(SELECT_PENDING_REMOVALS);
+         ResultSet rs = pstmt.executeQuery()) {
+      while (rs.next()) {
+        organizationIds.add(rs.getInt("organization_id"));
+      }
+      return organizationIds;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return null;
+    }
+  }
+
+  /**
+   * Deletes one chunk of the rows of an organization. An organization isolated in its own
+   * partitions loses all of its child rows at once by dropping them; otherwise the chunk is
+   * the first employees with their shifts,
+   * clearing the department heads they hold, then the departments, then the tombstones, and
+   * finally the organization row itself. Every chunk is its own short transaction, so locks
+   * are held only on the rows of the chunk and an interrupted removal resumes where it
+   * stopped.
+   *
+   * @param organizationId the organization id
+   * @param chunkSize the maximum number of employees, departments or tombstones deleted
+   * @return the number of rows deleted, 0 once nothing is left, or -1 on failure
+   */
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    if (dialect.supportsPartitioning()) {
+      int dropped = dropIsolatedPartitions(organizationId);
+      if (dropped != 0) {
+        return dropped;
+      }
+    }
+    try {
+      int deleted = inTransaction(conn -> {
+        List<Integer> employeeIds = selectChunk(conn, SELECT_EMPLOYEE_CHUNK,
+            organizationId, chunkSize);
+        if (!employeeIds.isEmpty()) {
+          deleteByIds(conn, CLEAR_HEAD_CHUNK, organizationId, employeeIds);
+          deleteByIds(conn, DELETE_EMPLOYEE_SHIFTS, organizationId, employeeIds);
+          return deleteByIds(conn, DELETE_EMPLOYEE_CHUNK, organizationId, employeeIds);
+        }
+        List<Integer> departmentIds = selectChunk(conn, SELECT_DEPARTMENT_CHUNK,
+            organizationId, chunkSize);
+        if (!departmentIds.isEmpty()) {
+          return deleteByIds(conn, DELETE_DEPARTMENT_CHUNK, organizationId, departmentIds);
+        }
+
+        int tombstones = 0;
+        try (PreparedStatement select = conn.prepareStatement(SELECT_TOMBSTONE_CHUNK);
+             PreparedStatement delete = conn.prepareStatement(DELETE_TOMBSTONE_CHUNK)) {
+          select.setInt(1, organizationId);
+          select.setInt(2, chunkSize);
+          try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+              delete.setInt(1, organizationId);
+              delete.setString(2, rs.getString("entity"));
+              delete.setInt(3, rs.getInt("entity_id"));
+              delete.addBatch();
+              tombstones++;
+            }
+          }
+          if (tombstones > 0) {
+            return countUpdated(delete.executeBatch());
+          }
+        }
+
+        int rows = 0;
+        for (String query : ORGANIZATION_ROW_DELETES) {
+          try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, organizationId);
+            rows += pstmt.executeUpdate();
+          }
+        }
+        return rows;
+      });
+      if (deleted == 0) {
+        idAllocator.release(organizationId);
+      }
+      return deleted;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return -1;
+    }
+  }
+
+  private static List<Integer> selectChunk(
+      Connection conn, String query, int organizationId, int chunkSize) throws SQLException {
+    List<Integer> ids = new ArrayList<>();
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.setInt(2, chunkSize);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          ids.add(rs.getInt(1));
+        }
+      }
+    }
+    return ids;
+  }
+
+  private static int deleteByIds(
+      Connection conn, String query, int organizationId, List<Integer> ids) throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      for (int id : ids) {
+        pstmt.setInt(1, organizationId);
+        pstmt.setInt(2, id);
+        pstmt.addBatch();
+      }
+      return countUpdated(pstmt.executeBatch());
+    }
+  }
+
+  /**
+   * Moves an organization into partitions of its own, by splitting the range partition it
+   * is in, so its rows no longer share pages with other organizations and it can later be
+   * removed by dropping the partitions. Reorganizing copies the rows of the split partition,
+   * so this is meant for the few largest organizations. Each table is split on its own,
+   * so an interrupted call is completed by calling it again.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization is isolated, false if the tables are not partitioned
+   *     or a table could not be reorganized
+   */
+  public boolean isolateOrganization(int organizationId) {
+    if (!dialect.supportsPartitioning()) {
+      return false;
+    }
+    try (Connection conn = borrowConnection();
+         Statement stmt = conn.createStatement()) {
+      for (String table : PARTITIONED_TABLES) {
+        RangePartition partition = findPartition(conn, table, organizationId);
+        if (partition == null) {
+          return false;
+        }
+        if (partition.isolates(organizationId)) {
+          continue;
+        }
+        // Partitions are named after their upper bound, so the new names cannot collide
+        List<String> parts = new ArrayList<>();
+        if (partition.lower < organizationId) {
+          parts.add("PARTITION p" + organizationId + " VALUES LESS THAN (" + organizationId + ")");
+        }
+        parts.add("PARTITION p" + (organizationId + 1)
+            + " VALUES LESS THAN (" + (organizationId + 1) + ")");
+        if (partition.upper > organizationId + 1) {
+          parts.add("PARTITION " + partition.name + " VALUES LESS THAN " + partition.bound());
+        }
+        stmt.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + partition.name
+            + " INTO (" + String.join(", ", parts) + ")");
+      }
+      logger.info("Isolated organization {} in partitions of its own.", organizationId);
+      return true;
+    } catch (SQLException e) {
+      reportFailure(e);
+      return false;
+    }
+  }
+
+  /**
+   * Drops the partitions of an organization isolated by isolateOrganization, which removes
+   * its child rows without deleting them one by one. The organization row is left alone.
+   * Dropping a partition is DDL, which commits on its own, so this step is not transactional:
+   * it runs on a connection of its own, outside the transaction of the removal calling it,
+   * one table at a time. The organization is therefore marked for removal, which hides it,
+   * before anything is dropped, and the child tables are dropped first. Each table is checked
+   * again right before its partition is dropped, so a call interrupted between two tables is
+   * completed by calling it again, and calling it once everything is dropped does nothing.
+   *
+   * @param organizationId the organization id
+   * @return the estimated number of rows dropped, at least 1 per dropped partition,
+   *     0 if the organization has no partition of its own, or -1 on failure
+   */
+  private int dropIsolatedPartitions(int organizationId) {
+    int dropped = 0;
+    try (Connection conn = borrowConnection();
+         Statement stmt = conn.createStatement()) {
+      boolean marked = false;
+      for (String table : PARTITIONED_TABLES) {
+        RangePartition partition = findPartition(conn, table, organizationId);
+        if (partition == null || !partition.isolates(organizationId)) {
+          continue;
+        }
+        if (!marked && !markForPartitionDrop(conn, organizationId)) {
+          logger.warn("Partitions of organization {} are not dropped, since it cannot be "
+              + "marked for removal.", organizationId);
+          return -1;
+        }
+        marked = true;
+        stmt.execute("ALTER TABLE " + table + " DROP PARTITION " + partition.name);
+        dropped += (int) Math.max(1, partition.rows);
+      }
+    } catch (SQLException e) {
+      reportFailure(e);
+      return -1;
+    }
+    if (dropped > 0) {
+      logger.info("Dropped the partitions of organization {}.", organizationId);
+    }
+    return dropped;
+  }
+
+  /**
+   * Marks an organization for removal, unless it already is, before its partitions are
+   * dropped.
+   *
+   * @param conn the borrowed connection
+   * @param organizationId the organization id
+   * @return true if the organization is marked for removal
+   */
+  private static boolean markForPartitionDrop(Connection conn, int organizationId)
+      throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement(MARK_ORGANIZATION_REMOVAL)) {
+      pstmt.setInt(1, organizationId);
+      pstmt.executeUpdate();
+    }
+    try (PreparedStatement pstmt = conn.prepareStatement(SELECT_REMOVAL_MARK)) {
+      pstmt.setInt(1, organizationId);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  /**
+   * Returns the range partition of a table holding an organization.
+   *
+   * @param conn the borrowed connection
+   * @param table the table
+   * @param organizationId the organization id
+   * @return the partition, or null if the table is not partitioned
+   */
+  private static RangePartition findPartition(
+      Connection conn, String table, int organizationId) throws SQLException {
+    long lower = Long.MIN_VALUE;
+    try (PreparedStatement pstmt = conn.prepareStatement(SELECT_PARTITIONS)) {
+      pstmt.setString(1, table);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          String name = rs.getString("partition_name");
+          String description = rs.getString("partition_description");
+          if (name == null || description == null) {
+            return null;
+          }
+          long upper = "MAXVALUE".equalsIgnoreCase(description)
+              ? Long.MAX_VALUE : Long.parseLong(description.trim());
+          if (organizationId < upper) {
+            return new RangePartition(name, lower, upper, rs.getLong("table_rows"));
+          }
+          lower = upper;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A partition of a table partitioned by organization range, holding the organizations
+   * from lower (inclusive) to upper (exclusive).
+   */
+  private static final class RangePartition {
+    private final String name;
+    private final long lower;
+    private final long upper;
+    private final long rows;
+
+    private RangePartition(String name, long lower, long upper, long rows) {
+      this.name = name;
+      this.lower = lower;
+      this.upper = upper;
+      this.rows = rows;
+    }
+
+    private boolean isolates(int organizationId) {
+      return lower == organizationId && upper == organizationId + 1L;
+    }
+
+    private String bound() {
+      return upper == Long.MAX_VALUE ? "MAXVALUE" : "(" + upper + ")";
+    }
+  }
+
+  /**
+   * Work that runs on a borrowed connection inside a transaction.
+   *
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  private interface TransactionWork<T> {
+    T run(Connection conn) throws SQLException;
+  }
+
+  /**
+   * Runs work in a single transaction, committing if it returns normally or returns true,
+   * and rolling back if it throws or returns false.
+   *
+   * @param work the work to run
+   * @param <T> the type of the result
+   * @return the result of the work
+   * @throws SQLException if the work or the commit fails
+   */
+  private <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+    try (Connection conn = borrowConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        T result = work.run(conn);
+        if (Boolean.FALSE.equals(result)) {
+          conn.rollback();
+        } else {
+          conn.commit();
+        }
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package dev.coms4156.project;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets.
+ * Values are bucketed by their power of two in microseconds, and each power of two is split
+ * into 8 linear sub-buckets, so reported percentiles are within 12.5% of the true value
+ * while recording stays a single atomic increment.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Enough powers of two for any long value in microseconds
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    counts.incrementAndGet(bucketOf(micros));
+    count.incrementAndGet();
+    totalMicros.addAndGet(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  /**
+   * Returns the number of recorded latencies.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Returns the longest recorded latency.
+   *
+   * @return the maximum latency in microseconds
+   */
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  /**
+   * Returns the average recorded latency.
+   *
+   * @return the average latency in microseconds
+   */
+  public double getAverageMicros() {
+    long recorded = count.get();
+    return recorded == 0 ? 0.0 : totalMicros.get() / (double) recorded;
+  }
+
+  /**
+   * Returns the latency below which the given fraction of the recorded latencies fall.
+   *
+   * @param quantile the fraction, between 0 and 1, e.g. 0.99 for the 99th percentile
+   * @return the latency in microseconds, 0 if nothing was recorded
+   */
+  public long getPercentileMicros(double quantile) {
+    long recorded = count.get();
+    if (recorded == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(bucket), getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  /**
+   * Returns the bucket of a value: values below SUB_BUCKETS have a bucket each, larger values
+   * share a bucket with the values of the same power of two and the same top bits.
+   *
+   * @param micros the value in microseconds
+   * @return the bucket index
+   */
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    int subBucket = (int) (micros >>> exponent) - SUB_BUCKETS;
+    return (exponent + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the largest value of a bucket.
+   *
+   * @param bucket the bucket index
+   * @return the upper bound in microseconds
+   */
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << exponent) - 1;
+  }
+}
@@ -12,6 +12,8 @@ import java.util.Map;
 public class Organization extends OrganizationComposite {
   private final List<Employee> employees;
   private final List<Department> departments;
+  // Loaded on first use, since most reads never need the details
+  private Map<String, Object> details;
 
   /**
    * Constructs an organization with the given ID and name.
@@ -27,27 +29,33 @@ public class Organization extends OrganizationComposite {
   }
 
   /**
-   * Set the employees of the organization in batch.
+   * Set the employees of the organization in batch, replacing the previous ones, also as
+   * children of the organization.
    *
    * @param employees the employees list to be set
    */
   public void setEmployees(List<Employee> employees) {
     //this.employees = employees;
+    List<Employee> replacement = new ArrayList<>(employees);
+    this.children.removeAll(this.employees);
     this.employees.clear();
-    for (Employee employee : employees) {
+    for (Employee employee : replacement) {
       this.addEmployee(employee);
     }
   }
 
   /**
-   * Set the departments of the organization in batch.
+   * Set the departments of the organization in batch, replacing the previous ones, also as
+   * children of the organization.
    *
    * @param departments the departments list to be set
    */
   public void setDepartments(List<Department> departments) {
     //this.departments = departments;
+    List<Department> replacement = new ArrayList<>(departments);
+    this.children.removeAll(this.departments);
     this.departments.clear();
-    for (Department department : departments) {
+    for (Department department : replacement) {
       this.addDepartment(department);
     }
   }
@@ -85,6 +93,17 @@ public class Organization extends OrganizationComposite {
     return this.add(department);
   }
 
+  /**
+   * Remove a department from the organization.
+   *
+   * @param department department to be removed from this organization
+   * @return true if the department is removed, false otherwise
+   */
+  public boolean removeDepartment(Department department) {
+    this.departments.remove(department);
+    return this.remove(department);
+  }
+
   /**
    * Returns the number of employees in the organization.
    *
@@ -94,6 +113,24 @@ public class Organization extends OrganizationComposite {
     return this.employees.size();
   }
 
+  /**
+   * Returns the details of the organization, if they have been loaded.
+   *
+   * @return the detail fields by name, null if not loaded yet
+   */
+  public Map<String, Object> getDetails() {
+    return this.details;
+  }
+
+  /**
+   * Sets the loaded details of the organization.
+   *
+   * @param details the detail fields by name, null to have them loaded again
+   */
+  public void setDetails(Map<String, Object> details) {
+    this.details = details;
+  }
+
   /**
    * Report all the information of the organization in a JSON format.
    *
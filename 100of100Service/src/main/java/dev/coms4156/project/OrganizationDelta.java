@@ -0,0 +1,147 @@
+package dev.coms4156.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes of an organization since a watermark: the inserted or updated employees and
+ * departments, and the IDs of the removed ones.
+ * Changed departments carry no employees; employees are assigned to them by department ID.
+ */
+public class OrganizationDelta {
+  private final long watermark;
+  private final List<Employee> employees = new ArrayList<>();
+  private final Map<Integer, Integer> employeeDepartments = new HashMap<>();
+  private final List<Department> departments = new ArrayList<>();
+  private final Map<Integer, Integer> departmentHeads = new HashMap<>();
+  private final Set<Integer> removedEmployees = new HashSet<>();
+  private final Set<Integer> removedDepartments = new HashSet<>();
+
+  /**
+   * Constructs an empty delta.
+   *
+   * @param watermark the watermark to request the next delta from
+   */
+  public OrganizationDelta(long watermark) {
+    this.watermark = watermark;
+  }
+
+  /**
+   * Returns the watermark to request the next delta from.
+   *
+   * @return the watermark
+   */
+  public long getWatermark() {
+    return this.watermark;
+  }
+
+  /**
+   * Adds an inserted or updated employee.
+   *
+   * @param employee the employee
+   * @param departmentId the external ID of the department of the employee
+   */
+  public void addEmployee(Employee employee, int departmentId) {
+    this.employees.add(employee);
+    this.employeeDepartments.put(employee.getId(), departmentId);
+  }
+
+  /**
+   * Adds an inserted or updated department.
+   *
+   * @param department the department
+   * @param headId the external ID of the head of the department, null if it has none
+   */
+  public void addDepartment(Department department, Integer headId) {
+    this.departments.add(department);
+    this.departmentHeads.put(department.getId(), headId);
+  }
+
+  /**
+   * Adds a removed employee.
+   *
+   * @param employeeId the external employee ID
+   */
+  public void addRemovedEmployee(int employeeId) {
+    this.removedEmployees.add(employeeId);
+  }
+
+  /**
+   * Adds a removed department.
+   *
+   * @param departmentId the external department ID
+   */
+  public void addRemovedDepartment(int departmentId) {
+    this.removedDepartments.add(departmentId);
+  }
+
+  /**
+   * Returns the inserted or updated employees.
+   *
+   * @return the list of employees
+   */
+  public List<Employee> getEmployees() {
+    return this.employees;
+  }
+
+  /**
+   * Returns the department of an inserted or updated employee.
+   *
+   * @param employeeId the external employee ID
+   * @return the external department ID, null if the employee has not changed
+   */
+  public Integer getDepartmentId(int employeeId) {
+    return this.employeeDepartments.get(employeeId);
+  }
+
+  /**
+   * Returns the inserted or updated departments.
+   *
+   * @return the list of departments
+   */
+  public List<Department> getDepartments() {
+    return this.departments;
+  }
+
+  /**
+   * Returns the head of an inserted or updated department.
+   *
+   * @param departmentId the external department ID
+   * @return the external ID of the head, null if the department has none
+   */
+  public Integer getHeadId(int departmentId) {
+    return this.departmentHeads.get(departmentId);
+  }
+
+  /**
+   * Returns the IDs of the removed employees.
+   *
+   * @return the set of external employee IDs
+   */
+  public Set<Integer> getRemovedEmployees() {
+    return this.removedEmployees;
+  }
+
+  /**
+   * Returns the IDs of the removed departments.
+   *
+   * @return the set of external department IDs
+   */
+  public Set<Integer> getRemovedDepartments() {
+    return this.removedDepartments;
+  }
+
+  /**
+   * Returns whether nothing has changed.
+   *
+   * @return true if the delta holds no change, false otherwise
+   */
+  public boolean isEmpty() {
+    return employees.isEmpty() && departments.isEmpty()
+        && removedEmployees.isEmpty() && removedDepartments.isEmpty();
+  }
+}
@@ -0,0 +1,144 @@
+package dev.coms4156.project;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.coms4156.project.utils.FixedPoint;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the departments and employees of an organization to a stream, one record per line.
+ * Every record is written as soon as it is passed in, so exports use constant memory however
+ * large the organization is. The columns match the ones BulkImporter reads, plus the IDs.
+ */
+public class OrganizationExporter {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final List<String> COLUMNS = List.of(
+      "type", "id", "did", "department", "head",
+      "name", "hireDate", "position", "salary", "performance");
+  // Amounts are written as exact plain decimals; a double would print 1.0E7 for a salary
+  private static final ObjectMapper objectMapper = new ObjectMapper()
+      .enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+
+  private final Writer writer;
+  private final RecordFormat format;
+
+  /**
+   * Constructs an exporter writing to a stream. CSV output starts with the header line.
+   *
+   * @param out the stream the records are written to, in UTF-8
+   * @param format the format of the records
+   * @throws IOException if the header cannot be written
+   */
+  public OrganizationExporter(OutputStream out, RecordFormat format) throws IOException {
+    this.writer = new BufferedWriter(
+        new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    this.format = format;
+    if (format == RecordFormat.CSV) {
+      writer.write(String.join(",", COLUMNS));
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * Writes a department record.
+   *
+   * @param department the department
+   * @throws IOException if the record cannot be written
+   */
+  public void writeDepartment(Department department) throws IOException {
+    Map<String, Object> record = new LinkedHashMap<>();
+    record.put("type", "department");
+    record.put("id", department.getId());
+    record.put("department", department.getName());
+    record.put("head", department.getHead() == null ? null : department.getHead().getId());
+    write(record);
+  }
+
+  /**
+   * Writes an employee record. Failures are rethrown unchecked, so that this method can be
+   * passed to a streaming read directly.
+   *
+   * @param employee the employee
+   * @param departmentId the external ID of the department of the employee
+   * @throws UncheckedIOException if the record cannot be written
+   */
+  public void writeEmployee(Employee employee, int departmentId) {
+    Map<String, Object> record = new LinkedHashMap<>();
+    record.put("type", "employee");
+    record.put("id", employee.getId());
+    record.put("did", departmentId);
+    record.put("name", employee.getName());
+    record.put("hireDate", formatDate(employee.getHireDate()));
+    record.put("position", employee.getPosition());
+    record.put("salary", FixedPoint.toDecimal(employee.getSalaryCents()));
+    record.put("performance", FixedPoint.toDecimal(employee.getPerformanceBasisPoints()));
+    try {
+      write(record);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes out the buffered records.
+   *
+   * @throws IOException if the records cannot be written
+   */
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  private void write(Map<String, Object> record) throws IOException {
+    if (format == RecordFormat.NDJSON) {
+      record.values().removeIf(value -> value == null);
+      try {
+        writer.write(objectMapper.writeValueAsString(record));
+      } catch (JsonProcessingException e) {
+        throw new IOException("Failed to encode record " + record.get("id"), e);
+      }
+    } else {
+      for (int i = 0; i < COLUMNS.size(); i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        Object value = record.get(COLUMNS.get(i));
+        if (value instanceof BigDecimal decimal) {
+          writer.write(decimal.toPlainString());
+        } else if (value != null) {
+          writer.write(escapeCsv(value.toString()));
+        }
+      }
+    }
+    writer.write('\n');
+  }
+
+  private static String formatDate(Date date) {
+    return date == null ? null : new java.sql.Date(date.getTime()).toLocalDate().toString();
+  }
+
+  /**
+   * Quotes a CSV value if it contains a separator, a quote or a line break.
+   *
+   * @param value the value
+   * @return the value as it is written to CSV
+   */
+  static String escapeCsv(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,196 @@
+package dev.coms4156.project;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes organizations in the background. An organization is marked for removal first,
+ * which hides it at once; its rows are then deleted in bounded chunks, one short transaction
+ * each, paced to a maximum number of rows per second, so removing a large organization never
+ * holds long locks or saturates the database for the other organizations.
+ * Removals run one chunk at a time on a single thread, and resume after a restart from the
+ * marks left in the database.
+ */
+public class OrganizationRemover implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(OrganizationRemover.class);
+
+  /**
+   * The state of a removal.
+   */
+  public enum State {
+    /** Rows of the organization are left to delete. */
+    RUNNING,
+    /** Every row of the organization is deleted. */
+    DONE
+  }
+
+  private final DatabaseConnection connection;
+  private final int chunkSize;
+  private final double rowsPerSecond;
+  private final long retryDelayMillis;
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<Integer, Job> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an organization remover.
+   *
+   * @param connection the database connection
+   * @param chunkSize the maximum number of employees or departments deleted by one chunk
+   * @param rowsPerSecond the maximum rate at which rows are deleted
+   * @param retryDelayMillis the delay before a failed chunk is retried, in milliseconds
+   */
+  public OrganizationRemover(DatabaseConnection connection, int chunkSize,
+      double rowsPerSecond, long retryDelayMillis) {
+    if (chunkSize < 1 || rowsPerSecond <= 0) {
+      throw new IllegalArgumentException("Chunk size and rate must be positive");
+    }
+    this.connection = connection;
+    this.chunkSize = chunkSize;
+    this.rowsPerSecond = rowsPerSecond;
+    this.retryDelayMillis = retryDelayMillis;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "organization-remover");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Marks an organization for removal and starts deleting its rows in the background.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization is marked, false if it is not found
+   */
+  public boolean remove(int organizationId) {
+    if (!connection.markOrganizationForRemoval(organizationId)) {
+      return false;
+    }
+    start(organizationId);
+    return true;
+  }
+
+  /**
+   * Resumes the removals left unfinished, e.g. by a restart.
+   *
+   * @return the number of removals resumed, or -1 if they could not be read
+   */
+  public int resumePending() {
+    List<Integer> pending = connection.getOrganizationsPendingRemoval();
+    if (pending == null) {
+      return -1;
+    }
+    for (int organizationId : pending) {
+      start(organizationId);
+    }
+    if (!pending.isEmpty()) {
+      logger.info("Resuming the removal of organizations {}.", pending);
+    }
+    return pending.size();
+  }
+
+  private void start(int organizationId) {
+    Job started = new Job();
+    Job job = jobs.compute(organizationId,
+        (id, existing) -> existing == null || existing.state == State.DONE ? started : existing);
+    if (job == started) {
+      schedule(organizationId, 0);
+    }
+  }
+
+  private void schedule(int organizationId, long delayMillis) {
+    try {
+      scheduler.schedule(() -> step(organizationId), delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      logger.info("Removal of organization {} interrupted by shutdown.", organizationId);
+    }
+  }
+
+  private void step(int organizationId) {
+    Job job = jobs.get(organizationId);
+    int deleted;
+    try {
+      deleted = connection.removeOrganizationChunk(organizationId, chunkSize);
+    } catch (RuntimeException e) {
+      // e.g. the circuit breaker failing fast while the database is down
+      deleted = -1;
+    }
+    if (deleted < 0) {
+      job.failures++;
+      logger.warn("Failed to delete a chunk of organization {}, retrying in {} ms.",
+          organizationId, retryDelayMillis);
+      schedule(organizationId, retryDelayMillis);
+    } else if (deleted == 0) {
+      job.finishedAt = System.currentTimeMillis();
+      job.state = State.DONE;
+      logger.info("Removed organization {}: {} rows in {} chunks, {} ms.", organizationId,
+          job.rowsDeleted, job.chunks, job.finishedAt - job.startedAt);
+    } else {
+      job.rowsDeleted += deleted;
+      job.chunks++;
+      // Wait as long as the deleted rows take at the maximum rate before the next chunk
+      schedule(organizationId, (long) (deleted * 1000 / rowsPerSecond));
+    }
+  }
+
+  /**
+   * Returns the progress of the removal of an organization.
+   *
+   * @param organizationId the organization id
+   * @return the progress as a JSON-serializable map, or null if no removal was started
+   */
+  public Map<String, Object> getProgress(int organizationId) {
+    Job job = jobs.get(organizationId);
+    return job == null ? null : job.toJson();
+  }
+
+  /**
+   * Returns the progress of every removal started since the remover was constructed.
+   *
+   * @return the progress as a JSON-serializable map, by organization id
+   */
+  public Map<String, Object> toJson() {
+    Map<String, Object> json = new LinkedHashMap<>();
+    jobs.forEach((organizationId, job) -> json.put(String.valueOf(organizationId), job.toJson()));
+    return json;
+  }
+
+  /**
+   * Stops deleting rows. The removals left unfinished stay marked in the database.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * The progress of one removal, written only by the remover thread.
+   */
+  private static final class Job {
+    private final long startedAt = System.currentTimeMillis();
+    private volatile State state = State.RUNNING;
+    private volatile long rowsDeleted;
+    private volatile long chunks;
+    private volatile long failures;
+    private volatile long finishedAt;
+
+    private Map<String, Object> toJson() {
+      Map<String, Object> json = new LinkedHashMap<>();
+      json.put("state", state.name());
+      json.put("rowsDeleted", rowsDeleted);
+      json.put("chunks", chunks);
+      json.put("failures", failures);
+      json.put("elapsedMs",
+          (state == State.DONE ? finishedAt : System.currentTimeMillis()) - startedAt);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package dev.coms4156.project;
+
+import java.util.List;
+
+/**
+ * A fully loaded organization graph: the organization, its departments and its employees.
+ * Department employee lists and heads reference the same objects as the employee list;
+ * the organization itself is returned empty, for the caller to attach them to once.
+ * A full snapshot, as loaded to move an organization, also carries the details of the
+ * organization, the contact information of the employees and the shifts.
+ */
+public class OrganizationSnapshot {
+  private final Organization organization;
+  private final List<Department> departments;
+  private final List<Employee> employees;
+  private final long watermark;
+  private List<Shift> shifts;
+
+  /**
+   * Constructs a snapshot of an organization that changes cannot be requested since.
+   *
+   * @param organization the organization
+   * @param departments the departments of the organization
+   * @param employees the employees of the organization
+   */
+  public OrganizationSnapshot(
+      Organization organization, List<Department> departments, List<Employee> employees
+  ) {
+    this(organization, departments, employees, -1);
+  }
+
+  /**
+   * Constructs a snapshot of an organization.
+   *
+   * @param organization the organization
+   * @param departments the departments of the organization
+   * @param employees the employees of the organization
+   * @param watermark the watermark to request the changes since the snapshot from,
+   *     -1 if the connection does not track changes
+   */
+  public OrganizationSnapshot(
+      Organization organization, List<Department> departments, List<Employee> employees,
+      long watermark
+  ) {
+    this.organization = organization;
+    this.departments = departments;
+    this.employees = employees;
+    this.watermark = watermark;
+  }
+
+  /**
+   * Returns the organization of the snapshot.
+   *
+   * @return the organization
+   */
+  public Organization getOrganization() {
+    return this.organization;
+  }
+
+  /**
+   * Returns the departments of the snapshot.
+   *
+   * @return the list of departments
+   */
+  public List<Department> getDepartments() {
+    return this.departments;
+  }
+
+  /**
+   * Returns the employees of the snapshot.
+   *
+   * @return the list of employees
+   */
+  public List<Employee> getEmployees() {
+    return this.employees;
+  }
+
+  /**
+   * Returns the watermark to request the changes since the snapshot from.
+   *
+   * @return the watermark, -1 if the connection does not track changes
+   */
+  public long getWatermark() {
+    return this.watermark;
+  }
+
+  /**
+   * Returns the shifts of the employees, if the snapshot is a full one.
+   *
+   * @return the shifts, null if not loaded
+   */
+  public List<Shift> getShifts() {
+    return this.shifts;
+  }
+
+  /**
+   * Sets the loaded shifts of the employees.
+   *
+   * @param shifts the shifts, null if not loaded
+   */
+  public void setShifts(List<Shift> shifts) {
+    this.shifts = shifts;
+  }
+
+  /**
+   * A shift an employee is assigned to.
+   */
+  public static final class Shift {
+    private final int employeeId;
+    private final int dayOfWeek;
+    private final int timeSlot;
+
+    /**
+     * Constructs a shift.
+     *
+     * @param employeeId the external employee id
+     * @param dayOfWeek the day of the week, 1 for Monday to 7 for Sunday
+     * @param timeSlot the time slot of the day, 0 to 2
+     */
+    public Shift(int employeeId, int dayOfWeek, int timeSlot) {
+      this.employeeId = employeeId;
+      this.dayOfWeek = dayOfWeek;
+      this.timeSlot = timeSlot;
+    }
+
+    /**
+     * Returns the employee of the shift.
+     *
+     * @return the external employee id
+     */
+    public int getEmployeeId() {
+      return this.employeeId;
+    }
+
+    /**
+     * Returns the day of the shift.
+     *
+     * @return the day of the week, 1 for Monday to 7 for Sunday
+     */
+    public int getDayOfWeek() {
+      return this.dayOfWeek;
+    }
+
+    /**
+     * Returns the time slot of the shift.
+     *
+     * @return the time slot of the day, 0 to 2
+     */
+    public int getTimeSlot() {
+      return this.timeSlot;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package dev.coms4156.project;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects call counts, latency histograms and returned row counts per named operation,
+ * e.g. per DAO method or per SQL template.
+ */
+public class QueryMetrics {
+  private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+  /**
+   * Records one call of an operation.
+   *
+   * @param name the operation name
+   * @param nanos the latency of the call in nanoseconds
+   * @param rows the number of rows the call returned or changed
+   */
+  public void record(String name, long nanos, long rows) {
+    Stats entry = stats.computeIfAbsent(name, key -> new Stats());
+    entry.latency.record(nanos);
+    entry.rows.add(Math.max(0, rows));
+  }
+
+  /**
+   * Returns the statistics of an operation.
+   *
+   * @param name the operation name
+   * @return the statistics if the operation was called, null otherwise
+   */
+  public Stats get(String name) {
+    return stats.get(name);
+  }
+
+  /**
+   * Report the statistics of every operation in a JSON format, ordered by name.
+   *
+   * @return a Map of the statistics that can be easily converted to JSON
+   */
+  public Map<String, Object> toJson() {
+    Map<String, Object> result = new TreeMap<>();
+    stats.forEach((name, entry) -> result.put(name, entry.toJson()));
+    return result;
+  }
+
+  /**
+   * The statistics of one operation.
+   */
+  public static final class Stats {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+
+    /**
+     * Returns the latency histogram of the operation.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+      return latency;
+    }
+
+    /**
+     * Returns the number of rows returned or changed by all calls of the operation.
+     *
+     * @return the total row count
+     */
+    public long getRows() {
+      return rows.sum();
+    }
+
+    /**
+     * Report the statistics in a JSON format.
+     *
+     * @return a Map of the statistics that can be easily converted to JSON
+     */
+    public Map<String, Object> toJson() {
+      Map<String, Object> result = new HashMap<>();
+      result.put("count", latency.getCount());
+      result.put("rows", getRows());
+      result.put("averageMicros", latency.getAverageMicros());
+      result.put("p50Micros", latency.getPercentileMicros(0.50));
+      result.put("p99Micros", latency.getPercentileMicros(0.99));
+      result.put("maxMicros", latency.getMaxMicros());
+      return result;
+    }
+  }
+}
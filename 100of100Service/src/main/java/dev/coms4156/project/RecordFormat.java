@@ -0,0 +1,79 @@
+package dev.coms4156.project;
+
+import java.util.Locale;
+
+/**
+ * The line-oriented formats departments and employees are imported from and exported to.
+ */
+public enum RecordFormat {
+  /**
+   * Comma-separated values with a header line naming the columns.
+   */
+  CSV("text/csv", "csv"),
+
+  /**
+   * Newline-delimited JSON, one object per line.
+   */
+  NDJSON("application/x-ndjson", "ndjson");
+
+  private final String contentType;
+  private final String extension;
+
+  RecordFormat(String contentType, String extension) {
+    this.contentType = contentType;
+    this.extension = extension;
+  }
+
+  /**
+   * Returns the content type of the format.
+   *
+   * @return the content type, e.g. "text/csv"
+   */
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the file name extension of the format.
+   *
+   * @return the extension, without the dot
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Returns the format of a request body by its content type.
+   *
+   * @param contentType the content type, e.g. "text/csv"
+   * @return the format, or null if the content type is not supported
+   */
+  public static RecordFormat fromContentType(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    String type = contentType.toLowerCase(Locale.ROOT);
+    if (type.startsWith("text/csv")) {
+      return CSV;
+    }
+    if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+      return NDJSON;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the format with the given name, ignoring case.
+   *
+   * @param name the name, e.g. "csv"
+   * @return the format, or null if there is none with this name
+   */
+  public static RecordFormat fromName(String name) {
+    for (RecordFormat format : values()) {
+      if (format.extension.equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    return null;
+  }
+}
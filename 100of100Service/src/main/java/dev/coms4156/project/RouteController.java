@@ -1,21 +1,32 @@
 package dev.coms4156.project;
 
 import dev.coms4156.project.command.AddEmpToDeptCmd;
+import dev.coms4156.project.command.BulkImportCmd;
+import dev.coms4156.project.command.CloneOrgCmd;
 import dev.coms4156.project.command.Command;
+import dev.coms4156.project.command.ExportOrgCmd;
 import dev.coms4156.project.command.GetDeptInfoCmd;
+import dev.coms4156.project.command.GetEmpContactCmd;
 import dev.coms4156.project.command.GetEmpInfoCmd;
+import dev.coms4156.project.command.GetEmpListCmd;
+import dev.coms4156.project.command.GetOrgDetailsCmd;
 import dev.coms4156.project.command.GetOrgInfoCmd;
 import dev.coms4156.project.command.RegisterCmd;
 import dev.coms4156.project.command.RemoveEmpFromDeptCmd;
 import dev.coms4156.project.command.SetDeptHeadCmd;
+import dev.coms4156.project.command.SetEmpContactCmd;
 import dev.coms4156.project.command.SetEmpPerfCmd;
 import dev.coms4156.project.command.SetEmpPosiCmd;
 import dev.coms4156.project.command.SetEmpSalCmd;
+import dev.coms4156.project.command.SetOrgDetailCmd;
 import dev.coms4156.project.command.StatDeptBudgCmd;
 import dev.coms4156.project.command.StatDeptPerfCmd;
 import dev.coms4156.project.command.StatDeptPosiCmd;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,8 +35,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * This class contains all the API routes for the system.
@@ -48,14 +61,36 @@ public class RouteController {
    *
    * @param clientId the client ID
    * @param departmentId the department ID
+   * @param afterId the employee ID the listed employees start after (optional)
+   * @param limit the maximum number of employees listed (optional)
    * @return the information of the department
    */
   @GetMapping(value = "/getDeptInfo", produces = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<?> getDepartment(
       @RequestAttribute("cid") int clientId,
-      @RequestParam("did") int departmentId
+      @RequestParam("did") int departmentId,
+      @RequestParam(value = "afterId", required = false) Integer afterId,
+      @RequestParam(value = "limit", required = false) Integer limit
+  ) {
+    Command command = new GetDeptInfoCmd(clientId, departmentId, afterId, limit);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets a page of the employees of an organization, ordered by ID.
+   *
+   * @param clientId the client ID
+   * @param afterId the employee ID the page starts after (defaults to the first page)
+   * @param limit the maximum number of employees in the page (defaults to 100)
+   * @return the employees of the page and the cursor of the next page
+   */
+  @GetMapping(value = "/getEmpList", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getEmployeeList(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+      @RequestParam(value = "limit", defaultValue = "100") int limit
   ) {
-    Command command = new GetDeptInfoCmd(clientId, departmentId);
+    Command command = new GetEmpListCmd(clientId, afterId, limit);
     return new ResponseEntity<>(command.execute(), HttpStatus.OK);
   }
 
@@ -89,6 +124,36 @@ public class RouteController {
     return new ResponseEntity<>(command.execute(), HttpStatus.OK);
   }
 
+  /**
+   * Gets the contact information of an employee.
+   *
+   * @param clientId the client ID
+   * @param employeeId the employee ID
+   * @return the contact fields of the employee
+   */
+  @GetMapping(value = "/getEmpContact", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getEmployeeContact(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam("eid") int employeeId
+  ) {
+    Command command = new GetEmpContactCmd(clientId, employeeId);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the details of an organization.
+   *
+   * @param clientId the client ID
+   * @return the detail fields of the organization
+   */
+  @GetMapping(value = "/getOrgDetails", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getOrganizationDetails(
+      @RequestAttribute("cid") int clientId
+  ) {
+    Command command = new GetOrgDetailsCmd(clientId);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
   /**
    * Gets the budget statistics of a department.
    *
@@ -137,6 +202,38 @@ public class RouteController {
     return new ResponseEntity<>(command.execute(), HttpStatus.OK);
   }
 
+  /**
+   * Exports every department and employee of the organization, one record per line.
+   * The records are streamed from the database to the response with chunked transfer,
+   * gzip-compressed if the client accepts it.
+   *
+   * @param clientId the client ID
+   * @param format the format of the records, "ndjson" (default) or "csv"
+   * @param acceptEncoding the encodings the client accepts
+   * @return the streamed records
+   */
+  @GetMapping(value = "/exportOrg")
+  public ResponseEntity<StreamingResponseBody> exportOrganization(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam(value = "format", required = false, defaultValue = "ndjson") String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+  ) {
+    boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+    Command command = new ExportOrgCmd(clientId, format, gzip);
+    final StreamingResponseBody body = (StreamingResponseBody) command.execute();
+    RecordFormat recordFormat = RecordFormat.fromName(format);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType(recordFormat.getContentType()));
+    headers.setContentDisposition(ContentDisposition.attachment()
+        .filename("organization-" + clientId + "." + recordFormat.getExtension()).build());
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return new ResponseEntity<>(body, headers, HttpStatus.OK);
+  }
+
   /* ***** PATCH METHODS ***** */
 
   /**
@@ -191,6 +288,42 @@ public class RouteController {
     return new ResponseEntity<>(command.execute(), HttpStatus.OK);
   }
 
+  /**
+   * Set or remove one contact field of an employee.
+   *
+   * @param clientId the client ID
+   * @param employeeId the employee ID
+   * @param field the name of the contact field
+   * @param value (optional) the value to set; the field is removed if absent
+   */
+  @PatchMapping(value = "/setEmpContact", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> setEmployeeContact(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam("eid") int employeeId,
+      @RequestParam("field") String field,
+      @RequestParam(value = "value", required = false) String value
+  ) {
+    Command command = new SetEmpContactCmd(clientId, employeeId, field, value);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
+  /**
+   * Set or remove one detail field of an organization.
+   *
+   * @param clientId the client ID
+   * @param field the name of the detail field
+   * @param value (optional) the value to set; the field is removed if absent
+   */
+  @PatchMapping(value = "/setOrgDetail", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> setOrganizationDetail(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam("field") String field,
+      @RequestParam(value = "value", required = false) String value
+  ) {
+    Command command = new SetOrgDetailCmd(clientId, field, value);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
   /**
    * Set the salary of an employee.
    *
@@ -288,6 +421,41 @@ public class RouteController {
     return new ResponseEntity<>(command.execute(), HttpStatus.CREATED);
   }
 
+  /**
+   * Import departments and employees in bulk from the request body, one record per line.
+   * Departments named by the records are created if they do not exist yet.
+   *
+   * @param clientId the client ID
+   * @param contentType the content type of the body, "text/csv" or "application/x-ndjson"
+   * @param body the records to import
+   * @return the numbers of imported and rejected records, with the reasons of the rejections
+   */
+  @PostMapping(value = "/bulkImport", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> bulkImport(
+      @RequestAttribute("cid") int clientId,
+      @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+      Reader body
+  ) {
+    Command command = new BulkImportCmd(clientId, body, contentType);
+    return new ResponseEntity<>(command.execute(), HttpStatus.OK);
+  }
+
+  /**
+   * Clone the organization of the client into a new organization, e.g. a sandbox copy.
+   *
+   * @param clientId the client ID
+   * @param name the name of the new organization
+   * @return the client credentials of the new organization
+   */
+  @PostMapping(value = "/cloneOrg", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> cloneOrganization(
+      @RequestAttribute("cid") int clientId,
+      @RequestParam("name") String name
+  ) {
+    Command command = new CloneOrgCmd(clientId, name);
+    return new ResponseEntity<>(command.execute(), HttpStatus.CREATED);
+  }
+
   /**
    * Register a new client, namely to create a new organization.
    *
@@ -0,0 +1,403 @@
+package dev.coms4156.project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+/**
+ * Applies versioned schema migrations at startup.
+ * Migrations are SQL scripts on the classpath named {@code V<version>__<description>.sql}.
+ * Each one runs once, in version order, and is recorded in the schema_migrations table.
+ * Instances starting together on the same database take turns: each one holds a migration
+ * lock while it reads the applied versions and applies the pending ones.
+ */
+public class SchemaMigrator {
+  private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+  static final String DEFAULT_LOCATION = "classpath:db/migration/V*__*.sql";
+  private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+  static final String LOCK_NAME = "schema_migrations";
+  // How long an instance waits for another one to finish migrating, and how long a lease
+  // on the lock row lasts
+  private static final long LOCK_TIMEOUT_MILLIS =
+      Long.getLong("db.migration.lockTimeoutMs", 600_000L);
+  private static final long LOCK_RETRY_MILLIS = 100L;
+  private static final String CLAIM_LOCK_ROW = "UPDATE schema_migrations_lock "
+      + "SET owner = ?, expires_at = ? WHERE id = 1 AND (owner IS NULL OR expires_at < ?)";
+  private static final String RELEASE_LOCK_ROW = "UPDATE schema_migrations_lock "
+      + "SET owner = NULL, expires_at = 0 WHERE id = 1 AND owner = ?";
+
+  private final DataSource dataSource;
+  private final List<String> locations;
+  private final Preparer preparer;
+  private final Locker locker;
+
+  /**
+   * Prepares the database for a migration before its script runs, or defers the migration.
+   */
+  @FunctionalInterface
+  public interface Preparer {
+    /**
+     * Prepares the database for a migration that is not applied yet.
+     *
+     * @param conn the connection the migration is applied with
+     * @param version the version of the migration
+     * @return true to apply the migration now, false to leave it pending
+     * @throws SQLException if the database cannot be prepared
+     */
+    boolean prepare(Connection conn, int version) throws SQLException;
+  }
+
+  /**
+   * Takes the lock that keeps other instances from migrating the same database.
+   */
+  @FunctionalInterface
+  public interface Locker {
+    /**
+     * Takes the migration lock, waiting while another instance holds it.
+     *
+     * @param dataSource the database being migrated
+     * @param conn the connection the migrations are applied with
+     * @return the lock, released by closing it
+     * @throws SQLException if the lock cannot be taken
+     */
+    MigrationLock lock(DataSource dataSource, Connection conn) throws SQLException;
+  }
+
+  /**
+   * A migration lock held by this instance.
+   */
+  @FunctionalInterface
+  public interface MigrationLock extends AutoCloseable {
+    /**
+     * Releases the lock.
+     *
+     * @throws SQLException if the lock cannot be released
+     */
+    @Override
+    void close() throws SQLException;
+  }
+
+  /**
+   * Constructs a migrator for the scripts in the default location.
+   *
+   * @param dataSource the database to migrate
+   */
+  public SchemaMigrator(DataSource dataSource) {
+    this(dataSource, DEFAULT_LOCATION);
+  }
+
+  /**
+   * Constructs a migrator for the scripts matching a resource pattern.
+   *
+   * @param dataSource the database to migrate
+   * @param location the resource pattern of the migration scripts
+   */
+  public SchemaMigrator(DataSource dataSource, String location) {
+    this(dataSource, List.of(location));
+  }
+
+  /**
+   * Constructs a migrator for the scripts matching any of several resource patterns.
+   * Versions are numbered across all the patterns.
+   *
+   * @param dataSource the database to migrate
+   * @param locations the resource patterns of the migration scripts
+   */
+  public SchemaMigrator(DataSource dataSource, List<String> locations) {
+    this(dataSource, locations, (conn, version) -> true);
+  }
+
+  /**
+   * Constructs a migrator for the scripts matching any of several resource patterns, which
+   * lets a preparer run before each pending migration.
+   *
+   * @param dataSource the database to migrate
+   * @param locations the resource patterns of the migration scripts
+   * @param preparer called before each pending migration, and may defer it
+   */
+  public SchemaMigrator(DataSource dataSource, List<String> locations, Preparer preparer) {
+    this(dataSource, locations, preparer, SchemaMigrator::lockRow);
+  }
+
+  /**
+   * Constructs a migrator for the scripts matching any of several resource patterns, with a
+   * preparer and the migration lock of the database engine.
+   *
+   * @param dataSource the database to migrate
+   * @param locations the resource patterns of the migration scripts
+   * @param preparer called before each pending migration, and may defer it
+   * @param locker takes the migration lock
+   */
+  public SchemaMigrator(
+      DataSource dataSource, List<String> locations, Preparer preparer, Locker locker) {
+    this.dataSource = dataSource;
+    this.locations = List.copyOf(locations);
+    this.preparer = preparer;
+    this.locker = locker;
+  }
+
+  /**
+   * Applies every migration that has not been applied yet, except those the preparer defers.
+   *
+   * @return the number of migrations applied
+   * @throws SQLException if a migration fails
+   * @throws IOException if a migration script cannot be read
+   */
+  public int migrate() throws SQLException, IOException {
+    List<Migration> migrations = findMigrations();
+    int applied = 0;
+    try (Connection conn = dataSource.getConnection();
+         MigrationLock lock = locker.lock(dataSource, conn)) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+            + "version INT NOT NULL PRIMARY KEY, "
+            + "description VARCHAR(255) NOT NULL, "
+            + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+      }
+      // Read under the lock, so the versions another instance applied are not applied again
+      Set<Integer> done = appliedVersions(conn);
+      for (Migration migration : migrations) {
+        if (done.contains(migration.version)) {
+          continue;
+        }
+        if (!preparer.prepare(conn, migration.version)) {
+          logger.warn("Schema migration V{} ({}) is deferred.",
+              migration.version, migration.description);
+          continue;
+        }
+        apply(conn, migration);
+        applied++;
+      }
+    }
+    return applied;
+  }
+
+  /**
+   * Takes the migration lock as a lease on the row of the schema_migrations_lock table,
+   * claimed and released with single-statement updates on the migrating connection, so it
+   * holds across the commits of the migrations and needs no second connection. A lease left
+   * by an instance that stopped while migrating expires after the lock timeout.
+   *
+   * @param dataSource the database being migrated, unused
+   * @param conn the connection the migrations are applied with
+   * @return the lock
+   * @throws SQLException if the lock cannot be taken in time
+   */
+  public static MigrationLock lockRow(DataSource dataSource, Connection conn)
+      throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations_lock ("
+          + "id INT NOT NULL PRIMARY KEY, "
+          + "owner VARCHAR(64), "
+          + "expires_at BIGINT NOT NULL DEFAULT 0)");
+      stmt.executeUpdate("INSERT INTO schema_migrations_lock (id) VALUES (1)");
+    } catch (SQLIntegrityConstraintViolationException e) {
+      // Inserted by an earlier run or by another instance
+    }
+    final String owner = UUID.randomUUID().toString();
+    long deadline = System.currentTimeMillis() + LOCK_TIMEOUT_MILLIS;
+    try (PreparedStatement claim = conn.prepareStatement(CLAIM_LOCK_ROW)) {
+      for (int attempt = 0; ; attempt++) {
+        long now = System.currentTimeMillis();
+        claim.setString(1, owner);
+        claim.setLong(2, now + LOCK_TIMEOUT_MILLIS);
+        claim.setLong(3, now);
+        if (claim.executeUpdate() > 0) {
+          break;
+        }
+        if (now >= deadline) {
+          throw new SQLTimeoutException("Timed out waiting for another instance to finish "
+              + "migrating the schema");
+        }
+        if (attempt == 0) {
+          logger.info("Waiting for another instance to finish migrating the schema.");
+        }
+        sleep(LOCK_RETRY_MILLIS);
+      }
+    }
+    return () -> {
+      try (PreparedStatement release = conn.prepareStatement(RELEASE_LOCK_ROW)) {
+        release.setString(1, owner);
+        release.executeUpdate();
+      }
+    };
+  }
+
+  /**
+   * Takes the migration lock as a named lock of the session of the migrating connection,
+   * with MySQL's GET_LOCK. Unlike a row lock, it is not released by the implicit commits of
+   * the DDL statements, and the server releases it if the connection is lost.
+   *
+   * @param dataSource the database being migrated, unused
+   * @param conn the connection the migrations are applied with
+   * @return the lock
+   * @throws SQLException if the lock cannot be taken in time
+   */
+  public static MigrationLock namedLock(DataSource dataSource, Connection conn)
+      throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      pstmt.setString(1, LOCK_NAME);
+      pstmt.setLong(2, TimeUnit.MILLISECONDS.toSeconds(LOCK_TIMEOUT_MILLIS));
+      try (ResultSet rs = pstmt.executeQuery()) {
+        if (!rs.next() || rs.getInt(1) != 1) {
+          throw new SQLTimeoutException("Timed out waiting for the lock " + LOCK_NAME
+              + " held by another instance migrating the schema");
+        }
+      }
+    }
+    return () -> {
+      try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+        pstmt.setString(1, LOCK_NAME);
+        pstmt.executeQuery().close();
+      }
+    };
+  }
+
+  private static void sleep(long millis) throws SQLException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the migration lock", e);
+    }
+  }
+
+  private Set<Integer> appliedVersions(Connection conn) throws SQLException {
+    Set<Integer> versions = new HashSet<>();
+    try (Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations")) {
+      while (rs.next()) {
+        versions.add(rs.getInt("version"));
+      }
+    }
+    return versions;
+  }
+
+  private void apply(Connection conn, Migration migration) throws SQLException {
+    logger.info("Applying schema migration V{} ({}).", migration.version, migration.description);
+    // DDL commits implicitly on MySQL, so the transaction only guards the DML and the record
+    conn.setAutoCommit(false);
+    try {
+      try (Statement stmt = conn.createStatement()) {
+        for (String sql : migration.statements) {
+          stmt.execute(sql);
+        }
+      }
+      String record = "INSERT INTO schema_migrations (version, description) VALUES (?, ?)";
+      try (PreparedStatement pstmt = conn.prepareStatement(record)) {
+        pstmt.setInt(1, migration.version);
+        pstmt.setString(2, migration.description);
+        pstmt.executeUpdate();
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Returns the versions of the migration scripts found in the locations, in order.
+   *
+   * @return the versions
+   * @throws IOException if a migration script cannot be read
+   */
+  List<Integer> findVersions() throws IOException {
+    List<Integer> versions = new ArrayList<>();
+    for (Migration migration : findMigrations()) {
+      versions.add(migration.version);
+    }
+    return versions;
+  }
+
+  private List<Migration> findMigrations() throws IOException {
+    List<Migration> migrations = new ArrayList<>();
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    List<Resource> resources = new ArrayList<>();
+    for (String location : locations) {
+      resources.addAll(List.of(resolver.getResources(location)));
+    }
+    for (Resource resource : resources) {
+      Matcher matcher = FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+      if (!matcher.matches()) {
+        continue;
+      }
+      try (InputStream in = resource.getInputStream()) {
+        String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        migrations.add(new Migration(
+            Integer.parseInt(matcher.group(1)),
+            matcher.group(2).replace('_', ' '),
+            splitStatements(script)
+        ));
+      }
+    }
+    migrations.sort(Comparator.comparingInt(m -> m.version));
+    for (int i = 1; i < migrations.size(); i++) {
+      if (migrations.get(i).version == migrations.get(i - 1).version) {
+        throw new IOException("Duplicate schema migration V" + migrations.get(i).version);
+      }
+    }
+    return migrations;
+  }
+
+  /**
+   * Splits a script into its statements, dropping line comments.
+   * Statements end with a semicolon; string literals containing semicolons are not supported.
+   *
+   * @param script the SQL script
+   * @return the statements of the script
+   */
+  static List<String> splitStatements(String script) {
+    StringBuilder withoutComments = new StringBuilder();
+    for (String line : script.split("\\R")) {
+      int comment = line.indexOf("--");
+      withoutComments.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+    }
+    List<String> statements = new ArrayList<>();
+    for (String statement : withoutComments.toString().split(";")) {
+      String trimmed = statement.trim();
+      if (!trimmed.isEmpty()) {
+        statements.add(trimmed);
+      }
+    }
+    return statements;
+  }
+
+  /**
+   * A parsed migration script.
+   */
+  private static final class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    private Migration(int version, String description, List<String> statements) {
+      this.version = version;
+      this.description = description;
+      this.statements = statements;
+    }
+  }
+}
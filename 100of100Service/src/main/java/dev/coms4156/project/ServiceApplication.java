@@ -1,5 +1,10 @@
 package dev.coms4156.project;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -8,18 +13,114 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 public class ServiceApplication {
+  private static final Logger logger = LoggerFactory.getLogger(ServiceApplication.class);
 
   /**
    * Main method to run the Spring Boot application.
-   * It sets the production database connection to be the real MySQL connection.
+   * It sets the production database connection to be the real MySQL connection,
+   * or the embedded database if the db.backend system property is "embedded".
+   * If db.shards lists more JDBC URLs, organizations are spread over all the databases,
+   * pinned to shards by db.shards.map ("organizationId=shard, ...") or placed by ID.
+   * On MySQL, the organizations listed in db.partitions.isolate get partitions of their own.
+   * Unless db.breaker is false, calls fail fast while a database is unhealthy.
+   * If db.writeBehind.journal is set, employee updates are buffered by a write-behind journal.
+   * Removed organizations are deleted in the background, db.remove.chunkSize employees or
+   * departments at a time and at most db.remove.rowsPerSecond rows per second.
+   * If db.metrics is true, every DAO method and SQL template is measured, and the metrics are
+   * logged on shutdown.
    *
    * @param args Command line arguments
    */
   public static void main(String[] args) {
     // Set the production database connection to be the real MySQL connection
-    DatabaseConnection db = MysqlConnection.getInstance();
+    boolean embedded = "embedded".equals(System.getProperty("db.backend"));
+    List<JdbcConnection> databases = new ArrayList<>();
+    databases.add(embedded ? EmbeddedConnection.getInstance() : MysqlConnection.getInstance());
+
+    // Optionally spread the organizations over more databases, listed by JDBC URL
+    String shardUrls = System.getProperty("db.shards", "");
+    for (String url : shardUrls.split(",")) {
+      if (!url.isBlank()) {
+        databases.add(embedded
+            ? new EmbeddedConnection(url.trim())
+            : new MysqlConnection("mysql-pool-" + databases.size(), url.trim()));
+      }
+    }
+
+    // Optionally give the largest organizations partitions of their own (MySQL only)
+    for (String organizationId : System.getProperty("db.partitions.isolate", "").split(",")) {
+      if (!organizationId.isBlank()) {
+        for (JdbcConnection database : databases) {
+          database.isolateOrganization(Integer.parseInt(organizationId.trim()));
+        }
+      }
+    }
+
+    List<DatabaseConnection> shards = new ArrayList<>();
+    for (JdbcConnection database : databases) {
+      shards.add(guard(database));
+    }
+    DatabaseConnection db = shards.size() == 1
+        ? shards.get(0)
+        : new ShardedDatabaseConnection(shards,
+            ShardMap.parse(shards.size(), System.getProperty("db.shards.map", "")));
+
+    // Optionally acknowledge employee updates from a local journal and write them in batches
+    String journal = System.getProperty("db.writeBehind.journal");
+    if (journal != null) {
+      WriteBehindConnection writeBehind = new WriteBehindConnection(
+          db, Path.of(journal), Long.getLong("db.writeBehind.maxStalenessMs", 1000L));
+      Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::close));
+      db = writeBehind;
+    }
+
+    // Optionally measure every DAO method; the JDBC connection measures its own statements
+    if (Boolean.getBoolean("db.metrics")) {
+      InstrumentedConnection instrumented = new InstrumentedConnection(db, new QueryMetrics());
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        logger.info("DAO metrics: {}", instrumented.getMetrics().toJson());
+        for (JdbcConnection database : databases) {
+          logger.info("SQL metrics of {}: {}",
+              database.connectionName(), database.getStatementMetrics().toJson());
+        }
+      }));
+      db = instrumented;
+    }
     HrDatabaseFacade.setConnection(db);
 
+    // Removed organizations disappear at once; their rows are deleted in paced chunks
+    OrganizationRemover remover = new OrganizationRemover(db,
+        Integer.getInteger("db.remove.chunkSize", 500),
+        Double.parseDouble(System.getProperty("db.remove.rowsPerSecond", "5000")),
+        Long.getLong("db.remove.retryDelayMs", 5_000L));
+    remover.resumePending();
+    Runtime.getRuntime().addShutdownHook(new Thread(remover::close));
+    HrDatabaseFacade.setOrganizationRemover(remover);
+
     SpringApplication.run(ServiceApplication.class, args);
   }
+
+  /**
+   * Wraps a database in a circuit breaker, so that calls fail fast while it is unhealthy,
+   * unless db.breaker is false.
+   *
+   * @param jdbc the database
+   * @return the guarded database, or the database itself if the breaker is disabled
+   */
+  private static DatabaseConnection guard(JdbcConnection jdbc) {
+    if ("false".equals(System.getProperty("db.breaker"))) {
+      return jdbc;
+    }
+    DatabaseHealthMonitor monitor = new DatabaseHealthMonitor(
+        () -> jdbc.ping(Integer.getInteger("db.breaker.probeTimeoutSeconds", 2)),
+        jdbc::evictConnections,
+        Long.getLong("db.breaker.windowMs", 10_000L),
+        Integer.getInteger("db.breaker.minCalls", 10),
+        Double.parseDouble(System.getProperty("db.breaker.failureRate", "0.5")),
+        Long.getLong("db.breaker.slowCallMs", 5_000L),
+        Long.getLong("db.breaker.probeIntervalMs", 2_000L));
+    jdbc.setFailureListener(e -> monitor.recordFailure());
+    Runtime.getRuntime().addShutdownHook(new Thread(monitor::close));
+    return new CircuitBreakerConnection(jdbc, monitor);
+  }
 }
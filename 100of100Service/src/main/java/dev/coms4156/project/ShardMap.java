@@ -0,0 +1,124 @@
+package dev.coms4156.project;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns organizations to the shards of a sharded database.
+ * Organizations are pinned to a shard explicitly, either from configuration or when they
+ * are created or moved; an organization that is not pinned is looked up on the shards.
+ * New organizations are spread over the shards by ID, so adding a shard adds write capacity
+ * without moving any existing organization.
+ */
+public class ShardMap {
+  /**
+   * The shard holding the organization ID sequence and a directory row for every
+   * organization. A database that predates sharding becomes this shard.
+   */
+  public static final int DIRECTORY_SHARD = 0;
+
+  private final int shardCount;
+  private final ConcurrentMap<Integer, Integer> assignments = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a shard map with no organization pinned.
+   *
+   * @param shardCount the number of shards
+   */
+  public ShardMap(int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("Shard count must be positive");
+    }
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * Parses a shard map from a comma-separated list of organizationId=shard pins,
+   * e.g. "1=0, 2=1".
+   *
+   * @param shardCount the number of shards
+   * @param spec the pins, empty for none
+   * @return the shard map
+   * @throws IllegalArgumentException if a pin is malformed or names an unknown shard
+   */
+  public static ShardMap parse(int shardCount, String spec) {
+    ShardMap shardMap = new ShardMap(shardCount);
+    for (String pin : spec.split(",")) {
+      if (pin.isBlank()) {
+        continue;
+      }
+      String[] parts = pin.split("=");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Malformed shard pin: " + pin.trim());
+      }
+      try {
+        shardMap.assign(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Malformed shard pin: " + pin.trim(), e);
+      }
+    }
+    return shardMap;
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return the number of shards
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Returns the shard an organization is pinned to.
+   *
+   * @param organizationId the organization id
+   * @return the shard index, null if the organization is not pinned
+   */
+  public Integer get(int organizationId) {
+    return assignments.get(organizationId);
+  }
+
+  /**
+   * Pins an organization to a shard.
+   *
+   * @param organizationId the organization id
+   * @param shard the shard index
+   * @throws IllegalArgumentException if the shard does not exist
+   */
+  public void assign(int organizationId, int shard) {
+    if (shard < 0 || shard >= shardCount) {
+      throw new IllegalArgumentException("Unknown shard: " + shard);
+    }
+    assignments.put(organizationId, shard);
+  }
+
+  /**
+   * Unpins an organization, e.g. once it is removed.
+   *
+   * @param organizationId the organization id
+   */
+  public void unassign(int organizationId) {
+    assignments.remove(organizationId);
+  }
+
+  /**
+   * Returns the shard a new organization is placed on.
+   *
+   * @param organizationId the ID allocated to the new organization
+   * @return the shard index
+   */
+  public int placeNew(int organizationId) {
+    return Math.floorMod(organizationId, shardCount);
+  }
+
+  /**
+   * Returns the pinned organizations.
+   *
+   * @return a copy of the pins, by organization id
+   */
+  public Map<Integer, Integer> getAssignments() {
+    return Map.copyOf(assignments);
+  }
+}
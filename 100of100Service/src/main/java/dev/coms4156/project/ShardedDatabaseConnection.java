@@ -0,0 +1,492 @@
+package dev.coms4156.project;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A database connection that spreads organizations over several databases.
+ * Every call is routed to the shard of its organization, so tenants on different shards never
+ * share a database. Organization IDs stay globally unique: they are all allocated by the
+ * directory shard, which keeps a row for every organization, and the per-organization ID
+ * ranges of departments and employees then cannot collide either.
+ * Designed under the Proxy Design Pattern.
+ */
+public class ShardedDatabaseConnection implements DatabaseConnection {
+  private static final Logger logger = LoggerFactory.getLogger(ShardedDatabaseConnection.class);
+
+  private final List<DatabaseConnection> shards;
+  private final ShardMap shardMap;
+  // Calls hold the read lock of their organization, so a move waits for them and blocks
+  // only the organization being moved
+  private final ConcurrentMap<Integer, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+  // When each organization last moved, in epoch milliseconds, to refuse older watermarks
+  private final ConcurrentMap<Integer, Long> moveTimes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a sharded connection.
+   *
+   * @param shards the connections of the shards, the directory shard first
+   * @param shardMap the assignment of organizations to the shards
+   * @throws IllegalArgumentException if the shard map is for another number of shards
+   */
+  public ShardedDatabaseConnection(List<DatabaseConnection> shards, ShardMap shardMap) {
+    if (shards.size() != shardMap.getShardCount()) {
+      throw new IllegalArgumentException("The shard map is for " + shardMap.getShardCount()
+          + " shards, but " + shards.size() + " are given");
+    }
+    this.shards = List.copyOf(shards);
+    this.shardMap = shardMap;
+  }
+
+  /**
+   * Returns the assignment of organizations to the shards.
+   *
+   * @return the shard map
+   */
+  public ShardMap getShardMap() {
+    return shardMap;
+  }
+
+  /**
+   * Returns the index of the shard holding an organization. An organization that is not
+   * pinned is looked up on every shard, the directory shard last since it has a row for
+   * organizations stored elsewhere, and pinned where it is found.
+   *
+   * @param organizationId the organization id
+   * @return the shard index, the directory shard if the organization is not found
+   */
+  public int shardOf(int organizationId) {
+    Integer pinned = shardMap.get(organizationId);
+    if (pinned != null) {
+      return pinned;
+    }
+    for (int i = 1; i <= shards.size(); i++) {
+      int shard = i % shards.size();
+      if (shards.get(shard).getOrganization(organizationId) != null) {
+        shardMap.assign(organizationId, shard);
+        return shard;
+      }
+    }
+    return ShardMap.DIRECTORY_SHARD;
+  }
+
+  private ReentrantReadWriteLock lockOf(int organizationId) {
+    return locks.computeIfAbsent(organizationId, id -> new ReentrantReadWriteLock());
+  }
+
+  private <T> T routed(int organizationId, Function<DatabaseConnection, T> call) {
+    ReentrantReadWriteLock lock = lockOf(organizationId);
+    lock.readLock().lock();
+    try {
+      return call.apply(shards.get(shardOf(organizationId)));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Moves an organization to another shard while the service keeps running.
+   * Calls for the organization wait until the move is over; calls for other organizations
+   * are not affected. The organization is copied, then the shard map is switched, and only
+   * then is the old copy removed, so a failed move leaves the organization where it was.
+   *
+   * @param organizationId the organization id
+   * @param targetShard the index of the shard to move it to
+   * @return true if the organization is on the target shard, false if it could not be moved
+   */
+  public boolean moveOrganization(int organizationId, int targetShard) {
+    if (targetShard < 0 || targetShard >= shards.size()) {
+      throw new IllegalArgumentException("Unknown shard: " + targetShard);
+    }
+    ReentrantReadWriteLock lock = lockOf(organizationId);
+    lock.writeLock().lock();
+    try {
+      int sourceShard = shardOf(organizationId);
+      if (sourceShard == targetShard) {
+        return true;
+      }
+      DatabaseConnection source = shards.get(sourceShard);
+      OrganizationSnapshot snapshot = source.loadFullOrganizationSnapshot(organizationId);
+      if (snapshot == null || !shards.get(targetShard).restoreOrganization(snapshot)) {
+        return false;
+      }
+      shardMap.assign(organizationId, targetShard);
+      moveTimes.put(organizationId, System.currentTimeMillis());
+
+      // The directory shard keeps the organization row, so that the ID is never handed out
+      // again; only the rows below it are removed, in one transaction
+      boolean removed = sourceShard == ShardMap.DIRECTORY_SHARD
+          ? source.removeOrganizationContents(organizationId)
+          : source.removeOrganization(organizationId);
+      if (!removed) {
+        logger.warn("Organization {} is moved to shard {}, but its copy on shard {} remains.",
+            organizationId, targetShard, sourceShard);
+      }
+      logger.info("Organization {} moved from shard {} to shard {}.",
+          organizationId, sourceShard, targetShard);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public String connectionName() {
+    return shards.stream()
+        .map(DatabaseConnection::connectionName)
+        .collect(Collectors.joining(", ", "Sharded::[", "]"));
+  }
+
+  @Override
+  public int addEmployeeToDepartment(int organizationId, int departmentId, Employee employee) {
+    return routed(organizationId,
+        shard -> shard.addEmployeeToDepartment(organizationId, departmentId, employee));
+  }
+
+  @Override
+  public Employee getEmployee(int organizationId, int externalEmployeeId) {
+    return routed(organizationId, shard -> shard.getEmployee(organizationId, externalEmployeeId));
+  }
+
+  @Override
+  public List<Employee> getEmployees(int organizationId) {
+    return routed(organizationId, shard -> shard.getEmployees(organizationId));
+  }
+
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    return routed(organizationId, shard -> shard.forEachEmployee(organizationId, action));
+  }
+
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    return routed(organizationId,
+        shard -> shard.forEachDepartmentEmployee(organizationId, action));
+  }
+
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    return routed(organizationId,
+        shard -> shard.getEmployeesPage(organizationId, afterId, limit));
+  }
+
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit) {
+    return routed(organizationId, shard -> shard.getDepartmentEmployeesPage(
+        organizationId, externalDepartmentId, afterId, limit));
+  }
+
+  @Override
+  public boolean updateEmployee(int organizationId, Employee employee) {
+    return routed(organizationId, shard -> shard.updateEmployee(organizationId, employee));
+  }
+
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    return routed(organizationId,
+        shard -> shard.compareAndSetEmployee(organizationId, employee));
+  }
+
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    return shards.stream().anyMatch(DatabaseConnection::buffersEmployeeUpdates);
+  }
+
+  @Override
+  public boolean removeEmployeeFromDepartment(
+      int organizationId, int departmentId, int employeeId) {
+    return routed(organizationId, shard -> shard.removeEmployeeFromDepartment(
+        organizationId, departmentId, employeeId));
+  }
+
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees) {
+    return routed(organizationId,
+        shard -> shard.addEmployeesToDepartment(organizationId, departmentId, employees));
+  }
+
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    return routed(organizationId, shard -> shard.updateEmployees(organizationId, employees));
+  }
+
+  @Override
+  public Department insertDepartment(int organizationId, Department department) {
+    return routed(organizationId, shard -> shard.insertDepartment(organizationId, department));
+  }
+
+  @Override
+  public Department getDepartment(int organizationId, int externalDepartmentId) {
+    return routed(organizationId,
+        shard -> shard.getDepartment(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public List<Department> getDepartments(int organizationId) {
+    return routed(organizationId, shard -> shard.getDepartments(organizationId));
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    return routed(organizationId,
+        shard -> shard.getDepartmentSalaryStatistics(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    return routed(organizationId,
+        shard -> shard.getDepartmentPerformanceStatistics(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public boolean updateDepartment(int organizationId, Department department) {
+    return routed(organizationId, shard -> shard.updateDepartment(organizationId, department));
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    return routed(organizationId,
+        shard -> shard.compareAndSetDepartment(organizationId, department));
+  }
+
+  @Override
+  public boolean removeDepartment(int organizationId, int externalDepartmentId) {
+    return routed(organizationId,
+        shard -> shard.removeDepartment(organizationId, externalDepartmentId));
+  }
+
+  /**
+   * Inserts an organization. Its ID is allocated by the directory shard, which also keeps
+   * its directory row, and the organization is then placed on a shard by ID.
+   *
+   * @param organization the organization object that contains the name
+   * @return the inserted organization with its new ID, null if failed
+   */
+  @Override
+  public Organization insertOrganization(Organization organization) {
+    DatabaseConnection directory = shards.get(ShardMap.DIRECTORY_SHARD);
+    Organization newOrganization = directory.insertOrganization(organization);
+    if (newOrganization == null) {
+      return null;
+    }
+    int shard = shardMap.placeNew(newOrganization.getId());
+    if (shard != ShardMap.DIRECTORY_SHARD && !shards.get(shard).restoreOrganization(
+        new OrganizationSnapshot(newOrganization, List.of(), List.of()))) {
+      directory.removeOrganization(newOrganization.getId());
+      return null;
+    }
+    shardMap.assign(newOrganization.getId(), shard);
+    return newOrganization;
+  }
+
+  /**
+   * Clones an organization on the shard of the source, since the copy runs inside one
+   * database, and pins the clone there. Its ID and directory row come from the directory
+   * shard, as for any new organization.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param organization the new organization
+   * @return the new organization if successful, null otherwise
+   */
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    ReentrantReadWriteLock lock = lockOf(sourceOrganizationId);
+    lock.readLock().lock();
+    try {
+      int shard = shardOf(sourceOrganizationId);
+      DatabaseConnection directory = shards.get(ShardMap.DIRECTORY_SHARD);
+      Organization clone;
+      if (shard == ShardMap.DIRECTORY_SHARD) {
+        clone = directory.cloneOrganization(sourceOrganizationId, organization);
+      } else {
+        Organization allocated = directory.insertOrganization(organization);
+        if (allocated == null) {
+          return null;
+        }
+        clone = shards.get(shard).cloneOrganization(sourceOrganizationId, allocated);
+        if (clone == null) {
+          directory.removeOrganization(allocated.getId());
+        }
+      }
+      if (clone != null) {
+        shardMap.assign(clone.getId(), shard);
+      }
+      return clone;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Organization getOrganization(int organizationId) {
+    return routed(organizationId, shard -> shard.getOrganization(organizationId));
+  }
+
+  @Override
+  public boolean updateOrganization(Organization organization) {
+    return routed(organization.getId(), shard -> shard.updateOrganization(organization));
+  }
+
+  /**
+   * Removes an organization from its shard, and its directory row from the directory shard.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization is removed, false otherwise
+   */
+  @Override
+  public boolean removeOrganization(int organizationId) {
+    ReentrantReadWriteLock lock = lockOf(organizationId);
+    lock.writeLock().lock();
+    try {
+      int shard = shardOf(organizationId);
+      if (!shards.get(shard).removeOrganization(organizationId)) {
+        return false;
+      }
+      if (shard != ShardMap.DIRECTORY_SHARD) {
+        shards.get(ShardMap.DIRECTORY_SHARD).removeOrganization(organizationId);
+      }
+      shardMap.unassign(organizationId);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    return routed(organizationId, shard -> shard.removeOrganizationContents(organizationId));
+  }
+
+  /**
+   * Marks an organization for removal on its shard, and its directory row on the directory
+   * shard, so the directory row is reclaimed last.
+   *
+   * @param organizationId the organization id
+   * @return true if the organization is marked, false otherwise
+   */
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    ReentrantReadWriteLock lock = lockOf(organizationId);
+    lock.writeLock().lock();
+    try {
+      int shard = shardOf(organizationId);
+      if (!shards.get(shard).markOrganizationForRemoval(organizationId)) {
+        return false;
+      }
+      if (shard != ShardMap.DIRECTORY_SHARD) {
+        shards.get(ShardMap.DIRECTORY_SHARD).markOrganizationForRemoval(organizationId);
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    Set<Integer> pending = new LinkedHashSet<>();
+    for (DatabaseConnection shard : shards) {
+      List<Integer> organizationIds = shard.getOrganizationsPendingRemoval();
+      if (organizationIds == null) {
+        return null;
+      }
+      pending.addAll(organizationIds);
+    }
+    return new ArrayList<>(pending);
+  }
+
+  /**
+   * Deletes one chunk of the rows of an organization marked for removal. A marked
+   * organization is no longer found by shardOf, so the shards are visited in lookup order,
+   * the directory shard last, and the first shard with rows left deletes the chunk.
+   *
+   * @param organizationId the organization id
+   * @param chunkSize the maximum number of employees or departments deleted by the chunk
+   * @return the number of rows deleted, 0 once nothing is left on any shard, or -1 on failure
+   */
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    for (int i = 1; i <= shards.size(); i++) {
+      int deleted = shards.get(i % shards.size()).removeOrganizationChunk(
+          organizationId, chunkSize);
+      if (deleted != 0) {
+        return deleted;
+      }
+    }
+    shardMap.unassign(organizationId);
+    return 0;
+  }
+
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    return routed(organizationId, shard -> shard.loadOrganizationSnapshot(organizationId));
+  }
+
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    return routed(organizationId, shard -> shard.loadFullOrganizationSnapshot(organizationId));
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    int organizationId = snapshot.getOrganization().getId();
+    return routed(organizationId, shard -> shard.restoreOrganization(snapshot));
+  }
+
+  /**
+   * Returns the changes of an organization on its shard. A watermark is only meaningful to
+   * the database that issued it, so every delta asked for since a watermark older than the
+   * last move of the organization is refused, and the caller reloads the organization from
+   * its new shard. Watermarks are database timestamps, so this relies on the shards and the
+   * service sharing a synchronized clock; a watermark issued by the new shard just after the
+   * move may be refused too, which only costs another reload.
+   */
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    Long movedAt = moveTimes.get(organizationId);
+    if (movedAt != null && watermark < movedAt) {
+      return null;
+    }
+    return routed(organizationId, shard -> shard.getChangesSince(organizationId, watermark));
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    return routed(organizationId,
+        shard -> shard.getEmployeeContactInfo(organizationId, externalEmployeeId));
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    return routed(organizationId, shard -> shard.setEmployeeContactField(
+        organizationId, externalEmployeeId, field, value));
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    return routed(organizationId, shard -> shard.getOrganizationDetails(organizationId));
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    return routed(organizationId,
+        shard -> shard.setOrganizationDetail(organizationId, field, value));
+  }
+}
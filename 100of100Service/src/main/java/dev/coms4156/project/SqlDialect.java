@@ -0,0 +1,295 @@
+package dev.coms4156.project;
+
+import com.zaxxer.hikari.HikariConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * The differences between the database engines the JDBC connection runs on.
+ * The SQL itself is shared: H2 runs in MySQL compatibility mode.
+ */
+public enum SqlDialect {
+  /**
+   * MySQL through Connector/J. The schema is created by an operator from create_mysql.sql.
+   */
+  MYSQL {
+    @Override
+    void configure(HikariConfig config) {
+      // Let the driver reuse server-side prepared statements across borrows
+      config.addDataSourceProperty("cachePrepStmts", "true");
+      config.addDataSourceProperty("prepStmtCacheSize", "250");
+      config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+      config.addDataSourceProperty("useServerPrepStmts", "true");
+      config.addDataSourceProperty("rewriteBatchedStatements", "true");
+      // Bound every network wait, so that a stalled server fails calls instead of hanging them
+      config.addDataSourceProperty(
+          "connectTimeout", Integer.getInteger("db.connectTimeoutMs", 5_000));
+      config.addDataSourceProperty(
+          "socketTimeout", Integer.getInteger("db.socketTimeoutMs", 30_000));
+    }
+
+    @Override
+    int streamFetchSize() {
+      // Integer.MIN_VALUE makes Connector/J stream rows one by one instead of buffering them all
+      return Integer.getInteger("db.streamFetchSize", Integer.MIN_VALUE);
+    }
+
+    @Override
+    boolean supportsJsonSet() {
+      return true;
+    }
+
+    @Override
+    String jsonParameter() {
+      return "?";
+    }
+
+    @Override
+    boolean supportsPartitioning() {
+      return true;
+    }
+
+    @Override
+    List<String> migrationLocations() {
+      return List.of(SchemaMigrator.DEFAULT_LOCATION, "classpath:db/migration/mysql/V*__*.sql");
+    }
+
+    @Override
+    void createBaseSchema(DataSource dataSource) {
+      // Managed outside the service
+    }
+
+    /**
+     * Defers the partitioning migration unless the operator opts in, since it rebuilds the
+     * organization-scoped tables under lock. Partitioned tables cannot keep foreign keys, so
+     * they are dropped first, under the names the schema actually gives them.
+     */
+    @Override
+    boolean prepareMigration(Connection conn, int version) throws SQLException {
+      if (version != PARTITION_MIGRATION) {
+        return true;
+      }
+      if (!Boolean.getBoolean("db.partitions.migrate")) {
+        logger.warn("Migration V{} partitions the organization-scoped tables and rebuilds them "
+            + "under lock; start with -Ddb.partitions.migrate=true in a maintenance window "
+            + "to apply it.", version);
+        return false;
+      }
+      List<String> drops = new ArrayList<>();
+      List<String> missing = new ArrayList<>();
+      try (PreparedStatement pstmt = conn.prepareStatement(SELECT_FOREIGN_KEY)) {
+        for (String[] foreignKey : PARTITIONED_FOREIGN_KEYS) {
+          pstmt.setString(1, foreignKey[0]);
+          pstmt.setString(2, foreignKey[1]);
+          boolean found = false;
+          try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+              found = true;
+              drops.add("ALTER TABLE " + foreignKey[0] + " DROP FOREIGN KEY `"
+                  + rs.getString(1) + "`");
+            }
+          }
+          if (!found) {
+            missing.add(foreignKey[0] + " -> " + foreignKey[1]);
+          }
+        }
+      }
+      if (!missing.isEmpty()) {
+        throw new SQLException("Migration V" + version + " expects the foreign keys "
+            + missing + " of create_mysql.sql, which are not in information_schema; "
+            + "the schema must match create_mysql.sql before it is partitioned.");
+      }
+      try (Statement stmt = conn.createStatement()) {
+        for (String drop : drops) {
+          stmt.execute(drop);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    SchemaMigrator.MigrationLock lockMigrations(DataSource dataSource, Connection conn)
+        throws SQLException {
+      return SchemaMigrator.namedLock(dataSource, conn);
+    }
+  },
+
+  /**
+   * Embedded H2 in MySQL mode. The base schema is created from create_mysql.sql on first use.
+   */
+  H2 {
+    @Override
+    void configure(HikariConfig config) {
+      // Nothing to tune for an in-process engine
+    }
+
+    @Override
+    int streamFetchSize() {
+      return Integer.getInteger("db.streamFetchSize", 1000);
+    }
+
+    @Override
+    boolean supportsJsonSet() {
+      return false;
+    }
+
+    @Override
+    String jsonParameter() {
+      // A plain string parameter would be stored as a JSON string, not parsed
+      return "? FORMAT JSON";
+    }
+
+    @Override
+    boolean supportsPartitioning() {
+      return false;
+    }
+
+    @Override
+    List<String> migrationLocations() {
+      return List.of(SchemaMigrator.DEFAULT_LOCATION);
+    }
+
+    @Override
+    void createBaseSchema(DataSource dataSource) throws SQLException, IOException {
+      try (Connection conn = dataSource.getConnection()) {
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, "organizations", null)) {
+          if (rs.next()) {
+            return;
+          }
+        }
+        String script;
+        try (InputStream in = new ClassPathResource(BASE_SCHEMA).getInputStream()) {
+          script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement stmt = conn.createStatement()) {
+          for (String sql : SchemaMigrator.splitStatements(script)) {
+            String upper = sql.toUpperCase(Locale.ROOT);
+            // The embedded database is the schema, so database-level statements are skipped
+            if (upper.startsWith("DROP DATABASE") || upper.startsWith("CREATE DATABASE")
+                || upper.startsWith("USE ")) {
+              continue;
+            }
+            stmt.execute(sql);
+          }
+        }
+      }
+    }
+  };
+
+  /**
+   * The classpath location of the MySQL schema script.
+   */
+  static final String BASE_SCHEMA = "database/create_mysql.sql";
+
+  /**
+   * The version of the MySQL migration partitioning the tables by organization.
+   */
+  static final int PARTITION_MIGRATION = 6;
+
+  private static final Logger logger = LoggerFactory.getLogger(SqlDialect.class);
+  // The foreign keys of create_mysql.sql between the tables partitioned by V6, as
+  // (table, referenced table); MySQL generated most of their names
+  private static final String[][] PARTITIONED_FOREIGN_KEYS = {
+      {"departments", "employees"},
+      {"departments", "organizations"},
+      {"shifts", "employees"},
+      {"employees", "organizations"},
+      {"employees", "departments"}
+  };
+  private static final String SELECT_FOREIGN_KEY =
+      "SELECT constraint_name FROM information_schema.referential_constraints "
+          + "WHERE constraint_schema = DATABASE() AND table_name = ? "
+          + "AND referenced_table_name = ?";
+
+  /**
+   * Sets the driver properties of the connection pool.
+   *
+   * @param config the pool configuration
+   */
+  abstract void configure(HikariConfig config);
+
+  /**
+   * Returns the fetch size that makes the driver stream a large result set.
+   *
+   * @return the fetch size
+   */
+  abstract int streamFetchSize();
+
+  /**
+   * Returns whether the engine can change one field of a JSON document in place, with
+   * JSON_SET and JSON_REMOVE. Otherwise the document is read and written back whole.
+   *
+   * @return true if JSON_SET and JSON_REMOVE are available
+   */
+  abstract boolean supportsJsonSet();
+
+  /**
+   * Returns the placeholder binding a JSON document given as text.
+   *
+   * @return the placeholder
+   */
+  abstract String jsonParameter();
+
+  /**
+   * Returns whether the organization-scoped tables are partitioned by organization, so that
+   * an organization isolated in its own partitions can be removed by dropping them.
+   *
+   * @return true if the tables are partitioned
+   */
+  abstract boolean supportsPartitioning();
+
+  /**
+   * Returns the resource patterns of the migration scripts for the engine: the shared ones,
+   * then those only this engine supports. Versions are numbered across all locations.
+   *
+   * @return the resource patterns
+   */
+  abstract List<String> migrationLocations();
+
+  /**
+   * Creates the base schema if the engine does not come with one.
+   *
+   * @param dataSource the database
+   * @throws SQLException if the schema cannot be created
+   * @throws IOException if the schema script cannot be read
+   */
+  abstract void createBaseSchema(DataSource dataSource) throws SQLException, IOException;
+
+  /**
+   * Prepares the database for a pending migration, or defers it.
+   *
+   * @param conn the connection the migration is applied with
+   * @param version the version of the migration
+   * @return true to apply the migration now, false to leave it pending
+   * @throws SQLException if the database cannot be prepared
+   */
+  boolean prepareMigration(Connection conn, int version) throws SQLException {
+    return true;
+  }
+
+  /**
+   * Takes the lock that keeps other instances from migrating the database at the same time.
+   *
+   * @param dataSource the database being migrated
+   * @param conn the connection the migrations are applied with
+   * @return the lock, released by closing it
+   * @throws SQLException if the lock cannot be taken
+   */
+  SchemaMigrator.MigrationLock lockMigrations(DataSource dataSource, Connection conn)
+      throws SQLException {
+    return SchemaMigrator.lockRow(dataSource, conn);
+  }
+}
@@ -0,0 +1,241 @@
+package dev.coms4156.project;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statement-level hooks for JDBC connections.
+ * Wrapped connections hand out prepared statements that record the latency and row count of
+ * every execution per SQL template, and log executions slower than a threshold to the
+ * slow-query log together with the types of their bind parameters and, optionally, the
+ * EXPLAIN plan of the query. Parameter values are never logged.
+ */
+public class StatementInstrumentation {
+  private static final Logger slowQueryLog =
+      LoggerFactory.getLogger("dev.coms4156.project.SlowQueryLog");
+  // Multi-row inserts differ only in their number of rows, so they share one template
+  private static final Pattern REPEATED_ROWS =
+      Pattern.compile("(\\(\\?(?:, \\?)*\\))(?:, \\(\\?(?:, \\?)*\\))+");
+
+  private final QueryMetrics metrics = new QueryMetrics();
+  private final long slowQueryNanos;
+  private final boolean explainSlowQueries;
+
+  /**
+   * Constructs the statement hooks.
+   *
+   * @param slowQueryMillis the latency from which an execution is logged as slow
+   * @param explainSlowQueries whether to capture the EXPLAIN plan of slow queries
+   */
+  public StatementInstrumentation(long slowQueryMillis, boolean explainSlowQueries) {
+    this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    this.explainSlowQueries = explainSlowQueries;
+  }
+
+  /**
+   * Returns the metrics of the executed statements.
+   *
+   * @return the metrics, by SQL template
+   */
+  public QueryMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Wraps a connection so that its prepared statements are measured.
+   *
+   * @param conn the connection to wrap
+   * @return the wrapped connection
+   */
+  public Connection wrap(Connection conn) {
+    return proxy(Connection.class, (proxy, method, args) -> {
+      Object result = invoke(conn, method, args);
+      if (result instanceof PreparedStatement && args != null && args[0] instanceof String) {
+        String template = REPEATED_ROWS.matcher((String) args[0]).replaceAll("$1, ...");
+        return proxy(PreparedStatement.class,
+            new StatementHandler(conn, (PreparedStatement) result, (String) args[0], template));
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Records one execution of a statement and logs it if it was slow.
+   *
+   * @param handler the executed statement
+   * @param nanos the time spent executing and fetching
+   * @param rows the number of rows returned or changed
+   */
+  private void record(StatementHandler handler, long nanos, long rows) {
+    metrics.record(handler.template, nanos, rows);
+    if (nanos < slowQueryNanos) {
+      return;
+    }
+    StringJoiner shapes = new StringJoiner(", ", "[", "]");
+    handler.parameters.values().forEach(value ->
+        shapes.add(value == null ? "null" : value.getClass().getSimpleName()));
+    if (explainSlowQueries && handler.sql.trim().regionMatches(true, 0, "SELECT", 0, 6)) {
+      slowQueryLog.warn("Slow query ({} ms, {} rows): {} params={}\n{}",
+          TimeUnit.NANOSECONDS.toMillis(nanos), rows, handler.template, shapes, explain(handler));
+    } else {
+      slowQueryLog.warn("Slow query ({} ms, {} rows): {} params={}",
+          TimeUnit.NANOSECONDS.toMillis(nanos), rows, handler.template, shapes);
+    }
+  }
+
+  /**
+   * Runs EXPLAIN for a query with the parameters it was executed with.
+   *
+   * @param handler the executed statement
+   * @return the plan, one line per row
+   */
+  private static String explain(StatementHandler handler) {
+    // The SQL comes from a prepared statement of the connection, never from a request
+    try (PreparedStatement pstmt = handler.conn.prepareStatement("EXPLAIN " + handler.sql)) {
+      for (Map.Entry<Integer, Object> parameter : handler.parameters.entrySet()) {
+        if (parameter.getValue() == null) {
+          pstmt.setNull(parameter.getKey(), Types.NULL);
+        } else {
+          pstmt.setObject(parameter.getKey(), parameter.getValue());
+        }
+      }
+      StringJoiner plan = new StringJoiner("\n");
+      try (ResultSet rs = pstmt.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        while (rs.next()) {
+          StringJoiner row = new StringJoiner(" | ");
+          for (int column = 1; column <= meta.getColumnCount(); column++) {
+            row.add(meta.getColumnLabel(column) + "=" + rs.getString(column));
+          }
+          plan.add(row.toString());
+        }
+      }
+      return plan.toString();
+    } catch (SQLException e) {
+      return "EXPLAIN failed: " + e.getMessage();
+    }
+  }
+
+  /**
+   * Measures the executions of one prepared statement.
+   */
+  private final class StatementHandler implements InvocationHandler {
+    private final Connection conn;
+    private final PreparedStatement target;
+    private final String sql;
+    private final String template;
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+
+    private StatementHandler(
+        Connection conn, PreparedStatement target, String sql, String template) {
+      this.conn = conn;
+      this.target = target;
+      this.sql = sql;
+      this.template = template;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.startsWith("set") && args != null && args.length >= 2
+          && args[0] instanceof Integer) {
+        parameters.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+      } else if ("clearParameters".equals(name)) {
+        parameters.clear();
+      }
+      if (!name.startsWith("execute") || (args != null && args.length > 0)) {
+        return StatementInstrumentation.invoke(target, method, args);
+      }
+
+      long start = System.nanoTime();
+      Object result = StatementInstrumentation.invoke(target, method, args);
+      long nanos = System.nanoTime() - start;
+      if (result instanceof ResultSet) {
+        // Rows are counted as they are fetched and recorded when the result set is closed
+        return proxy(ResultSet.class, new ResultSetHandler(this, (ResultSet) result, nanos));
+      }
+      record(this, nanos, rowsOf(result));
+      return result;
+    }
+
+    private long rowsOf(Object result) {
+      if (result instanceof int[]) {
+        long rows = 0;
+        for (int count : (int[]) result) {
+          rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+        }
+        return rows;
+      }
+      if (result instanceof Number) {
+        return ((Number) result).longValue();
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Counts the rows fetched from a result set and the time spent fetching them.
+   */
+  private final class ResultSetHandler implements InvocationHandler {
+    private final StatementHandler statement;
+    private final ResultSet target;
+    private long nanos;
+    private long rows;
+    private boolean recorded;
+
+    private ResultSetHandler(StatementHandler statement, ResultSet target, long executeNanos) {
+      this.statement = statement;
+      this.target = target;
+      this.nanos = executeNanos;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("next".equals(name)) {
+        // Only the fetch is timed, not what the caller does with each row
+        long start = System.nanoTime();
+        Object hasRow = StatementInstrumentation.invoke(target, method, args);
+        nanos += System.nanoTime() - start;
+        if (Boolean.TRUE.equals(hasRow)) {
+          rows++;
+        }
+        return hasRow;
+      }
+      if ("close".equals(name) && !recorded) {
+        recorded = true;
+        record(statement, nanos, rows);
+      }
+      return StatementInstrumentation.invoke(target, method, args);
+    }
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(
+        StatementInstrumentation.class.getClassLoader(), new Class<?>[] {type}, handler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,681 @@
+package dev.coms4156.project;
+
+import dev.coms4156.project.exception.InternalServerErrorException;
+import dev.coms4156.project.utils.CodecUtils;
+import dev.coms4156.project.utils.FixedPoint;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A write-behind decorator of a database connection for employee attribute updates.
+ * An update is acknowledged once it is appended and synced to a local journal. Repeated
+ * updates to the same employee are merged, and the pending updates are written to the
+ * underlying connection in one batch per organization at least every maxStalenessMs.
+ * Reads see pending updates. Every other call goes straight to the underlying connection.
+ * On startup the journal is replayed, so acknowledged updates survive a crash.
+ * Updates the underlying connection fails to write are never dropped: they stay pending and
+ * journaled, and are retried with a growing delay until the write succeeds.
+ */
+public class WriteBehindConnection implements DatabaseConnection, AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(WriteBehindConnection.class);
+  private static final String NULL_FIELD = "~";
+  private static final long MAX_RETRY_DELAY_MS = 60_000L;
+
+  private final DatabaseConnection delegate;
+  private final Path journalPath;
+  private final Path flushingPath;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final ScheduledExecutorService scheduler;
+  private final long retryDelayMs;
+  // Consecutive failed writes and the earliest next attempt, by organization; flush lock held
+  private final Map<Integer, Integer> failedFlushes = new HashMap<>();
+  private final Map<Integer, Long> retryAt = new HashMap<>();
+  private Map<Integer, Map<Integer, Employee>> pending = new LinkedHashMap<>();
+  // Updates taken by the running flush and not written yet, still counted as pending
+  private int flushing;
+  private FileChannel journal;
+  private boolean closed;
+
+  /**
+   * Constructs a write-behind connection and replays any journal left by a previous run.
+   *
+   * @param delegate the connection the updates are eventually written to
+   * @param journalPath the file acknowledged updates are journaled to
+   * @param maxStalenessMs the longest time an update stays pending, in milliseconds
+   */
+  public WriteBehindConnection(DatabaseConnection delegate, Path journalPath, long maxStalenessMs) {
+    this.delegate = delegate;
+    this.journalPath = journalPath;
+    this.flushingPath = journalPath.resolveSibling(journalPath.getFileName() + ".flushing");
+    this.retryDelayMs = Math.min(maxStalenessMs, MAX_RETRY_DELAY_MS);
+    try {
+      replay(flushingPath);
+      replay(journalPath);
+      this.journal = openJournal();
+    } catch (IOException e) {
+      throw (InternalServerErrorException)
+          new InternalServerErrorException("Failed to open the write-behind journal.").initCause(e);
+    }
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "write-behind-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler.scheduleWithFixedDelay(
+        this::flushQuietly, maxStalenessMs, maxStalenessMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public String connectionName() {
+    return "WriteBehind::" + delegate.connectionName();
+  }
+
+  // Buffered writes //
+
+  @Override
+  public boolean updateEmployee(int organizationId, Employee employee) {
+    return updateEmployees(organizationId, List.of(employee)) == 1;
+  }
+
+  /**
+   * Bypasses the buffer: flushes the buffered updates first, so that none of them can land
+   * after, and silently overwrite, a compare-and-set that has already succeeded. Frequent
+   * changes should go through updateEmployee instead, see buffersEmployeeUpdates.
+   */
+  @Override
+  public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+    try {
+      flush();
+    } catch (IOException e) {
+      logger.error("Failed to flush employee updates before compare-and-set.", e);
+      return false;
+    }
+    return delegate.compareAndSetEmployee(organizationId, employee);
+  }
+
+  /**
+   * Updates are acknowledged once journaled, until the connection is closed.
+   */
+  @Override
+  public boolean buffersEmployeeUpdates() {
+    lock.lock();
+    try {
+      return !closed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int updateEmployees(int organizationId, List<Employee> employees) {
+    lock.lock();
+    try {
+      if (closed) {
+        return delegate.updateEmployees(organizationId, employees);
+      }
+      StringBuilder records = new StringBuilder();
+      for (Employee employee : employees) {
+        records.append(toRecord(organizationId, employee)).append('\n');
+      }
+      journal.write(ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8)));
+      journal.force(false);
+      Map<Integer, Employee> organizationPending =
+          pending.computeIfAbsent(organizationId, id -> new LinkedHashMap<>());
+      for (Employee employee : employees) {
+        organizationPending.put(employee.getId(), copyOf(employee));
+      }
+      return employees.size();
+    } catch (IOException e) {
+      logger.error("Failed to journal employee updates.", e);
+      return 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes every pending update to the underlying connection, also those of organizations
+   * whose writes are being retried. Updates that cannot be written are kept, with the
+   * journal records holding them, and retried by a later flush.
+   *
+   * @throws IOException if the journal cannot be rotated
+   */
+  public void flush() throws IOException {
+    flush(true);
+  }
+
+  private void flush(boolean force) throws IOException {
+    flushLock.lock();
+    try {
+      Map<Integer, Map<Integer, Employee>> batch;
+      lock.lock();
+      try {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new LinkedHashMap<>();
+        rotateJournal();
+        flushing = batch.values().stream().mapToInt(Map::size).sum();
+      } finally {
+        lock.unlock();
+      }
+
+      boolean allWritten = true;
+      for (Map.Entry<Integer, Map<Integer, Employee>> entry : batch.entrySet()) {
+        boolean written = writeOrganization(entry.getKey(), entry.getValue(), force);
+        lock.lock();
+        try {
+          flushing -= entry.getValue().size();
+          if (!written) {
+            // Put the updates back behind any newer ones that arrived during the flush
+            Map<Integer, Employee> organizationPending =
+                pending.computeIfAbsent(entry.getKey(), id -> new LinkedHashMap<>());
+            for (Employee employee : entry.getValue().values()) {
+              organizationPending.putIfAbsent(employee.getId(), employee);
+            }
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (!written) {
+          allWritten = false;
+        }
+      }
+      // The rotated journal still holds the records of unwritten updates until they succeed
+      if (allWritten) {
+        Files.deleteIfExists(flushingPath);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Flushes the pending updates and stops the periodic flush.
+   * Later updates are written through to the underlying connection.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    flushQuietly();
+    lock.lock();
+    try {
+      closed = true;
+      journal.close();
+    } catch (IOException e) {
+      logger.error("Failed to close the write-behind journal.", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of updates waiting to be written, including those a running flush
+   * is writing.
+   *
+   * @return the number of pending updates
+   */
+  public int getPendingCount() {
+    lock.lock();
+    try {
+      return pending.values().stream().mapToInt(Map::size).sum() + flushing;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush(false);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Write-behind flush failed.", e);
+    }
+  }
+
+  /**
+   * Writes the updates of an organization, unless its writes are being retried and the retry
+   * is not due yet. A failed write delays the next retry twice as long, up to a minute.
+   * Must be called with the flush lock held.
+   *
+   * @return true if the updates were written, false if they are still pending
+   */
+  private boolean writeOrganization(
+      int organizationId, Map<Integer, Employee> updates, boolean force) {
+    Long due = retryAt.get(organizationId);
+    if (!force && due != null && System.nanoTime() - due < 0) {
+      return false;
+    }
+    List<Employee> employees = new ArrayList<>(updates.values());
+    int written;
+    try {
+      written = delegate.updateEmployees(organizationId, employees);
+    } catch (RuntimeException e) {
+      logger.error("Failed to write updates of organization [{}].", organizationId, e);
+      written = 0;
+    }
+    if (written > 0 || employees.isEmpty()) {
+      failedFlushes.remove(organizationId);
+      retryAt.remove(organizationId);
+      return true;
+    }
+    int attempts = failedFlushes.merge(organizationId, 1, Integer::sum);
+    long delayMs = Math.min(MAX_RETRY_DELAY_MS, retryDelayMs << Math.min(attempts - 1, 16));
+    retryAt.put(organizationId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+    logger.warn("Failed to write {} updates of organization [{}] ({} attempts); "
+        + "retrying in {} ms, {} updates pending in total.",
+        employees.size(), organizationId, attempts, delayMs, getPendingCount());
+    return false;
+  }
+
+  // Journal //
+
+  private FileChannel openJournal() throws IOException {
+    return FileChannel.open(journalPath,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Moves the current journal behind the one being flushed and starts a new one.
+   * Must be called with the lock held.
+   */
+  private void rotateJournal() throws IOException {
+    journal.close();
+    if (Files.exists(flushingPath)) {
+      // A previous flush left updates behind; keep them in front of the newer ones
+      Files.write(flushingPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+      Files.delete(journalPath);
+    } else {
+      Files.move(journalPath, flushingPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+    journal = openJournal();
+  }
+
+  private void replay(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    int replayed = 0;
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      String[] fields = line.split("\t", -1);
+      if (fields.length != 6) {
+        // A torn final record from a crash mid-write was never acknowledged
+        continue;
+      }
+      Employee employee = new Employee(
+          Integer.parseInt(fields[1]), decodeField(fields[2]), null, decodeField(fields[3]), 0, 0);
+      employee.setSalaryCents(parseUnits(fields[4]));
+      employee.setPerformanceBasisPoints(parseUnits(fields[5]));
+      pending.computeIfAbsent(Integer.parseInt(fields[0]), id -> new LinkedHashMap<>())
+          .put(employee.getId(), employee);
+      replayed++;
+    }
+    if (replayed > 0) {
+      logger.info("Replayed {} journaled employee updates from {}.", replayed, path);
+    }
+  }
+
+  private static String toRecord(int organizationId, Employee employee) {
+    return organizationId + "\t" + employee.getId()
+        + "\t" + encodeField(employee.getName())
+        + "\t" + encodeField(employee.getPosition())
+        + "\t" + employee.getSalaryCents()
+        + "\t" + employee.getPerformanceBasisPoints();
+  }
+
+  /**
+   * Parses a salary or performance field of a record, which holds the exact cents or basis
+   * points. Records journaled before that hold the value as a decimal.
+   */
+  private static long parseUnits(String field) {
+    if (field.indexOf('.') < 0 && field.indexOf('E') < 0) {
+      return Long.parseLong(field);
+    }
+    return FixedPoint.toUnits(new BigDecimal(field));
+  }
+
+  private static String encodeField(String value) {
+    return value == null ? NULL_FIELD : CodecUtils.encode(value);
+  }
+
+  private static String decodeField(String field) {
+    return NULL_FIELD.equals(field) ? null : CodecUtils.decode(field);
+  }
+
+  private static Employee copyOf(Employee employee) {
+    Employee copy = new Employee(employee.getId(), employee.getName(), employee.getHireDate(),
+        employee.getPosition(), 0, 0);
+    copy.setSalaryCents(employee.getSalaryCents());
+    copy.setPerformanceBasisPoints(employee.getPerformanceBasisPoints());
+    return copy;
+  }
+
+  // Reads see pending updates //
+
+  private Map<Integer, Employee> pendingFor(int organizationId) {
+    lock.lock();
+    try {
+      Map<Integer, Employee> organizationPending = pending.get(organizationId);
+      return organizationPending == null ? Map.of() : new HashMap<>(organizationPending);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static Employee overlay(Map<Integer, Employee> updates, Employee employee) {
+    if (employee != null) {
+      Employee update = updates.get(employee.getId());
+      if (update != null) {
+        employee.setPosition(update.getPosition());
+        employee.setSalaryCents(update.getSalaryCents());
+        employee.setPerformanceBasisPoints(update.getPerformanceBasisPoints());
+      }
+    }
+    return employee;
+  }
+
+  private static List<Employee> overlay(Map<Integer, Employee> updates, List<Employee> employees) {
+    if (employees != null && !updates.isEmpty()) {
+      for (Employee employee : employees) {
+        overlay(updates, employee);
+      }
+    }
+    return employees;
+  }
+
+  private static Department overlay(Map<Integer, Employee> updates, Department department) {
+    if (department != null && !updates.isEmpty()) {
+      overlay(updates, department.getEmployees());
+      overlay(updates, department.getHead());
+    }
+    return department;
+  }
+
+  @Override
+  public Employee getEmployee(int organizationId, int externalEmployeeId) {
+    return overlay(pendingFor(organizationId),
+        delegate.getEmployee(organizationId, externalEmployeeId));
+  }
+
+  @Override
+  public List<Employee> getEmployees(int organizationId) {
+    return overlay(pendingFor(organizationId), delegate.getEmployees(organizationId));
+  }
+
+  @Override
+  public int forEachEmployee(int organizationId, Consumer<Employee> action) {
+    Map<Integer, Employee> updates = pendingFor(organizationId);
+    return delegate.forEachEmployee(organizationId, e -> action.accept(overlay(updates, e)));
+  }
+
+  @Override
+  public int forEachDepartmentEmployee(int organizationId, ObjIntConsumer<Employee> action) {
+    Map<Integer, Employee> updates = pendingFor(organizationId);
+    return delegate.forEachDepartmentEmployee(organizationId,
+        (e, departmentId) -> action.accept(overlay(updates, e), departmentId));
+  }
+
+  @Override
+  public List<Employee> getEmployeesPage(int organizationId, int afterId, int limit) {
+    return overlay(pendingFor(organizationId),
+        delegate.getEmployeesPage(organizationId, afterId, limit));
+  }
+
+  @Override
+  public List<Employee> getDepartmentEmployeesPage(
+      int organizationId, int externalDepartmentId, int afterId, int limit
+  ) {
+    return overlay(pendingFor(organizationId), delegate.getDepartmentEmployeesPage(
+        organizationId, externalDepartmentId, afterId, limit));
+  }
+
+  @Override
+  public Department getDepartment(int organizationId, int externalDepartmentId) {
+    return overlay(pendingFor(organizationId),
+        delegate.getDepartment(organizationId, externalDepartmentId));
+  }
+
+  @Override
+  public List<Department> getDepartments(int organizationId) {
+    Map<Integer, Employee> updates = pendingFor(organizationId);
+    List<Department> departments = delegate.getDepartments(organizationId);
+    for (Department department : departments) {
+      overlay(updates, department);
+    }
+    return departments;
+  }
+
+  @Override
+  public OrganizationSnapshot loadOrganizationSnapshot(int organizationId) {
+    return overlaySnapshot(organizationId, delegate.loadOrganizationSnapshot(organizationId));
+  }
+
+  @Override
+  public OrganizationSnapshot loadFullOrganizationSnapshot(int organizationId) {
+    return overlaySnapshot(organizationId, delegate.loadFullOrganizationSnapshot(organizationId));
+  }
+
+  private OrganizationSnapshot overlaySnapshot(int organizationId, OrganizationSnapshot snapshot) {
+    if (snapshot != null) {
+      Map<Integer, Employee> updates = pendingFor(organizationId);
+      overlay(updates, snapshot.getEmployees());
+      for (Department department : snapshot.getDepartments()) {
+        overlay(updates, department);
+      }
+    }
+    return snapshot;
+  }
+
+  @Override
+  public OrganizationDelta getChangesSince(int organizationId, long watermark) {
+    OrganizationDelta delta = delegate.getChangesSince(organizationId, watermark);
+    if (delta != null) {
+      // Pending updates are already in the caller's cache, and reach the delta once flushed
+      overlay(pendingFor(organizationId), delta.getEmployees());
+    }
+    return delta;
+  }
+
+  // Everything else is written through //
+
+  @Override
+  public int addEmployeeToDepartment(int organizationId, int departmentId, Employee employee) {
+    return delegate.addEmployeeToDepartment(organizationId, departmentId, employee);
+  }
+
+  @Override
+  public List<Integer> addEmployeesToDepartment(
+      int organizationId, int departmentId, List<Employee> employees
+  ) {
+    return delegate.addEmployeesToDepartment(organizationId, departmentId, employees);
+  }
+
+  @Override
+  public boolean removeEmployeeFromDepartment(
+      int organizationId, int departmentId, int employeeId
+  ) {
+    boolean removed =
+        delegate.removeEmployeeFromDepartment(organizationId, departmentId, employeeId);
+    if (removed) {
+      lock.lock();
+      try {
+        Map<Integer, Employee> organizationPending = pending.get(organizationId);
+        if (organizationPending != null) {
+          organizationPending.remove(employeeId % 10000);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public Department insertDepartment(int organizationId, Department department) {
+    return delegate.insertDepartment(organizationId, department);
+  }
+
+  /**
+   * Aggregated by the database unless updates of the organization are still pending, in which
+   * case the statistics are computed from the department with its pending updates applied.
+   */
+  @Override
+  public Map<String, Object> getDepartmentSalaryStatistics(
+      int organizationId, int externalDepartmentId) {
+    if (pendingFor(organizationId).isEmpty()) {
+      return delegate.getDepartmentSalaryStatistics(organizationId, externalDepartmentId);
+    }
+    Department department = getDepartment(organizationId, externalDepartmentId);
+    return department == null ? null : department.getEmployeeSalaryStatisticMap();
+  }
+
+  /**
+   * Like getDepartmentSalaryStatistics, falls back to the overlaid department while updates
+   * are pending.
+   */
+  @Override
+  public Map<String, Object> getDepartmentPerformanceStatistics(
+      int organizationId, int externalDepartmentId) {
+    if (pendingFor(organizationId).isEmpty()) {
+      return delegate.getDepartmentPerformanceStatistics(organizationId, externalDepartmentId);
+    }
+    Department department = getDepartment(organizationId, externalDepartmentId);
+    return department == null ? null : department.getEmployeePerformanceCutoffMap();
+  }
+
+  @Override
+  public boolean updateDepartment(int organizationId, Department department) {
+    return delegate.updateDepartment(organizationId, department);
+  }
+
+  @Override
+  public boolean compareAndSetDepartment(int organizationId, Department department) {
+    return delegate.compareAndSetDepartment(organizationId, department);
+  }
+
+  @Override
+  public boolean removeDepartment(int organizationId, int externalDepartmentId) {
+    return delegate.removeDepartment(organizationId, externalDepartmentId);
+  }
+
+  @Override
+  public Organization insertOrganization(Organization organization) {
+    return delegate.insertOrganization(organization);
+  }
+
+  /**
+   * Clones an organization once the pending updates are written, so the clone has them.
+   *
+   * @param sourceOrganizationId the id of the organization to copy
+   * @param organization the new organization
+   * @return the new organization if successful, null otherwise
+   */
+  @Override
+  public Organization cloneOrganization(int sourceOrganizationId, Organization organization) {
+    flushQuietly();
+    return delegate.cloneOrganization(sourceOrganizationId, organization);
+  }
+
+  @Override
+  public boolean restoreOrganization(OrganizationSnapshot snapshot) {
+    return delegate.restoreOrganization(snapshot);
+  }
+
+  @Override
+  public Map<String, Object> getEmployeeContactInfo(int organizationId, int externalEmployeeId) {
+    return delegate.getEmployeeContactInfo(organizationId, externalEmployeeId);
+  }
+
+  @Override
+  public boolean setEmployeeContactField(
+      int organizationId, int externalEmployeeId, String field, String value) {
+    return delegate.setEmployeeContactField(organizationId, externalEmployeeId, field, value);
+  }
+
+  @Override
+  public Map<String, Object> getOrganizationDetails(int organizationId) {
+    return delegate.getOrganizationDetails(organizationId);
+  }
+
+  @Override
+  public boolean setOrganizationDetail(int organizationId, String field, String value) {
+    return delegate.setOrganizationDetail(organizationId, field, value);
+  }
+
+  @Override
+  public Organization getOrganization(int organizationId) {
+    return delegate.getOrganization(organizationId);
+  }
+
+  @Override
+  public boolean updateOrganization(Organization organization) {
+    return delegate.updateOrganization(organization);
+  }
+
+  @Override
+  public boolean removeOrganization(int organizationId) {
+    boolean removed = delegate.removeOrganization(organizationId);
+    if (removed) {
+      discardPending(organizationId);
+    }
+    return removed;
+  }
+
+  @Override
+  public boolean removeOrganizationContents(int organizationId) {
+    boolean removed = delegate.removeOrganizationContents(organizationId);
+    if (removed) {
+      discardPending(organizationId);
+    }
+    return removed;
+  }
+
+  @Override
+  public boolean markOrganizationForRemoval(int organizationId) {
+    boolean marked = delegate.markOrganizationForRemoval(organizationId);
+    if (marked) {
+      discardPending(organizationId);
+    }
+    return marked;
+  }
+
+  @Override
+  public List<Integer> getOrganizationsPendingRemoval() {
+    return delegate.getOrganizationsPendingRemoval();
+  }
+
+  @Override
+  public int removeOrganizationChunk(int organizationId, int chunkSize) {
+    return delegate.removeOrganizationChunk(organizationId, chunkSize);
+  }
+
+  private void discardPending(int organizationId) {
+    lock.lock();
+    try {
+      pending.remove(organizationId);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.BulkImporter;
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.RecordFormat;
+import dev.coms4156.project.exception.BadRequestException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * A command to import departments and employees in bulk.
+ */
+public class BulkImportCmd implements Command {
+  private final int clientId;
+  private final Reader reader;
+  private final String contentType;
+
+  /**
+   * Constructs a command to import departments and employees in bulk.
+   *
+   * @param clientId    the ID of the client organization
+   * @param reader      the records to import
+   * @param contentType the content type of the records, "text/csv" or "application/x-ndjson"
+   */
+  public BulkImportCmd(int clientId, Reader reader, String contentType) {
+    this.clientId = clientId;
+    this.reader = reader;
+    this.contentType = contentType;
+  }
+
+  @Override
+  public Object execute() {
+    RecordFormat format = RecordFormat.fromContentType(contentType);
+    if (format == null) {
+      throw new BadRequestException(
+          "Unsupported content type, expected text/csv or application/x-ndjson");
+    }
+    HrDatabaseFacade dbFacade = HrDatabaseFacade.getInstance(clientId);
+
+    BulkImporter.Result result;
+    try {
+      result = dbFacade.importRecords(reader, format);
+    } catch (IOException e) {
+      throw new BadRequestException("Failed to read the import: " + e.getMessage());
+    }
+
+    Map<String, Object> response = result.toJson();
+    response.put("status", 200);
+    response.put("message", "Imported " + result.getEmployeesImported() + " employees, rejected "
+        + result.getRejected() + " records");
+    return response;
+  }
+}
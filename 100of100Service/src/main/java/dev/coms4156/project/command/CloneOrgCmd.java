@@ -0,0 +1,46 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.Organization;
+import dev.coms4156.project.exception.InternalServerErrorException;
+import dev.coms4156.project.utils.ApiKeyGenerator;
+import dev.coms4156.project.utils.CodecUtils;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A command to clone an organization into a new one, e.g. as a sandbox or staging copy.
+ */
+public class CloneOrgCmd implements Command {
+  private final int clientId;
+  private final String name;
+
+  /**
+   * Constructs a command to clone an organization.
+   *
+   * @param clientId the client ID of the organization to clone
+   * @param name the name of the new organization
+   */
+  public CloneOrgCmd(int clientId, String name) {
+    this.clientId = clientId;
+    this.name = name;
+  }
+
+  @Override
+  public Object execute() {
+    // Fails with NotFoundException if the organization does not exist
+    HrDatabaseFacade.getInstance(this.clientId);
+    Organization clone = HrDatabaseFacade.cloneOrganization(this.clientId, this.name);
+    if (clone == null) {
+      throw new InternalServerErrorException(
+          "Failed to clone organization [" + this.clientId + "]");
+    }
+    Map<String, String> response = new HashMap<>();
+    response.put("status", "success");
+    response.put("message", "Organization " + clone.getName() + " created");
+    String orgId = CodecUtils.encode(clone.getId() + "");
+    response.put("token", orgId);
+    response.put("apikey", "LWXY" + ApiKeyGenerator.generateApiKey(orgId));
+    return response;
+  }
+}
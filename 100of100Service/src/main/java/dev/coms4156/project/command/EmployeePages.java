@@ -0,0 +1,47 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.Employee;
+import dev.coms4156.project.exception.BadRequestException;
+import java.util.List;
+
+/**
+ * Shared helpers of the commands that list employees page by page.
+ */
+final class EmployeePages {
+  static final int DEFAULT_LIMIT = 100;
+  static final int MAX_LIMIT = 1000;
+
+  private EmployeePages() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Validates the page parameters of a request.
+   *
+   * @param afterId the employee ID the page starts after
+   * @param limit the maximum number of employees in the page
+   * @throws BadRequestException if either parameter is out of range
+   */
+  static void validate(int afterId, int limit) {
+    if (afterId < 0) {
+      throw new BadRequestException("afterId must not be negative");
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+    }
+  }
+
+  /**
+   * Returns the cursor of the page after the given one.
+   *
+   * @param page the employees of the current page
+   * @param limit the requested page size
+   * @return the ID to pass as afterId for the next page, or null if this was the last page
+   */
+  static Integer nextAfterId(List<Employee> page, int limit) {
+    if (page.size() < limit) {
+      return null;
+    }
+    return page.get(page.size() - 1).getId();
+  }
+}
@@ -0,0 +1,52 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.RecordFormat;
+import dev.coms4156.project.exception.BadRequestException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * A command to export every department and employee of an organization.
+ * The result is a body that streams the records to the response as they are read.
+ */
+public class ExportOrgCmd implements Command {
+  private final int clientId;
+  private final String format;
+  private final boolean gzip;
+
+  /**
+   * Constructs a command to export an organization.
+   *
+   * @param clientId the ID of the client organization
+   * @param format   the name of the format of the records, "ndjson" or "csv"
+   * @param gzip     whether to compress the records with gzip
+   */
+  public ExportOrgCmd(int clientId, String format, boolean gzip) {
+    this.clientId = clientId;
+    this.format = format;
+    this.gzip = gzip;
+  }
+
+  @Override
+  public Object execute() {
+    RecordFormat recordFormat = RecordFormat.fromName(format);
+    if (recordFormat == null) {
+      throw new BadRequestException("Unsupported format [" + format + "], expected ndjson or csv");
+    }
+    // Resolved before streaming starts, so an unknown organization is still a plain error
+    HrDatabaseFacade dbFacade = HrDatabaseFacade.getInstance(clientId);
+
+    StreamingResponseBody body = out -> {
+      if (gzip) {
+        try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+          dbFacade.exportRecords(compressed, recordFormat);
+        }
+      } else {
+        dbFacade.exportRecords(out, recordFormat);
+      }
+    };
+    return body;
+  }
+}
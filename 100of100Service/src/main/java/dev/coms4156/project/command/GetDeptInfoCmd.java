@@ -1,8 +1,11 @@
 package dev.coms4156.project.command;
 
 import dev.coms4156.project.Department;
+import dev.coms4156.project.Employee;
 import dev.coms4156.project.HrDatabaseFacade;
 import dev.coms4156.project.exception.NotFoundException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A command to get the information of a department.
@@ -10,10 +13,27 @@ import dev.coms4156.project.exception.NotFoundException;
 public class GetDeptInfoCmd implements Command {
   private final int clientId;
   private final int departmentId;
+  private final Integer afterId;
+  private final Integer limit;
 
   public GetDeptInfoCmd(int clientId, int departmentId) {
+    this(clientId, departmentId, null, null);
+  }
+
+  /**
+   * Constructs a command to get the information of a department with a page of its employees.
+   * If neither page parameter is given, all employees are listed.
+   *
+   * @param clientId the client ID
+   * @param departmentId the department ID
+   * @param afterId the employee ID the page starts after, or null for the first page
+   * @param limit the maximum number of employees in the page, or null for the default
+   */
+  public GetDeptInfoCmd(int clientId, int departmentId, Integer afterId, Integer limit) {
     this.clientId = clientId;
     this.departmentId = departmentId;
+    this.afterId = afterId;
+    this.limit = limit;
   }
 
   @Override
@@ -23,6 +43,16 @@ public class GetDeptInfoCmd implements Command {
     if (department == null) {
       throw new NotFoundException("Department [" + this.departmentId + "] not found");
     }
-    return department.toJson();
+    if (this.afterId == null && this.limit == null) {
+      return department.toJson();
+    }
+
+    int pageAfterId = this.afterId != null ? this.afterId : 0;
+    int pageLimit = this.limit != null ? this.limit : EmployeePages.DEFAULT_LIMIT;
+    EmployeePages.validate(pageAfterId, pageLimit);
+    List<Employee> page = db.getDepartmentEmployeesPage(this.departmentId, pageAfterId, pageLimit);
+    Map<String, Object> response = department.toJson(page);
+    response.put("nextAfterId", EmployeePages.nextAfterId(page, pageLimit));
+    return response;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.exception.NotFoundException;
+import java.util.Map;
+
+/**
+ * A command to get the contact information of an employee.
+ */
+public class GetEmpContactCmd implements Command {
+  private final int clientId;
+  private final int employeeId;
+
+  /**
+   * Constructs a command to get the contact information of an employee.
+   *
+   * @param clientId the client ID
+   * @param employeeId the employee ID
+   */
+  public GetEmpContactCmd(int clientId, int employeeId) {
+    this.clientId = clientId;
+    this.employeeId = employeeId;
+  }
+
+  @Override
+  public Object execute() {
+    HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
+    Map<String, Object> contactInfo = db.getEmployeeContactInfo(this.employeeId);
+    if (contactInfo == null) {
+      throw new NotFoundException("Employee [" + this.employeeId + "] not found");
+    }
+    return contactInfo;
+  }
+}
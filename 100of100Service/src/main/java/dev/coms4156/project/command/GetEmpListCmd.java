@@ -0,0 +1,41 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.Employee;
+import dev.coms4156.project.HrDatabaseFacade;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A command to list the employees of an organization, one page at a time.
+ */
+public class GetEmpListCmd implements Command {
+  private final int clientId;
+  private final int afterId;
+  private final int limit;
+
+  /**
+   * Constructs a command to list a page of employees.
+   *
+   * @param clientId the client ID
+   * @param afterId the employee ID the page starts after, 0 for the first page
+   * @param limit the maximum number of employees in the page
+   */
+  public GetEmpListCmd(int clientId, int afterId, int limit) {
+    this.clientId = clientId;
+    this.afterId = afterId;
+    this.limit = limit;
+  }
+
+  @Override
+  public Object execute() {
+    EmployeePages.validate(this.afterId, this.limit);
+    HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
+    List<Employee> page = db.getEmployeesPage(this.afterId, this.limit);
+
+    Map<String, Object> response = new HashMap<>();
+    response.put("employees", page.stream().map(Employee::toSummaryJson).toList());
+    response.put("nextAfterId", EmployeePages.nextAfterId(page, this.limit));
+    return response;
+  }
+}
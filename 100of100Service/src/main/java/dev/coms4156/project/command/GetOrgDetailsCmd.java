@@ -0,0 +1,26 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.exception.NotFoundException;
+import java.util.Map;
+
+/**
+ * A command to get the details of an organization.
+ */
+public class GetOrgDetailsCmd implements Command {
+  private final int clientId;
+
+  public GetOrgDetailsCmd(int clientId) {
+    this.clientId = clientId;
+  }
+
+  @Override
+  public Object execute() {
+    HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
+    Map<String, Object> details = db.getOrganizationDetails();
+    if (details == null) {
+      throw new NotFoundException("Organization [" + this.clientId + "] not found");
+    }
+    return details;
+  }
+}
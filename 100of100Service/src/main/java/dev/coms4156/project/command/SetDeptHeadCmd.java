@@ -1,12 +1,15 @@
 package dev.coms4156.project.command;
 
+import dev.coms4156.project.DatabaseExecutors;
 import dev.coms4156.project.Department;
 import dev.coms4156.project.Employee;
 import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.exception.ConflictException;
 import dev.coms4156.project.exception.InternalServerErrorException;
 import dev.coms4156.project.exception.NotFoundException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A command to set the head of a department.
@@ -32,16 +35,34 @@ public class SetDeptHeadCmd implements Command {
   @Override
   public Object execute() {
     HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
-    Department department = db.getDepartment(this.departmentId);
+    // The two lookups are independent, so a cache miss on one does not delay the other
+    CompletableFuture<Department> departmentLookup = db.getDepartmentAsync(this.departmentId);
+    CompletableFuture<Employee> employeeLookup = db.getEmployeeAsync(this.employeeId);
+    Department department = DatabaseExecutors.await(departmentLookup);
     if (department == null) {
       throw new NotFoundException("Department [" + this.departmentId + "] not found");
     }
-    Employee employee = db.getEmployee(this.employeeId);
+    Employee employee = DatabaseExecutors.await(employeeLookup);
     if (employee == null) {
       throw new NotFoundException("Employee [" + this.employeeId + "] not found");
     }
-    department.setHead(employee);
-    boolean updated = db.updateDepartment(department);
+    // A lookup that missed the cache read a detached row; only this thread updates the cache
+    department = db.getDepartment(this.departmentId);
+    employee = db.getEmployee(this.employeeId);
+    if (department == null || employee == null) {
+      throw new NotFoundException("Department [" + this.departmentId + "] or employee ["
+          + this.employeeId + "] not found");
+    }
+    long readVersion = department.getVersion();
+    // Change a copy, so a failed update leaves the cached department as stored
+    Department changed = department.copy();
+    changed.setHead(employee);
+    boolean updated = db.compareAndSetDepartment(changed);
+    Department current = db.getDepartment(this.departmentId);
+    if (!updated && current != null && current.getVersion() != readVersion) {
+      throw new ConflictException(
+          "Department [" + this.departmentId + "] was modified concurrently, please retry");
+    }
     if (!updated) {
       throw new InternalServerErrorException(
           "Failed to update department [" + this.departmentId + "]"
@@ -0,0 +1,43 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.exception.NotFoundException;
+
+/**
+ * A command to set or remove one contact field of an employee.
+ */
+public class SetEmpContactCmd implements Command {
+  private final int clientId;
+  private final int employeeId;
+  private final String field;
+  private final String value;
+
+  /**
+   * Constructs a command to set or remove one contact field of an employee.
+   *
+   * @param clientId the client ID
+   * @param employeeId the employee ID
+   * @param field the name of the contact field, e.g. email or phone
+   * @param value the value to set, null to remove the field
+   */
+  public SetEmpContactCmd(int clientId, int employeeId, String field, String value) {
+    this.clientId = clientId;
+    this.employeeId = employeeId;
+    this.field = field;
+    this.value = value;
+  }
+
+  @Override
+  public Object execute() {
+    HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
+    if (db.getEmployee(this.employeeId) == null
+        || !db.setEmployeeContactField(this.employeeId, this.field, this.value)) {
+      throw new NotFoundException("Employee [" + this.employeeId + "] not found");
+    }
+    if (this.value == null) {
+      return "Successfully removed " + this.field + " of employee [" + this.employeeId + "]";
+    }
+    return "Successfully set " + this.field + " of employee [" + this.employeeId + "] to "
+        + this.value;
+  }
+}
@@ -1,9 +1,7 @@
 package dev.coms4156.project.command;
 
-import dev.coms4156.project.Employee;
 import dev.coms4156.project.HrDatabaseFacade;
 import dev.coms4156.project.exception.InternalServerErrorException;
-import dev.coms4156.project.exception.NotFoundException;
 
 /**
  * A command to set the performance of an employee.
@@ -34,12 +32,10 @@ public class SetEmpPerfCmd implements Command {
   @Override
   public Object execute() {
     HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
-    Employee emp = db.getEmployee(this.employeeId);
-    if (emp == null) {
-      throw new NotFoundException("Employee [" + this.employeeId + "] not found");
-    }
-    emp.setPerformance(this.performance);
-    if (!db.updateEmployee(emp)) {
+    // Throws NotFoundException, or ConflictException if the employee keeps changing
+    boolean result =
+        db.modifyEmployee(this.employeeId, emp -> emp.setPerformance(this.performance));
+    if (!result) {
       throw new InternalServerErrorException("Failed to update employee [" + this.employeeId + "]");
     }
     return "Employee [" + this.employeeId + "] performance set to " + this.performance;
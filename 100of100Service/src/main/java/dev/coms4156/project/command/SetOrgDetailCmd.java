@@ -0,0 +1,40 @@
+package dev.coms4156.project.command;
+
+import dev.coms4156.project.HrDatabaseFacade;
+import dev.coms4156.project.exception.InternalServerErrorException;
+
+/**
+ * A command to set or remove one detail field of an organization.
+ */
+public class SetOrgDetailCmd implements Command {
+  private final int clientId;
+  private final String field;
+  private final String value;
+
+  /**
+   * Constructs a command to set or remove one detail field of an organization.
+   *
+   * @param clientId the client ID
+   * @param field the name of the detail field, e.g. industry
+   * @param value the value to set, null to remove the field
+   */
+  public SetOrgDetailCmd(int clientId, String field, String value) {
+    this.clientId = clientId;
+    this.field = field;
+    this.value = value;
+  }
+
+  @Override
+  public Object execute() {
+    HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
+    if (!db.setOrganizationDetail(this.field, this.value)) {
+      throw new InternalServerErrorException(
+          "Failed to update organization [" + this.clientId + "]");
+    }
+    if (this.value == null) {
+      return "Successfully removed " + this.field + " of organization [" + this.clientId + "]";
+    }
+    return "Successfully set " + this.field + " of organization [" + this.clientId + "] to "
+        + this.value;
+  }
+}
@@ -1,8 +1,8 @@
 package dev.coms4156.project.command;
 
-import dev.coms4156.project.Department;
 import dev.coms4156.project.HrDatabaseFacade;
 import dev.coms4156.project.exception.NotFoundException;
+import java.util.Map;
 
 /**
  * A command to get the budget statistics of a department.
@@ -19,10 +19,10 @@ public class StatDeptBudgCmd implements Command {
   @Override
   public Object execute() {
     HrDatabaseFacade db = HrDatabaseFacade.getInstance(this.clientId);
-    Department department = db.getDepartment(this.departmentId);
-    if (department == null) {
+    Map<String, Object> statistics = db.getDepartmentSalaryStatistics(this.departmentId);
+    if (statistics == null) {
       throw new NotFoundException("Department [" + this.departmentId + "] not found.");
     }
-    return department.getEmployeeSalaryStatisticMap();
+    return statistics;
   }
 }
@@ -0,0 +1,15 @@
+package dev.coms4156.project.exception;
+
+/**
+ * This service exception is thrown when an item was changed concurrently by another request.
+ */
+public class ConflictException extends RuntimeException {
+
+  public ConflictException() {
+    super("Item was modified concurrently.");
+  }
+
+  public ConflictException(String message) {
+    super(message);
+  }
+}
@@ -2,6 +2,7 @@ package dev.coms4156.project.exception;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -56,6 +57,19 @@ public class GlobalExceptionHandler {
         .body(this.errorResponse(ex));
   }
 
+  /**
+   * Exception handler to catch ConflictException exceptions thrown by the application.
+   *
+   * @param ex The ConflictException exception
+   * @return A 409 response entity with the error message
+   */
+  @ExceptionHandler(ConflictException.class)
+  public ResponseEntity<?> handleConflictException(ConflictException ex) {
+    return ResponseEntity
+        .status(HttpStatus.CONFLICT)
+        .body(this.errorResponse(ex));
+  }
+
   /**
    * Exception handler to catch BadRequestException exceptions thrown by the application.
    *
@@ -69,6 +83,20 @@ public class GlobalExceptionHandler {
         .body(this.errorResponse(ex));
   }
 
+  /**
+   * Exception handler to catch ServiceUnavailableException exceptions thrown by the application.
+   *
+   * @param ex The ServiceUnavailableException exception
+   * @return A 503 response entity with the error message
+   */
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public ResponseEntity<?> handleServiceUnavailableException(ServiceUnavailableException ex) {
+    return ResponseEntity
+        .status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "5")
+        .body(this.errorResponse(ex));
+  }
+
   /**
    * Exception handler to catch IllegalArgumentException exceptions thrown by the application.
    *
@@ -0,0 +1,15 @@
+package dev.coms4156.project.exception;
+
+/**
+ * An exception to represent a dependency of the service being temporarily unavailable.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+  public ServiceUnavailableException() {
+    super("Service unavailable.");
+  }
+
+  public ServiceUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,76 @@
+package dev.coms4156.project.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utility methods for fixed-point amounts with two decimal places, such as salaries in cents
+ * and performance scores in basis points. They match the DECIMAL(p, 2) columns of the
+ * database exactly, and sum and compare as plain longs.
+ */
+public final class FixedPoint {
+  /** The number of decimal places of an amount. */
+  public static final int SCALE = 2;
+  private static final double UNITS_PER_ONE = 100.0;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private FixedPoint() {}
+
+  /**
+   * Converts a decimal value to units, rounding to the nearest unit.
+   *
+   * @param value the value, e.g. 88.25
+   * @return the value in units, e.g. 8825
+   */
+  public static long toUnits(double value) {
+    return Math.round(value * UNITS_PER_ONE);
+  }
+
+  /**
+   * Converts an exact decimal value to units, rounding half up to the nearest unit.
+   *
+   * @param value the value, null for 0
+   * @return the value in units
+   * @throws ArithmeticException if the value does not fit in a long
+   */
+  public static long toUnits(BigDecimal value) {
+    if (value == null) {
+      return 0;
+    }
+    return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  /**
+   * Converts units to the closest double, e.g. 8825 to 88.25.
+   *
+   * @param units the value in units
+   * @return the value as a double
+   */
+  public static double toDouble(long units) {
+    return units / UNITS_PER_ONE;
+  }
+
+  /**
+   * Converts units to an exact decimal, e.g. to bind to a DECIMAL column.
+   *
+   * @param units the value in units
+   * @return the value as a decimal with two decimal places
+   */
+  public static BigDecimal toDecimal(long units) {
+    return BigDecimal.valueOf(units, SCALE);
+  }
+
+  /**
+   * Returns the average of values from their exact total, with a single rounding, so every
+   * caller gets the same double for the same values.
+   *
+   * @param totalUnits the sum of the values, in units
+   * @param count the number of values, positive
+   * @return the average as a double
+   */
+  public static double average(long totalUnits, long count) {
+    return totalUnits / (UNITS_PER_ONE * count);
+  }
+}
@@ -0,0 +1,8 @@
+-- Block ID allocation: each row holds the next unreserved ID of one sequence.
+-- organization_id = 0 holds the organization sequence itself.
+CREATE TABLE IF NOT EXISTS id_sequences (
+    organization_id INT NOT NULL,
+    entity VARCHAR(32) NOT NULL,
+    next_value INT NOT NULL,
+    PRIMARY KEY (organization_id, entity)
+);
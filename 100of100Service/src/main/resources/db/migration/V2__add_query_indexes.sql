@@ -0,0 +1,11 @@
+-- Indexes for the filters JdbcConnection issues. Secondary indexes implicitly end with the
+-- primary key, so "(a, b)" also serves "WHERE a = ? AND b = ? ORDER BY <primary key>".
+
+-- Department employees (getDepartment, removeDepartment, the head check of updateDepartment)
+-- and department pages: WHERE organization_id = ? AND department_id = ? [AND employee_id > ?]
+CREATE INDEX idx_employees_org_dept ON employees (organization_id, department_id);
+
+-- Department lists and organization snapshots read only these columns, so the index covers
+-- them: WHERE organization_id = ? ORDER BY department_id
+CREATE INDEX idx_departments_org_cover
+    ON departments (organization_id, department_id, name, head_employee_id);
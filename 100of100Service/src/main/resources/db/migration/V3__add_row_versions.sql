@@ -0,0 +1,9 @@
+-- Row versions for optimistic concurrency: every update increments the version, and
+-- compare-and-set updates only apply while the version is still the one the caller read.
+ALTER TABLE employees ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE departments ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Department reads now also return the version; keep the index covering them
+DROP INDEX idx_departments_org_cover ON departments;
+CREATE INDEX idx_departments_org_cover
+    ON departments (organization_id, department_id, name, head_employee_id, version);
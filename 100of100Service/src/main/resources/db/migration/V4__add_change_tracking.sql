@@ -0,0 +1,23 @@
+-- Change tracking for incremental cache refreshes: every insert and update stamps the row,
+-- and deletions leave a tombstone, so the rows changed since a watermark can be read
+-- through an index instead of reloading the whole organization.
+ALTER TABLE employees ADD COLUMN updated_at TIMESTAMP(3) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE departments ADD COLUMN updated_at TIMESTAMP(3) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+-- Changed rows: WHERE organization_id = ? AND updated_at >= ?
+CREATE INDEX idx_employees_org_updated ON employees (organization_id, updated_at);
+CREATE INDEX idx_departments_org_updated ON departments (organization_id, updated_at);
+
+-- Removed employees and departments, kept for a retention period (db.delta.retentionHours)
+CREATE TABLE deleted_rows (
+    organization_id INT NOT NULL,
+    entity VARCHAR(32) NOT NULL,
+    entity_id INT NOT NULL,
+    deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (organization_id, entity, entity_id)
+);
+
+-- Removed rows: WHERE organization_id = ? AND deleted_at >= ?
+CREATE INDEX idx_deleted_rows_org_deleted ON deleted_rows (organization_id, deleted_at);
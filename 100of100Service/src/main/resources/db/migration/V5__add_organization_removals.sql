@@ -0,0 +1,7 @@
+-- Organizations being removed: the organization is hidden as soon as it is marked, and its
+-- rows are then deleted in bounded chunks, so a large tenant never holds long locks.
+-- The mark outlives a restart, so an interrupted removal is resumed.
+CREATE TABLE organization_removals (
+    organization_id INT PRIMARY KEY,
+    requested_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
@@ -0,0 +1,77 @@
+-- MySQL only: partition the organization-scoped tables by organization, so that queries
+-- filtering on organization_id touch only the partition of their organization, and a large
+-- organization isolated in its own partitions (JdbcConnection.isolateOrganization) neither
+-- crowds the pages of small ones out of the buffer pool nor needs row deletes to be removed.
+-- Partitions are named after their upper bound and start as ranges of 100 organizations.
+--
+-- Every statement below rebuilds a whole table and blocks writes to it while it runs, so
+-- this migration is deferred until the service is started with -Ddb.partitions.migrate=true,
+-- meant for a maintenance window. Partitioned InnoDB tables support no foreign keys, so
+-- SqlDialect.MYSQL first drops those between these tables, looking their names up in
+-- information_schema, and fails if they are not there; children are always deleted first.
+
+-- Every unique key must contain the partitioning column. IDs stay unique on their own,
+-- since they are organizationId * 10000 + n.
+ALTER TABLE departments MODIFY organization_id INT NOT NULL,
+    DROP PRIMARY KEY, ADD PRIMARY KEY (organization_id, department_id);
+
+ALTER TABLE employees MODIFY organization_id INT NOT NULL,
+    DROP PRIMARY KEY, ADD PRIMARY KEY (organization_id, employee_id),
+    DROP INDEX uk_employees_org_employee;
+
+-- Every organization-scoped table shares the same layout
+ALTER TABLE departments PARTITION BY RANGE (organization_id) (
+    PARTITION p100 VALUES LESS THAN (100),
+    PARTITION p200 VALUES LESS THAN (200),
+    PARTITION p300 VALUES LESS THAN (300),
+    PARTITION p400 VALUES LESS THAN (400),
+    PARTITION p500 VALUES LESS THAN (500),
+    PARTITION p600 VALUES LESS THAN (600),
+    PARTITION p700 VALUES LESS THAN (700),
+    PARTITION p800 VALUES LESS THAN (800),
+    PARTITION p900 VALUES LESS THAN (900),
+    PARTITION p1000 VALUES LESS THAN (1000),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+ALTER TABLE employees PARTITION BY RANGE (organization_id) (
+    PARTITION p100 VALUES LESS THAN (100),
+    PARTITION p200 VALUES LESS THAN (200),
+    PARTITION p300 VALUES LESS THAN (300),
+    PARTITION p400 VALUES LESS THAN (400),
+    PARTITION p500 VALUES LESS THAN (500),
+    PARTITION p600 VALUES LESS THAN (600),
+    PARTITION p700 VALUES LESS THAN (700),
+    PARTITION p800 VALUES LESS THAN (800),
+    PARTITION p900 VALUES LESS THAN (900),
+    PARTITION p1000 VALUES LESS THAN (1000),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+ALTER TABLE shifts PARTITION BY RANGE (organization_id) (
+    PARTITION p100 VALUES LESS THAN (100),
+    PARTITION p200 VALUES LESS THAN (200),
+    PARTITION p300 VALUES LESS THAN (300),
+    PARTITION p400 VALUES LESS THAN (400),
+    PARTITION p500 VALUES LESS THAN (500),
+    PARTITION p600 VALUES LESS THAN (600),
+    PARTITION p700 VALUES LESS THAN (700),
+    PARTITION p800 VALUES LESS THAN (800),
+    PARTITION p900 VALUES LESS THAN (900),
+    PARTITION p1000 VALUES LESS THAN (1000),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+ALTER TABLE deleted_rows PARTITION BY RANGE (organization_id) (
+    PARTITION p100 VALUES LESS THAN (100),
+    PARTITION p200 VALUES LESS THAN (200),
+    PARTITION p300 VALUES LESS THAN (300),
+    PARTITION p400 VALUES LESS THAN (400),
+    PARTITION p500 VALUES LESS THAN (500),
+    PARTITION p600 VALUES LESS THAN (600),
+    PARTITION p700 VALUES LESS THAN (700),
+    PARTITION p800 VALUES LESS THAN (800),
+    PARTITION p900 VALUES LESS THAN (900),
+    PARTITION p1000 VALUES LESS THAN (1000),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
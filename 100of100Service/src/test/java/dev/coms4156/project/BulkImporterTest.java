@@ -0,0 +1,120 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the BulkImporter class, importing into a fresh H2 database.
+ */
+public class BulkImporterTest {
+  private static final AtomicInteger databaseCounter = new AtomicInteger();
+
+  private EmbeddedConnection connection;
+
+  /**
+   * Creates a fresh embedded database for each test.
+   */
+  @BeforeEach
+  public void setup() {
+    connection = new EmbeddedConnection("jdbc:h2:mem:bulk_import_test_"
+        + databaseCounter.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    connection.close();
+  }
+
+  private BulkImporter importer() {
+    return new BulkImporter(connection, 1, connection.getDepartments(1), Runnable::run);
+  }
+
+  @Test
+  public void testImportCsv() throws IOException {
+    String csv = "type,did,department,name,hireDate,position,salary,performance\n"
+        + "department,,Research,,,,,\n"
+        + ",1,,Ann,2024-01-15,Engineer,90000,80.5\n"
+        + ",,Research,\"Lee, Bo\",2024-02-01,\"Lab \"\"Lead\"\"\",120000,\n"
+        + ",,Sales,Cat,2024-03-01,,,\n"
+        + "\n"
+        + ",7,,Dan,2024-03-01,,,\n"
+        + ",1,,Eve,03/01/2024,,,\n"
+        + ",1,,Fay,2024-03-01,,-5,\n";
+    BulkImporter.Result result = importer().run(new StringReader(csv), RecordFormat.CSV);
+
+    assertEquals(3, result.getEmployeesImported());
+    assertEquals(2, result.getDepartmentsCreated());
+    assertEquals(3, result.getRejected());
+    assertEquals("Line 7: Department [7] not found", result.getErrors().get(0));
+    assertTrue(result.getErrors().get(1).startsWith("Line 8: Invalid date"));
+    assertTrue(result.getErrors().get(2).startsWith("Line 9: Salary out of range"));
+
+    assertEquals(3, connection.getDepartment(1, 1).getEmployees().size());
+    Department research = connection.getDepartment(1, 3);
+    assertEquals("Research", research.getName());
+    Employee lee = research.getEmployees().get(0);
+    assertEquals("Lee, Bo", lee.getName());
+    assertEquals("Lab \"Lead\"", lee.getPosition());
+    assertEquals("Sales", connection.getDepartment(1, 4).getName());
+  }
+
+  @Test
+  public void testImportNdjsonInManyChunks() throws IOException {
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < 2500; i++) {
+      ndjson.append("{\"did\": 2, \"name\": \"Employee ").append(i)
+          .append("\", \"hireDate\": \"2024-01-01\", \"salary\": ").append(1000 + i)
+          .append("}\n");
+    }
+    ndjson.append("{\"did\": 2, \"name\": \n");
+    ndjson.append("[1, 2]\n");
+    BulkImporter importer = new BulkImporter(
+        connection, 1, connection.getDepartments(1), DatabaseExecutors.shared());
+    BulkImporter.Result result =
+        importer.run(new StringReader(ndjson.toString()), RecordFormat.NDJSON);
+
+    assertEquals(2500, result.getEmployeesImported());
+    assertEquals(2, result.getRejected());
+    assertTrue(result.getErrors().get(0).startsWith("Line 2501: Malformed JSON"));
+    assertEquals("Line 2502: Expected a JSON object", result.getErrors().get(1));
+    List<Employee> marketing = connection.getDepartment(1, 2).getEmployees();
+    assertEquals(2501, marketing.size());
+    assertTrue(marketing.stream().anyMatch(e -> "Employee 2499".equals(e.getName())));
+  }
+
+  @Test
+  public void testParseRow() {
+    List<String> header = List.of("name", "did", "hireDate");
+    BulkImporter.Row row =
+        BulkImporter.parseRow(2, "Ann,1,2024-01-15", RecordFormat.CSV, header);
+    assertNull(row.getError());
+    assertEquals("Ann", row.getEmployee().getName());
+
+    assertNotNull(BulkImporter.parseRow(
+        3, "Ann,1,2024-01-15,extra", RecordFormat.CSV, header).getError());
+    assertEquals("Missing department ID or name", BulkImporter.parseRow(
+        4, "Ann,,2024-01-15", RecordFormat.CSV, header).getError());
+    assertThrows(IllegalArgumentException.class, () -> BulkImporter.splitCsvLine("\"open"));
+  }
+
+  @Test
+  public void testFormatFromContentType() {
+    assertEquals(RecordFormat.CSV,
+        RecordFormat.fromContentType("text/csv; charset=UTF-8"));
+    assertEquals(RecordFormat.NDJSON,
+        RecordFormat.fromContentType("application/x-ndjson"));
+    assertNull(RecordFormat.fromContentType("application/json"));
+    assertNull(RecordFormat.fromContentType(null));
+  }
+}
@@ -0,0 +1,104 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.exception.ServiceUnavailableException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the CircuitBreakerConnection and DatabaseHealthMonitor classes.
+ */
+public class CircuitBreakerConnectionTest {
+
+  @Test
+  public void testOpensOnFailuresAndClosesOnProbe() throws InterruptedException {
+    DatabaseConnection delegate = mock(DatabaseConnection.class);
+    when(delegate.getEmployees(1)).thenReturn(List.of());
+    when(delegate.getEmployee(1, 1)).thenThrow(new IllegalStateException("Connection reset"));
+    AtomicBoolean healthy = new AtomicBoolean(false);
+    AtomicInteger resets = new AtomicInteger();
+    DatabaseHealthMonitor monitor = new DatabaseHealthMonitor(
+        healthy::get, resets::incrementAndGet, 60_000, 4, 0.5, 60_000, 10);
+    CircuitBreakerConnection connection = new CircuitBreakerConnection(delegate, monitor);
+    try {
+      connection.getEmployees(1);
+      connection.getEmployees(1);
+      assertThrows(IllegalStateException.class, () -> connection.getEmployee(1, 1));
+      assertEquals(DatabaseHealthMonitor.State.CLOSED, monitor.getState(),
+          "The circuit stays closed below the minimum number of calls");
+      assertThrows(IllegalStateException.class, () -> connection.getEmployee(1, 1));
+      assertEquals(DatabaseHealthMonitor.State.OPEN, monitor.getState());
+      assertEquals(1, resets.get());
+
+      // While open, calls fail fast without reaching the database
+      assertThrows(ServiceUnavailableException.class, () -> connection.getEmployees(1));
+      verify(delegate, times(2)).getEmployees(1);
+      Thread.sleep(50);
+      assertEquals(DatabaseHealthMonitor.State.OPEN, monitor.getState());
+
+      healthy.set(true);
+      for (int i = 0; i < 200 && monitor.getState() != DatabaseHealthMonitor.State.CLOSED; i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(DatabaseHealthMonitor.State.CLOSED, monitor.getState());
+      assertEquals(List.of(), connection.getEmployees(1));
+      assertEquals(1L, monitor.toJson().get("calls"), "The window restarts once closed");
+    } finally {
+      monitor.close();
+    }
+  }
+
+  @Test
+  public void testSlowCallsCountAsFailures() {
+    DatabaseHealthMonitor monitor = new DatabaseHealthMonitor(
+        () -> false, () -> { }, 60_000, 2, 1.0, 5, 60_000);
+    try {
+      monitor.recordCall(1_000_000);
+      assertTrue(monitor.allowRequest());
+      monitor.recordCall(10_000_000);
+      assertTrue(monitor.allowRequest(), "Half of the calls ran slow");
+      monitor.recordCall(10_000_000);
+      monitor.recordCall(10_000_000);
+      assertTrue(monitor.allowRequest(), "3 of 4 calls ran slow");
+
+      DatabaseHealthMonitor strict = new DatabaseHealthMonitor(
+          () -> false, () -> { }, 60_000, 2, 0.5, 5, 60_000);
+      try {
+        strict.recordCall(1_000_000);
+        strict.recordCall(10_000_000);
+        assertFalse(strict.allowRequest());
+      } finally {
+        strict.close();
+      }
+    } finally {
+      monitor.close();
+    }
+  }
+
+  @Test
+  public void testJdbcReportsFailures() {
+    EmbeddedConnection connection = new EmbeddedConnection(
+        "jdbc:h2:mem:circuit_breaker_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    AtomicInteger failures = new AtomicInteger();
+    connection.setFailureListener(e -> failures.incrementAndGet());
+    assertTrue(connection.ping(1));
+    connection.getEmployee(1, 1);
+    assertEquals(0, failures.get());
+
+    connection.close();
+    assertFalse(connection.ping(1));
+    assertNull(connection.getEmployee(1, 1));
+    assertEquals(1, failures.get());
+  }
+}
@@ -0,0 +1,60 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the ConnectionPoolMetrics class.
+ */
+public class ConnectionPoolMetricsTest {
+
+  private ConnectionPoolMetrics metrics;
+
+  @BeforeEach
+  public void setup() {
+    metrics = new ConnectionPoolMetrics();
+  }
+
+  @Test
+  public void testEmptyMetrics() {
+    assertEquals(0, metrics.getBorrowCount());
+    assertEquals(0.0, metrics.getAverageWaitMicros());
+    assertEquals(0, metrics.getMaxWaitMicros());
+    assertFalse(metrics.toJson().containsKey("activeConnections"),
+        "Pool statistics should be absent before the pool registers");
+  }
+
+  @Test
+  public void testRecordWaitTimes() {
+    IMetricsTracker tracker = metrics.create("test-pool", new PoolStats(0) {
+      @Override
+      protected void update() {
+        this.totalConnections = 4;
+        this.idleConnections = 3;
+        this.activeConnections = 1;
+        this.pendingThreads = 0;
+      }
+    });
+    tracker.recordConnectionAcquiredNanos(1_000_000L);
+    tracker.recordConnectionAcquiredNanos(3_000_000L);
+    tracker.recordConnectionUsageMillis(5);
+    tracker.recordConnectionTimeout();
+
+    assertEquals(2, metrics.getBorrowCount());
+    assertEquals(1, metrics.getTimeoutCount());
+    assertEquals(2000.0, metrics.getAverageWaitMicros());
+    assertEquals(3000, metrics.getMaxWaitMicros());
+
+    Map<String, Object> json = metrics.toJson();
+    assertEquals(4, json.get("totalConnections"));
+    assertEquals(1, json.get("activeConnections"));
+    assertTrue(json.containsKey("maxUsageMillis"));
+  }
+}
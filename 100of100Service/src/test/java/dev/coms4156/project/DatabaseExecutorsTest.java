@@ -0,0 +1,42 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.coms4156.project.exception.NotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the DatabaseExecutors class.
+ */
+public class DatabaseExecutorsTest {
+
+  @Test
+  public void testSharedExecutorIsSingleton() {
+    assertSame(DatabaseExecutors.shared(), DatabaseExecutors.shared());
+  }
+
+  @Test
+  public void testNewExecutorRunsTasks() {
+    ExecutorService executor = DatabaseExecutors.newExecutor(2);
+    try {
+      CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> 42, executor);
+      assertEquals(42, DatabaseExecutors.await(result));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testAwaitRethrowsOriginalException() {
+    CompletableFuture<Object> failed = CompletableFuture.supplyAsync(() -> {
+      throw new NotFoundException("missing");
+    }, DatabaseExecutors.shared());
+    NotFoundException e = assertThrows(NotFoundException.class,
+        () -> DatabaseExecutors.await(failed));
+    assertEquals("missing", e.getMessage());
+  }
+}
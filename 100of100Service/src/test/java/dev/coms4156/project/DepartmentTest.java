@@ -283,4 +283,28 @@ public class DepartmentTest {
     Assertions.assertEquals(0.0, ac.get("average"));
     Assertions.assertArrayEquals(new int[0], (int[]) ac.get("sortedEmployeeIds"));
   }
-}
\ No newline at end of file
+
+  @Test
+  @Order(21)
+  public void testStatisticsAreExactInCents() {
+    Department dept = new Department(11, "Cents Dept");
+    for (int i = 1; i <= 10; i++) {
+      // Summed as doubles, ten salaries of 0.10 fall short of 1.00
+      dept.addEmployee(new Employee(i, "E" + i, new Date(), "Intern", 0.1, 33.33));
+    }
+    Employee employee = new Employee(11, "F", new Date(), "Intern", 0.2, 0.07);
+    Assertions.assertEquals(20, employee.getSalaryCents());
+    Assertions.assertEquals(7, employee.getPerformanceBasisPoints());
+    dept.addEmployee(employee);
+
+    Map<String, Object> salaryStats = dept.getEmployeeSalaryStatisticMap();
+    Assertions.assertEquals(1.2, salaryStats.get("total"));
+    Assertions.assertEquals(0.2, salaryStats.get("highest"));
+    Assertions.assertEquals(11, salaryStats.get("highestEmployee"));
+
+    Map<String, Object> performanceStats = dept.getEmployeePerformanceStatisticMap();
+    Assertions.assertEquals(0.07, performanceStats.get("lowest"));
+    Assertions.assertEquals(33.33, performanceStats.get("median"));
+    Assertions.assertEquals(33337 / 1100.0, performanceStats.get("average"));
+  }
+}
@@ -0,0 +1,432 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the EmbeddedConnection class.
+ * Every test runs the shared JDBC code against a fresh H2 database seeded from create_mysql.sql.
+ */
+public class EmbeddedConnectionTest {
+  private static final AtomicInteger databaseCounter = new AtomicInteger();
+
+  private EmbeddedConnection connection;
+
+  /**
+   * Creates a fresh embedded database for each test.
+   */
+  @BeforeEach
+  public void setup() {
+    connection = new EmbeddedConnection("jdbc:h2:mem:embedded_test_"
+        + databaseCounter.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    connection.close();
+  }
+
+  @Test
+  public void testSeededOrganization() {
+    Organization organization = connection.getOrganization(1);
+    assertNotNull(organization);
+    assertEquals("Acme Corp", organization.getName());
+    assertNull(connection.getOrganization(99));
+  }
+
+  @Test
+  public void testGetEmployeeAndDepartment() {
+    Employee employee = connection.getEmployee(1, 3);
+    assertEquals("Tom Brown", employee.getName());
+    assertEquals(70000.0, employee.getSalary());
+
+    Department department = connection.getDepartment(1, 1);
+    assertEquals("Engineering", department.getName());
+    assertEquals(2, department.getEmployees().size());
+  }
+
+  @Test
+  public void testLoadOrganizationSnapshot() {
+    OrganizationSnapshot snapshot = connection.loadOrganizationSnapshot(1);
+    assertEquals(2, snapshot.getDepartments().size());
+    assertEquals(3, snapshot.getEmployees().size());
+    Department engineering = snapshot.getDepartments().get(0);
+    assertEquals(1, engineering.getHead().getId());
+    assertNull(connection.loadOrganizationSnapshot(99));
+  }
+
+  @Test
+  public void testStreamingAndPages() {
+    List<Integer> ids = new ArrayList<>();
+    assertEquals(3, connection.forEachEmployee(1, e -> ids.add(e.getId())));
+    assertEquals(List.of(1, 2, 3), ids);
+
+    List<String> placements = new ArrayList<>();
+    assertEquals(3, connection.forEachDepartmentEmployee(1,
+        (e, departmentId) -> placements.add(e.getId() + "@" + departmentId)));
+    assertEquals(List.of("1@1", "2@2", "3@1"), placements);
+
+    List<Employee> page = connection.getEmployeesPage(1, 1, 1);
+    assertEquals(1, page.size());
+    assertEquals(2, page.get(0).getId());
+    List<Employee> departmentPage = connection.getDepartmentEmployeesPage(1, 1, 1, 10);
+    assertEquals(1, departmentPage.size());
+    assertEquals(3, departmentPage.get(0).getId());
+  }
+
+  @Test
+  public void testAddUpdateAndRemoveEmployees() {
+    List<Integer> newIds = connection.addEmployeesToDepartment(1, 10002, List.of(
+        new Employee(0, "Batch One", new Date()),
+        new Employee(0, "Batch Two", new Date())
+    ));
+    assertEquals(List.of(10004, 10005), newIds);
+    int single = connection.addEmployeeToDepartment(1, 10002, new Employee(0, "Solo", new Date()));
+    assertEquals(10006, single);
+
+    Employee employee = connection.getEmployee(1, 4);
+    employee.setSalary(12345);
+    assertEquals(1, connection.updateEmployees(1, List.of(employee)));
+    assertEquals(12345.0, connection.getEmployee(1, 4).getSalary());
+
+    assertTrue(connection.removeEmployeeFromDepartment(1, 10002, 10004));
+    assertNull(connection.getEmployee(1, 4));
+  }
+
+  @Test
+  public void testRemoveDepartmentHead() {
+    // John Doe heads Engineering and has shifts, both of which must be cleared
+    assertTrue(connection.removeEmployeeFromDepartment(1, 10001, 10001));
+    assertNull(connection.getDepartments(1).get(0).getHead());
+    assertFalse(connection.removeEmployeeFromDepartment(1, 10001, 10001));
+  }
+
+  @Test
+  public void testCompareAndSetEmployee() {
+    Employee first = connection.getEmployee(1, 1);
+    Employee second = connection.getEmployee(1, 1);
+    first.setSalary(80000);
+    assertTrue(connection.compareAndSetEmployee(1, first));
+    assertEquals(second.getVersion() + 1, first.getVersion());
+
+    second.setSalary(90000);
+    assertFalse(connection.compareAndSetEmployee(1, second), "A stale version must conflict");
+    assertEquals(80000.0, connection.getEmployee(1, 1).getSalary());
+
+    // Blind updates advance the version too, so they are not lost to a later compare-and-set
+    assertTrue(connection.updateEmployee(1, connection.getEmployee(1, 1)));
+    assertFalse(connection.compareAndSetEmployee(1, first));
+  }
+
+  @Test
+  public void testCompareAndSetDepartment() {
+    Department second = connection.getDepartment(1, 1);
+    second.setName("Infrastructure");
+    Department first = connection.getDepartment(1, 1);
+    first.setName("Platform");
+    assertTrue(connection.compareAndSetDepartment(1, first));
+    assertEquals(first.getVersion(), connection.getDepartment(1, 1).getVersion());
+
+    assertFalse(connection.compareAndSetDepartment(1, second), "A stale version must conflict");
+    assertEquals("Platform", connection.getDepartments(1).get(0).getName());
+  }
+
+  private void assertSameStatistics(Map<String, Object> expected, Map<String, Object> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, Object> entry : expected.entrySet()) {
+      Object value = actual.get(entry.getKey());
+      // Both sides aggregate exact cents, so even the averages match to the last bit
+      if (entry.getValue() instanceof int[]) {
+        assertArrayEquals((int[]) entry.getValue(), (int[]) value, entry.getKey());
+      } else {
+        assertEquals(entry.getValue(), value, entry.getKey());
+      }
+    }
+  }
+
+  @Test
+  public void testDepartmentStatisticsMatchInMemory() {
+    // Ties on both salary and performance, and enough employees for real quartiles
+    connection.addEmployeesToDepartment(1, 10001, List.of(
+        new Employee(0, "Ann", new Date(), "Engineer", 70000, 80.5),
+        new Employee(0, "Bob", new Date(), "Engineer", 90000, 60.25),
+        new Employee(0, "Cid", new Date(), "Engineer", 90000, 95),
+        new Employee(0, "Dee", new Date(), "Engineer", 50000, 80.5)));
+    Department empty = connection.insertDepartment(1, new Department(0, "Empty"));
+    // Amounts whose double sums drift, and an average that is not a whole number of cents
+    Department cents = connection.insertDepartment(1, new Department(0, "Cents"));
+    connection.addEmployeesToDepartment(1, 10000 + cents.getId(), List.of(
+        new Employee(0, "Eli", new Date(), "Intern", 0.1, 33.33),
+        new Employee(0, "Fox", new Date(), "Intern", 0.2, 33.33),
+        new Employee(0, "Gus", new Date(), "Intern", 1234567.89, 0.01)));
+    assertEquals(123456789L, connection.getEmployee(1, 10).getSalaryCents());
+
+    for (int departmentId : new int[] {1, 2, empty.getId(), cents.getId()}) {
+      Department department = connection.getDepartment(1, departmentId);
+      assertSameStatistics(department.getEmployeeSalaryStatisticMap(),
+          connection.getDepartmentSalaryStatistics(1, departmentId));
+      assertSameStatistics(department.getEmployeePerformanceCutoffMap(),
+          connection.getDepartmentPerformanceStatistics(1, departmentId));
+    }
+    assertNull(connection.getDepartmentSalaryStatistics(1, 99));
+    assertNull(connection.getDepartmentPerformanceStatistics(1, 99));
+  }
+
+  @Test
+  public void testUpdateDepartmentChecksHead() {
+    Department engineering = connection.getDepartment(1, 1);
+    engineering.setHead(connection.getEmployee(1, 2));
+    assertFalse(connection.updateDepartment(1, engineering),
+        "An employee of another department cannot be head");
+
+    engineering.setHead(connection.getEmployee(1, 3));
+    engineering.setName("Platform");
+    assertTrue(connection.updateDepartment(1, engineering));
+    Department updated = connection.getDepartments(1).get(0);
+    assertEquals("Platform", updated.getName());
+    assertEquals(3, updated.getHead().getId());
+  }
+
+  @Test
+  public void testChangesSinceWatermark() throws InterruptedException {
+    assertTrue(connection.loadOrganizationSnapshot(1).getWatermark() >= 0);
+    // Let the seeded rows fall before the watermark
+    Thread.sleep(20);
+    final long watermark = System.currentTimeMillis();
+    Thread.sleep(5);
+
+    Employee tom = connection.getEmployee(1, 3);
+    tom.setSalary(75000);
+    assertTrue(connection.updateEmployee(1, tom));
+    final int added =
+        connection.addEmployeeToDepartment(1, 10002, new Employee(0, "New", new Date()));
+    // Jane Smith heads Marketing, so its head is cleared too
+    assertTrue(connection.removeEmployeeFromDepartment(1, 10002, 10002));
+
+    OrganizationDelta delta = connection.getChangesSince(1, watermark);
+    assertEquals(2, delta.getEmployees().size());
+    assertEquals(75000.0, delta.getEmployees().get(0).getSalary());
+    assertEquals(1, delta.getDepartmentId(3));
+    assertEquals(added % 10000, delta.getEmployees().get(1).getId());
+    assertEquals(2, delta.getDepartmentId(added % 10000));
+    assertEquals(List.of(2), List.copyOf(delta.getRemovedEmployees()));
+    assertEquals(1, delta.getDepartments().size());
+    assertEquals(2, delta.getDepartments().get(0).getId());
+    assertNull(delta.getHeadId(2));
+    assertTrue(delta.getWatermark() < System.currentTimeMillis());
+
+    assertTrue(connection.removeDepartment(1, 2));
+    delta = connection.getChangesSince(1, watermark);
+    assertTrue(delta.getRemovedDepartments().contains(2));
+    assertTrue(delta.getRemovedEmployees().contains(added % 10000));
+
+    assertNull(connection.getChangesSince(99, watermark));
+    assertNull(connection.getChangesSince(1, 0), "Past the tombstone retention");
+  }
+
+  @Test
+  public void testTombstonesPrunedByDatabaseClock() throws SQLException {
+    String url = "jdbc:h2:mem:embedded_test_prune;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    EmbeddedConnection pruned = new EmbeddedConnection(url);
+    try (Connection conn = DriverManager.getConnection(url, "sa", "");
+         Statement stmt = conn.createStatement()) {
+      // Ages relative to the database clock, as the rows it stamps
+      stmt.execute("INSERT INTO deleted_rows (organization_id, entity, entity_id, deleted_at) "
+          + "VALUES (1, 'employee', 19998, TIMESTAMPADD(HOUR, -25, CURRENT_TIMESTAMP(3))), "
+          + "(1, 'employee', 19999, TIMESTAMPADD(HOUR, -23, CURRENT_TIMESTAMP(3)))");
+      assertTrue(pruned.removeEmployeeFromDepartment(1, 10001, 10003));
+      try (ResultSet rs = stmt.executeQuery(
+          "SELECT entity_id FROM deleted_rows WHERE organization_id = 1 ORDER BY entity_id")) {
+        List<Integer> kept = new ArrayList<>();
+        while (rs.next()) {
+          kept.add(rs.getInt(1));
+        }
+        assertEquals(List.of(10003, 19999), kept, "Only the tombstone past retention is pruned");
+      }
+    } finally {
+      pruned.close();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFacadeRefreshesFromChanges() throws Exception {
+    InstrumentedConnection instrumented =
+        new InstrumentedConnection(connection, new QueryMetrics());
+    Field instancesField = HrDatabaseFacade.class.getDeclaredField("instances");
+    instancesField.setAccessible(true);
+    Map<Integer, HrDatabaseFacade> instances =
+        (Map<Integer, HrDatabaseFacade>) instancesField.get(null);
+    instances.clear();
+    HrDatabaseFacade.setConnection(instrumented);
+    try {
+      final HrDatabaseFacade facade = HrDatabaseFacade.getInstance(1);
+      assertEquals(5, facade.getOrganization().getChildren().size(),
+          "Each department and employee is attached to the organization once");
+      Employee tom = connection.getEmployee(1, 3);
+      tom.setSalary(75000);
+      connection.updateEmployee(1, tom);
+      Department engineering = connection.getDepartment(1, 1);
+      engineering.setHead(tom);
+      engineering.setName("Platform");
+      connection.updateDepartment(1, engineering);
+      connection.removeEmployeeFromDepartment(1, 10002, 10002);
+
+      // A cache miss reads the changes, including the new employee
+      int added = connection.addEmployeeToDepartment(1, 10002, new Employee(0, "New", new Date()));
+      assertEquals("New", facade.getEmployee(added % 10000).getName());
+      assertTrue(facade.refresh());
+
+      Employee cached = facade.getEmployee(3);
+      assertEquals(75000.0, cached.getSalary());
+      Department platform = facade.getDepartment(1);
+      assertEquals("Platform", platform.getName());
+      assertTrue(platform.getHead() == cached);
+      assertTrue(platform.getEmployees().contains(cached));
+      assertEquals(2, platform.getEmployees().size());
+      assertNull(facade.getEmployee(2));
+      assertEquals(List.of(added % 10000),
+          facade.getDepartment(2).getEmployees().stream().map(Employee::getId).toList());
+      assertEquals(3, facade.employees.size());
+
+      // Statistics come from the database aggregates, not from the cached employees
+      assertEquals(connection.getDepartmentPerformanceStatistics(1, 1),
+          facade.getDepartmentPerformanceStatistics(1));
+      assertEquals(75000.0, facade.getDepartmentSalaryStatistics(1).get("lowest"));
+      assertEquals(1, instrumented.getMetrics().get("getDepartmentSalaryStatistics")
+          .getLatency().getCount());
+
+      assertEquals(1, instrumented.getMetrics().get("loadOrganizationSnapshot")
+          .getLatency().getCount(), "Only the first load reads the whole organization");
+    } finally {
+      instances.clear();
+    }
+  }
+
+  @Test
+  public void testInsertAndRemoveOrganization() {
+    Organization organization = connection.insertOrganization(new Organization(0, "Gamma"));
+    assertEquals(3, organization.getId());
+    Department department = connection.insertDepartment(3, new Department(0, "Ops"));
+    assertEquals(1, department.getId());
+    assertEquals(30001, connection.addEmployeeToDepartment(
+        3, 30001, new Employee(0, "Ops Lead", new Date())));
+
+    assertTrue(connection.removeOrganization(3));
+    assertNull(connection.getOrganization(3));
+    assertTrue(connection.getEmployees(3).isEmpty());
+    assertTrue(connection.removeOrganization(1), "Shifts and heads must not block removal");
+
+    // Removing a marked organization at once also clears its mark
+    assertTrue(connection.markOrganizationForRemoval(2));
+    assertTrue(connection.removeOrganization(2));
+    assertTrue(connection.getOrganizationsPendingRemoval().isEmpty());
+  }
+
+  @Test
+  public void testJsonColumns() {
+    Map<String, Object> contactInfo = connection.getEmployeeContactInfo(1, 1);
+    assertEquals("john.doe@acme.com", contactInfo.get("email"));
+    assertEquals("123-456-7890", contactInfo.get("phone"));
+
+    // Targeted updates leave the other fields alone
+    assertTrue(connection.setEmployeeContactField(1, 1, "phone", "555-0100"));
+    contactInfo = connection.getEmployeeContactInfo(1, 1);
+    assertEquals("555-0100", contactInfo.get("phone"));
+    assertEquals("john.doe@acme.com", contactInfo.get("email"));
+    assertTrue(connection.setEmployeeContactField(1, 1, "email", null));
+    assertEquals(Map.of("phone", "555-0100"), connection.getEmployeeContactInfo(1, 1));
+
+    assertTrue(connection.setEmployeeContactField(1, 3, "email", "tom@acme.com"));
+    assertEquals("tom@acme.com", connection.getEmployeeContactInfo(1, 3).get("email"));
+    assertNull(connection.getEmployeeContactInfo(1, 99));
+    assertFalse(connection.setEmployeeContactField(1, 99, "email", "nobody@acme.com"));
+
+    assertEquals("Technology", connection.getOrganizationDetails(1).get("industry"));
+    assertTrue(connection.setOrganizationDetail(1, "industry", "Robotics"));
+    Map<String, Object> details = connection.getOrganizationDetails(1);
+    assertEquals("Robotics", details.get("industry"));
+    assertEquals("1990-01-01", details.get("founded"));
+    assertNull(connection.getOrganizationDetails(99));
+  }
+
+  @Test
+  public void testInsertsOnSingleConnectionPool() {
+    // Refilling an ID block borrows a connection, so inserts must not hold one meanwhile
+    System.setProperty("db.pool.maxSize", "1");
+    System.setProperty("db.pool.minIdle", "1");
+    System.setProperty("db.pool.connectionTimeoutMs", "1000");
+    EmbeddedConnection single;
+    try {
+      single = new EmbeddedConnection("jdbc:h2:mem:embedded_test_single_pool"
+          + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    } finally {
+      System.clearProperty("db.pool.maxSize");
+      System.clearProperty("db.pool.minIdle");
+      System.clearProperty("db.pool.connectionTimeoutMs");
+    }
+    try {
+      Organization organization = single.insertOrganization(new Organization(0, "Gamma"));
+      assertNotNull(organization);
+      Department department = single.insertDepartment(
+          organization.getId(), new Department(0, "Ops"));
+      assertNotNull(department);
+      int internalDepartmentId = organization.getId() * 10000 + department.getId();
+      assertTrue(single.addEmployeeToDepartment(organization.getId(), internalDepartmentId,
+          new Employee(0, "Ann", new Date())) > 0);
+      List<Employee> employees = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        employees.add(new Employee(0, "E" + i, new Date()));
+      }
+      assertEquals(25, single.addEmployeesToDepartment(
+          organization.getId(), internalDepartmentId, employees).size());
+      assertNotNull(single.cloneOrganization(1, new Organization(0, "Acme Copy")));
+    } finally {
+      single.close();
+    }
+  }
+
+  @Test
+  public void testCloneOrganization() {
+    Organization clone = connection.cloneOrganization(1, new Organization(0, "Acme Sandbox"));
+    assertEquals(3, clone.getId());
+    assertEquals("Acme Sandbox", connection.getOrganization(3).getName());
+    assertEquals("Technology", connection.getOrganizationDetails(3).get("industry"));
+
+    // Every copy keeps its external ID, department and head
+    assertEquals(List.of(1, 2, 3),
+        connection.getEmployees(3).stream().map(Employee::getId).toList());
+    assertEquals("Tom Brown", connection.getEmployee(3, 3).getName());
+    assertEquals(2, connection.getDepartments(3).size());
+    assertEquals(1, connection.getDepartments(3).get(0).getHead().getId());
+    assertEquals(List.of(1, 3), connection.getDepartments(3).get(0).getEmployees().stream()
+        .map(Employee::getId).sorted().toList());
+    assertEquals("john.doe@acme.com", connection.getEmployeeContactInfo(3, 1).get("email"));
+
+    // The clone is independent of the source, and gets its own new IDs
+    assertTrue(connection.removeOrganization(1), "Shifts must have been copied, not moved");
+    assertEquals(3, connection.getEmployees(3).size());
+    assertEquals(30004, connection.addEmployeeToDepartment(
+        3, 30001, new Employee(0, "Sandbox User", new Date())));
+    assertNull(connection.cloneOrganization(1, new Organization(0, "Gone")));
+  }
+}
@@ -1,9 +1,11 @@
 package dev.coms4156.project;
 
 import dev.coms4156.project.exception.BadRequestException;
+import dev.coms4156.project.exception.ConflictException;
 import dev.coms4156.project.exception.ForbiddenException;
 import dev.coms4156.project.exception.InternalServerErrorException;
 import dev.coms4156.project.exception.NotFoundException;
+import dev.coms4156.project.exception.ServiceUnavailableException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -52,6 +54,16 @@ public class ExceptionTest {
     Assertions.assertThrows(BadRequestException.class, () -> this.throwBadRequestException("Err"));
   }
 
+  @Test
+  public void testConflictException() {
+    Assertions.assertThrows(ConflictException.class, () -> {
+      throw new ConflictException();
+    });
+    Assertions.assertThrows(ConflictException.class, () -> {
+      throw new ConflictException("Err");
+    });
+  }
+
   @Test
   public void testForbiddenException() {
     Assertions.assertThrows(ForbiddenException.class, this::throwForbiddenException);
@@ -75,4 +87,14 @@ public class ExceptionTest {
     Assertions.assertThrows(NotFoundException.class, () -> this.throwNotFoundException("Err"));
   }
 
+  @Test
+  public void testServiceUnavailableException() {
+    Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+      throw new ServiceUnavailableException();
+    });
+    Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+      throw new ServiceUnavailableException("Err");
+    });
+  }
+
 }
@@ -0,0 +1,162 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the GroupCommitter class, on an embedded database.
+ */
+public class GroupCommitterTest {
+  private HikariDataSource dataSource;
+
+  /**
+   * Creates a fresh embedded database with a table of unique values.
+   *
+   * @throws SQLException if the table cannot be created
+   */
+  @BeforeEach
+  public void setup() throws SQLException {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl("jdbc:h2:mem:group_commit_test;MODE=MySQL");
+    try (Connection conn = dataSource.getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE items (v INT PRIMARY KEY)");
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  private static boolean insert(Connection conn, Integer value) throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO items (v) VALUES (?)")) {
+      pstmt.setInt(1, value);
+      return pstmt.executeUpdate() > 0;
+    }
+  }
+
+  private List<Integer> storedValues() throws SQLException {
+    List<Integer> values = new ArrayList<>();
+    try (Connection conn = dataSource.getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("SELECT v FROM items ORDER BY v")) {
+      while (rs.next()) {
+        values.add(rs.getInt(1));
+      }
+    }
+    return values;
+  }
+
+  @Test
+  public void testFailedWriteIsIsolated() throws SQLException {
+    // A long window puts all four writes into the same group
+    GroupCommitter<Integer> committer =
+        new GroupCommitter<>(dataSource, GroupCommitterTest::insert, 200_000, 16);
+    List<CompletableFuture<Boolean>> results = List.of(
+        committer.submit(1), committer.submit(2), committer.submit(2), committer.submit(3));
+
+    assertTrue(results.get(0).join());
+    assertTrue(results.get(1).join());
+    assertFalse(results.get(2).join(), "The duplicate must fail on its own");
+    assertTrue(results.get(3).join());
+    assertEquals(List.of(1, 2, 3), storedValues());
+    committer.close();
+  }
+
+  @Test
+  public void testCloseCommitsQueuedWrites() throws SQLException {
+    GroupCommitter<Integer> committer =
+        new GroupCommitter<>(dataSource, GroupCommitterTest::insert, 1_000_000, 16);
+    CompletableFuture<Boolean> result = committer.submit(7);
+    committer.close();
+    assertTrue(result.join());
+    assertFalse(committer.submit(8).join(), "Writes after close are rejected");
+    assertEquals(List.of(7), storedValues());
+  }
+
+  @Test
+  public void testConcurrentEmployeeUpdates() {
+    EmbeddedConnection connection = new EmbeddedConnection(
+        "jdbc:h2:mem:group_commit_employees;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    connection.enableGroupCommit(500, 64);
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<CompletableFuture<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        int salary = 1000 + i;
+        int employeeId = 1 + i % 3;
+        results.add(CompletableFuture.supplyAsync(() -> {
+          Employee employee = new Employee(employeeId, "Name " + employeeId, null);
+          employee.setSalary(salary);
+          return connection.updateEmployee(1, employee);
+        }, callers));
+      }
+      results.forEach(result -> assertTrue(result.join()));
+      Employee missing = new Employee(99, "Missing", null);
+      assertFalse(connection.updateEmployee(1, missing));
+      assertTrue(connection.getEmployee(1, 1).getSalary() >= 1000);
+    } finally {
+      callers.shutdown();
+      connection.close();
+    }
+  }
+
+  @Test
+  public void testEmployeeUpdateTimesOut() {
+    System.setProperty("db.pool.maxSize", "1");
+    System.setProperty("db.pool.minIdle", "1");
+    System.setProperty("db.pool.connectionTimeoutMs", "5000");
+    System.setProperty("db.groupCommit.timeoutMs", "200");
+    EmbeddedConnection connection;
+    try {
+      connection = new EmbeddedConnection(
+          "jdbc:h2:mem:group_commit_timeout;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    } finally {
+      System.clearProperty("db.pool.maxSize");
+      System.clearProperty("db.pool.minIdle");
+      System.clearProperty("db.pool.connectionTimeoutMs");
+      System.clearProperty("db.groupCommit.timeoutMs");
+    }
+    connection.enableGroupCommit(500, 64);
+    try {
+      // Streaming holds the only connection, so the group cannot be committed meanwhile
+      List<Boolean> results = new ArrayList<>();
+      final long start = System.nanoTime();
+      connection.forEachEmployee(1, employee -> {
+        if (employee.getId() == 1) {
+          employee.setSalary(1);
+          results.add(connection.updateEmployee(1, employee));
+        }
+      });
+      assertEquals(List.of(false), results);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3),
+          "The caller gives up well before the pool does");
+
+      // The withdrawn update is not written once the connection is free
+      Employee tom = connection.getEmployee(1, 3);
+      tom.setSalary(71000);
+      assertTrue(connection.updateEmployee(1, tom));
+      assertEquals(75000.0, connection.getEmployee(1, 1).getSalary());
+    } finally {
+      connection.close();
+    }
+  }
+}
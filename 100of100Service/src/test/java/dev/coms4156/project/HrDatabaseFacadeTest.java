@@ -7,6 +7,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import dev.coms4156.project.command.SetDeptHeadCmd;
+import dev.coms4156.project.exception.InternalServerErrorException;
 import dev.coms4156.project.exception.NotFoundException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -451,6 +453,96 @@ public class HrDatabaseFacadeTest {
     });
   }
 
+  @Test
+  @Order(30)
+  public void testRefresh() throws Exception {
+    Field departmentsField = HrDatabaseFacade.class.getDeclaredField("departments");
+    departmentsField.setAccessible(true);
+    departmentsField.set(facade, new ArrayList<>());
+
+    assertTrue(facade.refresh(), "Refresh should succeed for an existing organization");
+    assertNotNull(facade.getOrganization());
+    @SuppressWarnings("unchecked")
+    List<Department> departmentsCache = (List<Department>) departmentsField.get(facade);
+    assertFalse(departmentsCache.isEmpty(), "Departments cache should be reloaded");
+  }
+
+  @Test
+  @Order(31)
+  public void testUpdateEmployees() {
+    Employee employee = facade.getEmployee(1);
+    assertNotNull(employee, "Employee should not be null");
+
+    double originalSalary = employee.getSalary();
+    try {
+      employee.setSalary(originalSalary + 100);
+      int updated = facade.updateEmployees(List.of(employee));
+      assertEquals(1, updated, "One employee should be updated");
+      assertEquals(originalSalary + 100, facade.getEmployee(1).getSalary());
+    } finally {
+      employee.setSalary(originalSalary);
+      facade.updateEmployees(List.of(employee));
+    }
+  }
+
+  @Test
+  @Order(32)
+  public void testForEachEmployee() {
+    List<Employee> streamed = new ArrayList<>();
+    int count = facade.forEachEmployee(streamed::add);
+    assertEquals(streamed.size(), count, "Count should match the streamed employees");
+    assertEquals(facade.employees.size(), count, "Every cached employee should be streamed");
+  }
+
+  @Test
+  @Order(33)
+  public void testFailedHeadChangeLeavesCacheUnchanged() {
+    Map<Integer, HrDatabaseFacade> instancesMap = getInstancesMapViaReflection();
+    instancesMap.clear();
+    // The write fails without anyone else changing the department
+    HrDatabaseFacade.setConnection(new InmemConnection() {
+      @Override
+      public boolean compareAndSetDepartment(int organizationId, Department department) {
+        return false;
+      }
+    });
+    try {
+      HrDatabaseFacade failing = HrDatabaseFacade.getInstance(testOrganizationId);
+      Department department = failing.departments.get(0);
+      Employee head = department.getHead();
+      Employee other = failing.employees.stream()
+          .filter(employee -> employee != head)
+          .findFirst().orElseThrow();
+      assertThrows(InternalServerErrorException.class, () -> new SetDeptHeadCmd(
+          testOrganizationId, department.getId(), other.getId()).execute());
+      Department cached = failing.getDepartment(department.getId());
+      assertEquals(head == null ? null : head.getId(),
+          cached.getHead() == null ? null : cached.getHead().getId());
+    } finally {
+      instancesMap.clear();
+    }
+  }
+
+  @Test
+  @Order(34)
+  public void testAsyncLookupsLeaveCacheToCaller() {
+    facade.employees = new ArrayList<>();
+    facade.departments = new ArrayList<>();
+
+    // Misses read the database on the executor without changing the cache
+    Employee employee = facade.getEmployeeAsync(1).join();
+    Department department = facade.getDepartmentAsync(1).join();
+    assertNotNull(employee);
+    assertNotNull(department);
+    assertTrue(facade.employees.isEmpty());
+    assertTrue(facade.departments.isEmpty());
+    assertNull(facade.getEmployeeAsync(999).join());
+
+    assertEquals(employee.getId(), facade.getEmployee(1).getId());
+    assertFalse(facade.employees.isEmpty(), "Synchronous lookups fill the cache");
+    getInstancesMapViaReflection().clear();
+  }
+
   /**
    * Helper method to access the private static 'instances' map via reflection.
    *
@@ -0,0 +1,90 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the IdAllocator class.
+ */
+public class IdAllocatorTest {
+
+  private final Map<String, Integer> storage = new HashMap<>();
+  private final AtomicInteger reservations = new AtomicInteger();
+  private IdAllocator allocator;
+
+  /**
+   * Sets up an allocator backed by an in-memory sequence storage.
+   */
+  @BeforeEach
+  public void setup() {
+    storage.clear();
+    reservations.set(0);
+    allocator = new IdAllocator((organizationId, entity, blockSize) -> {
+      reservations.incrementAndGet();
+      synchronized (storage) {
+        String key = organizationId + ":" + entity;
+        int start = storage.getOrDefault(key, organizationId * 10000 + 1);
+        storage.put(key, start + blockSize);
+        return start;
+      }
+    }, 5);
+  }
+
+  @Test
+  public void testSequentialIds() throws Exception {
+    for (int i = 1; i <= 12; i++) {
+      assertEquals(10000 + i, allocator.next(1, "employee"));
+    }
+    assertEquals(3, reservations.get(), "One reservation should serve a whole block");
+  }
+
+  @Test
+  public void testSequencesAreIndependent() throws Exception {
+    assertEquals(10001, allocator.next(1, "employee"));
+    assertEquals(10001, allocator.next(1, "department"));
+    assertEquals(20001, allocator.next(2, "employee"));
+    assertEquals(10002, allocator.next(1, "employee"));
+  }
+
+  @Test
+  public void testReleaseDropsCachedBlock() throws Exception {
+    assertEquals(10001, allocator.next(1, "employee"));
+    allocator.release(1);
+    assertEquals(10006, allocator.next(1, "employee"),
+        "A released organization should continue from the next stored block");
+  }
+
+  @Test
+  public void testConcurrentAllocationIsUnique() throws Exception {
+    Set<Integer> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 400; i++) {
+      executor.submit(() -> {
+        ids.add(allocator.next(1, "employee"));
+        return null;
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals(400, ids.size(), "Every allocated ID should be unique");
+    assertEquals(80, reservations.get(), "No block should be reserved twice");
+  }
+
+  @Test
+  public void testInvalidBlockSize() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new IdAllocator((organizationId, entity, blockSize) -> 0, 0));
+  }
+}
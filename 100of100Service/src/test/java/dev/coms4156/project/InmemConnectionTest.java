@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -105,6 +106,24 @@ public class InmemConnectionTest {
     assertNull(department, "Department should be null for nonexistent ID");
   }
 
+  @Test
+  public void testLoadOrganizationSnapshot() {
+    OrganizationSnapshot snapshot = inmemConnection.loadOrganizationSnapshot(testOrganizationId);
+    assertNotNull(snapshot, "Snapshot should not be null");
+    assertEquals(testOrganizationId, snapshot.getOrganization().getId());
+    assertEquals(2, snapshot.getDepartments().size());
+    assertEquals(2, snapshot.getEmployees().size());
+    Employee deptEmployee = snapshot.getDepartments().get(0).getEmployees().get(0);
+    assertTrue(snapshot.getEmployees().contains(deptEmployee),
+        "Department employees should be part of the organization employees");
+  }
+
+  @Test
+  public void testLoadNonexistentOrganizationSnapshot() {
+    assertNull(inmemConnection.loadOrganizationSnapshot(-1),
+        "Snapshot should be null for nonexistent organization");
+  }
+
   @Test
   public void testAddEmployeeToNonexistentDepartment() {
     Employee newEmployee = new Employee(0, "Test Employee", new Date());
@@ -418,6 +437,126 @@ public class InmemConnectionTest {
     }
   }
 
+  @Test
+  public void testUpdateEmployees() {
+    Employee first = inmemConnection.getEmployee(testOrganizationId, 1);
+    Employee second = inmemConnection.getEmployee(testOrganizationId, 2);
+    first.setSalary(1234);
+    second.setSalary(5678);
+    Employee missing = new Employee(99, "Missing", new Date());
+
+    int updated = inmemConnection.updateEmployees(
+        testOrganizationId, List.of(first, second, missing));
+    assertEquals(2, updated, "Only existing employees should be updated");
+    assertEquals(5678, inmemConnection.getEmployee(testOrganizationId, 2).getSalary());
+  }
+
+  @Test
+  public void testAddEmployeesToDepartment() {
+    List<Employee> newEmployees = List.of(
+        new Employee(0, "Batch One", new Date()),
+        new Employee(0, "Batch Two", new Date())
+    );
+
+    List<Integer> ids = inmemConnection.addEmployeesToDepartment(
+        testOrganizationId, testOrganizationId * 10000 + 1, newEmployees);
+    assertEquals(List.of(10003, 10004), ids, "New IDs should be assigned in input order");
+    assertEquals(4, inmemConnection.getEmployees(testOrganizationId).size());
+    assertEquals(3, inmemConnection.getDepartment(testOrganizationId, 1).getEmployees().size());
+  }
+
+  @Test
+  public void testForEachEmployee() {
+    List<Integer> visited = new ArrayList<>();
+    int count = inmemConnection.forEachEmployee(testOrganizationId, e -> visited.add(e.getId()));
+    assertEquals(2, count, "Every employee should be visited");
+    assertEquals(List.of(1, 2), visited);
+    assertEquals(0, inmemConnection.forEachEmployee(99, e -> visited.add(e.getId())));
+  }
+
+  @Test
+  public void testGetEmployeesPage() {
+    List<Employee> first = inmemConnection.getEmployeesPage(testOrganizationId, 0, 1);
+    assertEquals(1, first.size());
+    assertEquals(1, first.get(0).getId());
+    List<Employee> second = inmemConnection.getEmployeesPage(testOrganizationId, 1, 1);
+    assertEquals(2, second.get(0).getId());
+    assertTrue(inmemConnection.getEmployeesPage(testOrganizationId, 2, 1).isEmpty());
+
+    assertEquals(1, inmemConnection.getDepartmentEmployeesPage(testOrganizationId, 1, 0, 5).size());
+    assertTrue(inmemConnection.getDepartmentEmployeesPage(testOrganizationId, 99, 0, 5).isEmpty());
+  }
+
+  @Test
+  public void testParallelAsyncReads() {
+    CompletableFuture<Employee> employee = inmemConnection.getEmployeeAsync(testOrganizationId, 1);
+    CompletableFuture<Department> department =
+        inmemConnection.getDepartmentAsync(testOrganizationId, 1);
+    CompletableFuture<List<Employee>> employees =
+        inmemConnection.getEmployeesAsync(testOrganizationId);
+
+    assertEquals(1, employee.join().getId());
+    assertEquals(1, department.join().getId());
+    assertEquals(2, employees.join().size());
+    assertNull(inmemConnection.getEmployeeAsync(testOrganizationId, 99).join());
+  }
+
+  @Test
+  public void testUpdateEmployeeAsync() {
+    Employee employee = inmemConnection.getEmployee(testOrganizationId, 1);
+    employee.setSalary(4321);
+    assertTrue(inmemConnection.updateEmployeeAsync(testOrganizationId, employee).join());
+    assertEquals(4321, inmemConnection.getEmployee(testOrganizationId, 1).getSalary());
+  }
+
+  @Test
+  public void testCompareAndSetEmployee() {
+    Employee first = inmemConnection.getEmployee(testOrganizationId, 1).copy();
+    Employee second = inmemConnection.getEmployee(testOrganizationId, 1).copy();
+    first.setSalary(1234);
+    assertTrue(inmemConnection.compareAndSetEmployee(testOrganizationId, first));
+    assertEquals(second.getVersion() + 1, first.getVersion());
+
+    second.setSalary(5678);
+    assertFalse(inmemConnection.compareAndSetEmployee(testOrganizationId, second),
+        "A stale version must conflict");
+    assertEquals(1234, inmemConnection.getEmployee(testOrganizationId, 1).getSalary());
+    assertFalse(inmemConnection.compareAndSetEmployee(
+        testOrganizationId, new Employee(99, "Missing", new Date())));
+  }
+
+  @Test
+  public void testCompareAndSetDepartment() {
+    Department department = inmemConnection.getDepartment(testOrganizationId, 1);
+    long version = department.getVersion();
+    assertTrue(inmemConnection.compareAndSetDepartment(testOrganizationId, department));
+    assertEquals(version + 1, department.getVersion());
+
+    Department stale = new Department(1, department.getName());
+    stale.setVersion(version);
+    assertFalse(inmemConnection.compareAndSetDepartment(testOrganizationId, stale),
+        "A stale version must conflict");
+  }
+
+  @Test
+  public void testDepartmentStatistics() {
+    Department department = inmemConnection.getDepartment(testOrganizationId, 1);
+    assertEquals(department.getEmployeeSalaryStatisticMap(),
+        inmemConnection.getDepartmentSalaryStatistics(testOrganizationId, 1));
+    assertEquals(department.getEmployeePerformanceStatisticMap().get("median"),
+        inmemConnection.getDepartmentPerformanceStatistics(testOrganizationId, 1).get("median"));
+    assertNull(inmemConnection.getDepartmentSalaryStatistics(testOrganizationId, 99));
+    assertNull(inmemConnection.getDepartmentPerformanceStatistics(testOrganizationId, 99));
+  }
+
+  @Test
+  public void testAddEmployeesToNonexistentDepartment() {
+    List<Integer> ids = inmemConnection.addEmployeesToDepartment(
+        testOrganizationId, -1, List.of(new Employee(0, "Batch One", new Date())));
+    assertTrue(ids.isEmpty(), "Nothing should be added to a nonexistent department");
+    assertEquals(2, inmemConnection.getEmployees(testOrganizationId).size());
+  }
+
   @Test
   public void testUpdateEmployeeWithNullEmployees() {
     // Remove the employees list to simulate null
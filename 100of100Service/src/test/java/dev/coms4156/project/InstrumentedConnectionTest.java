@@ -0,0 +1,65 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the InstrumentedConnection class and the statement-level hooks
+ * of the JDBC connections.
+ */
+public class InstrumentedConnectionTest {
+
+  @Test
+  public void testRecordsDaoMethods() {
+    InmemConnection inmem = new InmemConnection();
+    InstrumentedConnection connection = new InstrumentedConnection(inmem, new QueryMetrics());
+
+    assertNotNull(connection.getEmployee(1, 1));
+    assertNull(connection.getEmployee(1, 99));
+    assertEquals(2, connection.getEmployees(1).size());
+
+    QueryMetrics.Stats getEmployee = connection.getMetrics().get("getEmployee");
+    assertEquals(2, getEmployee.getLatency().getCount());
+    assertEquals(1, getEmployee.getRows(), "Only the found employee is a returned row");
+    assertEquals(2, connection.getMetrics().get("getEmployees").getRows());
+    assertNull(connection.getMetrics().get("getDepartments"));
+  }
+
+  @Test
+  public void testRecordsStatements() {
+    EmbeddedConnection connection = new EmbeddedConnection(
+        "jdbc:h2:mem:instrumented_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    try {
+      assertNull(connection.getStatementMetrics());
+      // A zero threshold sends every query through the slow-query log and its EXPLAIN
+      connection.enableInstrumentation(0, true);
+
+      assertNotNull(connection.getEmployee(1, 1));
+      assertEquals(3, connection.forEachEmployee(1, employee -> { }));
+      List<Integer> ids = connection.addEmployeesToDepartment(1, 10001, List.of(
+          new Employee(0, "New One", new Date()), new Employee(0, "New Two", new Date())));
+      assertEquals(2, ids.size());
+
+      QueryMetrics metrics = connection.getStatementMetrics();
+      QueryMetrics.Stats select = metrics.get(JdbcConnection.SELECT_EMPLOYEE);
+      assertEquals(1, select.getLatency().getCount());
+      assertEquals(1, select.getRows());
+      assertEquals(3, metrics.get(JdbcConnection.SELECT_EMPLOYEES).getRows());
+
+      // Multi-row inserts are recorded under one template whatever their number of rows
+      Map<String, Object> json = metrics.toJson();
+      assertTrue(json.keySet().stream().anyMatch(
+          sql -> sql.startsWith("INSERT INTO employees") && sql.endsWith("?), ...")),
+          json.toString());
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -83,6 +83,8 @@ public class InternalIntegrationTest {
         .thenReturn(mockDepartments);
     when(mockDbConnection.getEmployees(testOrganizationId))
         .thenReturn(mockEmployees);
+    when(mockDbConnection.loadOrganizationSnapshot(testOrganizationId))
+        .thenReturn(new OrganizationSnapshot(organization, mockDepartments, mockEmployees));
 
     // Set the mock DatabaseConnection in HrDatabaseFacade
     HrDatabaseFacade.setConnection(mockDbConnection);
@@ -0,0 +1,49 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileMicros(0.99));
+    assertEquals(0.0, histogram.getAverageMicros());
+  }
+
+  @Test
+  public void testBucketsContainTheirValues() {
+    for (long micros : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucketOf(micros);
+      assertTrue(LatencyHistogram.upperBoundOf(bucket) >= micros, "Bucket too low: " + micros);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.upperBoundOf(bucket - 1) < micros,
+            "Bucket too high: " + micros);
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int micros = 1; micros <= 1000; micros++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMaxMicros());
+    assertEquals(500.5, histogram.getAverageMicros());
+    // Buckets are at most 12.5% wide
+    long p50 = histogram.getPercentileMicros(0.50);
+    assertTrue(p50 >= 500 && p50 <= 563, "p50 was " + p50);
+    long p99 = histogram.getPercentileMicros(0.99);
+    assertTrue(p99 >= 990 && p99 <= 1000, "p99 was " + p99);
+  }
+}
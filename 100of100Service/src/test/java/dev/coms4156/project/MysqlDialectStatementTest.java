@@ -0,0 +1,88 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks the SQL statements of JdbcConnection against the MySQL dialect, since the embedded
+ * database the other tests run on accepts syntax MySQL does not. The syntax check always runs;
+ * the statements are also prepared by the MySQL server given by the db.url, db.user and
+ * db.password system properties, after the service migrations have been applied to it.
+ */
+public class MysqlDialectStatementTest {
+  private static final Set<String> STATEMENT_KEYWORDS =
+      Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE");
+  // The types MySQL can CAST to; H2 also takes BIGINT, INT, VARCHAR and more
+  private static final Set<String> MYSQL_CAST_TYPES = Set.of("BINARY", "CHAR", "DATE",
+      "DATETIME", "DECIMAL", "DOUBLE", "FLOAT", "JSON", "NCHAR", "REAL", "SIGNED", "UNSIGNED",
+      "TIME", "YEAR");
+  private static final Pattern CAST_TYPE =
+      Pattern.compile("\\bCAST\\s*\\(.*?\\bAS\\s+([A-Z]+)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Returns every SQL statement constant of JdbcConnection.
+   *
+   * @return the statements
+   */
+  static List<String> statements() throws IllegalAccessException {
+    List<String> statements = new ArrayList<>();
+    for (Field field : JdbcConnection.class.getDeclaredFields()) {
+      if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      field.setAccessible(true);
+      String sql = (String) field.get(null);
+      String keyword = sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+      if (STATEMENT_KEYWORDS.contains(keyword)) {
+        statements.add(sql);
+      }
+    }
+    return statements;
+  }
+
+  @Test
+  public void testStatementsUseMysqlCastTypes() throws IllegalAccessException {
+    List<String> statements = statements();
+    assertFalse(statements.isEmpty());
+    for (String sql : statements) {
+      Matcher matcher = CAST_TYPE.matcher(sql);
+      while (matcher.find()) {
+        assertTrue(MYSQL_CAST_TYPES.contains(matcher.group(1).toUpperCase(Locale.ROOT)),
+            "MySQL cannot CAST to " + matcher.group(1) + " in: " + sql);
+      }
+    }
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "db.url", matches = ".+")
+  public void testStatementsPrepareOnMysql() throws IllegalAccessException, SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("user", System.getProperty("db.user", ""));
+    properties.setProperty("password", System.getProperty("db.password", ""));
+    // Server-side prepares make the server parse every statement without running it
+    properties.setProperty("useServerPrepStmts", "true");
+    try (Connection conn = DriverManager.getConnection(System.getProperty("db.url"), properties)) {
+      for (String sql : statements()) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+          pstmt.getParameterMetaData();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the OrganizationExporter class.
+ */
+public class OrganizationExporterTest {
+
+  private static String export(RecordFormat format) throws IOException {
+    Employee head = new Employee(
+        1, "Doe, \"JD\" John", Date.valueOf("2024-01-15"), "Lead", 90000, 80.5);
+    Department department = new Department(1, "R&D");
+    department.addEmployee(head);
+    department.setHead(head);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OrganizationExporter exporter = new OrganizationExporter(out, format);
+    exporter.writeDepartment(department);
+    exporter.writeEmployee(head, 1);
+    exporter.flush();
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testExportCsv() throws IOException {
+    String[] lines = export(RecordFormat.CSV).split("\n");
+    assertEquals(3, lines.length);
+    assertEquals("type,id,did,department,head,name,hireDate,position,salary,performance",
+        lines[0]);
+    assertEquals("department,1,,R&D,1,,,,,", lines[1]);
+    assertEquals("employee,1,1,,,\"Doe, \"\"JD\"\" John\",2024-01-15,Lead,90000.00,80.50",
+        lines[2]);
+    assertEquals(BulkImporter.splitCsvLine(lines[2]).get(5), "Doe, \"JD\" John");
+  }
+
+  @Test
+  public void testExportNdjson() throws IOException {
+    String[] lines = export(RecordFormat.NDJSON).split("\n");
+    assertEquals(2, lines.length);
+    ObjectMapper objectMapper = new ObjectMapper();
+    JsonNode department = objectMapper.readTree(lines[0]);
+    assertEquals("R&D", department.get("department").asText());
+    assertEquals(1, department.get("head").asInt());
+    JsonNode employee = objectMapper.readTree(lines[1]);
+    assertEquals("Doe, \"JD\" John", employee.get("name").asText());
+    assertEquals("2024-01-15", employee.get("hireDate").asText());
+    assertEquals(80.5, employee.get("performance").asDouble());
+  }
+
+  @Test
+  public void testExportLargeSalaryAsPlainDecimal() throws IOException {
+    Employee employee = new Employee(2, "Rich", Date.valueOf("2024-01-15"), "CEO", 0, 0);
+    employee.setSalaryCents(1_000_000_000L);
+    employee.setPerformanceBasisPoints(1);
+    for (RecordFormat format : RecordFormat.values()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      OrganizationExporter exporter = new OrganizationExporter(out, format);
+      exporter.writeEmployee(employee, 1);
+      exporter.flush();
+      String exported = out.toString(StandardCharsets.UTF_8);
+      assertTrue(exported.contains("10000000.00"), exported);
+      assertTrue(exported.contains("0.01"), exported);
+      assertFalse(exported.contains("E7"), exported);
+    }
+  }
+}
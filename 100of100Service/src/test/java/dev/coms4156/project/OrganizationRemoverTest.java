@@ -0,0 +1,73 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the OrganizationRemover class and the chunked removal it runs.
+ */
+public class OrganizationRemoverTest {
+  private EmbeddedConnection connection;
+
+  @BeforeEach
+  public void setUp() {
+    connection = new EmbeddedConnection(
+        "jdbc:h2:mem:organization_remover_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    connection.close();
+  }
+
+  @Test
+  public void testChunksDeleteChildrenFirst() {
+    assertTrue(connection.markOrganizationForRemoval(1));
+    assertFalse(connection.markOrganizationForRemoval(1), "Already marked");
+    assertFalse(connection.markOrganizationForRemoval(99));
+    assertNull(connection.getOrganization(1), "A marked organization is hidden at once");
+    assertNull(connection.loadOrganizationSnapshot(1));
+    assertNotNull(connection.getOrganization(2));
+    assertEquals(List.of(1), connection.getOrganizationsPendingRemoval());
+
+    // Two employees, the last employee, both departments, then the organization row
+    assertEquals(2, connection.removeOrganizationChunk(1, 2));
+    assertEquals(1, connection.getEmployees(1).size());
+    assertEquals(1, connection.removeOrganizationChunk(1, 2));
+    assertEquals(2, connection.removeOrganizationChunk(1, 2));
+    assertTrue(connection.removeOrganizationChunk(1, 2) > 0);
+    assertEquals(0, connection.removeOrganizationChunk(1, 2));
+    assertTrue(connection.getOrganizationsPendingRemoval().isEmpty());
+    assertEquals(2, connection.getEmployees(2).size(), "Other organizations are left alone");
+  }
+
+  @Test
+  public void testRemovesInTheBackground() throws InterruptedException {
+    OrganizationRemover remover = new OrganizationRemover(connection, 1, 1_000, 10);
+    try {
+      assertTrue(remover.remove(1));
+      assertFalse(remover.remove(99));
+      for (int i = 0; i < 200 && !"DONE".equals(remover.getProgress(1).get("state")); i++) {
+        Thread.sleep(10);
+      }
+      Map<String, Object> progress = remover.getProgress(1);
+      assertEquals("DONE", progress.get("state"));
+      assertEquals(6L, progress.get("chunks"), "3 employees, 2 departments, 1 organization");
+      assertTrue(connection.getEmployees(1).isEmpty());
+      assertTrue(connection.getDepartments(1).isEmpty());
+      assertNull(remover.getProgress(2));
+      assertEquals(0, remover.resumePending());
+    } finally {
+      remover.close();
+    }
+  }
+}
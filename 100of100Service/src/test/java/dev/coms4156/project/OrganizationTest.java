@@ -139,6 +139,21 @@ public class OrganizationTest {
     assertTrue(foundNullEmployeesDept, "Department with null employees should be present");
   }
 
+  @Test
+  @Order(9)
+  public void testSettersReplaceChildren() {
+    Organization loaded = new Organization(2, "Loaded");
+    Department department = new Department(1, "HR");
+    List<Employee> employees = List.of(employee1, employee2);
+    for (int i = 0; i < 2; i++) {
+      loaded.setDepartments(List.of(department));
+      loaded.setEmployees(employees);
+    }
+    assertEquals(3, loaded.getChildren().size(), "Setting again should not add duplicates");
+    assertEquals(2, loaded.getNumEmployees());
+    assertEquals(1, Organization.displayStructure(loaded, 0).split("Department").length - 1);
+  }
+
   /**
    * Helper class to simulate a Department with null employees list.
    */
@@ -152,4 +167,4 @@ public class OrganizationTest {
       return new ArrayList<>();
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks with EXPLAIN that the hot queries of JdbcConnection are pruned to the partition of
+ * their organization, and benchmarks a skewed tenant mix on partitioned and unpartitioned
+ * copies of the employees table. Both run against the MySQL database given by the db.url,
+ * db.user and db.password system properties, after the service migrations have been applied;
+ * the benchmark additionally needs db.benchmark=true.
+ */
+public class PartitionPruningTest {
+  private static final Set<String> PARTITIONED_TABLES =
+      Set.of("shifts", "employees", "departments", "deleted_rows");
+  // Ten times as many rows as all the small tenants together, so the counts line up below
+  private static final int LARGE_TENANT_EMPLOYEES = 200_000;
+  private static final int SMALL_TENANTS = 200;
+  private static final int SMALL_TENANT_EMPLOYEES = 100;
+  private static final int QUERIES_PER_RUN = 2_000;
+
+  @Test
+  @EnabledIfSystemProperty(named = "db.url", matches = ".+")
+  public void testHotQueriesArePrunedOnMysql() throws SQLException {
+    try (Connection conn = connect()) {
+      for (String query : QueryIndexUsageTest.QUERIES) {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query)) {
+          QueryIndexUsageTest.bindParameters(pstmt, query);
+          try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+              String table = rs.getString("table");
+              if (PARTITIONED_TABLES.contains(table)) {
+                String partitions = rs.getString("partitions");
+                assertNotNull(partitions, table + " is not partitioned");
+                assertFalse(partitions.contains(","),
+                    "Partitions " + partitions + " of " + table + " read by: " + query);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "db.benchmark", matches = "true")
+  public void benchmarkSkewedTenants() throws SQLException {
+    String columns = "organization_id INT NOT NULL, employee_id INT NOT NULL, "
+        + "position VARCHAR(100), salary DECIMAL(10, 2)";
+    try (Connection conn = connect();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("DROP TABLE IF EXISTS bench_flat, bench_partitioned");
+      // The layout before partitioning: clustered by ID, with a secondary organization index
+      stmt.execute("CREATE TABLE bench_flat (" + columns + ", PRIMARY KEY (employee_id), "
+          + "INDEX idx_bench_flat_org (organization_id))");
+      // The partitioned layout, with the large tenant isolated as isolateOrganization does
+      stmt.execute("CREATE TABLE bench_partitioned (" + columns + ", "
+          + "PRIMARY KEY (organization_id, employee_id)) "
+          + "PARTITION BY RANGE (organization_id) (PARTITION p1 VALUES LESS THAN (1), "
+          + "PARTITION p2 VALUES LESS THAN (2), PARTITION pmax VALUES LESS THAN MAXVALUE)");
+      try {
+        for (String table : new String[] {"bench_flat", "bench_partitioned"}) {
+          fill(conn, table);
+        }
+
+        for (String table : new String[] {"bench_flat", "bench_partitioned"}) {
+          System.out.printf("%s: %d small-tenant scans, %.1f us each%n", table,
+              QUERIES_PER_RUN, scanSmallTenants(conn, table) / 1_000.0);
+        }
+
+        long start = System.nanoTime();
+        stmt.executeUpdate("DELETE FROM bench_flat WHERE organization_id = 1");
+        long deleteNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        stmt.execute("ALTER TABLE bench_partitioned DROP PARTITION p2");
+        long dropNanos = System.nanoTime() - start;
+        System.out.printf("Removing the large tenant: DELETE %d ms, DROP PARTITION %d ms%n",
+            deleteNanos / 1_000_000, dropNanos / 1_000_000);
+
+        for (String table : new String[] {"bench_flat", "bench_partitioned"}) {
+          try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            assertEquals(SMALL_TENANTS * SMALL_TENANT_EMPLOYEES, rs.getInt(1));
+          }
+        }
+      } finally {
+        stmt.execute("DROP TABLE IF EXISTS bench_flat, bench_partitioned");
+      }
+    }
+  }
+
+  /**
+   * Inserts one large tenant, organization 1, and many small ones, interleaving their IDs
+   * the way they are allocated over time.
+   */
+  private static void fill(Connection conn, String table) throws SQLException {
+    String insert = "INSERT INTO " + table
+        + " (organization_id, employee_id, position, salary) VALUES (?, ?, ?, ?)";
+    Random random = new Random(42);
+    conn.setAutoCommit(false);
+    try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+      // One small-tenant row after every ten rows of the large tenant
+      int rows = LARGE_TENANT_EMPLOYEES + SMALL_TENANTS * SMALL_TENANT_EMPLOYEES;
+      int smallRows = 0;
+      int batched = 0;
+      for (int employeeId = 1; employeeId <= rows; employeeId++) {
+        int organizationId = employeeId % 11 == 0 ? 2 + smallRows++ % SMALL_TENANTS : 1;
+        pstmt.setInt(1, organizationId);
+        pstmt.setInt(2, employeeId);
+        pstmt.setString(3, random.nextBoolean() ? "Engineer" : "Manager");
+        pstmt.setDouble(4, 40_000 + random.nextInt(80_000));
+        pstmt.addBatch();
+        if (++batched % 1_000 == 0) {
+          pstmt.executeBatch();
+        }
+      }
+      pstmt.executeBatch();
+      conn.commit();
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Runs an unindexed filter over random small tenants.
+   *
+   * @return the average latency, in nanoseconds
+   */
+  private static long scanSmallTenants(Connection conn, String table) throws SQLException {
+    String query = "SELECT COUNT(*), AVG(salary) FROM " + table
+        + " WHERE organization_id = ? AND position = ? AND salary > ?";
+    Random random = new Random(7);
+    long start = System.nanoTime();
+    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+      for (int i = 0; i < QUERIES_PER_RUN; i++) {
+        pstmt.setInt(1, 2 + random.nextInt(SMALL_TENANTS));
+        pstmt.setString(2, "Engineer");
+        pstmt.setDouble(3, 60_000);
+        try (ResultSet rs = pstmt.executeQuery()) {
+          rs.next();
+        }
+      }
+    }
+    return (System.nanoTime() - start) / QUERIES_PER_RUN;
+  }
+
+  private static Connection connect() throws SQLException {
+    return DriverManager.getConnection(System.getProperty("db.url"),
+        System.getProperty("db.user"), System.getProperty("db.password"));
+  }
+}
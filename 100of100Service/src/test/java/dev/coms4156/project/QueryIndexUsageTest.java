@@ -0,0 +1,88 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks with EXPLAIN that the hot read queries of JdbcConnection are served by an index.
+ * The H2 check always runs on a migrated embedded database. The MySQL check runs against the
+ * database given by the db.url, db.user and db.password system properties, after the service
+ * migrations have been applied to it.
+ */
+public class QueryIndexUsageTest {
+  static final List<String> QUERIES = List.of(
+      JdbcConnection.SELECT_EMPLOYEE,
+      JdbcConnection.SELECT_DEPARTMENT,
+      JdbcConnection.SELECT_EMPLOYEES,
+      JdbcConnection.SELECT_EMPLOYEES_PAGE,
+      JdbcConnection.SELECT_DEPARTMENT_EMPLOYEES_PAGE,
+      JdbcConnection.SELECT_DEPARTMENTS,
+      JdbcConnection.SELECT_ORGANIZATION_DEPARTMENTS,
+      JdbcConnection.SELECT_EMPLOYEES_WITH_DEPARTMENT,
+      JdbcConnection.SELECT_DEPARTMENT_EMPLOYEES,
+      JdbcConnection.SELECT_CHANGE_CLOCK,
+      JdbcConnection.SELECT_CHANGED_DEPARTMENTS,
+      JdbcConnection.SELECT_CHANGED_EMPLOYEES,
+      JdbcConnection.SELECT_DELETED_ROWS
+  );
+
+  @Test
+  public void testHotQueriesUseAnIndexOnH2() throws SQLException {
+    String url = "jdbc:h2:mem:index_usage_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    EmbeddedConnection embedded = new EmbeddedConnection(url);
+    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+      for (String query : QUERIES) {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query)) {
+          bindParameters(pstmt, query);
+          try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            String plan = rs.getString(1);
+            assertFalse(plan.contains("tableScan"), "Full scan in plan: " + plan);
+          }
+        }
+      }
+    } finally {
+      embedded.close();
+    }
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "db.url", matches = ".+")
+  public void testHotQueriesUseAnIndexOnMysql() throws SQLException {
+    try (Connection conn = DriverManager.getConnection(
+        System.getProperty("db.url"),
+        System.getProperty("db.user"),
+        System.getProperty("db.password"))) {
+      for (String query : QUERIES) {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query)) {
+          bindParameters(pstmt, query);
+          try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+              String table = rs.getString("table");
+              assertNotEquals("ALL", rs.getString("type"),
+                  "Full scan of " + table + " in: " + query);
+              assertNotNull(rs.getString("key"), "No index on " + table + " in: " + query);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  static void bindParameters(PreparedStatement pstmt, String query) throws SQLException {
+    int parameters = (int) query.chars().filter(c -> c == '?').count();
+    for (int i = 1; i <= parameters; i++) {
+      pstmt.setInt(i, 10001);
+    }
+  }
+}
@@ -1,11 +1,17 @@
 package dev.coms4156.project;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -77,6 +83,51 @@ public class RouteControllerTest {
     System.out.println(content);
   }
 
+  @Test
+  public void testGetDepartmentInfoPaged() throws Exception {
+    MvcResult mvcResult1 = mockMvc.perform(get("/getDeptInfo")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("did", "1")
+            .param("limit", "1")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+
+    String content = mvcResult1.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"nextAfterId\":1"), content);
+
+    mockMvc.perform(get("/getDeptInfo")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("did", "1")
+            .param("limit", "0")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testGetEmployeeList() throws Exception {
+    MvcResult firstPage = mockMvc.perform(get("/getEmpList")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("limit", "1")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+    String content = firstPage.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"nextAfterId\":1"), content);
+
+    MvcResult lastPage = mockMvc.perform(get("/getEmpList")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("afterId", "1")
+            .param("limit", "10")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+    content = lastPage.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"nextAfterId\":null"), content);
+    Assertions.assertTrue(content.contains("\"id\":2"), content);
+  }
+
   @Test
   public void testGetOrganizationInfo() throws Exception {
     MvcResult mvcResult1 = mockMvc.perform(get("/getOrgInfo")
@@ -90,6 +141,73 @@ public class RouteControllerTest {
     System.out.println(content);
   }
 
+  @Test
+  public void testSetAndGetEmployeeContact() throws Exception {
+    mockMvc.perform(patch("/setEmpContact")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("eid", "1")
+            .param("field", "phone")
+            .param("value", "555-0100")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    MvcResult mvcResult = mockMvc.perform(get("/getEmpContact")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("eid", "1")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+    String content = mvcResult.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"phone\":\"555-0100\""), content);
+
+    mockMvc.perform(patch("/setEmpContact")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("eid", "1")
+            .param("field", "$.phone")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/getEmpContact")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("eid", "99")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void testSetAndGetOrganizationDetails() throws Exception {
+    mockMvc.perform(patch("/setOrgDetail")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("field", "industry")
+            .param("value", "Robotics")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    MvcResult mvcResult = mockMvc.perform(get("/getOrgDetails")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+    String content = mvcResult.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"industry\":\"Robotics\""), content);
+  }
+
+  @Test
+  public void testCloneOrganization() throws Exception {
+    MvcResult mvcResult = mockMvc.perform(post("/cloneOrg")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("name", "Sandbox")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isCreated()).andReturn();
+    String content = mvcResult.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"apikey\""), content);
+    Assertions.assertTrue(content.contains("Organization Sandbox created"), content);
+  }
+
   @Test
   public void testGetOrganizationInfoNotExist() throws Exception {
     mockMvc.perform(get("/getOrgInfo")
@@ -224,6 +342,72 @@ public class RouteControllerTest {
     System.out.println(content);
   }
 
+  @Test
+  public void testBulkImport() throws Exception {
+    String csv = "did,department,name,hireDate,salary\n"
+        + "1,,Alice,2024-01-15,90000\n"
+        + "1,,Bob,2024-02-01,80000\n"
+        + "1,,Carol,not-a-date,70000\n";
+    MvcResult mvcResult = mockMvc.perform(post("/bulkImport")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .contentType("text/csv")
+            .content(csv)
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk()).andReturn();
+
+    String content = mvcResult.getResponse().getContentAsString();
+    Assertions.assertTrue(content.contains("\"employeesImported\":2"));
+    Assertions.assertTrue(content.contains("\"rejected\":1"));
+    Assertions.assertNotNull(HrDatabaseFacade.getInstance(1).getDepartment(1));
+
+    mockMvc.perform(post("/bulkImport")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{}"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testExportOrg() throws Exception {
+    MvcResult started = mockMvc.perform(get("/exportOrg")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("format", "csv"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult mvcResult = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "text/csv"))
+        .andReturn();
+    String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+    // The header, two departments and two employees
+    Assertions.assertEquals(5, lines.length);
+    Assertions.assertTrue(lines[0].startsWith("type,id,did"));
+
+    started = mockMvc.perform(get("/exportOrg")
+            .header("Authorization", CLIENT_KEY_1)
+            .header("Accept-Encoding", "gzip")
+            .param("cid", CLIENT_ID_1))
+        .andExpect(request().asyncStarted()).andReturn();
+    mvcResult = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andReturn();
+    try (GZIPInputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+      String ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      Assertions.assertEquals(4, ndjson.split("\n").length);
+      Assertions.assertTrue(ndjson.startsWith("{\"type\":\"department\""));
+    }
+
+    mockMvc.perform(get("/exportOrg")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("format", "xml"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void testRemoveEmpFromDept() throws Exception {
     mockMvc.perform(delete("/removeEmpFromDept")
@@ -492,6 +676,11 @@ public class RouteControllerTest {
       public boolean updateEmployee(int organizationId, Employee employee) {
         return false;
       }
+
+      @Override
+      public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+        return false;
+      }
     };
     HrDatabaseFacade.setConnection(noUpdateConnection);
 
@@ -505,4 +694,28 @@ public class RouteControllerTest {
 
     HrDatabaseFacade.setConnection(inmemConnection);
   }
+
+  @Test
+  public void testSetEmpPositionConflict() throws Exception {
+    InmemConnection conflictingConnection = new InmemConnection() {
+      @Override
+      public boolean compareAndSetEmployee(int organizationId, Employee employee) {
+        // Another writer always gets in first
+        Employee stored = getEmployee(organizationId, employee.getId());
+        stored.setVersion(stored.getVersion() + 1);
+        return false;
+      }
+    };
+    HrDatabaseFacade.setConnection(conflictingConnection);
+
+    mockMvc.perform(patch("/setEmpPos")
+            .header("Authorization", CLIENT_KEY_1)
+            .param("cid", CLIENT_ID_1)
+            .param("eid", "1")
+            .param("position", "SoftwareEngineer")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isConflict()).andReturn();
+
+    HrDatabaseFacade.setConnection(inmemConnection);
+  }
 }
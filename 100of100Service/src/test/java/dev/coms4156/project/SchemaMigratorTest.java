@@ -0,0 +1,120 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the SchemaMigrator class.
+ */
+public class SchemaMigratorTest {
+
+  @Test
+  public void testSplitStatements() {
+    String script = "-- header comment\n"
+        + "CREATE TABLE a (id INT); -- trailing comment\n"
+        + "\n"
+        + "CREATE INDEX idx_a\n"
+        + "    ON a (id);\n";
+    List<String> statements = SchemaMigrator.splitStatements(script);
+    assertEquals(2, statements.size());
+    assertEquals("CREATE TABLE a (id INT)", statements.get(0));
+    assertTrue(statements.get(1).startsWith("CREATE INDEX idx_a"));
+    assertTrue(statements.get(1).endsWith("ON a (id)"));
+  }
+
+  @Test
+  public void testSplitStatementsIgnoresEmptyScript() {
+    assertTrue(SchemaMigrator.splitStatements("-- nothing here\n\n").isEmpty());
+  }
+
+  @Test
+  public void testDuplicateVersionsAreRejected() {
+    // Versions are numbered across the locations, so the same script twice must not pass
+    SchemaMigrator migrator = new SchemaMigrator(null,
+        List.of(SchemaMigrator.DEFAULT_LOCATION, SchemaMigrator.DEFAULT_LOCATION));
+    assertThrows(IOException.class, migrator::migrate);
+  }
+
+  @Test
+  public void testMysqlLocationsAreMigrated() throws SQLException, IOException {
+    List<String> locations = SqlDialect.MYSQL.migrationLocations();
+    assertTrue(new SchemaMigrator(null, locations).findVersions()
+        .contains(SqlDialect.PARTITION_MIGRATION), "The MySQL-only scripts must be found");
+
+    try (HikariDataSource dataSource = new HikariDataSource()) {
+      dataSource.setJdbcUrl(
+          "jdbc:h2:mem:schema_migrator_mysql;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+      SqlDialect.H2.createBaseSchema(dataSource);
+      Set<Integer> prepared = new HashSet<>();
+      SchemaMigrator migrator = new SchemaMigrator(dataSource, locations, (conn, version) -> {
+        prepared.add(version);
+        // Without db.partitions.migrate the partitioning rebuild is left pending
+        return SqlDialect.MYSQL.prepareMigration(conn, version);
+      });
+
+      assertEquals(5, migrator.migrate());
+      assertTrue(prepared.contains(SqlDialect.PARTITION_MIGRATION));
+      Set<Integer> applied = new HashSet<>();
+      try (Connection conn = dataSource.getConnection();
+           Statement stmt = conn.createStatement();
+           ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations")) {
+        while (rs.next()) {
+          applied.add(rs.getInt(1));
+        }
+      }
+      assertEquals(Set.of(1, 2, 3, 4, 5), applied);
+      assertEquals(0, migrator.migrate(), "A deferred migration stays pending");
+    }
+  }
+
+  @Test
+  public void testConcurrentMigrationsTakeTurns() throws Exception {
+    try (HikariDataSource dataSource = new HikariDataSource()) {
+      dataSource.setJdbcUrl(
+          "jdbc:h2:mem:schema_migrator_lock;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+      SqlDialect.H2.createBaseSchema(dataSource);
+      List<String> locations = SqlDialect.H2.migrationLocations();
+      SchemaMigrator second = new SchemaMigrator(dataSource, locations);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      AtomicReference<Future<Integer>> secondRun = new AtomicReference<>();
+      SchemaMigrator first = new SchemaMigrator(dataSource, locations, (conn, version) -> {
+        if (secondRun.get() == null) {
+          // Another instance starts while this one holds the lock
+          secondRun.set(executor.submit(second::migrate));
+          try {
+            Thread.sleep(500L);
+          } catch (InterruptedException e) {
+            throw new SQLException(e);
+          }
+          assertFalse(secondRun.get().isDone(), "The second instance waits for the lock");
+        }
+        return true;
+      });
+      try {
+        assertEquals(first.findVersions().size(), first.migrate());
+        assertEquals(0, secondRun.get().get(30, TimeUnit.SECONDS),
+            "The second instance finds every migration applied");
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A unit test class for the ShardedDatabaseConnection and ShardMap classes.
+ */
+public class ShardedDatabaseConnectionTest {
+
+  @Test
+  public void testRoutesByShardMap() {
+    DatabaseConnection directory = mock(DatabaseConnection.class);
+    DatabaseConnection other = mock(DatabaseConnection.class);
+    Employee employee = new Employee(1, "Alice Johnson", new Date());
+    when(other.getEmployee(2, 1)).thenReturn(employee);
+    ShardedDatabaseConnection connection = new ShardedDatabaseConnection(
+        List.of(directory, other), ShardMap.parse(2, "1=0, 2=1"));
+
+    assertEquals(employee, connection.getEmployee(2, 1));
+    connection.getEmployees(1);
+    verify(directory).getEmployees(1);
+    verify(directory, never()).getEmployee(2, 1);
+    verify(other, never()).getEmployees(1);
+
+    assertEquals(Map.of(1, 0, 2, 1), connection.getShardMap().getAssignments());
+    assertThrows(IllegalArgumentException.class, () -> ShardMap.parse(2, "1=2"));
+    assertThrows(IllegalArgumentException.class, () -> ShardMap.parse(2, "1"));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ShardedDatabaseConnection(List.of(directory), new ShardMap(2)));
+  }
+
+  @Test
+  public void testInsertAndMoveOrganizations() {
+    EmbeddedConnection directory = new EmbeddedConnection(
+        "jdbc:h2:mem:sharded_directory_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    EmbeddedConnection other = new EmbeddedConnection(
+        "jdbc:h2:mem:sharded_other_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    try {
+      // The second shard starts empty; both seed organizations live on the directory shard
+      assertTrue(other.removeOrganization(1));
+      assertTrue(other.removeOrganization(2));
+      ShardedDatabaseConnection connection =
+          new ShardedDatabaseConnection(List.of(directory, other), new ShardMap(2));
+
+      // New organizations get their IDs from the directory shard and are spread by ID
+      Organization gamma = connection.insertOrganization(new Organization(-1, "Gamma"));
+      assertEquals(3, gamma.getId());
+      assertEquals(1, connection.shardOf(3));
+      assertNotNull(directory.getOrganization(3), "The directory keeps a row for every ID");
+      Department ops = connection.insertDepartment(3, new Department(0, "Ops"));
+      assertEquals(30001, connection.addEmployeeToDepartment(
+          3, 30001, new Employee(0, "Ops Lead", new Date())));
+      assertNull(directory.getDepartment(3, ops.getId()));
+      assertNotNull(other.getDepartment(3, ops.getId()));
+
+      // Moving keeps the IDs, versions and heads, and leaves only the directory row behind
+      Employee john = connection.getEmployee(1, 1);
+      john.setPosition("Staff Engineer");
+      assertTrue(connection.updateEmployee(1, john));
+      final long version = connection.getEmployee(1, 1).getVersion();
+      assertEquals(0, connection.shardOf(1));
+      final long beforeMove = System.currentTimeMillis() - 1_000L;
+      assertTrue(connection.moveOrganization(1, 1));
+      assertEquals(1, connection.shardOf(1));
+      assertTrue(directory.getEmployees(1).isEmpty());
+      assertNotNull(directory.getOrganization(1));
+      Employee moved = connection.getEmployee(1, 1);
+      assertEquals("Staff Engineer", moved.getPosition());
+      assertEquals(version, moved.getVersion());
+      assertEquals(3, connection.getEmployees(1).size());
+      assertEquals(2, connection.getDepartments(1).stream()
+          .filter(department -> department.getId() == 2)
+          .findFirst().orElseThrow().getHead().getId());
+      assertNull(connection.getChangesSince(1, 0), "The first delta after a move reloads");
+      assertNull(connection.getChangesSince(1, beforeMove),
+          "So does every watermark from before it");
+      assertNotNull(connection.getChangesSince(1, System.currentTimeMillis() + 1_000L),
+          "Watermarks from after the move read the changes");
+      assertNotNull(connection.getChangesSince(2, beforeMove),
+          "Other organizations are not affected");
+
+      // IDs are never handed out twice, and new rows go where the organization now lives
+      assertEquals(4, connection.insertOrganization(new Organization(-1, "Delta")).getId());
+      assertEquals(0, connection.shardOf(4));
+      assertNotNull(connection.insertDepartment(1, new Department(0, "Sales")));
+      assertEquals(3, other.getDepartments(1).size());
+
+      // A router without pins finds the organizations where they live
+      ShardedDatabaseConnection restarted =
+          new ShardedDatabaseConnection(List.of(directory, other), new ShardMap(2));
+      assertEquals(1, restarted.shardOf(1));
+      assertEquals(0, restarted.shardOf(2));
+
+      // Clones stay on the shard of their source, with a directory row
+      Organization sandbox = connection.cloneOrganization(1, new Organization(0, "Sandbox"));
+      assertEquals(5, sandbox.getId());
+      assertEquals(1, connection.shardOf(5));
+      assertEquals(3, other.getEmployees(5).size());
+      assertNotNull(directory.getOrganization(5));
+
+      assertTrue(connection.removeOrganization(3));
+      assertNull(directory.getOrganization(3));
+      assertNull(other.getOrganization(3));
+    } finally {
+      directory.close();
+      other.close();
+    }
+  }
+
+  @Test
+  public void testMoveKeepsShiftsAndJsonFields() {
+    EmbeddedConnection directory = new EmbeddedConnection(
+        "jdbc:h2:mem:sharded_full_directory_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    EmbeddedConnection other = new EmbeddedConnection(
+        "jdbc:h2:mem:sharded_full_other_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    try {
+      assertTrue(other.removeOrganization(1));
+      assertTrue(other.removeOrganization(2));
+      ShardedDatabaseConnection connection =
+          new ShardedDatabaseConnection(List.of(directory, other), new ShardMap(2));
+      assertTrue(connection.setOrganizationDetail(1, "region", "EU"));
+      assertTrue(connection.setEmployeeContactField(1, 3, "slack", "@tom"));
+      OrganizationSnapshot before = directory.loadFullOrganizationSnapshot(1);
+      assertFalse(before.getShifts().isEmpty(), "The seed assigns shifts");
+
+      assertTrue(connection.moveOrganization(1, 1));
+      OrganizationSnapshot after = other.loadFullOrganizationSnapshot(1);
+      assertEquals(shiftKeys(before), shiftKeys(after));
+      assertEquals("EU", connection.getOrganizationDetails(1).get("region"));
+      assertEquals("Technology", connection.getOrganizationDetails(1).get("industry"));
+      assertEquals("@tom", connection.getEmployeeContactInfo(1, 3).get("slack"));
+      assertEquals("john.doe@acme.com", connection.getEmployeeContactInfo(1, 1).get("email"));
+      assertTrue(directory.loadFullOrganizationSnapshot(1).getShifts().isEmpty());
+    } finally {
+      directory.close();
+      other.close();
+    }
+  }
+
+  private static Set<String> shiftKeys(OrganizationSnapshot snapshot) {
+    Set<String> keys = new HashSet<>();
+    for (OrganizationSnapshot.Shift shift : snapshot.getShifts()) {
+      keys.add(shift.getEmployeeId() + "/" + shift.getDayOfWeek() + "/" + shift.getTimeSlot());
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,186 @@
+package dev.coms4156.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A unit test class for the WriteBehindConnection class, on top of an embedded database.
+ */
+public class WriteBehindConnectionTest {
+  private static final AtomicInteger databaseCounter = new AtomicInteger();
+  // Long enough that only explicit flushes write to the database during a test
+  private static final long NEVER = 3_600_000L;
+
+  @TempDir
+  Path tempDir;
+
+  private EmbeddedConnection database;
+  private Path journal;
+
+  /**
+   * Creates a fresh embedded database and journal location for each test.
+   */
+  @BeforeEach
+  public void setup() {
+    database = new EmbeddedConnection("jdbc:h2:mem:write_behind_test_"
+        + databaseCounter.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    journal = tempDir.resolve("employees.journal");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    database.close();
+  }
+
+  @Test
+  public void testUpdatesAreBufferedAndMerged() throws IOException {
+    WriteBehindConnection writeBehind = new WriteBehindConnection(database, journal, NEVER);
+    Employee employee = writeBehind.getEmployee(1, 1);
+    employee.setSalary(1000);
+    assertTrue(writeBehind.updateEmployee(1, employee));
+    employee.setSalary(2000);
+    assertTrue(writeBehind.updateEmployee(1, employee));
+
+    assertEquals(1, writeBehind.getPendingCount(), "Updates to one employee should merge");
+    assertEquals(75000.0, database.getEmployee(1, 1).getSalary(), "Nothing written yet");
+    assertEquals(2000.0, writeBehind.getEmployee(1, 1).getSalary(), "Reads see pending updates");
+    assertEquals(2000.0, writeBehind.loadOrganizationSnapshot(1).getEmployees().get(0).getSalary());
+
+    writeBehind.flush();
+    assertEquals(0, writeBehind.getPendingCount());
+    assertEquals(2000.0, database.getEmployee(1, 1).getSalary());
+    writeBehind.close();
+  }
+
+  @Test
+  public void testJournalIsReplayedAfterCrash() {
+    WriteBehindConnection crashed = new WriteBehindConnection(database, journal, NEVER);
+    Employee employee = crashed.getEmployee(1, 2);
+    employee.setPosition("Head of Marketing");
+    employee.setPerformance(99.5);
+    assertEquals(2, crashed.updateEmployees(1, List.of(employee, crashed.getEmployee(1, 3))));
+    assertTrue(Files.exists(journal));
+
+    // A new instance on the same journal recovers the acknowledged updates
+    WriteBehindConnection recovered = new WriteBehindConnection(database, journal, NEVER);
+    assertEquals(2, recovered.getPendingCount());
+    recovered.close();
+    Employee stored = database.getEmployee(1, 2);
+    assertEquals("Head of Marketing", stored.getPosition());
+    assertEquals(99.5, stored.getPerformance());
+    assertFalse(Files.exists(tempDir.resolve("employees.journal.flushing")));
+  }
+
+  @Test
+  public void testJournalKeepsExactAmounts() throws IOException {
+    WriteBehindConnection crashed = new WriteBehindConnection(database, journal, NEVER);
+    Employee employee = crashed.getEmployee(1, 1);
+    employee.setSalaryCents(1_234_567_899L);
+    employee.setPerformanceBasisPoints(9_999L);
+    crashed.updateEmployee(1, employee);
+    assertTrue(Files.readString(journal).contains("\t1234567899\t9999"),
+        "Amounts are journaled as exact cents and basis points");
+
+    WriteBehindConnection recovered = new WriteBehindConnection(database, journal, NEVER);
+    recovered.close();
+    Employee stored = database.getEmployee(1, 1);
+    assertEquals(1_234_567_899L, stored.getSalaryCents());
+    assertEquals(9_999L, stored.getPerformanceBasisPoints());
+  }
+
+  @Test
+  public void testPeriodicFlush() throws InterruptedException {
+    WriteBehindConnection writeBehind = new WriteBehindConnection(database, journal, 50L);
+    Employee employee = writeBehind.getEmployee(1, 3);
+    employee.setSalary(4321);
+    writeBehind.updateEmployee(1, employee);
+
+    long deadline = System.currentTimeMillis() + 5_000L;
+    while (writeBehind.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(4321.0, database.getEmployee(1, 3).getSalary());
+    writeBehind.close();
+  }
+
+  @Test
+  public void testWritesThroughAfterClose() {
+    WriteBehindConnection writeBehind = new WriteBehindConnection(database, journal, NEVER);
+    writeBehind.close();
+    Employee employee = writeBehind.getEmployee(1, 1);
+    employee.setSalary(5555);
+    assertTrue(writeBehind.updateEmployee(1, employee));
+    assertEquals(5555.0, database.getEmployee(1, 1).getSalary());
+  }
+
+  @Test
+  public void testFailedWritesAreKeptAndRetried() throws IOException {
+    DatabaseConnection failing = mock(DatabaseConnection.class);
+    when(failing.updateEmployees(anyInt(), anyList())).thenReturn(0);
+    WriteBehindConnection crashed = new WriteBehindConnection(failing, journal, NEVER);
+    Employee employee = new Employee(1, "John Doe", null);
+    employee.setSalary(6543.21);
+    assertTrue(crashed.updateEmployee(1, employee));
+
+    // An outage longer than any retry budget neither drops the update nor its journal
+    for (int i = 0; i < 10; i++) {
+      crashed.flush();
+    }
+    verify(failing, times(10)).updateEmployees(anyInt(), anyList());
+    assertEquals(1, crashed.getPendingCount());
+    assertTrue(Files.exists(tempDir.resolve("employees.journal.flushing")));
+
+    // After a crash, the database is back and the update is written
+    WriteBehindConnection recovered = new WriteBehindConnection(database, journal, NEVER);
+    assertEquals(1, recovered.getPendingCount());
+    recovered.close();
+    assertEquals(6543.21, database.getEmployee(1, 1).getSalary());
+    assertFalse(Files.exists(tempDir.resolve("employees.journal.flushing")));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFacadeChangesAreBuffered() throws Exception {
+    WriteBehindConnection writeBehind = new WriteBehindConnection(database, journal, NEVER);
+    Field instancesField = HrDatabaseFacade.class.getDeclaredField("instances");
+    instancesField.setAccessible(true);
+    Map<Integer, HrDatabaseFacade> instances =
+        (Map<Integer, HrDatabaseFacade>) instancesField.get(null);
+    instances.clear();
+    HrDatabaseFacade.setConnection(new InstrumentedConnection(writeBehind, new QueryMetrics()));
+    try {
+      HrDatabaseFacade facade = HrDatabaseFacade.getInstance(1);
+      assertTrue(facade.modifyEmployee(3, employee -> employee.setSalary(77000)));
+
+      // Acknowledged from the journal, without a compare-and-set flushing the buffer
+      assertEquals(1, writeBehind.getPendingCount());
+      assertEquals(70000.0, database.getEmployee(1, 3).getSalary());
+      assertEquals(77000.0, facade.getEmployee(3).getSalary());
+      writeBehind.flush();
+      assertEquals(77000.0, database.getEmployee(1, 3).getSalary());
+    } finally {
+      instances.clear();
+      writeBehind.close();
+    }
+    assertFalse(writeBehind.buffersEmployeeUpdates(), "Writes go through after close");
+  }
+}